@@ -0,0 +1,285 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The algae layer holds all the algae of a field as one age per cell
+ * instead of one object per plant. Algae are the food source for the
+ * herbivorous species, they never move and they spread by dropping
+ * fragments into the free cells around them.
+ *
+ * A cell holds 0 when there is no algae in it, otherwise the age of
+ * the algae plus one.
+ *
+ * @author Nicolás Alcalá Olea and Bailey Crossan
+ */
+public class AlgaeLayer
+{
+    // Characteristics shared by all algae (class variables), see Species.ALGAE.
+
+    // The stage at which an algae can start to reproduce.
+    private static final int GROWTH_AGE = Species.ALGAE.getBreedingAge();
+    // The age to which an algae can last.
+    private static final int MAX_AGE = Species.ALGAE.getMaxAge();
+    // The likelihood of an algae reproducing.
+    private static final double GROWTH_PROBABILITY = Species.ALGAE.getBreedingProbability();
+    // The maximum number of algae fragments that an algae can drop.
+    private static final int MAX_LITTER_SIZE = Species.ALGAE.getMaxLitterSize();
+    // The cells an algae drops its fragments into.
+    private static final Neighbourhood SPREAD = Species.ALGAE.getMovement();
+
+    // The state of an algae in the world's hash, which only records
+    // where there are algae.
+    public static final int HASH_STATE = Species.ALGAE.id();
+
+    // The dimensions of the layer.
+    private final int depth, width;
+    // The age plus one of the algae in every cell, 0 for none.
+    private final byte[] ages;
+    // The number of algae in the layer.
+    private int count;
+    // The Zobrist hash of the algae in the layer.
+    private long hash;
+    // The free cells around the algae being grown.
+    private final int[] freeCells = new int[SPREAD.size()];
+
+    /**
+     * Create an empty layer of the given dimensions.
+     *
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     */
+    public AlgaeLayer(int depth, int width)
+    {
+        assert MAX_AGE < Byte.MAX_VALUE;
+        this.depth = depth;
+        this.width = width;
+        ages = new byte[depth * width];
+    }
+
+    /**
+     * Create a copy of another layer.
+     *
+     * @param other The layer to copy.
+     */
+    public AlgaeLayer(AlgaeLayer other)
+    {
+        depth = other.depth;
+        width = other.width;
+        ages = other.ages.clone();
+        count = other.count;
+        hash = other.hash;
+    }
+
+    /**
+     * Plant an algae of the given age in a cell.
+     *
+     * @param index The cell index (row * width + col).
+     * @param age The age of the algae.
+     */
+    public void plant(int index, int age)
+    {
+        if(ages[index] == 0) {
+            count++;
+            hash ^= Zobrist.key(index, HASH_STATE);
+        }
+        ages[index] = (byte) (age + 1);
+    }
+
+    /**
+     * Draw a random age for an algae created with the field.
+     *
+     * @param random The random generator to use.
+     * @return An age below the maximum age.
+     */
+    public static int randomAge(Random random)
+    {
+        return random.nextInt(MAX_AGE);
+    }
+
+    /**
+     * Check whether there is an algae in a cell.
+     *
+     * @param index The cell index (row * width + col).
+     * @return true If the cell holds an algae.
+     */
+    public boolean has(int index)
+    {
+        return ages[index] != 0;
+    }
+
+    /**
+     * Remove the algae from a cell, because it has been eaten.
+     *
+     * @param index The cell index (row * width + col).
+     */
+    public void remove(int index)
+    {
+        if(ages[index] != 0) {
+            ages[index] = 0;
+            count--;
+            hash ^= Zobrist.key(index, HASH_STATE);
+        }
+    }
+
+    /**
+     * @return The number of algae in the layer.
+     */
+    public int getCount()
+    {
+        return count;
+    }
+
+    /**
+     * Empty the layer.
+     */
+    public void clear()
+    {
+        Arrays.fill(ages, (byte) 0);
+        count = 0;
+        hash = 0;
+    }
+
+    /**
+     * @return The Zobrist hash of the algae in the layer.
+     */
+    public long getHash()
+    {
+        return hash;
+    }
+
+    /**
+     * Defines the actions performed by all the algae during one simulation
+     * step, as two passes over the whole layer. First every algae gets
+     * older and the ones past their maximum age die. Then every algae old
+     * enough might drop fragments into the free cells around it in the next
+     * field. As before, an algae lives on through its fragments only: it is
+     * not carried into the next field itself. They are active during the
+     * whole day. The count and hash of this layer are not kept up to date
+     * by this, as the layer is thrown away after the step.
+     *
+     * @param nextFieldState The updated field, with its animals already placed.
+     */
+    public void act(Field nextFieldState)
+    {
+        // Ageing: a plain loop over the bytes with no calls, which the JIT
+        // can turn into vector instructions.
+        byte limit = (byte) (MAX_AGE + 1);
+        for(int i = 0; i < ages.length; i++) {
+            byte age = ages[i];
+            byte older = (byte) (age + 1);
+            ages[i] = age == 0 || older > limit ? 0 : older;
+        }
+
+        Environment environment = nextFieldState.getEnvironment();
+        Random rand = environment.getRandom();
+        OceanLayers layers = environment.getLayers();
+        boolean local = environment.hasLocalWeather();
+        double growthModifier = getPlantGrowthModifier(environment.getCurrentWeather());
+        AlgaeLayer nextAlgae = nextFieldState.getAlgae();
+        for(int i = 0; i < ages.length; i++) {
+            if(ages[i] > GROWTH_AGE) {
+                if(local) {
+                    // The weather and the nutrients of the algae's own cell.
+                    growthModifier = environment.getModifier(WeatherEffect.PLANT_GROWTH, i);
+                    if(layers != null) {
+                        growthModifier *= layers.getGrowthFactor(i);
+                    }
+                }
+                grow(rand, i, nextFieldState, nextAlgae, growthModifier);
+            }
+        }
+    }
+
+    /**
+     * Drop the fragments of one algae into the free cells around it,
+     * if it grows in this step. With ocean layers, a fragment drifts one
+     * more cell along a strong current if that cell is free.
+     *
+     * @param rand The random generator of the world.
+     * @param index The cell of the algae.
+     * @param nextFieldState The updated field.
+     * @param nextAlgae The algae layer of the updated field.
+     * @param growthModifier The effect of the weather and nutrients on growth.
+     */
+    private void grow(Random rand, int index, Field nextFieldState, AlgaeLayer nextAlgae, double growthModifier)
+    {
+        int free = findFreeCells(index, nextFieldState, nextAlgae);
+        if(free == 0 || rand.nextDouble() > GROWTH_PROBABILITY) {
+            return;
+        }
+        int fragments = (int) ((rand.nextInt(MAX_LITTER_SIZE) + 1) * growthModifier);
+        for(int b = 0; b < fragments && b < free; b++) {
+            // Pick a random one of the free cells not used yet.
+            int pick = b + rand.nextInt(free - b);
+            int cell = freeCells[pick];
+            freeCells[pick] = freeCells[b];
+            OceanLayers layers = nextFieldState.getEnvironment().getLayers();
+            if(layers != null) {
+                int drifted = layers.drift(cell);
+                Terrain terrain = nextFieldState.getEnvironment().getTerrain();
+                if(drifted >= 0 && isFreeFor(drifted, nextFieldState, nextAlgae)
+                   && (terrain == null || terrain.isReef(drifted))) {
+                    cell = drifted;
+                }
+            }
+            nextAlgae.plant(cell, 0);
+        }
+    }
+
+    /**
+     * Collect the cells around an algae that hold neither a live animal,
+     * a fish of a school nor an algae in the next field, in row order.
+     * With a terrain only reef cells count.
+     *
+     * @param index The cell of the algae.
+     * @param nextFieldState The updated field.
+     * @param nextAlgae The algae layer of the updated field.
+     * @return The number of free cells stored in freeCells.
+     */
+    private int findFreeCells(int index, Field nextFieldState, AlgaeLayer nextAlgae)
+    {
+        int found = nextFieldState.getReefNeighbours(index, SPREAD, freeCells);
+        int free = 0;
+        for(int k = 0; k < found; k++) {
+            int cell = freeCells[k];
+            if(isFreeFor(cell, nextFieldState, nextAlgae)) {
+                freeCells[free++] = cell;
+            }
+        }
+        return free;
+    }
+
+    /**
+     * Check whether a new algae can grow in a cell of the next field: it
+     * holds neither a live animal, a fish of a school nor an algae.
+     *
+     * @param cell The cell index.
+     * @param nextFieldState The updated field.
+     * @param nextAlgae The algae layer of the updated field.
+     * @return true If the cell is free.
+     */
+    private static boolean isFreeFor(int cell, Field nextFieldState, AlgaeLayer nextAlgae)
+    {
+        return !nextAlgae.has(cell) && !nextFieldState.hasLiveAnimal(cell) && !nextFieldState.hasSchoolAt(cell);
+    }
+
+    /**
+     * Check if the weather is foggy if so make the algae grow
+     * less as there is less sunlight hitting them, if it is cold
+     * they also grow less.
+     *
+     * @param weather The current weather.
+     * return The algae growth rate.
+     */
+    static double getPlantGrowthModifier(Weather weather) {
+        switch (weather) {
+            case Weather.FOG:
+                return 0.9;
+
+            case Weather.COLD:
+                return 0.8;
+
+            default: return 1;
+        }
+    }
+}
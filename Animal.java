@@ -1,57 +1,738 @@
 import java.util.Random;
 import java.util.List;
+import java.util.Iterator;
+import java.util.Comparator;
 
 /**
- * The animal class represents a concept of an organism that can move
- * and interact within the simulation in different ways depending on 
- * their needs.
- * 
+ * The animal class represents an organism that can move and interact
+ * within the simulation. Every animal runs the same behaviour and the
+ * differences between species are read from its {@link Species} entry:
+ * they can breed, eat what their diet allows to survive, diurnal species
+ * sleep at night and if the maximum age is reached or they don't eat what
+ * they are required they will die. They will also likely die if the
+ * disease catches them, it can also be transmitted to their mate or baby.
+ *
  * @author Nicolás Alcalá Olea and Bailey Crossan
  */
-public abstract class Animal implements Organism
+public class Animal implements Organism
 {
+    // The likelihood of a baby inheriting the disease from an infected parent.
+    static final double INHERIT_PROBABILITY = 0.01;
+    // The likelihood of an animal of a water column that found no food
+    // moving to the layer above or below.
+    private static final double VERTICAL_MOVE_PROBABILITY = 0.1;
+
+    // The rare events of a step that can be drawn for a whole species at
+    // once, as bits of the events field.
+
+    // The animal catches the disease.
+    public static final int INFECTION = 1;
+    // The animal dies of the disease, if it is infected.
+    public static final int DISEASE_DEATH = 2;
+    // The weather keeps the animal from moving.
+    public static final int STAY_STILL = 4;
+
+    // The number of low bits of the age dropped in the hashed state, so
+    // the hash changes every 16 steps of age instead of every step.
+    private static final int AGE_BUCKET_BITS = 4;
+
     // Whether the animal is alive or not.
     private boolean alive;
     // The animal's position.
     private Location location;
     // The animal's gender.
     protected boolean isMale;
-    // A Random for the animal's gender to be randomised.
-    private Random random = new Random();
-    // An instance of Time so they act different depending on what time it is.
-    private static Time time = new Time();
     // A boolean which keeps track of whether the animal is diseased.
     protected boolean infected;
-    // A string which holds the name of the animal in camel case.
-    protected String name;
+    // The species of the animal, which holds all its characteristics.
+    private final Species species;
+    // The animal's age.
+    private int age;
+    // The animal's food level, which is increased by eating.
+    private int foodLevel;
+    // The events drawn for the animal in this step.
+    private int events;
+    // The death a Bookkeeping pass found for the animal in this step,
+    // due when it acts, or null.
+    private LineageLog.Cause dueDeath;
+    // The field whose hash includes the animal, if any.
+    private Field home;
+    // The animal's heritable traits (see Genome).
+    private long genome = Genome.NEUTRAL;
+    // The log of the animal's birth and death, or null if it is not
+    // logged, and its id there.
+    private LineageLog lineage;
+    private long id;
 
     /**
-     * Constructor for objects of class Animal, where we declare that the
-     * animal is alive, where it is going to spawn and give them a random 
-     * gender.
-     * 
+     * Create an animal. An animal can be created as a new born (age zero)
+     * or with a random age. It is alive, spawns in the given location, is
+     * given a random gender and a random food level, drawn from the given
+     * random generator so animals can be created by several threads each
+     * with its own generator.
+     *
+     * @param species The species of the animal.
+     * @param randomAge If true, the animal will have random age.
      * @param location The animal's location.
+     * @param random The random generator to use.
      */
-    public Animal(Location location)
+    public Animal(Species species, boolean randomAge, Location location, Random random)
     {
+        this.species = species;
         this.alive = true;
         this.location = location;
         this.isMale = random.nextBoolean(); // Gender randomised.
-        this.infected = false; 
+        this.infected = false;
+
+        if(randomAge) {
+            age = random.nextInt(species.getMaxAge());
+        }
+        else {
+            age = 0;
+        }
+        foodLevel = random.nextInt(species.getFoodValue());
+    }
+
+    /**
+     * Create a copy of an animal, in the same state and location, which
+     * is not placed in any field yet.
+     *
+     * @param other The animal to copy.
+     */
+    public Animal(Animal other)
+    {
+        this(other.species, other.location, other.isMale, other.infected, other.age, other.foodLevel);
+        alive = other.alive;
+        genome = other.genome;
+    }
+
+    /**
+     * Create a live animal in a given state, like one received from
+     * another process.
+     *
+     * @param species The species of the animal.
+     * @param location The animal's location.
+     * @param isMale The animal's gender.
+     * @param infected Whether the animal has the disease.
+     * @param age The animal's age.
+     * @param foodLevel The animal's food level.
+     */
+    public Animal(Species species, Location location, boolean isMale, boolean infected,
+                  int age, int foodLevel)
+    {
+        this.species = species;
+        this.alive = true;
+        this.location = location;
+        this.isMale = isMale;
+        this.infected = infected;
+        this.age = age;
+        this.foodLevel = foodLevel;
+    }
+
+    /**
+     * Defines the actions performed by the animal during one simulation
+     * step: it looks for its source of food and in the process, it might
+     * give birth, die of hunger, die of the disease or die of old age.
+     * Diurnal species only do this during the day time and sleep at night,
+     * the others are active the whole day. Cold weather might keep an
+     * animal from moving in a step, then it stays where it is.
+     * When the current field says so, the rare events of the step have
+     * already been drawn for the animal instead of being rolled here.
+     *
+     * @param currentField The field currently occupied.
+     * @param nextFieldState The updated field.
+     */
+    public void act(Field currentField, Field nextFieldState)
+    {
+        incrementAge();
+        if(isAlive() && !isAsleep(currentField.getEnvironment())) {
+            incrementHunger();
+        }
+        if(isAlive()) {
+            actAged(currentField, nextFieldState);
+        }
+    }
+
+    /**
+     * The rest of act, once the animal got older and hungrier and is still
+     * alive. The BATCHED mode can do that for a whole species at once (see
+     * Bookkeeping) and then only call this.
+     *
+     * @param currentField The field currently occupied.
+     * @param nextFieldState The updated field.
+     */
+    public void actAged(Field currentField, Field nextFieldState)
+    {
+        Environment environment = currentField.getEnvironment();
+        Random rand = environment.getRandom();
+        boolean drawn = currentField.areEventsDrawn();
+        int drawnEvents = events;
+        events = 0;
+
+        if(isAsleep(environment)) {
+            nextFieldState.placeAnimal(this, getLocation()); // Sleep if its night time.
+            if(infected && rand.nextDouble() <= species.getNightDiseaseDeathProbability()) {
+                setDead(LineageLog.Cause.DISEASE);
+            }
+            return;
+        }
+
+        List<Location> freeLocations =
+            nextFieldState.getFreeAdjacentLocations(getLocation(), species.getMovement());
+
+        if(staysStill(environment, rand, drawn, drawnEvents)) {
+            nextFieldState.placeAnimal(this, getLocation()); // Too cold to move.
+            return;
+        }
+
+        if(!infected && catchesDisease(environment, rand, drawn, drawnEvents)) {
+            setInfected();
+        }
+        if(infected && happens(rand, drawn, drawnEvents, DISEASE_DEATH, species.getDiseaseDeathProbability())) {
+            setDead(LineageLog.Cause.DISEASE);
+            return;
+        }
+
+        if(! freeLocations.isEmpty()) {
+            giveBirth(nextFieldState);
+        }
+        // Move towards a source of food if found.
+        Location nextLocation = findFood(currentField, nextFieldState);
+        if(nextLocation == null && (nextFieldState.getAbove() != null || nextFieldState.getBelow() != null)) {
+            // Otherwise it might swim up or down the water column.
+            Field layer = findLayer(nextFieldState, rand);
+            if(layer != null) {
+                layer.placeAnimal(this, getLocation());
+                return;
+            }
+        }
+        if(nextLocation == null && ! freeLocations.isEmpty()) {
+            // No food found - try to move to a free location, towards
+            // the prey if a predator sees some.
+            towardsPrey(currentField, freeLocations);
+            nextLocation = freeLocations.remove(0);
+        }
+        // See if it was possible to move.
+        if(nextLocation != null) {
+            setLocation(nextLocation);
+            nextFieldState.placeAnimal(this, nextLocation);
+        }
+        else {
+            // Overcrowding.
+            setDead(LineageLog.Cause.CROWDED);
+        }
+    }
+
+    /**
+     * Decide whether the animal moves to the layer above or below, which
+     * must be one it lives in, with its cell there free.
+     *
+     * @param nextFieldState The updated field of the animal's layer.
+     * @param rand The random generator of the world.
+     * @return The updated field of the layer it moves to, or null if it
+     *         stays in its layer.
+     */
+    private Field findLayer(Field nextFieldState, Random rand)
+    {
+        if(rand.nextDouble() >= VERTICAL_MOVE_PROBABILITY) {
+            return null;
+        }
+        int index = nextFieldState.indexOf(location);
+        Field up = nextFieldState.getAbove();
+        Field down = nextFieldState.getBelow();
+        boolean canRise = up != null && species.livesIn(up.getWaterLayer()) && up.isFree(index);
+        boolean canSink = down != null && species.livesIn(down.getWaterLayer()) && down.isFree(index);
+        if(canRise && canSink) {
+            return rand.nextBoolean() ? up : down;
+        }
+        return canRise ? up : canSink ? down : null;
+    }
+
+    /**
+     * Check whether an event happens to the animal in this step, either
+     * by looking at the drawn events or by rolling for it.
+     *
+     * @param rand The random generator of the world.
+     * @param drawn Whether the events have been drawn already.
+     * @param drawnEvents The events drawn for the animal.
+     * @param event The event to check.
+     * @param probability The likelihood of the event.
+     * @return true If the event happens.
+     */
+    private boolean happens(Random rand, boolean drawn, int drawnEvents, int event, double probability)
+    {
+        if(drawn) {
+            return (drawnEvents & event) != 0;
+        }
+        return rand.nextDouble() <= probability;
+    }
+
+    /**
+     * Mark an event as drawn for the animal in this step.
+     *
+     * @param event The event that happens.
+     */
+    public void markEvent(int event)
+    {
+        events |= event;
+    }
+
+    /**
+     * Let the animal sleep through a night step without acting: it only
+     * gets older. This is what act does for a diurnal species at night,
+     * apart from the disease, which the simulator draws for all the
+     * sleeping animals together.
+     *
+     * @return true If the animal is still alive.
+     */
+    public boolean sleep()
+    {
+        incrementAge();
+        return isAlive();
+    }
+
+    @Override
+    public String toString()
+    {
+        return species.getDisplayName() + "{" +
+        "age=" + age +
+        ", alive=" + isAlive() +
+        ", location=" + getLocation() +
+        ", foodLevel=" + foodLevel +
+        '}';
     }
 
     /**
-     * Makes the animal perform within the simulation. 
-     * See more in the subclasses.
-     * 
-     * @param currentField The current state of the field.
-     * @param nextFieldState The new state being built.
+     * Increase the age. This could result in the animal's death.
      */
-    abstract public void act(Field currentField, Field nextFieldState);
+    private void incrementAge()
+    {
+        int oldState = hashState();
+        age++;
+        if((age & ((1 << AGE_BUCKET_BITS) - 1)) == 0) {
+            rehash(oldState);
+        }
+        if(age > species.getMaxAge()) {
+            setDead(LineageLog.Cause.AGE);
+        }
+    }
+
+    /**
+     * Make this animal more hungry. This could result in the animal's death.
+     */
+    private void incrementHunger()
+    {
+        foodLevel--;
+        if(foodLevel <= 0) {
+            setDead(LineageLog.Cause.HUNGER);
+        }
+    }
+
+    /**
+     * Take the age and food level worked out for the animal by a
+     * Bookkeeping pass.
+     *
+     * @param newAge The new age.
+     * @param newFoodLevel The new food level.
+     * @param dies Whether the animal dies of old age or hunger when it
+     *             acts.
+     */
+    public void setBookkeeping(int newAge, int newFoodLevel, boolean dies)
+    {
+        if(((age ^ newAge) >>> AGE_BUCKET_BITS) != 0) {
+            int oldState = hashState();
+            age = newAge;
+            rehash(oldState);
+        }
+        else {
+            age = newAge;
+        }
+        foodLevel = newFoodLevel;
+        dueDeath = !dies ? null : age > species.getMaxAge() ? LineageLog.Cause.AGE : LineageLog.Cause.HUNGER;
+    }
+
+    /**
+     * Act once a Bookkeeping pass made the animal older and hungrier. As
+     * in act, an animal the pass found too old or starving dies only now,
+     * so until its turn it can still be eaten or mate.
+     *
+     * @param currentField The field currently occupied.
+     * @param nextFieldState The updated field.
+     */
+    public void actBooked(Field currentField, Field nextFieldState)
+    {
+        if(dueDeath != null) {
+            setDead(dueDeath);
+        }
+        else {
+            actAged(currentField, nextFieldState);
+        }
+    }
+
+    /**
+     * If the animal is a predator and sees prey further than its
+     * neighbours, put the cells closest to the prey first. The sort is
+     * stable, so cells as close as each other keep their random order.
+     *
+     * @param field The field currently occupied.
+     * @param cells The cells the animal could move to, reordered.
+     */
+    private void towardsPrey(Field field, List<Location> cells)
+    {
+        PreyVision vision = field.getPreyVision();
+        if(vision != null && species.isPredator()) {
+            cells.sort(Comparator.comparingInt(cell -> vision.distance(species, cell)));
+        }
+    }
+
+    /**
+     * Tell whether the animal's species sleeps in the current step.
+     *
+     * @param environment The environment of the field.
+     * @return true If it is a diurnal species and night time.
+     */
+    private boolean isAsleep(Environment environment)
+    {
+        return species.isDiurnal() && !environment.isDay();
+    }
+
+    /**
+     * Tell whether the animal dies of old age or hunger when it next acts
+     * or plans its step, from its age and food level before the step.
+     *
+     * @param environment The environment of the field.
+     * @return true If it dies of old age or hunger in the step.
+     */
+    public boolean isDying(Environment environment)
+    {
+        return age + 1 > species.getMaxAge() || (!isAsleep(environment) && foodLevel <= 1);
+    }
+
+    /**
+     * Look for something the animal eats adjacent to the current location.
+     * Only the first live organism that is part of its diet is eaten.
+     * Weather could alter this behaviour.
+     *
+     * @param field The field currently occupied.
+     * @param nextFieldState The updated field.
+     * @return Where food was found, or null if it wasn't.
+     */
+    private Location findFood(Field field, Field nextFieldState)
+    {
+        Location foodLocation = chooseFood(field, field.getEnvironment().getRandom(), nextFieldState);
+        if(foodLocation != null) {
+            int bit = field.getSpeciesBitAt(foodLocation);
+            if((bit & species.getDiet()) == 0) {
+                // A fish of a school.
+                field.getSchools().catchAt(foodLocation, field.getEnvironment().getRandom());
+            }
+            else if((bit & Species.PLANT_MASK) != 0) {
+                field.removeAlgaeAt(foodLocation);
+            }
+            else {
+                field.getAnimalAt(foodLocation).setDead(LineageLog.Cause.EATEN);
+            }
+            feed();
+        }
+        return foodLocation;
+    }
+
+    /**
+     * The animal has eaten, so it is no longer hungry.
+     */
+    public void feed()
+    {
+        foodLevel = Math.max(1, (int) Math.round(species.getFoodValue() * Genome.getFactor(genome, Genome.Trait.FOOD_VALUE)));
+    }
+
+    /**
+     * Choose what the animal eats adjacent to the current location,
+     * without eating it yet: the first live organism that is part of its
+     * diet and that the animal manages to catch. It also hunts the fish
+     * of the schools (see SchoolLayer.getSchoolAt) in the cells with no
+     * animal in either field.
+     *
+     * @param field The field currently occupied.
+     * @param rand The random generator to use.
+     * @param nextFieldState The updated field.
+     * @return Where the food is, or null if none was caught.
+     */
+    private Location chooseFood(Field field, Random rand, Field nextFieldState)
+    {
+        List<Location> adjacent = field.getAdjacentLocations(getLocation(), rand, species.getMovement());
+        Iterator<Location> it = adjacent.iterator();
+
+        int diet = species.getDiet();
+        double feedingModifier = field.getEnvironment().getModifier(WeatherEffect.feeding(species), location);
+        SchoolLayer schools = (diet & SchoolLayer.SCHOOLING_MASK) == 0 ? null : field.getSchools();
+        while(it.hasNext()) {
+            Location loc = it.next();
+            if((diet & field.getSpeciesBitAt(loc)) != 0 && rand.nextDouble() <= feedingModifier) {
+                return loc;
+            }
+            if(schools != null && (field.getSpeciesBitAt(loc) & ~Species.PLANT_MASK) == 0) {
+                int index = field.indexOf(loc);
+                Species fish = schools.getSchoolAt(index);
+                if(fish != null && (diet & fish.bit()) != 0 && !nextFieldState.hasLiveAnimal(index)
+                   && rand.nextDouble() <= feedingModifier) {
+                    return loc;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Plan the animal's step without changing anything but its own age,
+     * food level and drawn events, for the INTENTS mode. It makes the
+     * same choices as act, from the current field only, and writes them
+     * as a claim (and one claim for every young) into the buffer: it
+     * gives birth only with a free cell around it, and to no more young
+     * than there are free cells (see countFreeCells). What happens to
+     * other animals and where everyone ends up is settled afterwards by
+     * IntentStep, which drops the young of a parent eaten in the step.
+     *
+     * @param currentField The field currently occupied.
+     * @param rand The random generator of the planning thread.
+     * @param out The buffer of the planning thread.
+     */
+    public void plan(Field currentField, Random rand, IntentBuffer out)
+    {
+        Environment environment = currentField.getEnvironment();
+        boolean drawn = currentField.areEventsDrawn();
+        int drawnEvents = events;
+        events = 0;
+        int claim = out.add(this, currentField.indexOf(location));
+
+        // The hash of the current field is not updated: it is thrown
+        // away after the step, and the animal is hashed again when it is
+        // placed in the next field.
+        age++;
+        if(age > species.getMaxAge()) {
+            out.mark(claim, IntentBuffer.DIES);
+            return;
+        }
+        if(isAsleep(environment)) {
+            out.mark(claim, IntentBuffer.STAYS);
+            if(infected && rand.nextDouble() <= species.getNightDiseaseDeathProbability()) {
+                out.mark(claim, IntentBuffer.DIES);
+            }
+            return;
+        }
+        foodLevel--;
+        if(foodLevel <= 0) {
+            out.mark(claim, IntentBuffer.DIES);
+            return;
+        }
+
+        // The cells are only known to be free when the claims are
+        // settled, so every adjacent cell is a candidate.
+        List<Location> adjacent = currentField.getAdjacentLocations(location, rand, species.getMovement());
+        towardsPrey(currentField, adjacent);
+        if(staysStill(environment, rand, drawn, drawnEvents)) {
+            out.mark(claim, IntentBuffer.STAYS);
+            return;
+        }
+
+        boolean sick = infected;
+        if(!sick && catchesDisease(environment, rand, drawn, drawnEvents)) {
+            out.mark(claim, IntentBuffer.INFECTED);
+            sick = true;
+        }
+        if(sick && happens(rand, drawn, drawnEvents, DISEASE_DEATH, species.getDiseaseDeathProbability())) {
+            out.mark(claim, IntentBuffer.DIES);
+            return;
+        }
+
+        out.setCandidates(claim, adjacent, currentField);
+        // Like act, it only gives birth with a free cell around it.
+        int free = countFreeCells(currentField, adjacent, out, out.getOrigin(claim));
+        if(free > 0) {
+            planBirth(currentField, rand, out, claim, sick, free);
+        }
+        planFood(currentField, rand, out, claim);
+    }
+
+    /**
+     * Plan what the animal eats, like chooseFood but keeping every
+     * organism of its diet around it that it catches, in the order it
+     * looks at them. When the claims are settled it eats the first one
+     * still there, as in act, where an organism eaten by an animal that
+     * acted before is no longer there and it goes on looking. The fish
+     * of the schools are left alone.
+     *
+     * @param field The field currently occupied.
+     * @param rand The random generator of the planning thread.
+     * @param out The buffer of the planning thread.
+     * @param claim The animal's claim.
+     */
+    private void planFood(Field field, Random rand, IntentBuffer out, int claim)
+    {
+        List<Location> adjacent = field.getAdjacentLocations(getLocation(), rand, species.getMovement());
+        int diet = species.getDiet();
+        double feedingModifier = field.getEnvironment().getModifier(WeatherEffect.feeding(species), location);
+        for(Location loc : adjacent) {
+            if((diet & field.getSpeciesBitAt(loc)) != 0 && rand.nextDouble() <= feedingModifier) {
+                out.addFood(claim, field.indexOf(loc));
+            }
+        }
+    }
+
+    /**
+     * Plan the births of a step, like giveBirth but with a mate from the
+     * current field (see findPlannedMate). The young are created here, but only take a cell if
+     * they win one.
+     *
+     * @param currentField The field currently occupied.
+     * @param rand The random generator of the planning thread.
+     * @param out The buffer of the planning thread.
+     * @param claim The animal's claim.
+     * @param sick Whether the animal has the disease by now.
+     * @param cells The number of free cells around the animal, which
+     *              caps the litter as in giveBirth.
+     */
+    private void planBirth(Field currentField, Random rand, IntentBuffer out, int claim, boolean sick, int cells)
+    {
+        Animal mate = findPlannedMate(currentField, rand, out, out.getOrigin(claim));
+        if(mate == null) {
+            return;
+        }
+        double transmissionProbability = species.getTransmissionProbability();
+        if(sick && !mate.isInfected()) {
+            if(rand.nextDouble() <= transmissionProbability) {
+                out.infectMate(claim, mate);
+            }
+        }
+        else if(!sick && mate.isInfected()) {
+            if(rand.nextDouble() <= transmissionProbability) {
+                out.mark(claim, IntentBuffer.INFECTED);
+                sick = true;
+            }
+        }
+        int births = Math.min(breed(rand), cells);
+        // In act the animal moves on to a cell that was free before it
+        // gave birth, so it lands on one of its young as often as the
+        // young took that cell.
+        if(births > 0 && rand.nextInt(cells) < births) {
+            births--;
+        }
+        boolean evolution = currentField.getEnvironment().hasEvolution();
+        for(int b = 0; b < births; b++) {
+            Animal young = new Animal(species, false, null, rand);
+            if(evolution) {
+                young.setGenome(Genome.inherit(genome, mate.genome, rand));
+            }
+            if(mate.isInfected() || sick) {
+                if(rand.nextDouble() <= INHERIT_PROBABILITY) {
+                    young.setInfected();
+                }
+            }
+            // The parent tries its cells from the first one, so every
+            // young starts from another one.
+            out.addYoung(claim, young, mate, b + 1);
+        }
+    }
+
+    /**
+     * Count the cells around the animal that would be free in the next
+     * field when it acts, as act finds them: the ones with no animal
+     * that acted before it and lived (see findPlannedMate) or sleeps
+     * there, and no sleeping fish of a school. The animals that act
+     * later have not taken a cell of the next field yet, and the algae
+     * are only spread into it after the animals.
+     *
+     * @param field The field currently occupied.
+     * @param adjacent The cells around the animal.
+     * @param out The buffer of the planning thread.
+     * @param origin The cell of the animal.
+     * @return The number of free cells.
+     */
+    private int countFreeCells(Field field, List<Location> adjacent, IntentBuffer out, int origin)
+    {
+        Environment environment = field.getEnvironment();
+        boolean schoolsAsleep = SchoolLayer.isAsleep(environment);
+        int free = 0;
+        for(Location loc : adjacent) {
+            int index = field.indexOf(loc);
+            Animal animal = field.getAnimalAt(loc);
+            boolean taken = animal != null && animal.isAlive()
+                            && ((out.ranksBefore(index, origin) && !out.isDying(index))
+                                || animal.isAsleep(environment));
+            if(!taken && !(schoolsAsleep && field.hasSchoolAt(index))) {
+                free++;
+            }
+        }
+        return free;
+    }
+
+    /**
+     * Give birth to new animals of the same species that spawn if there
+     * are free locations around their parent. When mating if one of the
+     * parents has the disease there is a chance that it transmitts the
+     * disease to the other mate. And if a parent has the disease, their
+     * baby might also have the disease.
+     *
+     * @param nextFieldState Where the new animals are going to be added.
+     */
+    public void giveBirth(Field nextFieldState)
+    {
+        Animal mate = findBreedingMate(nextFieldState);
+        if (mate != null) {
+            Random rand = nextFieldState.getEnvironment().getRandom();
+            double transmissionProbability = species.getTransmissionProbability();
+            if (this.isInfected() && !mate.isInfected()) {
+                if (rand.nextDouble() <= transmissionProbability) {
+                    mate.setInfected();
+                }
+            } else if (!this.isInfected() && mate.isInfected()) {
+                if (rand.nextDouble() <= transmissionProbability) {
+                    this.setInfected();
+                }
+            }
+            int births = breed(rand);
+            List<Location> freeLocations = nextFieldState.getFreeAdjacentLocations(this.getLocation(), species.getMovement());
+            for (int b = 0; b < births && !freeLocations.isEmpty(); b++) {
+                Location loc = freeLocations.remove(0);
+                Animal young = new Animal(species, false, loc, rand);
+                if(nextFieldState.getEnvironment().hasEvolution()) {
+                    young.setGenome(Genome.inherit(genome, mate.genome, rand));
+                }
+                young.bornTo(this, mate);
+                if(mate.isInfected() || this.isInfected()) {
+                    if (rand.nextDouble() <= INHERIT_PROBABILITY) {
+                        young.setInfected();
+                    }
+                }
+                nextFieldState.placeAnimal(young, loc);
+            }
+        }
+    }
+
+    /**
+     * Generate a number representing the number of births,
+     * if it can breed. The genome scales the likelihood of breeding and
+     * the largest litter.
+     *
+     * @param rand The random generator of the world.
+     * @return The number of births (may be zero).
+     */
+    private int breed(Random rand)
+    {
+        int births;
+        double breedingProbability = species.getBreedingProbability() * Genome.getFactor(genome, Genome.Trait.BREEDING);
+        if(canBreed(age, species.getBreedingAge()) && rand.nextDouble() <= breedingProbability) {
+            int maxLitterSize = (int) Math.round(species.getMaxLitterSize() * Genome.getFactor(genome, Genome.Trait.LITTER));
+            births = rand.nextInt(Math.max(1, maxLitterSize)) + 1;
+        }
+        else {
+            births = 0;
+        }
+        return births;
+    }
 
     /**
      * Check whether the animal is alive or not.
-     * 
+     *
      * @return true If the animal is still alive.
      */
     public boolean isAlive()
@@ -62,15 +743,40 @@ public abstract class Animal implements Organism
     /**
      * Indicate that the animal is no longer alive.
      */
-    protected void setDead()
+    public void setDead()
     {
+        setDead(LineageLog.Cause.OTHER);
+    }
+
+    /**
+     * Indicate that the animal is no longer alive, logging why if its
+     * lineage is logged.
+     *
+     * @param cause Why it died.
+     */
+    public void setDead(LineageLog.Cause cause)
+    {
+        if(alive && lineage != null) {
+            lineage.death(id, species, cause);
+        }
+        leaveField();
         alive = false;
         location = null;
     }
 
+    /**
+     * Return the animal's species.
+     *
+     * @return The animal's species.
+     */
+    public Species getSpecies()
+    {
+        return species;
+    }
+
     /**
      * Return the animal's location.
-     * 
+     *
      * @return The animal's location.
      */
     public Location getLocation()
@@ -80,7 +786,7 @@ public abstract class Animal implements Organism
 
     /**
      * Set the animal's location.
-     * 
+     *
      * @param location The new location.
      */
     protected void setLocation(Location location)
@@ -88,12 +794,28 @@ public abstract class Animal implements Organism
         this.location = location;
     }
 
+    /**
+     * @return The animal's age.
+     */
+    public int getAge()
+    {
+        return age;
+    }
+
+    /**
+     * @return The animal's food level.
+     */
+    public int getFoodLevel()
+    {
+        return foodLevel;
+    }
+
     /**
      * Check wether the animal is a male or a female.
-     * 
+     *
      * @return true If the animal is male, false if its a female.
      */
-    public boolean getIsMale() 
+    public boolean getIsMale()
     {
         return isMale;
     }
@@ -101,25 +823,26 @@ public abstract class Animal implements Organism
     /**
      * Ensures that the animal can breed with the others around them
      * if they are from the same species and have a different gender.
-     * 
+     *
      * @param mate The animal who its going to breed with.
      * @return true If all the premises are met.
      */
-    protected boolean canBreedWith(Animal mate) 
+    protected boolean canBreedWith(Animal mate)
     {
-        return mate != null && this.getClass().equals(mate.getClass()) && this.getIsMale() != mate.getIsMale();
+        return mate != null && this.species == mate.species && this.getIsMale() != mate.getIsMale();
     }
 
     /**
      * Go through every field around the animal checking if there is
      * an animal which it can breed with, if so breed.
-     * 
+     *
      * @param field The field where the animal is currently at
      * @return A valid mate to breed with.
      */
-    public Animal findBreedingMate(Field field) 
+    public Animal findBreedingMate(Field field)
     {
-        List<Location> adjacentFields = field.getAdjacentLocations(getLocation());
+        List<Location> adjacentFields =
+            field.getAdjacentLocations(getLocation(), field.getEnvironment().getRandom(), species.getSensing());
         for (Location loc : adjacentFields) {
             Animal animal = field.getAnimalAt(loc);
             if (animal != null && canBreedWith(animal) && animal.isAlive()) {
@@ -130,13 +853,29 @@ public abstract class Animal implements Organism
     }
 
     /**
-     * Returns the current time.
-     * 
-     * @return The current time.
+     * Find a mate for a planned birth. In giveBirth the mate is in the
+     * next field, so it acted before the animal and lived through it; in
+     * the same way only a neighbour whose claim ranks before the animal's
+     * and that does not die of old age or hunger can be the mate.
+     *
+     * @param field The field where the animal is currently at
+     * @param rand The random generator of the planning thread.
+     * @param out The buffer of the planning thread.
+     * @param origin The cell of the animal.
+     * @return A valid mate to breed with.
      */
-    public static Time getTime()
+    private Animal findPlannedMate(Field field, Random rand, IntentBuffer out, int origin)
     {
-        return time;
+        List<Location> adjacentFields = field.getAdjacentLocations(getLocation(), rand, species.getSensing());
+        for (Location loc : adjacentFields) {
+            Animal animal = field.getAnimalAt(loc);
+            int index = field.indexOf(loc);
+            if (animal != null && canBreedWith(animal) && animal.isAlive()
+                    && out.ranksBefore(index, origin) && !out.isDying(index)) {
+                return animal; // The first mate found.
+            }
+        }
+        return null; // No valid mate found.
     }
 
     /**
@@ -144,12 +883,67 @@ public abstract class Animal implements Organism
      */
     public void setInfected()
     {
-        infected = true;
+        if(!infected) {
+            int oldState = hashState();
+            infected = true;
+            rehash(oldState);
+        }
+    }
+
+    /**
+     * Return the state of the animal that is part of the world's hash:
+     * its species, gender, infection and age bucket packed in an int.
+     *
+     * @return The packed state.
+     */
+    public int hashState()
+    {
+        return (age >> AGE_BUCKET_BITS) << 7
+            | (infected ? 1 << 6 : 0)
+            | (isMale ? 1 << 5 : 0)
+            | species.id();
+    }
+
+    /**
+     * Record that the animal has been placed in a field, which now
+     * includes it in its hash.
+     *
+     * @param field The field.
+     */
+    public void enterField(Field field)
+    {
+        home = field;
+    }
+
+    /**
+     * Take the animal out of the hash of the field it was placed in,
+     * because it died or another animal took its cell.
+     */
+    public void leaveField()
+    {
+        if(home != null) {
+            home.toggleHash(location, hashState());
+            home.getTraitHistograms().remove(species, genome);
+            home = null;
+        }
+    }
+
+    /**
+     * Update the hash of the animal's field after its state changed.
+     *
+     * @param oldState The packed state before the change.
+     */
+    private void rehash(int oldState)
+    {
+        if(home != null) {
+            home.toggleHash(location, oldState);
+            home.toggleHash(location, hashState());
+        }
     }
 
     /**
      * Checks if the given animal can breed.
-     * 
+     *
      * @return true If the animal can breed, false otherwise.
      */
     protected boolean canBreed(int age, int BREEDING_AGE)
@@ -159,7 +953,7 @@ public abstract class Animal implements Organism
 
     /**
      * Returns whether the animal is infected or not.
-     * 
+     *
      * @return true If the animal is infected, false otherwise.
      */
     public boolean isInfected()
@@ -168,23 +962,207 @@ public abstract class Animal implements Organism
     }
 
     /**
-     * Gets the name of the given animal.
-     * 
-     * @return name of animal.
+     * Return the animal's heritable traits.
+     *
+     * @return The genome, packed as in Genome.
+     */
+    public long getGenome()
+    {
+        return genome;
+    }
+
+    /**
+     * Return the animal's id in the lineage log.
+     *
+     * @return The id, or 0 if the animal is not logged.
+     */
+    public long getId()
+    {
+        return id;
+    }
+
+    /**
+     * Give the animal an id and log its birth, as one of the first
+     * generation if it has no parents.
+     *
+     * @param log The log.
+     * @param parent The id of the parent that gave birth, or 0.
+     * @param mate The id of the parent's mate, or 0.
+     */
+    public void startLineage(LineageLog log, long parent, long mate)
+    {
+        lineage = log;
+        id = log.birth(species, parent, mate);
+    }
+
+    /**
+     * Log the animal leaving the log while it is still alive, when the
+     * world it lives in is dropped, and stop logging it. Unlike setDead it
+     * leaves the animal as it is, as a branch of the world might still
+     * share it.
+     *
+     * @param cause Why it left.
+     */
+    public void endLineage(LineageLog.Cause cause)
+    {
+        if(alive && lineage != null) {
+            lineage.death(id, species, cause);
+        }
+        lineage = null;
+    }
+
+    /**
+     * Log the birth of a young, if its parent is logged.
+     *
+     * @param parent The parent that gave birth.
+     * @param mate The parent's mate.
+     */
+    public void bornTo(Animal parent, Animal mate)
+    {
+        if(parent.lineage != null) {
+            startLineage(parent.lineage, parent.id, mate.id);
+        }
+    }
+
+    /**
+     * Return why a plan marked the animal to die (see plan): of old
+     * age, of hunger, or else of the disease.
+     *
+     * @return The cause of its death.
      */
-    protected String getName(){
-        return name;
+    public LineageLog.Cause getPlannedDeathCause()
+    {
+        if(age > species.getMaxAge()) {
+            return LineageLog.Cause.AGE;
+        }
+        return foodLevel <= 0 ? LineageLog.Cause.HUNGER : LineageLog.Cause.DISEASE;
+    }
+
+    /**
+     * Give the animal other heritable traits, keeping the trait
+     * histograms of its field up to date.
+     *
+     * @param genome The genome, packed as in Genome.
+     */
+    public void setGenome(long genome)
+    {
+        if(home != null) {
+            home.getTraitHistograms().remove(species, this.genome);
+            home.getTraitHistograms().add(species, genome);
+        }
+        this.genome = genome;
+    }
+
+    /**
+     * Decide whether the weather keeps the animal still in this step. A
+     * drawn event was drawn with the highest likelihood the species has
+     * anywhere in the world (see getStayStillProbability), so where it is
+     * less likely the event only holds for that share of the animals.
+     *
+     * @param environment The environment of the field.
+     * @param rand The random generator to roll with.
+     * @param drawn Whether the events of the step were drawn.
+     * @param drawnEvents The events drawn for the animal.
+     * @return true If the animal stays where it is.
+     */
+    private boolean staysStill(Environment environment, Random rand, boolean drawn, int drawnEvents)
+    {
+        double movingModifier = environment.getModifier(WeatherEffect.moving(species), location);
+        if(!drawn) {
+            return rand.nextDouble() > movingModifier;
+        }
+        if((drawnEvents & STAY_STILL) == 0) {
+            return false;
+        }
+        double drawnProbability = getStayStillProbability(species, environment);
+        double probability = 1 - movingModifier;
+        return probability >= drawnProbability || rand.nextDouble() * drawnProbability < probability;
+    }
+
+    /**
+     * Check whether the animal catches the disease in this step. The
+     * genome scales the likelihood of the species; when the events have
+     * been drawn, they were drawn with the highest likelihood any genome
+     * can have, so only some of them are kept.
+     *
+     * @param environment The environment of the world.
+     * @param rand The random generator of the world.
+     * @param drawn Whether the events have been drawn already.
+     * @param drawnEvents The events drawn for the animal.
+     * @return true If the animal catches the disease.
+     */
+    private boolean catchesDisease(Environment environment, Random rand, boolean drawn, int drawnEvents)
+    {
+        double probability = species.getInfectionProbability() * Genome.getFactor(genome, Genome.Trait.INFECTION);
+        if(!drawn) {
+            return rand.nextDouble() <= probability;
+        }
+        if((drawnEvents & INFECTION) == 0) {
+            return false;
+        }
+        double drawnProbability = getInfectionProbability(species, environment);
+        return probability >= drawnProbability || rand.nextDouble() * drawnProbability < probability;
+    }
+
+    /**
+     * Return the likelihood the infection events of a species are drawn
+     * with: the one of the species, or the highest any genome can have
+     * if the world evolves.
+     *
+     * @param species The species.
+     * @param environment The environment of the world.
+     * @return The likelihood of catching the disease.
+     */
+    public static double getInfectionProbability(Species species, Environment environment)
+    {
+        double probability = species.getInfectionProbability();
+        return environment.hasEvolution() ? Math.min(1, probability * Genome.MAX_FACTOR) : probability;
+    }
+
+    /**
+     * Return the likelihood the stay still events of a species are drawn
+     * with: the one of the current weather, or the highest of any weather
+     * if every cell has its own.
+     *
+     * @param species The species.
+     * @param environment The environment of the world.
+     * @return The likelihood of staying still.
+     */
+    public static double getStayStillProbability(Species species, Environment environment)
+    {
+        if(!environment.hasLocalWeather()) {
+            return 1 - getMovingModifier(species, environment.getCurrentWeather());
+        }
+        double highest = 0;
+        for(Weather weather : Weather.values()) {
+            highest = Math.max(highest, 1 - getMovingModifier(species, weather));
+        }
+        return highest;
+    }
+
+    /**
+     * Get the likelihood of an animal of a species moving, predators use
+     * the predator modifier and the others the prey modifier.
+     *
+     * @param species The species of the animal.
+     * @param weather The current weather.
+     * @return The moving efficiency depending on the weather.
+     */
+    public static double getMovingModifier(Species species, Weather weather)
+    {
+        return species.isPredator() ? getPredatorMovingModifier(weather) : getPreyMovingModifier(weather);
     }
 
     /**
      * Check if the weather is foggy if so make the predators have
      * less of a chance to catch fish.
-     * 
+     *
+     * @param weather The current weather.
      * @return The predator efficiency when acting depending on the weather.
      */
-    protected double getPredatorHuntingModifier() 
+    protected static double getPredatorHuntingModifier(Weather weather)
     {
-        switch (Simulator.weatherManager.getCurrentWeather()) {
+        switch (weather) {
             case Weather.FOG:
                 return 0.9;
 
@@ -195,12 +1173,13 @@ public abstract class Animal implements Organism
     /**
      * Check if the weather is cold if so make the predators have
      * less of a chance to move.
-     * 
+     *
+     * @param weather The current weather.
      * @return The predator efficiency when acting depending on the weather.
      */
-    protected double getPredatorMovingModifier() 
+    protected static double getPredatorMovingModifier(Weather weather)
     {
-        switch (Simulator.weatherManager.getCurrentWeather()) {  
+        switch (weather) {
             case Weather.COLD:
                 return 0.8;
 
@@ -211,12 +1190,13 @@ public abstract class Animal implements Organism
     /**
      * Check if the weather is foggy if so make the prey have
      * less of a chance to feed on the algae.
-     * 
+     *
+     * @param weather The current weather.
      * @return The prey efficiency when acting depending on the weather.
      */
-    protected double getPreyFeedingModifier() 
+    protected static double getPreyFeedingModifier(Weather weather)
     {
-        switch (Simulator.weatherManager.getCurrentWeather()) {
+        switch (weather) {
             case Weather.FOG:
                 return 0.95;
 
@@ -227,12 +1207,13 @@ public abstract class Animal implements Organism
     /**
      * Check if the weather is cold if so make the prey have
      * less of a chance to move.
-     * 
+     *
+     * @param weather The current weather.
      * @return The prey efficiency when acting depending on the weather.
      */
-    protected double getPreyMovingModifier() 
+    protected static double getPreyMovingModifier(Weather weather)
     {
-        switch (Simulator.weatherManager.getCurrentWeather()) {
+        switch (weather) {
             case Weather.COLD:
                 return 0.95;
 
@@ -0,0 +1,213 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+
+/**
+ * An archipelago of separate reefs. Every island is a world of its own,
+ * with its own field, weather and random stream, run by its own thread.
+ * Every few steps the islands meet at a barrier and some of their
+ * animals swim to the next island of the ring.
+ *
+ * The islands never share anything while they step. At a migration each
+ * island writes its leaving animals into its own outbox and, after the
+ * barrier, reads the outbox of the island before it, so no locks are
+ * needed. The outboxes alternate between two sets, so an island that is
+ * ahead cannot overwrite a batch its neighbour has not read yet. Which
+ * animals leave and where they arrive is drawn from the island's own
+ * generator, so a run only depends on its seed. It can be run with
+ *
+ *     java Archipelago [islands] [depth] [width] [steps] [migrationInterval]
+ *
+ * @author Nicolás Alcalá Olea and Bailey Crossan
+ */
+public class Archipelago
+{
+    // The default number of islands.
+    private static final int DEFAULT_ISLANDS = 4;
+    // The default size of an island.
+    private static final int DEFAULT_SIZE = 100;
+    // The default number of steps.
+    private static final int DEFAULT_STEPS = 200;
+    // The default number of steps between migrations.
+    private static final int DEFAULT_INTERVAL = 10;
+    // The likelihood of an animal leaving its island at a migration.
+    private static final double MIGRATION_PROBABILITY = 0.01;
+    // The number of cells a migrant tries before it gives up.
+    private static final int LANDING_TRIES = 8;
+    // The seed the islands' random streams are derived from.
+    private static final long SEED = 1111;
+
+    // The islands.
+    private final List<Simulator> islands = new ArrayList<>();
+    // The animals leaving every island, in two alternating sets.
+    private final List<List<Animal>> outboxes = new ArrayList<>();
+    // The number of animals that landed on another island.
+    private long migrants;
+
+    /**
+     * Create the islands.
+     *
+     * @param count The number of islands.
+     * @param depth The depth of every island.
+     * @param width The width of every island.
+     * @param seed The seed the islands' random streams are derived from.
+     */
+    public Archipelago(int count, int depth, int width, long seed)
+    {
+        for(int i = 0; i < count; i++) {
+            islands.add(new Simulator(depth, width, false, Randomizer.newStream(seed, i)));
+        }
+        for(int i = 0; i < 2 * count; i++) {
+            outboxes.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Run an archipelago and print the population of every island.
+     *
+     * @param args The number of islands, their depth and width, the
+     *             number of steps and the steps between migrations, all
+     *             optional.
+     * @throws InterruptedException If interrupted while waiting for the islands.
+     */
+    public static void main(String[] args) throws InterruptedException
+    {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ISLANDS;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SIZE;
+        int width = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_SIZE;
+        int steps = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_STEPS;
+        int interval = args.length > 4 ? Integer.parseInt(args[4]) : DEFAULT_INTERVAL;
+
+        Archipelago archipelago = new Archipelago(count, depth, width, SEED);
+        long start = System.nanoTime();
+        archipelago.run(steps, interval);
+        long elapsed = System.nanoTime() - start;
+
+        for(int i = 0; i < count; i++) {
+            System.out.println("Island " + i + ": " + archipelago.islands.get(i).getField().getStats());
+        }
+        System.out.printf("%d migrants, %.1f island steps/s%n",
+            archipelago.migrants, (double) count * steps / (elapsed / 1e9));
+    }
+
+    /**
+     * Run every island on its own thread for a number of steps, with
+     * migrations at the given interval.
+     *
+     * @param steps The number of steps.
+     * @param interval The number of steps between migrations.
+     * @throws InterruptedException If interrupted while waiting for the islands.
+     */
+    public void run(int steps, int interval) throws InterruptedException
+    {
+        CyclicBarrier barrier = new CyclicBarrier(islands.size());
+        long[] landed = new long[islands.size()];
+        List<Thread> threads = new ArrayList<>();
+        for(int i = 0; i < islands.size(); i++) {
+            int island = i;
+            threads.add(new Thread(() -> landed[island] = runIsland(island, steps, interval, barrier),
+                                   "island-" + island));
+        }
+        for(Thread thread : threads) {
+            thread.start();
+        }
+        for(Thread thread : threads) {
+            thread.join();
+        }
+        for(long count : landed) {
+            migrants += count;
+        }
+    }
+
+    /**
+     * The work of one island's thread.
+     *
+     * @param island The number of the island.
+     * @param steps The number of steps.
+     * @param interval The number of steps between migrations.
+     * @param barrier The barrier all islands meet at.
+     * @return The number of animals that landed on the island.
+     */
+    private long runIsland(int island, int steps, int interval, CyclicBarrier barrier)
+    {
+        Simulator simulator = islands.get(island);
+        int count = islands.size();
+        long landed = 0;
+        for(int step = 1; step <= steps; step++) {
+            simulator.simulateOneStep();
+            if(step % interval == 0 && step < steps) {
+                int set = (step / interval) % 2;
+                emigrate(simulator, outboxes.get(set * count + island));
+                try {
+                    barrier.await();
+                }
+                catch(InterruptedException | BrokenBarrierException e) {
+                    throw new IllegalStateException("Island " + island + " stopped waiting", e);
+                }
+                List<Animal> arriving = outboxes.get(set * count + (island + count - 1) % count);
+                landed += immigrate(simulator, arriving);
+            }
+        }
+        return landed;
+    }
+
+    /**
+     * Take the animals leaving an island out of its field.
+     *
+     * @param simulator The island.
+     * @param outbox Where the leaving animals are put.
+     */
+    private static void emigrate(Simulator simulator, List<Animal> outbox)
+    {
+        outbox.clear();
+        Field field = simulator.getField();
+        List<Animal> animals = field.getAnimals();
+        Random rand = simulator.getEnvironment().getRandom();
+        long next = Randomizer.geometricSkip(rand, MIGRATION_PROBABILITY);
+        while(next < animals.size()) {
+            Animal anAnimal = animals.get((int) next);
+            if(anAnimal.isAlive()) {
+                outbox.add(new Animal(anAnimal));
+                anAnimal.setDead(LineageLog.Cause.LEFT);
+            }
+            next += 1L + Randomizer.geometricSkip(rand, MIGRATION_PROBABILITY);
+        }
+        field.tidy();
+    }
+
+    /**
+     * Land the animals arriving on an island in random free cells of open
+     * water, with no animal, algae or fish of a school. An animal that
+     * finds no free cell is lost.
+     *
+     * @param simulator The island.
+     * @param arriving The animals arriving.
+     * @return The number of animals that landed.
+     */
+    private static int immigrate(Simulator simulator, List<Animal> arriving)
+    {
+        Field field = simulator.getField();
+        Random rand = simulator.getEnvironment().getRandom();
+        Terrain terrain = simulator.getEnvironment().getTerrain();
+        int landed = 0;
+        for(Animal migrant : arriving) {
+            for(int t = 0; t < LANDING_TRIES; t++) {
+                Location location = new Location(rand.nextInt(field.getDepth()), rand.nextInt(field.getWidth()));
+                int index = field.indexOf(location);
+                if(field.isFree(index) && (terrain == null || terrain.isOpen(index))) {
+                    // The migrant is already a copy made for this island.
+                    migrant.setLocation(location);
+                    if(simulator.getEnvironment().getLineage() != null) {
+                        migrant.startLineage(simulator.getEnvironment().getLineage(), 0, 0);
+                    }
+                    field.placeAnimal(migrant, location);
+                    landed++;
+                    break;
+                }
+            }
+        }
+        return landed;
+    }
+}
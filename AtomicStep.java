@@ -0,0 +1,321 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * One step of the ATOMIC mode. The animals plan their step in parallel
+ * as in the INTENTS mode, then every thread claims the cells of the next
+ * field for its own chunk of claims with compare-and-set on an atomic
+ * array, instead of sorting all the claims. A move or a birth to a cell
+ * already claimed falls back to the next candidate, and the death of a
+ * prey or the eating of algae is claimed the same way, falling back to
+ * the next food caught, so every meal is eaten only once. Unlike
+ * Animal.act, where an animal staying put or moving on to its food takes
+ * the cell from whoever moved there before it, a claim never takes a
+ * cell another one holds: an eater whose food cell was taken and every
+ * claim that loses a cell go on to their next candidate, and only an
+ * animal with no candidate left dies of overcrowding. So this is a
+ * different model from the LIST mode, which ModeComparison compares it
+ * with.
+ *
+ * Which thread wins a cell depends on how the threads are scheduled, so
+ * with more than one thread two runs with the same seed can differ. The
+ * collisions and lost compare-and-sets are counted in a ClaimStats.
+ *
+ * @author Nicolás Alcalá Olea and Bailey Crossan
+ */
+public class AtomicStep
+{
+    // The owner of a cell of the next field that holds a sleeper.
+    private static final int SLEEPER = -1;
+
+    // The current field and the next one being built.
+    private final Field field, nextFieldState;
+    // Which species are asleep and were carried over already.
+    private final boolean[] dormant;
+    // The seed of this step.
+    private final long seed;
+    // Where the contention is counted.
+    private final ClaimStats stats;
+
+    // The claims of every chunk, and the number of the first claim of
+    // every chunk.
+    private IntentBuffer[] buffers;
+    private int[] firstClaim;
+    // The claim holding every cell of the next field, plus one, 0 for a
+    // free cell or SLEEPER.
+    private AtomicIntegerArray owners;
+    // Whether the food in every cell of the current field was claimed.
+    private AtomicIntegerArray meals;
+    // Whether every claim won its meal.
+    private boolean[] fed;
+
+    /**
+     * Prepare a step.
+     *
+     * @param field The current field.
+     * @param nextFieldState The next field, with the sleepers already in it.
+     * @param dormant Which species are asleep, indexed by the species id.
+     * @param seed The seed of this step.
+     * @param stats Where the contention is counted.
+     */
+    public AtomicStep(Field field, Field nextFieldState, boolean[] dormant, long seed, ClaimStats stats)
+    {
+        this.field = field;
+        this.nextFieldState = nextFieldState;
+        this.dormant = dormant;
+        this.seed = seed;
+        this.stats = stats;
+    }
+
+    /**
+     * Plan, claim in parallel and apply the claims.
+     */
+    public void run()
+    {
+        buffers = IntentStep.planAll(field, dormant, seed);
+        firstClaim = new int[buffers.length + 1];
+        for(int b = 0; b < buffers.length; b++) {
+            firstClaim[b + 1] = firstClaim[b] + buffers[b].size();
+        }
+        int cells = field.getDepth() * field.getWidth();
+        owners = new AtomicIntegerArray(cells);
+        meals = new AtomicIntegerArray(cells);
+        fed = new boolean[firstClaim[buffers.length]];
+        for(int cell = 0; cell < cells; cell++) {
+            if(nextFieldState.hasLiveAnimal(cell)) {
+                owners.set(cell, SLEEPER);
+            }
+        }
+
+        // The animals staying where they are take their cells first, so
+        // no animal moving in can take them.
+        IntStream.range(0, buffers.length).parallel().forEach(this::claimOwnCells);
+        IntStream.range(0, buffers.length).parallel().forEach(this::claimMoves);
+        apply();
+    }
+
+    /**
+     * Give the animals of a chunk that stay where they are their own cell.
+     * No other animal was there, so there is no contention.
+     *
+     * @param b The chunk.
+     */
+    private void claimOwnCells(int b)
+    {
+        IntentBuffer buffer = buffers[b];
+        for(int claim = 0; claim < buffer.size(); claim++) {
+            if(buffer.has(claim, IntentBuffer.STAYS) && !buffer.has(claim, IntentBuffer.DIES)) {
+                owners.set(buffer.getOrigin(claim), firstClaim[b] + claim + 1);
+            }
+        }
+    }
+
+    /**
+     * Claim the meals and the cells of the moving animals of a chunk and
+     * of their young.
+     *
+     * @param b The chunk.
+     */
+    private void claimMoves(int b)
+    {
+        IntentBuffer buffer = buffers[b];
+        long attempts = 0, collisions = 0, contended = 0, retries = 0, mealsLost = 0, unplaced = 0;
+        for(int claim = 0; claim < buffer.size(); claim++) {
+            if(buffer.has(claim, IntentBuffer.STAYS | IntentBuffer.DIES)) {
+                continue;
+            }
+            int g = firstClaim[b] + claim;
+            // The first food caught that no one else claimed.
+            int food = -1;
+            for(int k = 0; k < buffer.getFoodCount(claim) && food < 0; k++) {
+                int cell = buffer.getFood(claim, k);
+                if(meals.compareAndSet(cell, 0, 1)) {
+                    food = cell;
+                }
+            }
+            if(food >= 0) {
+                fed[g] = true;
+                buffer.eat(claim, food);
+            }
+            else if(buffer.getFoodCount(claim) > 0) {
+                mealsLost++;
+            }
+
+            // An eater moves on to its food if no one holds that cell yet
+            // but the prey it ate, then like every other claim tries its
+            // other cells.
+            boolean placed = false;
+            if(fed[g]) {
+                attempts++;
+                int previous = owners.get(food);
+                if(previous == 0 || (previous != SLEEPER && isAnimalAt(previous - 1, food))) {
+                    if(owners.compareAndSet(food, previous, g + 1)) {
+                        placed = true;
+                    }
+                    else {
+                        contended++;
+                    }
+                }
+                else {
+                    collisions++;
+                }
+            }
+            for(int k = 0; k < buffer.getCandidateCount(claim) && !placed; k++) {
+                int cell = buffer.getCandidate(claim, k);
+                attempts++;
+                if(k > 0 || fed[g]) {
+                    retries++;
+                }
+                if(owners.get(cell) != 0) {
+                    collisions++;
+                }
+                else if(owners.compareAndSet(cell, 0, g + 1)) {
+                    placed = true;
+                }
+                else {
+                    contended++;
+                }
+            }
+            if(!placed) {
+                unplaced++;
+            }
+        }
+        stats.add(attempts, collisions, contended, retries, mealsLost, unplaced);
+    }
+
+    /**
+     * Tell whether a claim is the one of the animal in a cell of the
+     * current field.
+     *
+     * @param g The number of the claim.
+     * @param cell The cell.
+     * @return true If the claim is that animal's.
+     */
+    private boolean isAnimalAt(int g, int cell)
+    {
+        int b = chunkOf(g);
+        int claim = g - firstClaim[b];
+        return !buffers[b].isYoung(claim) && buffers[b].getAnimal(claim) == field.getAnimalAt(field.locationOf(cell));
+    }
+
+    /**
+     * Apply the claims: the deaths, infections and meals in the order of
+     * the claims, then the winners of the cells in the order of the cells.
+     * An animal left without a cell dies of overcrowding. A young whose
+     * parent was eaten is not born, and the cell it won stays empty.
+     */
+    private void apply()
+    {
+        for(IntentBuffer buffer : buffers) {
+            for(int claim = 0; claim < buffer.size(); claim++) {
+                if(buffer.isYoung(claim)) {
+                    continue;
+                }
+                Animal anAnimal = buffer.getAnimal(claim);
+                if(buffer.has(claim, IntentBuffer.DIES)) {
+                    anAnimal.setDead(anAnimal.getPlannedDeathCause());
+                }
+                else if(buffer.has(claim, IntentBuffer.INFECTED)) {
+                    anAnimal.setInfected();
+                }
+            }
+        }
+        for(IntentBuffer buffer : buffers) {
+            for(int claim = 0; claim < buffer.size(); claim++) {
+                Animal mate = buffer.getMate(claim);
+                if(mate != null && mate.isAlive()) {
+                    mate.setInfected();
+                }
+            }
+        }
+        for(int b = 0; b < buffers.length; b++) {
+            for(int claim = 0; claim < buffers[b].size(); claim++) {
+                if(fed[firstClaim[b] + claim]) {
+                    eat(buffers[b].getAnimal(claim), buffers[b].getFoodCell(claim));
+                }
+            }
+        }
+
+        boolean[] placed = new boolean[fed.length];
+        for(int cell = 0; cell < owners.length(); cell++) {
+            int owner = owners.get(cell) - 1;
+            if(owner < 0) {
+                continue;
+            }
+            int b = chunkOf(owner);
+            int claim = owner - firstClaim[b];
+            Animal anAnimal = buffers[b].getAnimal(claim);
+            boolean young = buffers[b].isYoung(claim);
+            if(young ? buffers[b].getParent(claim).isAlive() : anAnimal.isAlive()) {
+                Location location = nextFieldState.locationOf(cell);
+                anAnimal.setLocation(location);
+                if(young) {
+                    anAnimal.bornTo(buffers[b].getParent(claim), buffers[b].getParentMate(claim));
+                }
+                nextFieldState.placeAnimal(anAnimal, location);
+                placed[owner] = true;
+            }
+        }
+        for(int b = 0; b < buffers.length; b++) {
+            for(int claim = 0; claim < buffers[b].size(); claim++) {
+                Animal anAnimal = buffers[b].getAnimal(claim);
+                if(placed[firstClaim[b] + claim] || buffers[b].isYoung(claim) || !anAnimal.isAlive()) {
+                    continue;
+                }
+                int origin = buffers[b].getOrigin(claim);
+                if(buffers[b].has(claim, IntentBuffer.STAYS) && !nextFieldState.hasLiveAnimal(origin)) {
+                    // It meant to stay, but an eater that was eaten itself
+                    // took its cell: the cell is still empty.
+                    nextFieldState.placeAnimal(anAnimal, anAnimal.getLocation());
+                }
+                else {
+                    // Overcrowding.
+                    anAnimal.setDead(LineageLog.Cause.CROWDED);
+                }
+            }
+        }
+    }
+
+    /**
+     * Eat the food an animal claimed, if both are still there.
+     *
+     * @param eater The animal.
+     * @param cell The cell of the food in the current field.
+     */
+    private void eat(Animal eater, int cell)
+    {
+        Location location = field.locationOf(cell);
+        int bit = field.getSpeciesBitAt(location);
+        // The eater may have been eaten itself, or its food may have died.
+        if(!eater.isAlive() || (bit & eater.getSpecies().getDiet()) == 0) {
+            return;
+        }
+        if((bit & Species.PLANT_MASK) != 0) {
+            field.removeAlgaeAt(location);
+        }
+        else {
+            field.getAnimalAt(location).setDead(LineageLog.Cause.EATEN);
+        }
+        eater.feed();
+    }
+
+    /**
+     * Find the chunk a claim belongs to.
+     *
+     * @param g The number of the claim.
+     * @return The chunk.
+     */
+    private int chunkOf(int g)
+    {
+        int b = Arrays.binarySearch(firstClaim, g);
+        if(b < 0) {
+            return -b - 2;
+        }
+        // Skip the empty chunks starting at the same claim.
+        while(firstClaim[b + 1] == g) {
+            b++;
+        }
+        return b;
+    }
+}
@@ -0,0 +1,135 @@
+import java.util.Random;
+
+/**
+ * A small benchmark that runs the simulation without a view and reports
+ * how long a step takes in every execution mode. It can be run with
+ *
+ *     java Benchmark [depth] [width] [steps]
+ *
+ * Adding -XX:+UnlockDiagnosticVMOptions -XX:+PrintInlining to the java
+ * command shows whether Animal.act is inlined into the step loops, and
+ * -Drandomizer.generator=jdk or -Drandomizer.buffered=true changes the
+ * random generator (see Randomizer). -Dbookkeeping=scalar keeps the age
+ * and hunger updates of the BATCHED mode in Animal.act (see Bookkeeping).
+ * When the generator counts its draws the benchmark also estimates the
+ * share of a step spent drawing numbers.
+ *
+ * @author Nicolás Alcalá Olea and Bailey Crossan
+ */
+public class Benchmark
+{
+    // The default size of the benchmark field.
+    private static final int DEFAULT_SIZE = 400;
+    // The default number of measured steps.
+    private static final int DEFAULT_STEPS = 200;
+    // The number of steps run before measuring, to let the JIT compile.
+    private static final int WARMUP_STEPS = 50;
+    // The steps between sorting the animals by where they are, when on.
+    private static final int SPATIAL_ORDER_INTERVAL = 10;
+    // The number of random numbers drawn to time the generator.
+    private static final int TIMED_DRAWS = 20_000_000;
+
+    /**
+     * Run the benchmark.
+     * 
+     * @param args The depth, width and number of steps, all optional.
+     */
+    public static void main(String[] args)
+    {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SIZE;
+        int width = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SIZE;
+        int steps = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_STEPS;
+
+        System.out.println("Random generator: " + Randomizer.describe());
+        System.out.println("Bookkeeping: " + Bookkeeping.describe());
+        for(ExecutionMode mode : ExecutionMode.values()) {
+            run(mode.toString(), depth, width, steps, mode, true, 0);
+        }
+        run("LIST, sleepers acting", depth, width, steps, ExecutionMode.LIST, false, 0);
+        run("LIST, spatial order", depth, width, steps, ExecutionMode.LIST, true, SPATIAL_ORDER_INTERVAL);
+        run("BATCHED, spatial order", depth, width, steps, ExecutionMode.BATCHED, true, SPATIAL_ORDER_INTERVAL);
+    }
+
+    /**
+     * Time one configuration and print the time of a day and a night step.
+     * 
+     * @param label The name printed for the configuration.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @param steps The number of measured steps.
+     * @param mode The execution mode.
+     * @param skipDormant Whether sleeping animals skip the act loop.
+     * @param spatialOrder The steps between sorting the animals by where
+     *                     they are, 0 to never sort them.
+     */
+    private static void run(String label, int depth, int width, int steps,
+                            ExecutionMode mode, boolean skipDormant, int spatialOrder)
+    {
+        Randomizer.reset();
+        long seeding = System.nanoTime();
+        Simulator simulator = new Simulator(depth, width, false);
+        seeding = System.nanoTime() - seeding;
+        simulator.setExecutionMode(mode);
+        simulator.setSkipDormant(skipDormant);
+        simulator.setSpatialOrder(spatialOrder);
+        for(int i = 0; i < WARMUP_STEPS; i++) {
+            simulator.simulateOneStep();
+        }
+        long dayTime = 0, nightTime = 0;
+        int daySteps = 0, nightSteps = 0;
+        // The animals of every measured step added up, to compare runs
+        // whose populations grow apart.
+        long animalSteps = 0;
+        long drawsBefore = Randomizer.getDraws();
+        simulator.getClaimStats().reset();
+        for(int i = 0; i < steps; i++) {
+            animalSteps += simulator.getField().getAnimals().size();
+            long start = System.nanoTime();
+            simulator.simulateOneStep();
+            long elapsed = System.nanoTime() - start;
+            if(simulator.getEnvironment().isDay()) {
+                dayTime += elapsed;
+                daySteps++;
+            }
+            else {
+                nightTime += elapsed;
+                nightSteps++;
+            }
+        }
+        long draws = Randomizer.getDraws() - drawsBefore;
+        System.out.printf("%-24s day %8.3f ms/step  night %8.3f ms/step  (%d animals at the end)%n",
+            label, dayTime / 1e6 / Math.max(1, daySteps), nightTime / 1e6 / Math.max(1, nightSteps),
+            simulator.getField().getAnimals().size());
+        System.out.printf("%-24s %.1f ns per animal and step%n", "",
+            (double) (dayTime + nightTime) / Math.max(1, animalSteps));
+        System.out.printf("%-24s seeding the field took %.1f ms%n", "", seeding / 1e6);
+        if(mode == ExecutionMode.ATOMIC) {
+            System.out.printf("%-24s %s%n", "", simulator.getClaimStats().describe(steps));
+        }
+        if(drawsBefore >= 0) {
+            double drawTime = draws * timeOneDraw();
+            System.out.printf("%-24s %d random numbers/step, about %.1f%% of the step time%n",
+                "", draws / steps, 100 * drawTime / (dayTime + nightTime));
+        }
+    }
+
+    /**
+     * Time the shared generator on its own.
+     * 
+     * @return The time of drawing one double, in nanoseconds.
+     */
+    private static double timeOneDraw()
+    {
+        Random rand = Randomizer.getRandom();
+        double sum = 0;
+        long start = System.nanoTime();
+        for(int i = 0; i < TIMED_DRAWS; i++) {
+            sum += rand.nextDouble();
+        }
+        long elapsed = System.nanoTime() - start;
+        if(sum < 0) {
+            System.out.println(sum); // Keeps the loop from being removed.
+        }
+        return (double) elapsed / TIMED_DRAWS;
+    }
+}
@@ -0,0 +1,98 @@
+import java.util.List;
+
+/**
+ * The age and hunger bookkeeping of a whole species in one pass, for the
+ * BATCHED mode. The ages and food levels of the animals are copied into
+ * int columns, updated by straight loops without branches, so the JIT
+ * can run them on SIMD lanes, and copied back together with a mask of
+ * the animals that die of old age or hunger. The animals then only run
+ * the rest of their act (see Animal.actBooked), and the ones in the mask
+ * die when their turn comes, as in act, so until then they can still be
+ * eaten or mate.
+ *
+ * The pass is chosen at startup with -Dbookkeeping=columns (the default)
+ * or -Dbookkeeping=scalar, which keeps the bookkeeping in Animal.act.
+ * Both run the same steps from the same seed, so a BATCHED run has the
+ * same step hash with either.
+ *
+ * @author Nicolás Alcalá Olea and Bailey Crossan
+ */
+public class Bookkeeping
+{
+    // Whether the columns pass is used.
+    public static final boolean COLUMNS = !System.getProperty("bookkeeping", "columns").equals("scalar");
+
+    // The columns, grown to the largest species seen.
+    private int[] ages = new int[1024];
+    private int[] foodLevels = new int[1024];
+    // 1 for an animal that dies, 0 otherwise.
+    private int[] deaths = new int[1024];
+
+    /**
+     * @return A description of the pass in use.
+     */
+    public static String describe()
+    {
+        return COLUMNS ? "columns" : "scalar";
+    }
+
+    /**
+     * Make the live animals of one species older and, unless they sleep,
+     * hungrier, and mark the ones too old or starving to die when they
+     * act.
+     *
+     * @param animals The animals of the species.
+     * @param species The species.
+     * @param asleep Whether the species sleeps in this step.
+     */
+    public void run(List<Animal> animals, Species species, boolean asleep)
+    {
+        int n = animals.size();
+        if(n > ages.length) {
+            int capacity = Math.max(n, 2 * ages.length);
+            ages = new int[capacity];
+            foodLevels = new int[capacity];
+            deaths = new int[capacity];
+        }
+        for(int i = 0; i < n; i++) {
+            Animal anAnimal = animals.get(i);
+            ages[i] = anAnimal.getAge();
+            foodLevels[i] = anAnimal.getFoodLevel();
+        }
+        age(ages, foodLevels, deaths, n, species.getMaxAge(), asleep ? 0 : 1);
+        for(int i = 0; i < n; i++) {
+            Animal anAnimal = animals.get(i);
+            if(anAnimal.isAlive()) {
+                anAnimal.setBookkeeping(ages[i], foodLevels[i], deaths[i] != 0);
+            }
+        }
+    }
+
+    /**
+     * The pass itself. A death is found from the sign bit of a difference
+     * instead of a comparison, so the loops have no branches. As in act,
+     * a sleeping animal does not starve, so the food level only counts
+     * when it is used up.
+     *
+     * @param ages The ages.
+     * @param foodLevels The food levels.
+     * @param deaths Where 1 is stored for an animal that dies.
+     * @param n The number of animals.
+     * @param maxAge The age past which an animal dies.
+     * @param hunger How much food an animal uses up, 0 while asleep.
+     */
+    static void age(int[] ages, int[] foodLevels, int[] deaths, int n, int maxAge, int hunger)
+    {
+        for(int i = 0; i < n; i++) {
+            ages[i]++;
+        }
+        for(int i = 0; i < n; i++) {
+            foodLevels[i] -= hunger;
+        }
+        for(int i = 0; i < n; i++) {
+            // maxAge - age < 0 when too old, food - 1 < 0 when starving,
+            // masked out by -hunger == 0 while asleep.
+            deaths[i] = ((maxAge - ages[i]) | ((foodLevels[i] - 1) & -hunger)) >>> 31;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+import java.util.Random;
+
+/**
+ * A random generator that hands out numbers pre-drawn in bulk from
+ * another generator. The doubles and the ints are drawn into their own
+ * buffers, which are refilled in one tight loop whenever they run out,
+ * so the hot loops of the simulation only read an array.
+ *
+ * @author Nicolás Alcalá Olea and Bailey Crossan
+ */
+public class BufferedRandom extends Random
+{
+    // The version of the serialized form inherited from Random.
+    private static final long serialVersionUID = 1L;
+    // The number of values drawn into a buffer at a time.
+    private static final int BUFFER_SIZE = 4096;
+
+    // The generator the numbers are drawn from.
+    private final Random source;
+    // The pre-drawn doubles.
+    private final double[] doubles = new double[BUFFER_SIZE];
+    // The pre-drawn ints.
+    private final int[] ints = new int[BUFFER_SIZE];
+    // The next unused double and int.
+    private int nextDouble, nextInt;
+    // The number of values handed out since the last seeding.
+    private long draws;
+
+    /**
+     * Create a buffered generator drawing from the given one.
+     *
+     * @param source The generator the numbers are drawn from.
+     */
+    public BufferedRandom(Random source)
+    {
+        this.source = source;
+        nextDouble = BUFFER_SIZE;
+        nextInt = BUFFER_SIZE;
+    }
+
+    /**
+     * Seed the source generator and throw away the pre-drawn numbers.
+     * This is also called by the Random constructor, before the source
+     * is set.
+     *
+     * @param seed The seed.
+     */
+    @Override
+    public void setSeed(long seed)
+    {
+        if(source != null) {
+            source.setSeed(seed);
+            nextDouble = BUFFER_SIZE;
+            nextInt = BUFFER_SIZE;
+            draws = 0;
+        }
+    }
+
+    @Override
+    public double nextDouble()
+    {
+        if(nextDouble == BUFFER_SIZE) {
+            for(int i = 0; i < BUFFER_SIZE; i++) {
+                doubles[i] = source.nextDouble();
+            }
+            nextDouble = 0;
+        }
+        draws++;
+        return doubles[nextDouble++];
+    }
+
+    @Override
+    protected int next(int bits)
+    {
+        if(nextInt == BUFFER_SIZE) {
+            for(int i = 0; i < BUFFER_SIZE; i++) {
+                ints[i] = source.nextInt();
+            }
+            nextInt = 0;
+        }
+        draws++;
+        return ints[nextInt++] >>> (32 - bits);
+    }
+
+    /**
+     * @return The number of values handed out since the last seeding.
+     */
+    public long getDraws()
+    {
+        return draws;
+    }
+
+    /**
+     * @return A hash of the source's state and of the positions in the
+     *         buffers.
+     */
+    public long stateHash()
+    {
+        return Zobrist.mix(Randomizer.stateHash(source) ^ ((long) nextDouble << 32 | nextInt));
+    }
+}
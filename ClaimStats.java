@@ -0,0 +1,88 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of how often the threads of the ATOMIC mode got in each
+ * other's way while claiming cells and prey. They are added to by many
+ * threads at once, so every counter is a LongAdder.
+ *
+ * @author Nicolás Alcalá Olea and Bailey Crossan
+ */
+public class ClaimStats
+{
+    // The cells tried by the animals and their young.
+    private final LongAdder attempts = new LongAdder();
+    // The tries at a cell another claim already held.
+    private final LongAdder collisions = new LongAdder();
+    // The tries at a cell that was free but taken by another thread
+    // before the compare-and-set.
+    private final LongAdder contended = new LongAdder();
+    // The tries after the first one.
+    private final LongAdder retries = new LongAdder();
+    // The meals lost because another animal claimed the food first.
+    private final LongAdder mealsLost = new LongAdder();
+    // The animals and young left without a cell.
+    private final LongAdder unplaced = new LongAdder();
+
+    /**
+     * Add the counts of one chunk of claims.
+     *
+     * @param attempts The cells tried.
+     * @param collisions The tries at a cell already held.
+     * @param contended The compare-and-sets lost to another thread.
+     * @param retries The tries after the first one.
+     * @param mealsLost The meals lost to another animal.
+     * @param unplaced The claims left without a cell.
+     */
+    public void add(long attempts, long collisions, long contended, long retries, long mealsLost, long unplaced)
+    {
+        this.attempts.add(attempts);
+        this.collisions.add(collisions);
+        this.contended.add(contended);
+        this.retries.add(retries);
+        this.mealsLost.add(mealsLost);
+        this.unplaced.add(unplaced);
+    }
+
+    /**
+     * Set all the counters back to zero.
+     */
+    public void reset()
+    {
+        attempts.reset();
+        collisions.reset();
+        contended.reset();
+        retries.reset();
+        mealsLost.reset();
+        unplaced.reset();
+    }
+
+    /**
+     * @return The number of compare-and-sets lost to another thread.
+     */
+    public long getContended()
+    {
+        return contended.sum();
+    }
+
+    /**
+     * @return The number of tries after the first one.
+     */
+    public long getRetries()
+    {
+        return retries.sum();
+    }
+
+    /**
+     * Describe the counters as averages per step.
+     *
+     * @param steps The number of steps counted.
+     * @return The description.
+     */
+    public String describe(int steps)
+    {
+        steps = Math.max(1, steps);
+        return String.format("%d cells tried/step, %d held, %d CAS lost, %d retries, %d meals lost, %d unplaced",
+            attempts.sum() / steps, collisions.sum() / steps, contended.sum() / steps,
+            retries.sum() / steps, mealsLost.sum() / steps, unplaced.sum() / steps);
+    }
+}
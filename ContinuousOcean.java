@@ -0,0 +1,558 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * An ocean where the animals swim freely instead of moving from cell to
+ * cell. Every animal is an agent with a position and a velocity in
+ * floating point, kept in parallel arrays rather than as Animal objects.
+ * Clownfish and parrotfish school with the fish of their species around
+ * them, the prey flee the predators they see, and the predators chase
+ * the nearest prey they see and catch it when it is close enough. The
+ * algae stay on the grid of a Field, and a grazer eats the algae of the
+ * cell it is over.
+ *
+ * The agents near every agent are found with a SpatialHash rebuilt
+ * every step. A step is split into passes so the agents can be worked
+ * on in parallel: every agent first decides how to steer, what to eat
+ * and whether to breed, reading the positions of the others only, then
+ * all of them swim, and then the meals, deaths and births are applied
+ * one agent after the other, so every prey is only eaten once. Every
+ * chunk of agents draws from its own random stream, so a run only
+ * depends on its seed. Every few steps the agents are sorted by their
+ * bucket, so agents near each other are near each other in memory.
+ *
+ * The grid world of Simulator is still the default, this ocean is run
+ * on its own with
+ *
+ *     java ContinuousOcean [depth] [width] [steps]
+ *
+ * @author Nicolás Alcalá Olea and Bailey Crossan
+ */
+public class ContinuousOcean
+{
+    // The default size of the ocean, which starts with about a million agents.
+    private static final int DEFAULT_SIZE = 1600;
+    // The default number of steps.
+    private static final int DEFAULT_STEPS = 100;
+    // The seed of the default run.
+    private static final long SEED = 2024;
+    // The number of agents in a chunk planned by one thread.
+    private static final int CHUNK = 1024;
+    // How far an agent sees, which is also the side of a bucket.
+    private static final float SENSE_RADIUS = 2;
+    // How close a predator must be to catch its prey.
+    private static final float CATCH_RADIUS = 0.5f;
+    // How close two fish of a school can be before they push apart.
+    private static final float SEPARATION_RADIUS = 1;
+    // The fastest prey and predators swim, in cells per step.
+    private static final float PREY_SPEED = 0.6f;
+    private static final float PREDATOR_SPEED = 0.7f;
+    // How strongly an agent steers towards the speed of its school, the
+    // middle of its school, away from its closest neighbours, away from
+    // predators, towards its prey, and at random.
+    private static final float ALIGNMENT = 0.1f;
+    private static final float COHESION = 0.01f;
+    private static final float SEPARATION = 0.2f;
+    private static final float FLEEING = 0.3f;
+    private static final float PURSUIT = 0.4f;
+    private static final float WANDERING = 0.1f;
+    // The share of its full food level an agent gives to each of its young.
+    private static final int BIRTH_COST_SHARE = 4;
+    // An agent with this many agents around it has no room for young,
+    // as an animal of the grid with no free cell around it.
+    private static final int CROWDING = 8;
+    // The steps between sorting the agents by their bucket.
+    private static final int SORT_INTERVAL = 10;
+    // The target of an agent that eats nothing, and of one grazing.
+    private static final int NOTHING = -1;
+    private static final int GRAZE = -2;
+
+    // The species, indexed by their id.
+    private static final Species[] SPECIES = Species.values();
+    // Whether every species swims in schools.
+    private static final boolean[] SCHOOLING = new boolean[SPECIES.length];
+
+    static {
+        SCHOOLING[Species.CLOWNFISH.id()] = true;
+        SCHOOLING[Species.PARROTFISH.id()] = true;
+    }
+
+    // The dimensions of the ocean.
+    private final int depth, width;
+    // The time, weather and random generator of the ocean.
+    private final Environment environment;
+    // The field holding the algae. It holds no animals.
+    private Field field;
+    // The buckets of the agents.
+    private final SpatialHash hash;
+    // The current step.
+    private int step;
+
+    // The number of agents, and for every agent its position and velocity,
+    // the velocity it steers to in this step, its species, sex, age, food
+    // level, what it eats in this step, how many young it has in this
+    // step and whether it is alive.
+    private int count;
+    private float[] row, col, rowSpeed, colSpeed, nextRowSpeed, nextColSpeed;
+    private byte[] kind;
+    private boolean[] male;
+    private int[] age, food, target, births;
+    private boolean[] alive;
+
+    /**
+     * Fill an ocean with the same organisms as a grid world seeded with
+     * the given seed, every animal somewhere in the cell it would hold.
+     *
+     * @param depth The depth of the ocean.
+     * @param width The width of the ocean.
+     * @param seed The seed.
+     */
+    public ContinuousOcean(int depth, int width, long seed)
+    {
+        this.depth = depth;
+        this.width = width;
+        environment = new Environment(Randomizer.newRandom(seed));
+        environment.reset();
+        hash = new SpatialHash(depth, width, SENSE_RADIUS);
+        field = new Field(depth, width, environment);
+        new WorldSeeder().populate(field, seed);
+        allocate(field.getAnimals().size());
+        Random rand = environment.getRandom();
+        for(Animal anAnimal : field.getAnimals()) {
+            Location location = anAnimal.getLocation();
+            add(anAnimal.getSpecies(), location.row() + rand.nextFloat(), location.col() + rand.nextFloat(),
+                anAnimal.getIsMale(), anAnimal.getAge(), anAnimal.getFoodLevel());
+        }
+        for(Species species : SPECIES) {
+            if(!species.isPlant()) {
+                field.removeAll(species);
+            }
+        }
+    }
+
+    /**
+     * Run an ocean and print its populations.
+     *
+     * @param args The depth, width and number of steps, all optional.
+     */
+    public static void main(String[] args)
+    {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SIZE;
+        int width = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SIZE;
+        int steps = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_STEPS;
+
+        ContinuousOcean ocean = new ContinuousOcean(depth, width, SEED);
+        System.out.println("Step 0: " + ocean.getStats());
+        long agentSteps = 0;
+        long start = System.nanoTime();
+        for(int n = 1; n <= steps; n++) {
+            agentSteps += ocean.getCount();
+            ocean.step();
+            if(n % 10 == 0) {
+                System.out.println("Step " + n + ": " + ocean.getStats());
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%.1f ms/step, %.1f ns per agent and step%n",
+            elapsed / 1e6 / steps, (double) elapsed / Math.max(1, agentSteps));
+    }
+
+    /**
+     * Run one step.
+     */
+    public void step()
+    {
+        environment.step();
+        step++;
+        hash.rebuild(row, col, count);
+        if(step % SORT_INTERVAL == 0) {
+            sortByBucket();
+            hash.rebuild(row, col, count);
+        }
+        long seed = environment.getRandom().nextLong();
+        boolean day = environment.isDay();
+        int chunks = (count + CHUNK - 1) / CHUNK;
+        IntStream.range(0, chunks).parallel().forEach(chunk -> steer(chunk, seed, day));
+        IntStream.range(0, chunks).parallel().forEach(this::swim);
+        resolve(day);
+
+        Field nextFieldState = new Field(depth, width, environment);
+        field.getAlgae().act(nextFieldState);
+        nextFieldState.tidy();
+        field = nextFieldState;
+    }
+
+    /**
+     * Decide how the agents of a chunk steer, what they eat and how many
+     * young they have, from the positions of the agents around them.
+     *
+     * @param chunk The chunk.
+     * @param seed The seed of this step.
+     * @param day Whether it is day time.
+     */
+    private void steer(int chunk, long seed, boolean day)
+    {
+        Random rand = Randomizer.newStream(seed, chunk);
+        AlgaeLayer algae = field.getAlgae();
+        float senseSquared = SENSE_RADIUS * SENSE_RADIUS;
+        float catchSquared = CATCH_RADIUS * CATCH_RADIUS;
+        float separationSquared = SEPARATION_RADIUS * SEPARATION_RADIUS;
+        int end = Math.min(count, (chunk + 1) * CHUNK);
+        for(int i = chunk * CHUNK; i < end; i++) {
+            target[i] = NOTHING;
+            births[i] = 0;
+            Species species = SPECIES[kind[i]];
+            if(!alive[i] || (species.isDiurnal() && !day)) {
+                // Asleep: it stays where it is.
+                nextRowSpeed[i] = 0;
+                nextColSpeed[i] = 0;
+                continue;
+            }
+            float r = row[i];
+            float c = col[i];
+            int diet = species.getDiet();
+            int bit = species.bit();
+
+            // Everything seen around the agent.
+            int crowd = 0, school = 0, mates = 0;
+            float towardsRow = 0, towardsCol = 0, schoolRowSpeed = 0, schoolColSpeed = 0;
+            float apartRow = 0, apartCol = 0, fleeRow = 0, fleeCol = 0;
+            int prey = NOTHING;
+            float preyDistance = senseSquared;
+            int bucket = hash.bucketAt(r, c);
+            int bucketRow = bucket / hash.getCols();
+            int bucketCol = bucket % hash.getCols();
+            for(int br = Math.max(0, bucketRow - 1); br <= Math.min(hash.getRows() - 1, bucketRow + 1); br++) {
+                for(int bc = Math.max(0, bucketCol - 1); bc <= Math.min(hash.getCols() - 1, bucketCol + 1); bc++) {
+                    int b = br * hash.getCols() + bc;
+                    for(int k = hash.bucketStart(b); k < hash.bucketEnd(b); k++) {
+                        float dr = hash.rowAt(k) - r;
+                        float dc = hash.colAt(k) - c;
+                        float d2 = dr * dr + dc * dc;
+                        int j = hash.agentAt(k);
+                        // Every agent in the hash is alive until the meals
+                        // are applied.
+                        if(d2 > senseSquared || j == i) {
+                            continue;
+                        }
+                        crowd++;
+                        Species other = SPECIES[kind[j]];
+                        if(other == species) {
+                            school++;
+                            if(male[j] != male[i]) {
+                                mates++;
+                            }
+                            towardsRow += dr;
+                            towardsCol += dc;
+                            schoolRowSpeed += rowSpeed[j];
+                            schoolColSpeed += colSpeed[j];
+                            if(d2 < separationSquared) {
+                                apartRow -= dr;
+                                apartCol -= dc;
+                            }
+                        }
+                        else if((diet & other.bit()) != 0) {
+                            if(d2 < preyDistance) {
+                                prey = j;
+                                preyDistance = d2;
+                            }
+                        }
+                        else if((other.getDiet() & bit) != 0) {
+                            // The closer the predator, the harder it flees.
+                            float weight = 1 / (d2 + 0.1f);
+                            fleeRow -= dr * weight;
+                            fleeCol -= dc * weight;
+                        }
+                    }
+                }
+            }
+
+            int cell = cellAt(r, c);
+            float maxSpeed = species.isPredator() ? PREDATOR_SPEED : PREY_SPEED;
+            maxSpeed *= (float) environment.getModifier(WeatherEffect.moving(species), cell);
+            double feedingModifier = environment.getModifier(WeatherEffect.feeding(species), cell);
+            float steerRow = WANDERING * (2 * rand.nextFloat() - 1) + SEPARATION * apartRow;
+            float steerCol = WANDERING * (2 * rand.nextFloat() - 1) + SEPARATION * apartCol;
+            if(species.isPredator()) {
+                // A predator only hunts once it has digested half its last meal.
+                if(prey != NOTHING && food[i] < species.getFoodValue() / 2) {
+                    float distance = (float) Math.sqrt(preyDistance) + 1e-6f;
+                    steerRow += PURSUIT * (maxSpeed * (row[prey] - r) / distance - rowSpeed[i]);
+                    steerCol += PURSUIT * (maxSpeed * (col[prey] - c) / distance - colSpeed[i]);
+                    if(preyDistance <= catchSquared && rand.nextDouble() <= feedingModifier) {
+                        target[i] = prey;
+                    }
+                }
+            }
+            else {
+                if(SCHOOLING[kind[i]] && school > 0) {
+                    steerRow += COHESION * towardsRow / school + ALIGNMENT * (schoolRowSpeed / school - rowSpeed[i]);
+                    steerCol += COHESION * towardsCol / school + ALIGNMENT * (schoolColSpeed / school - colSpeed[i]);
+                }
+                steerRow += FLEEING * fleeRow;
+                steerCol += FLEEING * fleeCol;
+                if((diet & Species.PLANT_MASK) != 0 && algae.has(cell) && rand.nextDouble() <= feedingModifier) {
+                    target[i] = GRAZE;
+                }
+            }
+            float newRow = rowSpeed[i] + steerRow;
+            float newCol = colSpeed[i] + steerCol;
+            float speed = (float) Math.sqrt(newRow * newRow + newCol * newCol);
+            if(speed > maxSpeed) {
+                newRow *= maxSpeed / speed;
+                newCol *= maxSpeed / speed;
+            }
+            nextRowSpeed[i] = newRow;
+            nextColSpeed[i] = newCol;
+
+            // Every young costs its parent food, so the young of the
+            // predators have to be paid for with prey.
+            int birthCost = species.getFoodValue() / BIRTH_COST_SHARE;
+            if(mates > 0 && crowd < CROWDING && age[i] >= species.getBreedingAge() && food[i] > birthCost
+               && rand.nextDouble() <= species.getBreedingProbability()) {
+                births[i] = Math.min(rand.nextInt(species.getMaxLitterSize()) + 1, (food[i] - 1) / birthCost);
+            }
+        }
+    }
+
+    /**
+     * Move the agents of a chunk at their new velocity, bouncing off the
+     * edges of the ocean.
+     *
+     * @param chunk The chunk.
+     */
+    private void swim(int chunk)
+    {
+        float bottom = Math.nextDown((float) depth);
+        float right = Math.nextDown((float) width);
+        int end = Math.min(count, (chunk + 1) * CHUNK);
+        for(int i = chunk * CHUNK; i < end; i++) {
+            float speedRow = nextRowSpeed[i];
+            float speedCol = nextColSpeed[i];
+            float r = row[i] + speedRow;
+            float c = col[i] + speedCol;
+            if(r < 0 || r > bottom) {
+                r = Math.max(0, Math.min(bottom, r < 0 ? -r : 2 * bottom - r));
+                speedRow = -speedRow;
+            }
+            if(c < 0 || c > right) {
+                c = Math.max(0, Math.min(right, c < 0 ? -c : 2 * right - c));
+                speedCol = -speedCol;
+            }
+            row[i] = r;
+            col[i] = c;
+            rowSpeed[i] = speedRow;
+            colSpeed[i] = speedCol;
+        }
+    }
+
+    /**
+     * Apply the meals, ageing, deaths and births, one agent after the
+     * other, and drop the dead agents. A prey caught by an agent earlier
+     * in the order is gone for the ones after it.
+     *
+     * @param day Whether it is day time.
+     */
+    private void resolve(boolean day)
+    {
+        Random rand = environment.getRandom();
+        AlgaeLayer algae = field.getAlgae();
+        int agents = count;
+        for(int i = 0; i < agents; i++) {
+            if(!alive[i]) {
+                continue;
+            }
+            Species species = SPECIES[kind[i]];
+            int meal = target[i];
+            if(meal >= 0 && alive[meal]) {
+                alive[meal] = false;
+                food[i] = species.getFoodValue();
+            }
+            else if(meal == GRAZE) {
+                int cell = cellAt(row[i], col[i]);
+                if(algae.has(cell)) {
+                    algae.remove(cell);
+                    food[i] = species.getFoodValue();
+                }
+            }
+            age[i]++;
+            if(!species.isDiurnal() || day) {
+                food[i]--;
+            }
+            if(age[i] > species.getMaxAge() || food[i] <= 0) {
+                alive[i] = false;
+                continue;
+            }
+            int birthCost = species.getFoodValue() / BIRTH_COST_SHARE;
+            food[i] -= births[i] * birthCost;
+            for(int b = 0; b < births[i]; b++) {
+                float r = Math.min(Math.nextDown((float) depth), Math.max(0, row[i] + rand.nextFloat() - 0.5f));
+                float c = Math.min(Math.nextDown((float) width), Math.max(0, col[i] + rand.nextFloat() - 0.5f));
+                add(species, r, c, rand.nextBoolean(), 0, birthCost);
+            }
+        }
+
+        int kept = 0;
+        for(int i = 0; i < count; i++) {
+            if(alive[i]) {
+                move(i, kept++);
+            }
+        }
+        count = kept;
+    }
+
+    /**
+     * Put the agents in the order of their buckets, as found by the last
+     * rebuild of the hash.
+     */
+    private void sortByBucket()
+    {
+        int[] order = new int[count];
+        for(int k = 0; k < count; k++) {
+            order[k] = hash.agentAt(k);
+        }
+        row = reorder(row, order);
+        col = reorder(col, order);
+        rowSpeed = reorder(rowSpeed, order);
+        colSpeed = reorder(colSpeed, order);
+        byte[] sortedKind = new byte[kind.length];
+        boolean[] sortedMale = new boolean[male.length];
+        int[] sortedAge = new int[age.length];
+        int[] sortedFood = new int[food.length];
+        for(int k = 0; k < count; k++) {
+            int i = order[k];
+            sortedKind[k] = kind[i];
+            sortedMale[k] = male[i];
+            sortedAge[k] = age[i];
+            sortedFood[k] = food[i];
+        }
+        kind = sortedKind;
+        male = sortedMale;
+        age = sortedAge;
+        food = sortedFood;
+        Arrays.fill(alive, 0, count, true);
+    }
+
+    /**
+     * @param values The values of the agents.
+     * @param order The agents in their new order.
+     * @return The values in the new order.
+     */
+    private static float[] reorder(float[] values, int[] order)
+    {
+        float[] sorted = new float[values.length];
+        for(int k = 0; k < order.length; k++) {
+            sorted[k] = values[order[k]];
+        }
+        return sorted;
+    }
+
+    /**
+     * Add an agent at the end.
+     *
+     * @param species Its species.
+     * @param r Its row.
+     * @param c Its column.
+     * @param isMale Its sex.
+     * @param agentAge Its age.
+     * @param foodLevel Its food level.
+     */
+    private void add(Species species, float r, float c, boolean isMale, int agentAge, int foodLevel)
+    {
+        if(count == row.length) {
+            allocate(2 * row.length);
+        }
+        row[count] = r;
+        col[count] = c;
+        rowSpeed[count] = 0;
+        colSpeed[count] = 0;
+        kind[count] = (byte) species.id();
+        male[count] = isMale;
+        age[count] = agentAge;
+        food[count] = foodLevel;
+        alive[count] = true;
+        count++;
+    }
+
+    /**
+     * Move an agent to a lower place when the dead are dropped.
+     *
+     * @param from Where it is.
+     * @param to Where it goes.
+     */
+    private void move(int from, int to)
+    {
+        row[to] = row[from];
+        col[to] = col[from];
+        rowSpeed[to] = rowSpeed[from];
+        colSpeed[to] = colSpeed[from];
+        kind[to] = kind[from];
+        male[to] = male[from];
+        age[to] = age[from];
+        food[to] = food[from];
+        alive[to] = true;
+    }
+
+    /**
+     * Make room for a number of agents, keeping the ones there are.
+     *
+     * @param capacity The number of agents.
+     */
+    private void allocate(int capacity)
+    {
+        capacity = Math.max(capacity, CHUNK);
+        if(row != null && capacity <= row.length) {
+            return;
+        }
+        row = row == null ? new float[capacity] : Arrays.copyOf(row, capacity);
+        col = col == null ? new float[capacity] : Arrays.copyOf(col, capacity);
+        rowSpeed = rowSpeed == null ? new float[capacity] : Arrays.copyOf(rowSpeed, capacity);
+        colSpeed = colSpeed == null ? new float[capacity] : Arrays.copyOf(colSpeed, capacity);
+        kind = kind == null ? new byte[capacity] : Arrays.copyOf(kind, capacity);
+        male = male == null ? new boolean[capacity] : Arrays.copyOf(male, capacity);
+        age = age == null ? new int[capacity] : Arrays.copyOf(age, capacity);
+        food = food == null ? new int[capacity] : Arrays.copyOf(food, capacity);
+        alive = alive == null ? new boolean[capacity] : Arrays.copyOf(alive, capacity);
+        // Agents are added while the plans of the step are applied, so
+        // the plans are kept too.
+        nextRowSpeed = nextRowSpeed == null ? new float[capacity] : Arrays.copyOf(nextRowSpeed, capacity);
+        nextColSpeed = nextColSpeed == null ? new float[capacity] : Arrays.copyOf(nextColSpeed, capacity);
+        target = target == null ? new int[capacity] : Arrays.copyOf(target, capacity);
+        births = births == null ? new int[capacity] : Arrays.copyOf(births, capacity);
+    }
+
+    /**
+     * @param r A row of the ocean.
+     * @param c A column of the ocean.
+     * @return The index of the cell of the field the point is over.
+     */
+    private int cellAt(float r, float c)
+    {
+        return (int) r * width + (int) c;
+    }
+
+    /**
+     * @return The number of agents.
+     */
+    public int getCount()
+    {
+        return count;
+    }
+
+    /**
+     * Return the number of live agents of every species and of algae, as
+     * one line.
+     *
+     * @return The populations.
+     */
+    public String getStats()
+    {
+        int[] counts = new int[SPECIES.length];
+        for(int i = 0; i < count; i++) {
+            counts[kind[i]]++;
+        }
+        counts[Species.ALGAE.id()] = field.getAlgae().getCount();
+        return Field.formatStats(counts);
+    }
+}
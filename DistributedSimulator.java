@@ -0,0 +1,254 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The distributed simulator splits a world too big for one process into
+ * horizontal stripes, each run by a StripeWorker in its own JVM on this
+ * machine. The coordinator starts the workers, which connect to it over
+ * loopback sockets, and every step it passes the border rows and the
+ * organisms crossing a border between neighbouring stripes, adds up the
+ * population of every species and decides whether the world is still
+ * viable. It can be run with
+ *
+ *     java DistributedSimulator [depth] [width] [steps] [workers] [check]
+ *
+ * With "check" the coordinator also runs the world in a single process
+ * and compares the populations every step. A world run by one worker is
+ * the same as the single process run, step by step. With more workers
+ * the start is the same, but the animals next to a border act at the
+ * same time as their neighbours instead of one after the other, an
+ * algae or animal next to a border can feed an animal on both sides in
+ * the same step and the random numbers come from a different stream for
+ * every worker, so only the trends can be compared; StripeComparison
+ * compares them over many runs.
+ *
+ * @author Nicolás Alcalá Olea and Bailey Crossan
+ */
+public class DistributedSimulator
+{
+    // The default size of the world.
+    private static final int DEFAULT_SIZE = 200;
+    // The default number of steps.
+    private static final int DEFAULT_STEPS = 100;
+    // The default number of worker processes.
+    private static final int DEFAULT_WORKERS = 2;
+    // The seed of the world.
+    private static final long SEED = 1111;
+
+    // The connections to the workers, indexed by the worker number.
+    private final FrameChannel[] workers;
+    // The worker processes.
+    private final List<Process> processes = new ArrayList<>();
+    // Whether the population of every step is printed.
+    private boolean printSteps = true;
+    // The population of every species added up over the steps run, not
+    // counting the start, and the number of those steps.
+    private final double[] population = new double[Species.values().length];
+    private int stepsRun;
+    // Whether the run stopped early because a species died out.
+    private boolean lostSpecies;
+
+    /**
+     * Start the workers for the world of the default seed and wait for
+     * all of them to connect.
+     *
+     * @param depth The depth of the world.
+     * @param width The width of the world.
+     * @param count The number of workers.
+     * @throws IOException If a worker cannot be started or connected.
+     */
+    public DistributedSimulator(int depth, int width, int count) throws IOException
+    {
+        this(depth, width, count, SEED);
+    }
+
+    /**
+     * Start the workers and wait for all of them to connect.
+     *
+     * @param depth The depth of the world.
+     * @param width The width of the world.
+     * @param count The number of workers.
+     * @param seed The seed of the world.
+     * @throws IOException If a worker cannot be started or connected.
+     */
+    public DistributedSimulator(int depth, int width, int count, long seed) throws IOException
+    {
+        if(depth < 2 * count) {
+            throw new IllegalArgumentException("Every worker needs at least two rows");
+        }
+        workers = new FrameChannel[count];
+        try(ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress("127.0.0.1", 0));
+            int port = ((InetSocketAddress) server.getLocalAddress()).getPort();
+            String java = ProcessHandle.current().info().command().orElse("java");
+            for(int w = 0; w < count; w++) {
+                processes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                        "StripeWorker", "" + port, "" + w, "" + count, "" + depth, "" + width, "" + seed)
+                    .inheritIO().start());
+            }
+            for(int i = 0; i < count; i++) {
+                FrameChannel channel = new FrameChannel(server.accept());
+                workers[channel.receive().getInt()] = channel;
+            }
+        }
+    }
+
+    /**
+     * Run the world.
+     *
+     * @param args The depth, width, number of steps, number of workers
+     *             and "check" to compare with a single process, all optional.
+     * @throws Exception If a worker fails.
+     */
+    public static void main(String[] args) throws Exception
+    {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SIZE;
+        int width = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SIZE;
+        int steps = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_STEPS;
+        int count = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_WORKERS;
+        boolean check = args.length > 4 && args[4].equals("check");
+
+        Simulator reference = check ? new Simulator(depth, width, false, Randomizer.newRandom(SEED)) : null;
+        DistributedSimulator coordinator = new DistributedSimulator(depth, width, count);
+        long start = System.nanoTime();
+        int firstMismatch = coordinator.run(steps, reference);
+        long elapsed = System.nanoTime() - start;
+        coordinator.close();
+
+        System.out.printf("%d workers ran in %.1f ms%n", count, elapsed / 1e6);
+        if(check) {
+            if(firstMismatch < 0) {
+                System.out.println("The populations match the single process at every step.");
+            }
+            else {
+                System.out.println("The populations first differ from the single process at step " + firstMismatch + ".");
+                System.out.println("Single process: " + reference.getField().getStats());
+            }
+        }
+    }
+
+    /**
+     * Run the world for a number of steps, or until it is not viable.
+     *
+     * @param steps The number of steps.
+     * @param reference A single process run to compare with, or null.
+     * @return The first step at which the populations differ from the
+     *         reference, or -1 if they never do.
+     * @throws IOException If a worker fails.
+     */
+    public int run(int steps, Simulator reference) throws IOException
+    {
+        int count = workers.length;
+        int firstMismatch = -1;
+        OrganismBatch[] tops = new OrganismBatch[count];
+        OrganismBatch[] bottoms = new OrganismBatch[count];
+        for(int step = 0; ; step++) {
+            int[] total = new int[Species.values().length];
+            for(int w = 0; w < count; w++) {
+                ByteBuffer report = workers[w].receive();
+                for(int s = 0; s < total.length; s++) {
+                    total[s] += report.getInt();
+                }
+                tops[w] = OrganismBatch.readFrom(report);
+                bottoms[w] = OrganismBatch.readFrom(report);
+            }
+            if(printSteps) {
+                System.out.println("Step: " + step + " " + Field.formatStats(total));
+            }
+            if(step > 0) {
+                for(int s = 0; s < total.length; s++) {
+                    population[s] += total[s];
+                }
+                stepsRun++;
+            }
+            if(reference != null) {
+                if(step > 0) {
+                    reference.simulateOneStep();
+                }
+                if(firstMismatch < 0 && !Arrays.equals(total, reference.getField().getCounts())) {
+                    firstMismatch = step;
+                }
+            }
+
+            boolean viable = Arrays.stream(total).allMatch(n -> n > 0);
+            lostSpecies = !viable && step < steps;
+            boolean go = step < steps && viable;
+            for(int w = 0; w < count; w++) {
+                OrganismBatch fromAbove = w > 0 ? bottoms[w - 1] : new OrganismBatch();
+                OrganismBatch fromBelow = w < count - 1 ? tops[w + 1] : new OrganismBatch();
+                ByteBuffer frame = ByteBuffer.allocate(1 + fromAbove.encodedSize() + fromBelow.encodedSize());
+                frame.put((byte) (go ? 1 : 0));
+                fromAbove.writeTo(frame);
+                fromBelow.writeTo(frame);
+                workers[w].send(frame.flip());
+            }
+            if(!go) {
+                return firstMismatch;
+            }
+
+            OrganismBatch[] ups = new OrganismBatch[count];
+            OrganismBatch[] downs = new OrganismBatch[count];
+            for(int w = 0; w < count; w++) {
+                ByteBuffer leavers = workers[w].receive();
+                ups[w] = OrganismBatch.readFrom(leavers);
+                downs[w] = OrganismBatch.readFrom(leavers);
+            }
+            for(int w = 0; w < count; w++) {
+                OrganismBatch fromAbove = w > 0 ? downs[w - 1] : new OrganismBatch();
+                OrganismBatch fromBelow = w < count - 1 ? ups[w + 1] : new OrganismBatch();
+                ByteBuffer frame = ByteBuffer.allocate(fromAbove.encodedSize() + fromBelow.encodedSize());
+                fromAbove.writeTo(frame);
+                fromBelow.writeTo(frame);
+                workers[w].send(frame.flip());
+            }
+        }
+    }
+
+    /**
+     * Set whether the population of every step is printed.
+     *
+     * @param printSteps true to print them, as by default.
+     */
+    public void setPrintSteps(boolean printSteps)
+    {
+        this.printSteps = printSteps;
+    }
+
+    /**
+     * @param species A species.
+     * @return Its mean population over the steps run, not counting the
+     *         start.
+     */
+    public double getMeanPopulation(Species species)
+    {
+        return population[species.id()] / Math.max(1, stepsRun);
+    }
+
+    /**
+     * @return true If the run stopped early because a species died out.
+     */
+    public boolean hasLostSpecies()
+    {
+        return lostSpecies;
+    }
+
+    /**
+     * Close the connections and wait for the workers to finish.
+     *
+     * @throws Exception If waiting is interrupted.
+     */
+    public void close() throws Exception
+    {
+        for(FrameChannel worker : workers) {
+            worker.close();
+        }
+        for(Process process : processes) {
+            process.waitFor();
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/**
+ * The divergence harness runs a reference engine and an optimised engine
+ * side by side from the same seed and compares the hash of their worlds
+ * after every step (see Simulator.getStepHash). It reports the first step
+ * where the two runs differ, which part of the state differs first (the
+ * field, the time, the weather or the random generator) and the first
+ * cell whose contents differ. It also checks every step that the hash
+ * kept up to date by each field matches one worked out from scratch.
+ * It can be run with
+ *
+ *     java DivergenceHarness [depth] [width] [steps] [mode] [skipDormant] [sampleEvents]
+ *
+ * where the last three arguments choose the optimised engine. The
+ * reference engine runs every animal in a list, sleepers included, with
+ * every animal rolling its own events. Engines which draw their random
+ * numbers in a different order are expected to diverge at once; the
+ * harness is meant to catch changes that should not have changed a run.
+ *
+ * @author Nicolás Alcalá Olea and Bailey Crossan
+ */
+public class DivergenceHarness
+{
+    // The default size of the field.
+    private static final int DEFAULT_SIZE = 100;
+    // The default number of steps compared.
+    private static final int DEFAULT_STEPS = 200;
+    // The seed both runs start from.
+    private static final long SEED = 1111;
+
+    // The parts of the state hashed separately, in the order they are compared.
+    private static final String[] COMPONENTS = {"field", "time", "weather", "random generator"};
+
+    /**
+     * Run the harness.
+     *
+     * @param args The depth, width, number of steps and the mode,
+     *             skipDormant and sampleEvents of the optimised engine,
+     *             all optional.
+     */
+    public static void main(String[] args)
+    {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SIZE;
+        int width = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SIZE;
+        int steps = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_STEPS;
+        Engine reference = new Engine(ExecutionMode.LIST, false, false);
+        Engine optimised = new Engine(
+            args.length > 3 ? ExecutionMode.valueOf(args[3]) : ExecutionMode.BATCHED,
+            args.length > 4 ? Boolean.parseBoolean(args[4]) : true,
+            args.length > 5 ? Boolean.parseBoolean(args[5]) : true);
+        System.out.println("Reference: " + reference);
+        System.out.println("Optimised: " + optimised);
+
+        Simulator expected = reference.start(depth, width);
+        Simulator actual = optimised.start(depth, width);
+        for(int n = 0; n <= steps; n++) {
+            if(n > 0) {
+                if(!expected.getField().isViable()) {
+                    System.out.println("The reference run stopped being viable at step " + (n - 1) + ".");
+                    break;
+                }
+                expected.simulateOneStep();
+                actual.simulateOneStep();
+            }
+            long[] expectedHashes = hashes(expected);
+            long[] actualHashes = hashes(actual);
+            for(int c = 0; c < COMPONENTS.length; c++) {
+                if(actualHashes[c] != expectedHashes[c]) {
+                    System.out.printf("The runs diverge at step %d: the %s differs first.%n", n, COMPONENTS[c]);
+                    reportCell(expected.getField(), actual.getField());
+                    return;
+                }
+            }
+        }
+        System.out.println("The runs match.");
+    }
+
+    /**
+     * Hash every part of a simulation's state, checking the field's hash
+     * against one worked out from scratch.
+     *
+     * @param simulator The simulation.
+     * @return The hashes of the field, time, weather and random generator.
+     */
+    private static long[] hashes(Simulator simulator)
+    {
+        Field field = simulator.getField();
+        Environment environment = simulator.getEnvironment();
+        long fieldHash = field.getHash();
+        if(fieldHash != field.computeHash()) {
+            System.out.printf("Step %d: the field's hash %016x does not match its contents (%016x).%n",
+                simulator.getStep(), fieldHash, field.computeHash());
+        }
+        return new long[] {
+            fieldHash,
+            environment.getTime().stateHash(),
+            environment.getWeather().stateHash(),
+            Randomizer.stateHash(environment.getRandom()),
+        };
+    }
+
+    /**
+     * Print the first cell whose contents differ between two fields.
+     *
+     * @param expectedField The reference engine's field.
+     * @param actualField The optimised engine's field.
+     */
+    private static void reportCell(Field expectedField, Field actualField)
+    {
+        for(int row = 0; row < expectedField.getDepth(); row++) {
+            for(int col = 0; col < expectedField.getWidth(); col++) {
+                Location location = new Location(row, col);
+                String expected = describe(expectedField, location);
+                String actual = describe(actualField, location);
+                if(!expected.equals(actual)) {
+                    System.out.printf("First differing cell: (%d, %d), reference has %s, optimised has %s.%n",
+                        row, col, expected, actual);
+                    return;
+                }
+            }
+        }
+        System.out.println("Every cell matches.");
+    }
+
+    /**
+     * Describe what a cell holds, with the parts of an animal's state
+     * that are hashed.
+     *
+     * @param field The field.
+     * @param location The cell.
+     * @return A description of the cell.
+     */
+    private static String describe(Field field, Location location)
+    {
+        Animal anAnimal = field.getAnimalAt(location);
+        if(anAnimal != null && anAnimal.isAlive()) {
+            return anAnimal.getSpecies().getDisplayName()
+                + (anAnimal.getIsMale() ? " (male" : " (female")
+                + (anAnimal.isInfected() ? ", infected" : "")
+                + ", state " + Integer.toHexString(anAnimal.hashState()) + ")";
+        }
+        else if(field.hasAlgaeAt(location)) {
+            return "algae";
+        }
+        else {
+            return "nothing";
+        }
+    }
+
+    /**
+     * One way of running the simulation.
+     */
+    private static class Engine
+    {
+        private final ExecutionMode mode;
+        private final boolean skipDormant;
+        private final boolean sampleEvents;
+
+        /**
+         * Describe an engine.
+         *
+         * @param mode How the animals are run.
+         * @param skipDormant Whether sleeping animals skip the act loop.
+         * @param sampleEvents Whether the rare events are drawn for each species.
+         */
+        Engine(ExecutionMode mode, boolean skipDormant, boolean sampleEvents)
+        {
+            this.mode = mode;
+            this.skipDormant = skipDormant;
+            this.sampleEvents = sampleEvents;
+        }
+
+        /**
+         * Seed a new simulation run by this engine.
+         *
+         * @param depth The depth of the field.
+         * @param width The width of the field.
+         * @return The simulation at step 0.
+         */
+        Simulator start(int depth, int width)
+        {
+            Simulator simulator = new Simulator(depth, width, false, Randomizer.newRandom(SEED));
+            simulator.setExecutionMode(mode);
+            simulator.setSkipDormant(skipDormant);
+            simulator.setSampleEvents(sampleEvents);
+            return simulator;
+        }
+
+        @Override
+        public String toString()
+        {
+            return mode + ", skipDormant " + skipDormant + ", sampleEvents " + sampleEvents;
+        }
+    }
+}
@@ -0,0 +1,348 @@
+import java.util.Random;
+
+/**
+ * The environment of one simulated world: its time of day, its weather,
+ * optionally the water of every cell (see OceanLayers), the weather of
+ * every region (see RegionalWeather) and the ground (see Terrain), and
+ * the random
+ * generator every organism in it draws from. Every field knows the
+ * environment it belongs to, so several worlds can be run side by side,
+ * each one with its own clock, weather and stream of random numbers.
+ *
+ * @author Nicolás Alcalá Olea and Bailey Crossan
+ */
+public class Environment
+{
+    // The random generator of the world.
+    private final Random random;
+    // The time of day.
+    private final Time time;
+    // The weather, and the generator it draws from.
+    private final WeatherManager weather;
+    private final Random weatherRandom;
+    // The seed of the weather's generator, which it is reseeded with on
+    // every reset, and whether it is drawn again from the world's
+    // generator then instead.
+    private long weatherSeed;
+    private final boolean drawsWeatherSeed;
+    // The nutrients, temperature and currents of every cell, or null if
+    // the whole world has the same weather.
+    private OceanLayers layers;
+    // The fog banks and cold fronts over the world, or null if the
+    // weather is the same in every region.
+    private RegionalWeather regional;
+    // The rock and reef of every cell, or null for open water everywhere.
+    // It never changes, so it is shared with the copies.
+    private Terrain terrain;
+    // Whether the animals inherit their traits and vary (see Genome).
+    private boolean evolution;
+    // The log of the births and deaths of the animals, or null. The
+    // copies do not log, so the branches of a fork do not mix their
+    // animals into it.
+    private LineageLog lineage;
+
+    /**
+     * Create an environment at the starting time and with a clear weather.
+     * The weather gets its own generator, seeded from the world's one
+     * on every reset, so reseeding the world's generator and resetting
+     * replays the same weather.
+     *
+     * @param random The random generator of the world.
+     */
+    public Environment(Random random)
+    {
+        this(random, 0, true);
+    }
+
+    /**
+     * Create an environment at the starting time and with a clear weather
+     * drawn from a generator with the given seed, so the parts of a world
+     * run by different processes can share the same weather.
+     *
+     * @param random The random generator of the world.
+     * @param weatherSeed The seed of the weather's generator.
+     */
+    public Environment(Random random, long weatherSeed)
+    {
+        this(random, weatherSeed, false);
+    }
+
+    /**
+     * Create an environment at the starting time and with a clear weather.
+     *
+     * @param random The random generator of the world.
+     * @param weatherSeed The seed of the weather's generator.
+     * @param drawsWeatherSeed Whether every reset draws the seed of the
+     *                         weather's generator from the world's one.
+     */
+    private Environment(Random random, long weatherSeed, boolean drawsWeatherSeed)
+    {
+        this.random = random;
+        this.weatherSeed = weatherSeed;
+        this.drawsWeatherSeed = drawsWeatherSeed;
+        time = new Time();
+        weatherRandom = Randomizer.newRandom(weatherSeed);
+        weather = new WeatherManager(weatherRandom);
+    }
+
+    /**
+     * Create an environment with the same time and weather as another
+     * one, drawing from a different random generator.
+     *
+     * @param other The environment to copy.
+     * @param random The random generator of the new environment.
+     */
+    public Environment(Environment other, Random random)
+    {
+        this.random = random;
+        time = new Time(other.time);
+        weatherSeed = random.nextLong();
+        drawsWeatherSeed = true;
+        weatherRandom = Randomizer.newRandom(weatherSeed);
+        weather = new WeatherManager(other.weather, weatherRandom);
+        layers = other.layers == null ? null : new OceanLayers(other.layers);
+        terrain = other.terrain;
+        evolution = other.evolution;
+        if(other.regional != null) {
+            regional = new RegionalWeather(other.regional, random.nextLong());
+        }
+    }
+
+    /**
+     * Let one step of time pass and update the weather.
+     */
+    public void step()
+    {
+        time.increment();
+        weather.update(1.0);
+        if(regional != null) {
+            regional.step();
+        }
+    }
+
+    /**
+     * Go back to the starting time and a clear weather, reseeding the
+     * weather's generator.
+     */
+    public void reset()
+    {
+        if(drawsWeatherSeed) {
+            weatherSeed = random.nextLong();
+        }
+        weatherRandom.setSeed(weatherSeed);
+        time.reset();
+        weather.reset();
+        if(layers != null) {
+            layers.reset();
+        }
+        if(regional != null) {
+            regional.reset();
+        }
+    }
+
+    /**
+     * @return The random generator of the world.
+     */
+    public Random getRandom()
+    {
+        return random;
+    }
+
+    /**
+     * @return The time of day.
+     */
+    public Time getTime()
+    {
+        return time;
+    }
+
+    /**
+     * @return The weather manager.
+     */
+    public WeatherManager getWeather()
+    {
+        return weather;
+    }
+
+    /**
+     * @return The current weather.
+     */
+    public Weather getCurrentWeather()
+    {
+        return weather.getCurrentWeather();
+    }
+
+    /**
+     * Give every cell of the world its own nutrients, temperature and
+     * currents, or take them away.
+     *
+     * @param layers The layers, or null for the same weather everywhere.
+     */
+    public void setLayers(OceanLayers layers)
+    {
+        this.layers = layers;
+    }
+
+    /**
+     * @return The nutrients, temperature and currents of every cell, or null.
+     */
+    public OceanLayers getLayers()
+    {
+        return layers;
+    }
+
+    /**
+     * Let fog banks and cold fronts drift over the world, or go back to
+     * the same weather everywhere.
+     *
+     * @param regional The regional weather, or null.
+     */
+    public void setRegionalWeather(RegionalWeather regional)
+    {
+        this.regional = regional;
+    }
+
+    /**
+     * @return The fog banks and cold fronts over the world, or null.
+     */
+    public RegionalWeather getRegionalWeather()
+    {
+        return regional;
+    }
+
+    /**
+     * Give the world rock and reef, or make it open water everywhere.
+     *
+     * @param terrain The terrain, or null.
+     */
+    public void setTerrain(Terrain terrain)
+    {
+        this.terrain = terrain;
+    }
+
+    /**
+     * @return The rock and reef of every cell, or null.
+     */
+    public Terrain getTerrain()
+    {
+        return terrain;
+    }
+
+    /**
+     * Make the young inherit the traits of their parents, or give every
+     * animal the neutral genome.
+     *
+     * @param evolution Whether the animals evolve.
+     */
+    public void setEvolution(boolean evolution)
+    {
+        this.evolution = evolution;
+    }
+
+    /**
+     * @return Whether the animals inherit their traits and vary.
+     */
+    public boolean hasEvolution()
+    {
+        return evolution;
+    }
+
+    /**
+     * Log the births and deaths of the animals (see LineageLog), or stop.
+     *
+     * @param lineage The log, or null.
+     */
+    public void setLineage(LineageLog lineage)
+    {
+        this.lineage = lineage;
+    }
+
+    /**
+     * @return The log of the births and deaths of the animals, or null.
+     */
+    public LineageLog getLineage()
+    {
+        return lineage;
+    }
+
+    /**
+     * Return the weather an organism feels in a cell. It is the weather
+     * of the world, or of the cell's region with regional weather. With
+     * layers, fog is left as it is, but outside a cold front the cold
+     * depends on the temperature of the cell.
+     *
+     * @param cell The cell index (row * width + col).
+     * @return The weather in the cell.
+     */
+    public Weather getWeatherAt(int cell)
+    {
+        Weather current = regional == null ? weather.getCurrentWeather() : regional.getWeatherAt(cell);
+        if(layers == null || current == Weather.FOG || (regional != null && current == Weather.COLD)) {
+            return current;
+        }
+        return layers.isCold(cell) ? Weather.COLD : Weather.CLEAR;
+    }
+
+    /**
+     * Return the weather an organism feels at a location.
+     *
+     * @param location The location.
+     * @return The weather at the location.
+     */
+    public Weather getWeatherAt(Location location)
+    {
+        if(layers != null) {
+            return getWeatherAt(layers.index(location));
+        }
+        return regional == null ? weather.getCurrentWeather() : regional.getWeatherAt(location);
+    }
+
+    /**
+     * Return how much the weather changes what an organism does in a
+     * cell. With regional weather only, this is one read of the table
+     * of the regions.
+     *
+     * @param effect The effect of the weather.
+     * @param cell The cell index (row * width + col).
+     * @return The modifier of the effect in the cell.
+     */
+    public double getModifier(WeatherEffect effect, int cell)
+    {
+        if(regional != null && layers == null) {
+            return regional.getModifier(effect, cell);
+        }
+        return effect.of(getWeatherAt(cell));
+    }
+
+    /**
+     * Return how much the weather changes what an organism does at a
+     * location.
+     *
+     * @param effect The effect of the weather.
+     * @param location The location.
+     * @return The modifier of the effect at the location.
+     */
+    public double getModifier(WeatherEffect effect, Location location)
+    {
+        if(regional != null && layers == null) {
+            return regional.getModifier(effect, location);
+        }
+        return effect.of(getWeatherAt(location));
+    }
+
+    /**
+     * @return true If the weather is not the same in every cell.
+     */
+    public boolean hasLocalWeather()
+    {
+        return layers != null || regional != null;
+    }
+
+    /**
+     * @return true If it is day time in the world.
+     */
+    public boolean isDay()
+    {
+        return time.isDay();
+    }
+}
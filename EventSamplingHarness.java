@@ -0,0 +1,137 @@
+import java.util.Random;
+
+/**
+ * The event sampling harness checks that marking the rare events of a
+ * step by skipping from one animal to the next (see
+ * Randomizer.geometricSkip and Simulator.setSampleEvents) picks the same
+ * animals, in distribution, as every animal rolling its own die. For
+ * every probability it runs both ways over a list of animals many times
+ * and reports the mean and variance of the number of events against the
+ * binomial ones, and how evenly the events fall over the list: the list
+ * is cut into buckets and a chi-square statistic compares the events in
+ * every bucket with an even spread. It can be run with
+ *
+ *     java EventSamplingHarness [runs] [trials]
+ *
+ * A mean is off if it is more than about 3 standard errors from the
+ * expected one, a variance if its ratio to the expected one is more
+ * than about 3 sqrt(2 / (runs - 1)) from 1, and the spread is uneven if
+ * the chi-square is well above CHI_SQUARE_LIMIT.
+ *
+ * @author Nicolás Alcalá Olea and Bailey Crossan
+ */
+public class EventSamplingHarness
+{
+    // The default number of runs of every probability.
+    private static final int DEFAULT_RUNS = 1000;
+    // The default number of animals in the list.
+    private static final int DEFAULT_TRIALS = 100000;
+    // The probabilities tested: rare, like catching the disease, and
+    // common, like being kept still by the weather.
+    private static final double[] PROBABILITIES = {0.005, 0.05, 0.2};
+    // The number of buckets the list is cut into.
+    private static final int BUCKETS = 20;
+    // The chi-square with BUCKETS - 1 degrees of freedom that an even
+    // spread exceeds one time in a thousand.
+    private static final double CHI_SQUARE_LIMIT = 43.82;
+    // The seed of the runs.
+    private static final long SEED = 3030;
+
+    /**
+     * Run the harness.
+     *
+     * @param args The number of runs and the number of animals, both
+     *             optional.
+     */
+    public static void main(String[] args)
+    {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_RUNS;
+        int trials = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_TRIALS;
+        System.out.printf("%d runs of %d animals%n", runs, trials);
+        System.out.printf("%-8s %-6s %12s %10s %14s %10s %10s%n",
+            "p", "method", "mean", "z", "variance", "ratio", "chi-square");
+        Random rand = Randomizer.newRandom(SEED);
+        for(double probability : PROBABILITIES) {
+            double mean = trials * probability;
+            double variance = mean * (1 - probability);
+            System.out.printf("%-8s %-6s %12.2f %10s %14.2f%n", probability, "exact", mean, "", variance);
+            report(probability, "skip", sample(rand, probability, runs, trials, true), mean, variance, runs);
+            report(probability, "roll", sample(rand, probability, runs, trials, false), mean, variance, runs);
+        }
+        System.out.printf("The variance ratio has a standard error of %.3f.%n", Math.sqrt(2.0 / (runs - 1)));
+        System.out.printf("A chi-square above %.2f happens one time in a thousand for an even spread.%n",
+            CHI_SQUARE_LIMIT);
+    }
+
+    /**
+     * Mark the events of every run on a list of animals.
+     *
+     * @param rand The random generator to use.
+     * @param probability The probability of the event for one animal.
+     * @param runs The number of runs.
+     * @param trials The number of animals in the list.
+     * @param skip true To skip from one event to the next, false for
+     *             every animal to roll its own die.
+     * @return The number of events of every run, followed by the number
+     *         of events in every bucket over all runs.
+     */
+    private static long[] sample(Random rand, double probability, int runs, int trials, boolean skip)
+    {
+        long[] counts = new long[runs + BUCKETS];
+        for(int run = 0; run < runs; run++) {
+            if(skip) {
+                // The same walk as Simulator.markEvents.
+                long next = Randomizer.geometricSkip(rand, probability);
+                while(next < trials) {
+                    counts[run]++;
+                    counts[runs + (int) (next * BUCKETS / trials)]++;
+                    next += 1L + Randomizer.geometricSkip(rand, probability);
+                }
+            }
+            else {
+                for(int n = 0; n < trials; n++) {
+                    if(rand.nextDouble() < probability) {
+                        counts[run]++;
+                        counts[runs + (int) ((long) n * BUCKETS / trials)]++;
+                    }
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Print the statistics of one way of marking the events.
+     *
+     * @param probability The probability of the event.
+     * @param method The name of the way.
+     * @param counts The counts returned by sample.
+     * @param mean The expected number of events in a run.
+     * @param variance The expected variance of that number.
+     * @param runs The number of runs.
+     */
+    private static void report(double probability, String method, long[] counts,
+                               double mean, double variance, int runs)
+    {
+        double sum = 0;
+        for(int run = 0; run < runs; run++) {
+            sum += counts[run];
+        }
+        double sampleMean = sum / runs;
+        double squares = 0;
+        for(int run = 0; run < runs; run++) {
+            squares += (counts[run] - sampleMean) * (counts[run] - sampleMean);
+        }
+        double sampleVariance = squares / (runs - 1);
+        // How many standard errors the mean is from the expected one.
+        double z = (sampleMean - mean) / Math.sqrt(variance / runs);
+        double perBucket = sum / BUCKETS;
+        double chiSquare = 0;
+        for(int bucket = 0; bucket < BUCKETS; bucket++) {
+            double difference = counts[runs + bucket] - perBucket;
+            chiSquare += difference * difference / perBucket;
+        }
+        System.out.printf("%-8s %-6s %12.2f %10.2f %14.2f %10.3f %10.2f%n", probability, method,
+            sampleMean, z, sampleVariance, sampleVariance / variance, chiSquare);
+    }
+}
@@ -0,0 +1,37 @@
+/**
+ * This enumeration holds the different ways the simulator can run the
+ * animals in one step of the simulation.
+ *
+ * @author Nicolás Alcalá Olea and Bailey Crossan
+ */
+public enum ExecutionMode
+{
+    /**
+     * Every animal acts in the order it was placed in the field.
+     */
+    LIST,
+    /**
+     * The animals are grouped by species and every group acts in its own
+     * tight loop. The groups are cut into small batches, spread evenly
+     * over every step from a random offset, so the species are
+     * interleaved in proportion to their numbers and none moves first.
+     */
+    BATCHED,
+    /**
+     * The animals first plan their step in parallel without changing the
+     * field, then the meals and cells they claimed are given out by a
+     * priority hashed from their cell (see IntentStep). The result does
+     * not depend on the order of the animals or the number of threads.
+     * No animal takes a cell another one holds, so this is a different
+     * model from LIST.
+     */
+    INTENTS,
+    /**
+     * The animals plan their step as in INTENTS, then every thread claims
+     * the cells and meals of its own animals with compare-and-set (see
+     * AtomicStep). No sorting is needed, but with several threads the
+     * result depends on which thread is first. No animal takes a cell
+     * another one holds, so this is a different model from LIST.
+     */
+    ATOMIC
+}
@@ -2,145 +2,611 @@ import java.util.*;
 
 /**
  * Represent a rectangular grid of field positions.
- * Each position is able to store a single organism/object.
+ * Each position is able to store a single animal. The algae
+ * are kept in a separate layer, with at most one algae in a
+ * position without an animal.
+ *
+ * A world with a water column has one field for every layer of it,
+ * linked to the fields above and below, and each field keeps its own
+ * arrays, so every layer costs the same as a flat world. The cell
+ * above or below a cell is the cell with the same index in the field
+ * above or below.
  * 
  * @author Nicolás Alcalá Olea and Bailey Crossan
  */
 public class Field
 {
-    // A random number generator for providing random locations.
-    private static final Random rand = Randomizer.getRandom();
-
+    // The environment of the world the field belongs to, whose random
+    // generator provides random locations.
+    private final Environment environment;
     // The dimensions of the field.
     private final int depth, width;
-    // Organisms mapped by location.
-    private final Map<Location, Organism> field = new HashMap<>();
+    // Animals stored row by row, one cell for each location.
+    private final Animal[] cells;
     // The animals.
     private final List<Animal> animals = new ArrayList<>();
-    // The plants.
-    private final List<Plant> plants = new ArrayList<>();
+    // The animals grouped by species, indexed by the species id.
+    private final List<List<Animal>> animalsBySpecies = new ArrayList<>();
+    // The algae.
+    private AlgaeLayer algae;
+    // Whether the rare events of the animals' next act have been drawn.
+    private boolean eventsDrawn;
+    // What the predators see in this field, or null if they only see
+    // their neighbours.
+    private PreyVision vision;
+    // The Zobrist hash of the live animals in the field.
+    private long hash;
+    // The levels of the traits of the live animals in the field, kept
+    // up to date like the hash.
+    private final TraitHistograms traitHistograms = new TraitHistograms();
+    // The neighbourhoods of the species, compiled for this field. It is
+    // replaced by a longer copy when another one is compiled, so the
+    // planning threads can read it without a lock.
+    private volatile NeighbourTable[] neighbourTables = new NeighbourTable[0];
+    // The layer of the water column the field holds, or null if the
+    // world is flat.
+    private WaterLayer waterLayer;
+    // The fields of the layers above and below, or null.
+    private Field above, below;
+    // The schools of the schooling species, or null if every fish is
+    // an animal of its own.
+    private SchoolLayer schools;
 
     /**
      * Represent a field of the given dimensions.
      * 
      * @param depth The depth of the field.
      * @param width The width of the field.
+     * @param environment The environment of the world.
      */
-    public Field(int depth, int width)
+    public Field(int depth, int width, Environment environment)
     {
+        this.environment = environment;
         this.depth = depth;
         this.width = width;
+        cells = new Animal[depth * width];
+        algae = new AlgaeLayer(depth, width);
+        for(int i = 0; i < Species.values().length; i++) {
+            animalsBySpecies.add(new ArrayList<>());
+        }
+        getNeighbourTable(Neighbourhood.MOORE);
+        for(Species species : Species.values()) {
+            getNeighbourTable(species.getMovement());
+            getNeighbourTable(species.getSensing());
+        }
+    }
+
+    /**
+     * Create the fields of a water column, linked from the surface down.
+     * A column of one layer is a flat field.
+     * 
+     * @param depth The depth of the fields.
+     * @param width The width of the fields.
+     * @param environment The environment of the world.
+     * @param layers The number of layers, at least 1.
+     * @return The field of the top layer.
+     */
+    public static Field column(int depth, int width, Environment environment, int layers)
+    {
+        Field top = new Field(depth, width, environment);
+        Field last = top;
+        for(int layer = 1; layer < layers; layer++) {
+            Field next = new Field(depth, width, environment);
+            last.below = next;
+            next.above = last;
+            last = next;
+        }
+        if(layers > 1) {
+            int layer = 0;
+            for(Field field = top; field != null; field = field.below) {
+                field.waterLayer = WaterLayer.of(layer++, layers);
+            }
+        }
+        return top;
+    }
+
+    /**
+     * Create a copy of this field and of the fields below it, linked the
+     * same way (see copy).
+     * 
+     * @param newEnvironment The environment of the copy.
+     * @return The copy of this field.
+     */
+    public Field copyColumn(Environment newEnvironment)
+    {
+        Field copy = copy(newEnvironment);
+        copy.waterLayer = waterLayer;
+        if(below != null) {
+            copy.below = below.copyColumn(newEnvironment);
+            copy.below.above = copy;
+        }
+        return copy;
+    }
+
+    /**
+     * Create a copy of this field, with a copy of every live animal and
+     * of the algae, belonging to the given environment. The animals are
+     * kept in the same order, so the copy runs like the original would.
+     * 
+     * @param newEnvironment The environment of the copy.
+     * @return The copy.
+     */
+    public Field copy(Environment newEnvironment)
+    {
+        Field copy = new Field(depth, width, newEnvironment);
+        for(Animal anAnimal : animals) {
+            if(!isGone(anAnimal)) {
+                Animal twin = new Animal(anAnimal);
+                copy.placeAnimal(twin, twin.getLocation());
+            }
+        }
+        copy.algae = new AlgaeLayer(algae);
+        if(schools != null) {
+            copy.schools = new SchoolLayer(schools);
+        }
+        return copy;
+    }
+
+    /**
+     * Kill every animal of a species in the field.
+     * 
+     * @param species The species to remove.
+     */
+    public void removeAll(Species species)
+    {
+        for(Animal anAnimal : getAnimals(species)) {
+            if(anAnimal.isAlive()) {
+                anAnimal.setDead();
+            }
+        }
+        tidy();
     }
 
     /**
      * Place an animal at the given location.
      * If there is already an animal at the location it will
-     * be lost.
+     * be lost. It stays in the lists of organisms until the
+     * field is tidied.
      * 
      * @param anAnimal The animal to be placed.
      * @param location Where to place the animal.
      */
     public void placeAnimal(Animal anAnimal, Location location)
     {
-        assert location != null;
-        Object other = field.get(location);
-        if(other != null && other instanceof Animal) {
-            animals.remove(other);
+        assert location != null && location.equals(anAnimal.getLocation());
+        int index = index(location);
+        Animal other = cells[index];
+        if(other != null && other != anAnimal && other.isAlive()) {
+            other.leaveField();
         }
-        else if(other != null && other instanceof Plant) {
-            plants.remove(other);
-        }
-        field.put(location, anAnimal);
+        cells[index] = anAnimal;
+        enter(anAnimal, index);
         animals.add(anAnimal);
+        animalsBySpecies.get(anAnimal.getSpecies().id()).add(anAnimal);
     }
 
     /**
-     * Place a plant at the given location.
-     * If there is already an plant at the location it will
-     * be lost.
+     * Put a copy of an animal owned by another part of the world in a
+     * cell, so the animals here can see and eat it. It is not added to
+     * the lists, so it does not act.
      * 
-     * @param plant The Plant to be placed.
-     * @param location Where to place the plant.
+     * @param ghost The copy of the animal, with its location set.
      */
-    public void placePlant(Plant plant, Location location)
+    public void placeGhost(Animal ghost)
     {
-        assert location != null;
-        Object other = field.get(location);
-        if(other != null && other instanceof Animal) {
-            animals.remove(other);
+        int index = index(ghost.getLocation());
+        cells[index] = ghost;
+        enter(ghost, index);
+    }
+
+    /**
+     * Put a copy of an algae owned by another part of the world in a
+     * cell, so the animals here can eat it. It is at its maximum age, so
+     * it dies when the algae get older and never grows here.
+     * 
+     * @param location Where in the field.
+     */
+    public void placeGhostAlgae(Location location)
+    {
+        algae.plant(index(location), Species.ALGAE.getMaxAge());
+    }
+
+    /**
+     * Carry a whole group of animals of one species into this field
+     * where they are, like the ones sleeping through a night step.
+     * They are appended to the lists in one block and their cells
+     * are written directly.
+     * 
+     * @param species The species of the animals.
+     * @param group The animals, all alive and with a location.
+     */
+    public void carryOver(Species species, List<Animal> group)
+    {
+        animals.addAll(group);
+        animalsBySpecies.get(species.id()).addAll(group);
+        for(Animal anAnimal : group) {
+            int index = index(anAnimal.getLocation());
+            cells[index] = anAnimal;
+            enter(anAnimal, index);
         }
-        else if(other != null && other instanceof Plant) {
-            plants.remove(other);
+    }
+
+    /**
+     * Add an animal just put in a cell to the hash of the field.
+     * 
+     * @param anAnimal The animal.
+     * @param index Its cell index.
+     */
+    private void enter(Animal anAnimal, int index)
+    {
+        anAnimal.enterField(this);
+        hash ^= Zobrist.key(index, anAnimal.hashState());
+        traitHistograms.add(anAnimal.getSpecies(), anAnimal.getGenome());
+    }
+
+    /**
+     * Add or remove an animal state at a location in the hash of the
+     * field. Doing it twice with the same state undoes it.
+     * 
+     * @param location The location of the animal.
+     * @param state The packed state of the animal.
+     */
+    public void toggleHash(Location location, int state)
+    {
+        hash ^= Zobrist.key(index(location), state);
+    }
+
+    /**
+     * Return the Zobrist hash of the field, kept up to date as animals
+     * and algae are placed, removed or change their state.
+     * 
+     * @return The hash of the field.
+     */
+    public long getHash()
+    {
+        if(schools != null) {
+            return hash ^ algae.getHash() ^ schools.getHash();
         }
-        field.put(location, plant);
-        plants.add(plant);
+        return hash ^ algae.getHash();
     }
 
     /**
-     * Return the animal at the given location, if any.
+     * Work out the hash of the field from scratch, to check the one kept
+     * up to date.
      * 
-     * @param location Where in the field.
-     * @return The animal at the given location, or null if there is none.
+     * @return The hash of the field.
      */
-    public Animal getAnimalAt(Location location)
+    public long computeHash()
     {
-        Organism organism = field.get(location);
+        long fullHash = 0;
+        for(int i = 0; i < cells.length; i++) {
+            if(cells[i] != null && cells[i].isAlive()) {
+                fullHash ^= Zobrist.key(i, cells[i].hashState());
+            }
+            if(algae.has(i)) {
+                fullHash ^= Zobrist.key(i, AlgaeLayer.HASH_STATE);
+            }
+        }
+        if(schools != null) {
+            fullHash ^= schools.getHash();
+        }
+        return fullHash;
+    }
 
-        if(organism instanceof Animal){
-            return (Animal)organism;
+    /**
+     * Return how many live animals in the field have every level of
+     * every trait, kept up to date as animals are placed, removed or
+     * change their genome.
+     * 
+     * @return The trait histograms of the field.
+     */
+    public TraitHistograms getTraitHistograms()
+    {
+        return traitHistograms;
+    }
+
+    /**
+     * Count the trait histograms of the field from scratch, to check the
+     * ones kept up to date.
+     * 
+     * @return The trait histograms of the field.
+     */
+    public TraitHistograms computeTraitHistograms()
+    {
+        TraitHistograms fullHistograms = new TraitHistograms();
+        for(Animal anAnimal : cells) {
+            if(anAnimal != null && anAnimal.isAlive()) {
+                fullHistograms.add(anAnimal.getSpecies(), anAnimal.getGenome());
+            }
         }
-        else{
-            return null;
+        return fullHistograms;
+    }
+
+    /**
+     * Drop from the lists every animal that died or was replaced
+     * in its cell while this field was being built, and empty the
+     * cells of the dead ones. Removing them one by one when they are
+     * replaced would search the whole list every time.
+     * When the lineage is logged, the live animals that were replaced
+     * die of overcrowding first, so their deaths are logged.
+     */
+    public void tidy()
+    {
+        if(environment.getLineage() != null) {
+            for(Animal anAnimal : animals) {
+                if(anAnimal.isAlive() && cells[index(anAnimal.getLocation())] != anAnimal) {
+                    anAnimal.setDead(LineageLog.Cause.CROWDED);
+                }
+            }
+        }
+        animals.removeIf(this::isGone);
+        for(List<Animal> group : animalsBySpecies) {
+            group.removeIf(this::isGone);
+        }
+        for(int i = 0; i < cells.length; i++) {
+            if(cells[i] != null && !cells[i].isAlive()) {
+                cells[i] = null;
+            }
         }
     }
 
     /**
-     * Return the plant at the given location, if any.
+     * Reorder the animal lists by where the animals are, so the animals
+     * acting one after another look at cells close to each other in
+     * memory. The field is cut into square tiles, the tiles are visited
+     * in a random order so no part of the field always acts first, and
+     * within a tile the animals follow the Z-order (Morton) curve.
      * 
-     * @param location Where in the field.
-     * @return The plant at the given location, or null if there is none.
+     * @param tileShift The tiles are 2^tileShift cells on a side.
+     * @param rand The random generator to shuffle the tiles with.
      */
-    public Plant getPlantAt(Location location)
+    public void sortBySpace(int tileShift, Random rand)
     {
-        Organism organism = field.get(location);
+        int tileCols = ((width - 1) >> tileShift) + 1;
+        int tiles = (((depth - 1) >> tileShift) + 1) * tileCols;
+        int[] tileOrder = new int[tiles];
+        for(int i = 0; i < tiles; i++) {
+            tileOrder[i] = i;
+        }
+        for(int i = tiles - 1; i > 0; i--) {
+            int j = rand.nextInt(i + 1);
+            int swap = tileOrder[i];
+            tileOrder[i] = tileOrder[j];
+            tileOrder[j] = swap;
+        }
+        sortBySpace(animals, tileShift, tileCols, tileOrder);
+        for(List<Animal> group : animalsBySpecies) {
+            sortBySpace(group, tileShift, tileCols, tileOrder);
+        }
+    }
 
-        if(organism instanceof Plant){
-            return (Plant)organism;
+    /**
+     * Reorder one list of animals by tile and Z-order.
+     * 
+     * @param group The animals.
+     * @param tileShift The tiles are 2^tileShift cells on a side.
+     * @param tileCols The number of tiles across the field.
+     * @param tileOrder The position of every tile in the visiting order.
+     */
+    private static void sortBySpace(List<Animal> group, int tileShift, int tileCols, int[] tileOrder)
+    {
+        int mask = (1 << tileShift) - 1;
+        long[] keys = new long[group.size()];
+        for(int i = 0; i < keys.length; i++) {
+            Location location = group.get(i).getLocation();
+            int row = location.row();
+            int col = location.col();
+            int tile = (row >> tileShift) * tileCols + (col >> tileShift);
+            long key = (long) tileOrder[tile] << (2 * tileShift) | morton(row & mask, col & mask);
+            // The position in the list fills the low 32 bits.
+            keys[i] = key << 32 | i;
+        }
+        Arrays.sort(keys);
+        Animal[] old = group.toArray(new Animal[0]);
+        for(int i = 0; i < keys.length; i++) {
+            group.set(i, old[(int) keys[i]]);
         }
-        else{
-            return null;
+    }
+
+    /**
+     * Interleave the bits of a row and a column into a Z-order index.
+     * 
+     * @param row The row, below 2^16.
+     * @param col The column, below 2^16.
+     * @return The index, with the column in the even bits.
+     */
+    private static long morton(int row, int col)
+    {
+        return spread(row) << 1 | spread(col);
+    }
+
+    /**
+     * Move the bits of a number apart, one empty bit between each.
+     * 
+     * @param x A number below 2^16.
+     * @return The spread bits.
+     */
+    private static long spread(int x)
+    {
+        long v = x & 0xFFFF;
+        v = (v | (v << 8)) & 0x00FF00FFL;
+        v = (v | (v << 4)) & 0x0F0F0F0FL;
+        v = (v | (v << 2)) & 0x33333333L;
+        v = (v | (v << 1)) & 0x55555555L;
+        return v;
+    }
+
+    /**
+     * Check whether an animal is no longer part of this field.
+     * 
+     * @param anAnimal The animal to check.
+     * @return true If it is dead or another organism took its cell.
+     */
+    private boolean isGone(Animal anAnimal)
+    {
+        return !anAnimal.isAlive() || cells[index(anAnimal.getLocation())] != anAnimal;
+    }
+
+    /**
+     * Return the cell index of a location.
+     * 
+     * @param location A location within the field.
+     * @return The position of its cell.
+     */
+    private int index(Location location)
+    {
+        return location.row() * width + location.col();
+    }
+
+    /**
+     * Return the cell index of a location.
+     * 
+     * @param location A location within the field.
+     * @return The cell index (row * width + col).
+     */
+    public int indexOf(Location location)
+    {
+        return index(location);
+    }
+
+    /**
+     * Return the location of a cell index.
+     * 
+     * @param index The cell index (row * width + col).
+     * @return The location of the cell.
+     */
+    public Location locationOf(int index)
+    {
+        return new Location(index / width, index % width);
+    }
+
+    /**
+     * Return the bit of the species living at the given location, if any,
+     * so a diet can be tested against it with one AND. A live animal
+     * comes before the algae.
+     * 
+     * @param location Where in the field.
+     * @return The species bit, or 0 if nothing lives there.
+     */
+    public int getSpeciesBitAt(Location location)
+    {
+        int index = index(location);
+        Animal anAnimal = cells[index];
+        if(anAnimal != null && anAnimal.isAlive()) {
+            return anAnimal.getSpecies().bit();
         }
+        return algae.has(index) ? Species.ALGAE.bit() : 0;
+    }
+
+    /**
+     * Return whether there is an algae at the given location.
+     * 
+     * @param location Where in the field.
+     * @return true If there is an algae at the location.
+     */
+    public boolean hasAlgaeAt(Location location)
+    {
+        return algae.has(index(location));
+    }
+
+    /**
+     * Remove the algae at the given location, because it has been eaten.
+     * 
+     * @param location Where in the field.
+     */
+    public void removeAlgaeAt(Location location)
+    {
+        algae.remove(index(location));
+    }
+
+    /**
+     * Plant an algae at the given location.
+     * 
+     * @param location Where in the field.
+     * @param randomAge If true, the algae will have random age.
+     */
+    public void plantAlgaeAt(Location location, boolean randomAge)
+    {
+        algae.plant(index(location), randomAge ? AlgaeLayer.randomAge(environment.getRandom()) : 0);
+    }
+
+    /**
+     * Return whether a cell holds neither a live animal, a fish of a
+     * school nor an algae.
+     * 
+     * @param index The cell index (row * width + col).
+     * @return true If the cell is free.
+     */
+    public boolean isFree(int index)
+    {
+        Animal anAnimal = cells[index];
+        return (anAnimal == null || !anAnimal.isAlive()) && !algae.has(index) && !hasSchoolAt(index);
+    }
+
+    /**
+     * Return whether a live animal is in the cell with the given index.
+     * 
+     * @param index The cell index (row * width + col).
+     * @return true If a live animal is in the cell.
+     */
+    public boolean hasLiveAnimal(int index)
+    {
+        Animal anAnimal = cells[index];
+        return anAnimal != null && anAnimal.isAlive();
+    }
+
+    /**
+     * Return whether a fish of a school takes a cell, see
+     * SchoolLayer.getSchoolAt.
+     * 
+     * @param index The cell index (row * width + col).
+     * @return true If a fish of a school is in the cell.
+     */
+    public boolean hasSchoolAt(int index)
+    {
+        return schools != null && schools.getSchoolAt(index) != null;
+    }
+
+    /**
+     * Return the animal at the given location, if any.
+     * 
+     * @param location Where in the field.
+     * @return The animal at the given location, or null if there is none.
+     */
+    public Animal getAnimalAt(Location location)
+    {
+        return cells[index(location)];
     }
 
     /**
-     * Get a shuffled list of the free adjacent locations.
+     * Get a shuffled list of the free adjacent locations, the ones with
+     * neither a live animal nor an algae.
      * 
      * @param location Get locations adjacent to this.
      * @return A list of free adjacent locations.
      */
     public List<Location> getFreeAdjacentLocations(Location location)
+    {
+        return getFreeAdjacentLocations(location, Neighbourhood.MOORE);
+    }
+
+    /**
+     * Get a shuffled list of the free locations in a neighbourhood, the
+     * ones with neither a live animal, a fish of a school nor an algae.
+     * 
+     * @param location Get locations around this.
+     * @param neighbourhood The cells around it to look at.
+     * @return A list of free locations around it.
+     */
+    public List<Location> getFreeAdjacentLocations(Location location, Neighbourhood neighbourhood)
     {
         List<Location> free = new LinkedList<>();
-        List<Location> adjacent = getAdjacentLocations(location);
+        List<Location> adjacent = getAdjacentLocations(location, environment.getRandom(), neighbourhood);
         for(Location next : adjacent) {
-            Organism organism = field.get(next);
-            if(organism instanceof Animal) {
-                Animal anAnimal = (Animal) organism;
-                if(anAnimal == null) {
-                    free.add(next);
-                }
-                else if(!anAnimal.isAlive()) {
-                    free.add(next);
-                }
-            }
-            else {
-                Plant plant = (Plant) organism;
-                if(plant == null) {
-                    free.add(next);
-                }
-                else if(!plant.isAlive()) {
-                    free.add(next);
-                }
+            int index = index(next);
+            Animal anAnimal = cells[index];
+            if((anAnimal == null || !anAnimal.isAlive()) && !algae.has(index) && !hasSchoolAt(index)) {
+                free.add(next);
             }
         }
         return free;
@@ -155,23 +621,43 @@ public class Field
      * @return A list of locations adjacent to that given.
      */
     public List<Location> getAdjacentLocations(Location location)
+    {
+        return getAdjacentLocations(location, environment.getRandom());
+    }
+
+    /**
+     * Return a list of locations adjacent to the given one, shuffled
+     * with the given random generator, so several threads can each use
+     * their own.
+     * 
+     * @param location The location from which to generate adjacencies.
+     * @param rand The random generator to shuffle with.
+     * @return A list of locations adjacent to that given.
+     */
+    public List<Location> getAdjacentLocations(Location location, Random rand)
+    {
+        return getAdjacentLocations(location, rand, Neighbourhood.MOORE);
+    }
+
+    /**
+     * Return a list of the locations in a neighbourhood of the given one
+     * that are not rock, shuffled with the given random generator.
+     * 
+     * @param location The location from which to generate adjacencies.
+     * @param rand The random generator to shuffle with.
+     * @param neighbourhood The cells around the location to list.
+     * @return A list of locations around that given.
+     */
+    public List<Location> getAdjacentLocations(Location location, Random rand, Neighbourhood neighbourhood)
     {
         // The list of locations to be returned.
         List<Location> locations = new ArrayList<>();
         if(location != null) {
-            int row = location.row();
-            int col = location.col();
-            for(int roffset = -1; roffset <= 1; roffset++) {
-                int nextRow = row + roffset;
-                if(nextRow >= 0 && nextRow < depth) {
-                    for(int coffset = -1; coffset <= 1; coffset++) {
-                        int nextCol = col + coffset;
-                        // Exclude invalid locations and the original location.
-                        if(nextCol >= 0 && nextCol < width && (roffset != 0 || coffset != 0)) {
-                            locations.add(new Location(nextRow, nextCol));
-                        }
-                    }
-                }
+            NeighbourTable table = getNeighbourTable(neighbourhood);
+            int[] neighbours = new int[table.size()];
+            int count = findNeighbours(table, index(location), neighbours);
+            for(int k = 0; k < count; k++) {
+                locations.add(locationOf(neighbours[k]));
             }
 
             // Shuffle the list. Several other methods rely on the list
@@ -181,62 +667,154 @@ public class Field
         return locations;
     }
 
+    /**
+     * Find the cells in a neighbourhood of a cell that are not rock, in
+     * row order.
+     * 
+     * @param index The cell index (row * width + col).
+     * @param neighbourhood The cells around it to find.
+     * @param out Where the cell indices are stored, at least
+     *            neighbourhood.size() long.
+     * @return The number of cells found.
+     */
+    public int getNeighbours(int index, Neighbourhood neighbourhood, int[] out)
+    {
+        return findNeighbours(getNeighbourTable(neighbourhood), index, out);
+    }
+
+    /**
+     * Find the cells in a neighbourhood of a cell where algae can grow:
+     * the reef cells, or every cell if there is no terrain.
+     * 
+     * @param index The cell index (row * width + col).
+     * @param neighbourhood The cells around it to find.
+     * @param out Where the cell indices are stored, at least
+     *            neighbourhood.size() long.
+     * @return The number of cells found.
+     */
+    public int getReefNeighbours(int index, Neighbourhood neighbourhood, int[] out)
+    {
+        Terrain terrain = environment.getTerrain();
+        NeighbourTable table = getNeighbourTable(neighbourhood);
+        if(terrain == null) {
+            return table.neighbours(index, out);
+        }
+        return table.openNeighbours(index, terrain.getReefBits(), out);
+    }
+
+    /**
+     * Find the cells of a neighbourhood that are not rock.
+     * 
+     * @param table The neighbourhood, compiled for this field.
+     * @param index The cell index (row * width + col).
+     * @param out Where the cell indices are stored.
+     * @return The number of cells found.
+     */
+    private int findNeighbours(NeighbourTable table, int index, int[] out)
+    {
+        Terrain terrain = environment.getTerrain();
+        if(terrain == null) {
+            return table.neighbours(index, out);
+        }
+        return table.openNeighbours(index, terrain.getOpenBits(), out);
+    }
+
+    /**
+     * Return a neighbourhood compiled for this field. The ones of the
+     * species are compiled when the field is created, any other one the
+     * first time it is asked for.
+     * 
+     * @param neighbourhood The neighbourhood.
+     * @return Its table for this field.
+     */
+    private NeighbourTable getNeighbourTable(Neighbourhood neighbourhood)
+    {
+        for(NeighbourTable table : neighbourTables) {
+            if(table.getNeighbourhood() == neighbourhood) {
+                return table;
+            }
+        }
+        return compileNeighbourhood(neighbourhood);
+    }
+
+    /**
+     * Compile a neighbourhood for this field and keep its table, unless
+     * another thread did first.
+     * 
+     * @param neighbourhood The neighbourhood.
+     * @return Its table for this field.
+     */
+    private synchronized NeighbourTable compileNeighbourhood(Neighbourhood neighbourhood)
+    {
+        NeighbourTable[] tables = neighbourTables;
+        for(NeighbourTable table : tables) {
+            if(table.getNeighbourhood() == neighbourhood) {
+                return table;
+            }
+        }
+        NeighbourTable table = neighbourhood.compile(depth, width);
+        tables = Arrays.copyOf(tables, tables.length + 1);
+        tables[tables.length - 1] = table;
+        neighbourTables = tables;
+        return table;
+    }
+
     /**
      * Print out the number of all the organisms in the field.
      */
     public void fieldStats()
     {
-        int numSwordFish = 0, numTurtle = 0, numParrotfish = 0, numWhiteSharks = 0, numKillerWhales = 0, numClownfish = 0, numAlgae = 0;
-        for(Organism organism : field.values()) {
-            if(organism instanceof Animal) {
-                Animal anAnimal = (Animal)organism;
-                if(anAnimal instanceof Turtle) {
-                    if(anAnimal.isAlive()) {
-                        numTurtle++;
-                    }   
-                }
-                else if(anAnimal instanceof Swordfish) {
-                    if(anAnimal.isAlive()) {
-                        numSwordFish++;
-                    }
-                }
-                else if(anAnimal instanceof Parrotfish) {
-                    if(anAnimal.isAlive()) {
-                        numParrotfish++;
-                    }
-                }
-                else if(anAnimal instanceof WhiteShark) {
-                    if(anAnimal.isAlive()) {
-                        numWhiteSharks++;
-                    }
-                }
-                else if(anAnimal instanceof Clownfish) {
-                    if(anAnimal.isAlive()) {
-                        numClownfish++;
-                    }
-                }
-                else if(anAnimal instanceof KillerWhale) {
-                    if(anAnimal.isAlive()) {
-                        numKillerWhales++;
-                    }
-                }
+        System.out.println(getStats());
+    }
+
+    /**
+     * Return the number of all the organisms in the field, as one line.
+     * 
+     * @return The number of every species.
+     */
+    public String getStats()
+    {
+        return formatStats(getCounts());
+    }
+
+    /**
+     * Count the live organisms of every species in the field.
+     * 
+     * @return The counts, indexed by the species id.
+     */
+    public int[] getCounts()
+    {
+        int[] counts = new int[Species.values().length];
+        for(Animal anAnimal : cells) {
+            if(anAnimal != null && anAnimal.isAlive()) {
+                counts[anAnimal.getSpecies().id()]++;
             }
-            else if(organism instanceof Plant){
-                Plant plant = (Plant)organism;
-                if(plant instanceof Algae) {
-                    if(plant.isAlive()) {
-                        numAlgae++;
-                    }
-                }
+        }
+        counts[Species.ALGAE.id()] = algae.getCount();
+        if(schools != null) {
+            for(Species species : Species.values()) {
+                counts[species.id()] += schools.getCount(species);
             }
         }
-        System.out.println("Turtle: " + numTurtle +
-            " White shark: " + numWhiteSharks +
-            " Parrotfish: " + numParrotfish +
-            " Killer whale: " + numWhiteSharks +
-            " Clownfish: " + numClownfish +
-            " Swordfish: " + numSwordFish +
-            " Algae: " + numAlgae);
+        return counts;
+    }
+
+    /**
+     * Write the number of every species as one line.
+     * 
+     * @param counts The counts, indexed by the species id.
+     * @return The line.
+     */
+    public static String formatStats(int[] counts)
+    {
+        StringBuilder line = new StringBuilder();
+        for(Species species : Species.values()) {
+            if(line.length() > 0) {
+                line.append(' ');
+            }
+            line.append(species.getDisplayName()).append(": ").append(counts[species.id()]);
+        }
+        return line.toString();
     }
 
     /**
@@ -244,69 +822,51 @@ public class Field
      */
     public void clear()
     {
-        field.clear();
+        for(Animal anAnimal : cells) {
+            if(anAnimal != null) {
+                anAnimal.leaveField();
+            }
+        }
+        Arrays.fill(cells, null);
+        animals.clear();
+        for(List<Animal> group : animalsBySpecies) {
+            group.clear();
+        }
+        algae.clear();
+        if(schools != null) {
+            schools.clear();
+        }
     }
 
     /**
-     * Return whether there is at least one organism in the field.
+     * Return whether there is at least one living organism of every
+     * species in the field.
      * 
-     * @return true If there is at least one organism in the field.
+     * @return true If every species is still present in the field.
      */
     public boolean isViable()
     {
-        boolean turtleFound = false;
-        boolean swordfishFound = false;
-        boolean parrotfishFound = false;
-        boolean whiteSharkFound = false;
-        boolean clownfishFound = false;
-        boolean killerWhaleFound = false;
-        boolean algaeFound = false;
+        int found = 0;
 
         Iterator<Animal> itA = animals.iterator();
-        while(itA.hasNext() && ! (turtleFound && swordfishFound && parrotfishFound && whiteSharkFound && clownfishFound && killerWhaleFound)) {
+        while(itA.hasNext() && found != Species.ALL_MASK) {
             Animal anAnimal = itA.next();
-            if(anAnimal instanceof Turtle) {
-                if(anAnimal.isAlive()) {
-                    turtleFound = true;
-                }
-            }
-            else if(anAnimal instanceof Swordfish) {
-                if(anAnimal.isAlive()) {
-                    swordfishFound = true;
-                }
-            }
-            else if(anAnimal instanceof Parrotfish) {
-                if(anAnimal.isAlive()) {
-                    parrotfishFound = true;
-                }
-            }
-            else if(anAnimal instanceof WhiteShark) {
-                if(anAnimal.isAlive()) {
-                    whiteSharkFound = true;
-                }
-            }
-            else if(anAnimal instanceof Clownfish) {
-                if(anAnimal.isAlive()) {
-                    clownfishFound = true;
-                }
-            }
-            else if(anAnimal instanceof KillerWhale) {
-                if(anAnimal.isAlive()) {
-                    killerWhaleFound = true;
-                }
+            if(anAnimal.isAlive()) {
+                found |= anAnimal.getSpecies().bit();
             }
         }
 
-        Iterator<Plant> itP = plants.iterator();
-        while(itP.hasNext() && ! (algaeFound)){
-            Plant plant = itP.next();
-            if(plant instanceof Algae) {
-                if(plant.isAlive()) {
-                    algaeFound = true;
+        if(algae.getCount() > 0) {
+            found |= Species.ALGAE.bit();
+        }
+        if(schools != null) {
+            for(Species species : Species.values()) {
+                if(species.isSchooling() && schools.getCount(species) > 0) {
+                    found |= species.bit();
                 }
             }
         }
-        return turtleFound && swordfishFound && parrotfishFound && whiteSharkFound && clownfishFound && killerWhaleFound && algaeFound;
+        return found == Species.ALL_MASK;
     }
 
     /**
@@ -318,11 +878,110 @@ public class Field
     }
 
     /**
-     * Get the list of plants.
+     * Get the list of animals of one species.
+     * 
+     * @param species The species of the animals.
+     */
+    public List<Animal> getAnimals(Species species)
+    {
+        return animalsBySpecies.get(species.id());
+    }
+
+    /**
+     * Record whether the rare events of the next act of the animals in
+     * this field have already been drawn for them.
+     * 
+     * @param eventsDrawn true If the events have been drawn.
+     */
+    public void setEventsDrawn(boolean eventsDrawn)
+    {
+        this.eventsDrawn = eventsDrawn;
+    }
+
+    /**
+     * @return true If the animals must use their drawn events instead of rolling.
+     */
+    public boolean areEventsDrawn()
+    {
+        return eventsDrawn;
+    }
+
+    /**
+     * Record what the predators see in this field.
+     * 
+     * @param vision The distances to their prey, worked out for this
+     *               field, or null if they only see their neighbours.
+     */
+    public void setPreyVision(PreyVision vision)
+    {
+        this.vision = vision;
+    }
+
+    /**
+     * @return What the predators see in this field, or null.
+     */
+    public PreyVision getPreyVision()
+    {
+        return vision;
+    }
+
+    /**
+     * @return The layer of the water column the field holds, or null if
+     *         the world is flat.
+     */
+    public WaterLayer getWaterLayer()
+    {
+        return waterLayer;
+    }
+
+    /**
+     * @return The field of the layer above, or null.
+     */
+    public Field getAbove()
+    {
+        return above;
+    }
+
+    /**
+     * @return The field of the layer below, or null.
+     */
+    public Field getBelow()
+    {
+        return below;
+    }
+
+    /**
+     * @return The environment of the world the field belongs to.
+     */
+    public Environment getEnvironment()
+    {
+        return environment;
+    }
+
+    /**
+     * Get the algae layer.
+     */
+    public AlgaeLayer getAlgae()
+    {
+        return algae;
+    }
+
+    /**
+     * @return The schools of the field, or null if it has none.
+     */
+    public SchoolLayer getSchools()
+    {
+        return schools;
+    }
+
+    /**
+     * Give the field schools, or take them away.
+     * 
+     * @param schools The schools, or null.
      */
-    public List<Plant> getPlants()
+    public void setSchools(SchoolLayer schools)
     {
-        return plants;
+        this.schools = schools;
     }
 
     /**
@@ -1,17 +1,17 @@
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.Map;
 
 /**
  * This class collects and provides some statistical data on the state 
  * of a field. It is flexible: it will create and maintain a counter 
- * for any class of object that is found within the field.
+ * for any species that is found within the field.
  * 
  * @author Nicolás Alcalá Olea and Bailey Crossan
  */
 public class FieldStats
 {
-    // Counters for each type of entity (fox, rabbit, etc.) in the simulation.
-    private final Map<Class<?>, Counter> counters;
+    // Counters for each species in the simulation.
+    private final Map<Species, Counter> counters;
     // Whether the counters are currently up to date.
     private boolean countsValid;
 
@@ -22,7 +22,7 @@ public class FieldStats
     {
         // Set up a collection for counters for each type of animal that
         // we might find
-        counters = new HashMap<>();
+        counters = new EnumMap<>(Species.class);
         countsValid = true;
     }
 
@@ -38,7 +38,7 @@ public class FieldStats
             generatePlantCounts(field);
             generateAnimalCounts(field);
         }
-        for(Class<?> key : counters.keySet()) {
+        for(Species key : counters.keySet()) {
             Counter info = counters.get(key);
             details.append(info.getName())
             .append(": ")
@@ -55,25 +55,25 @@ public class FieldStats
     public void reset()
     {
         countsValid = false;
-        for(Class<?> key : counters.keySet()) {
+        for(Species key : counters.keySet()) {
             Counter count = counters.get(key);
             count.reset();
         }
     }
 
     /**
-     * Increment the count for one class of animal.
+     * Increment the count for one species.
      * 
-     * @param animalClass The class of animal to increment.
+     * @param species The species to increment.
      */
-    public void incrementCount(Class<?> organismClass)
+    public void incrementCount(Species species)
     {
-        Counter count = counters.get(organismClass);
+        Counter count = counters.get(species);
         if(count == null) {
             // We do not have a counter for this species yet.
             // Create one.
-            count = new Counter(organismClass.getName());
-            counters.put(organismClass, count);
+            count = new Counter(species.getDisplayName());
+            counters.put(species, count);
         }
         count.increment();
     }
@@ -112,7 +112,7 @@ public class FieldStats
             for(int col = 0; col < field.getWidth(); col++) {
                 Animal animal = field.getAnimalAt(new Location(row, col));
                 if(animal != null) {
-                    incrementCount(animal.getClass());
+                    incrementCount(animal.getSpecies());
                 }
             }
         }
@@ -132,9 +132,8 @@ public class FieldStats
         reset();
         for(int row = 0; row < field.getDepth(); row++) {
             for(int col = 0; col < field.getWidth(); col++) {
-                Plant plant = field.getPlantAt(new Location(row, col));
-                if(plant != null) {
-                    incrementCount(plant.getClass());
+                if(field.hasAlgaeAt(new Location(row, col))) {
+                    incrementCount(Species.ALGAE);
                 }
             }
         }
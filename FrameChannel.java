@@ -0,0 +1,99 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A socket channel carrying whole messages: every frame is sent as its
+ * length followed by its bytes, and is read back whole.
+ *
+ * @author Nicolás Alcalá Olea and Bailey Crossan
+ */
+public class FrameChannel implements AutoCloseable
+{
+    // The connection.
+    private final SocketChannel channel;
+    // The buffer the length of a frame is read into.
+    private final ByteBuffer header = ByteBuffer.allocate(4);
+
+    /**
+     * Wrap a connected channel.
+     *
+     * @param channel The channel.
+     * @throws IOException If the channel cannot be set up.
+     */
+    public FrameChannel(SocketChannel channel) throws IOException
+    {
+        this.channel = channel;
+        channel.configureBlocking(true);
+        channel.socket().setTcpNoDelay(true);
+    }
+
+    /**
+     * Connect to a port of this machine.
+     *
+     * @param port The port.
+     * @return The connected channel.
+     * @throws IOException If it cannot connect.
+     */
+    public static FrameChannel connect(int port) throws IOException
+    {
+        return new FrameChannel(SocketChannel.open(new InetSocketAddress("127.0.0.1", port)));
+    }
+
+    /**
+     * Send one frame.
+     *
+     * @param frame The bytes of the frame, from its position to its limit.
+     * @throws IOException If writing fails.
+     */
+    public void send(ByteBuffer frame) throws IOException
+    {
+        header.clear();
+        header.putInt(frame.remaining()).flip();
+        ByteBuffer[] parts = {header, frame};
+        while(frame.hasRemaining()) {
+            channel.write(parts);
+        }
+        while(header.hasRemaining()) {
+            channel.write(header);
+        }
+    }
+
+    /**
+     * Wait for one frame.
+     *
+     * @return The bytes of the frame, ready to be read.
+     * @throws IOException If reading fails or the other side has closed.
+     */
+    public ByteBuffer receive() throws IOException
+    {
+        header.clear();
+        readFully(header);
+        ByteBuffer frame = ByteBuffer.allocate(header.flip().getInt());
+        readFully(frame);
+        return frame.flip();
+    }
+
+    /**
+     * Fill a buffer from the channel.
+     *
+     * @param buffer The buffer.
+     * @throws IOException If reading fails or the other side has closed.
+     */
+    private void readFully(ByteBuffer buffer) throws IOException
+    {
+        while(buffer.hasRemaining()) {
+            if(channel.read(buffer) < 0) {
+                throw new EOFException("The connection was closed");
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+}
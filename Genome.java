@@ -0,0 +1,165 @@
+import java.util.Random;
+
+/**
+ * The heritable traits of an animal, packed into a long so an animal
+ * carries its genome as a plain field and inheriting one allocates
+ * nothing. Every trait takes 4 bits, a level from 0 to 15, and scales
+ * one of the constants of the animal's species (see Species) by a factor
+ * from 0.5 to about 1.44; the middle level 8 leaves it as it is.
+ *
+ * A young animal takes every trait from one of its parents, picked at
+ * random, and every trait might then mutate one level up or down. The
+ * traits only vary when the simulator runs with evolution (see
+ * Simulator.setEvolution); otherwise every animal has the neutral
+ * genome and behaves like before.
+ *
+ * @author Nicolás Alcalá Olea and Bailey Crossan
+ */
+public class Genome
+{
+    /**
+     * The traits, each scaling one constant of the species.
+     */
+    public enum Trait
+    {
+        BREEDING("breeding"), LITTER("litter"), INFECTION("infection"), FOOD_VALUE("food value");
+
+        // The name shown in the statistics.
+        private final String displayName;
+
+        /**
+         * Define a trait.
+         *
+         * @param displayName The name shown in the statistics.
+         */
+        Trait(String displayName)
+        {
+            this.displayName = displayName;
+        }
+
+        /**
+         * @return The name shown in the statistics.
+         */
+        public String getDisplayName()
+        {
+            return displayName;
+        }
+    }
+
+    // The traits; values() copies the array on every call.
+    private static final Trait[] TRAITS = Trait.values();
+    // The bits of one trait.
+    public static final int BITS = 4;
+    // The number of levels of a trait.
+    public static final int LEVELS = 1 << BITS;
+    // The level that leaves a constant as it is.
+    public static final int NEUTRAL_LEVEL = LEVELS / 2;
+    // The genome with every trait at the neutral level.
+    public static final long NEUTRAL = neutral();
+    // The largest factor a trait can scale a constant by.
+    public static final double MAX_FACTOR = factorOf(LEVELS - 1);
+    // The likelihood of a trait of a young animal mutating.
+    private static final double MUTATION_PROBABILITY = 0.05;
+    // How far from the neutral level the traits of the first animals are
+    // spread.
+    private static final int INITIAL_SPREAD = 3;
+
+    /**
+     * Return the level of a trait.
+     *
+     * @param genome The genome.
+     * @param trait The trait.
+     * @return Its level, from 0 to LEVELS - 1.
+     */
+    public static int getLevel(long genome, Trait trait)
+    {
+        return (int) (genome >>> (trait.ordinal() * BITS)) & (LEVELS - 1);
+    }
+
+    /**
+     * Return a genome with one trait changed.
+     *
+     * @param genome The genome.
+     * @param trait The trait.
+     * @param level Its new level, from 0 to LEVELS - 1.
+     * @return The changed genome.
+     */
+    public static long setLevel(long genome, Trait trait, int level)
+    {
+        int shift = trait.ordinal() * BITS;
+        return genome & ~((long) (LEVELS - 1) << shift) | (long) level << shift;
+    }
+
+    /**
+     * Return the factor a trait scales its constant by.
+     *
+     * @param genome The genome.
+     * @param trait The trait.
+     * @return The factor, 1 at the neutral level.
+     */
+    public static double getFactor(long genome, Trait trait)
+    {
+        return factorOf(getLevel(genome, trait));
+    }
+
+    /**
+     * @param level The level of a trait.
+     * @return The factor it scales its constant by.
+     */
+    private static double factorOf(int level)
+    {
+        return 0.5 + (double) level / LEVELS;
+    }
+
+    /**
+     * Make the genome of a young animal from the genomes of its parents.
+     *
+     * @param mother The genome of one parent.
+     * @param father The genome of the other.
+     * @param rand The random generator to use.
+     * @return The young's genome.
+     */
+    public static long inherit(long mother, long father, Random rand)
+    {
+        // One random bit for every trait picks the parent it comes from.
+        long picks = rand.nextLong();
+        long genome = 0;
+        for(Trait trait : TRAITS) {
+            long parent = (picks >>> trait.ordinal() & 1) == 0 ? mother : father;
+            int level = getLevel(parent, trait);
+            if(rand.nextDouble() < MUTATION_PROBABILITY) {
+                level = Math.max(0, Math.min(LEVELS - 1, level + (rand.nextBoolean() ? 1 : -1)));
+            }
+            genome = setLevel(genome, trait, level);
+        }
+        return genome;
+    }
+
+    /**
+     * Make the genome of an animal of the first generation, with every
+     * trait a few levels around the neutral one.
+     *
+     * @param rand The random generator to use.
+     * @return The genome.
+     */
+    public static long random(Random rand)
+    {
+        long genome = 0;
+        for(Trait trait : TRAITS) {
+            genome = setLevel(genome, trait, NEUTRAL_LEVEL - INITIAL_SPREAD + rand.nextInt(2 * INITIAL_SPREAD + 1));
+        }
+        return genome;
+    }
+
+    /**
+     * @return The genome with every trait at the neutral level.
+     */
+    private static long neutral()
+    {
+        long genome = 0;
+        for(Trait trait : TRAITS) {
+            genome = setLevel(genome, trait, NEUTRAL_LEVEL);
+        }
+        return genome;
+    }
+}
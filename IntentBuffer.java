@@ -0,0 +1,363 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The intents of a chunk of animals in one step of the INTENTS mode, as
+ * parallel arrays. Every animal that plans its step adds one claim for
+ * itself, and one more claim for every young it gives birth to. A claim
+ * holds what happens to the animal (it dies, catches the disease, stays
+ * where it is, eats) and the cells it would like to take in the next
+ * field, most wanted first.
+ *
+ * A buffer is filled by one thread only, so it needs no locking.
+ *
+ * @author Nicolás Alcalá Olea and Bailey Crossan
+ */
+public class IntentBuffer
+{
+    // The claim's animal dies in this step.
+    public static final int DIES = 1;
+    // The claim's animal catches the disease.
+    public static final int INFECTED = 2;
+    // The claim's animal stays in its own cell.
+    public static final int STAYS = 4;
+
+    // The seed of the step, which the priority of a cell is hashed from.
+    private final long seed;
+    // Which cells of the current field hold an animal dying of old age
+    // or hunger in the step, shared by all the buffers of the step.
+    private final boolean[] dying;
+    // The number of claims.
+    private int size;
+    // The animal of every claim: the one that planned, or its young.
+    private Animal[] animals = new Animal[256];
+    // Whether the claim is for a young.
+    private boolean[] young = new boolean[256];
+    // What happens to the animal, as bits.
+    private int[] flags = new int[256];
+    // The cell of the animal, or of the parent for a young.
+    private int[] origins = new int[256];
+    // The cell with the food the animal eats, or -1 until its meal is
+    // served.
+    private int[] foodCells = new int[256];
+    // Where the claim's food cells start in the foods array and how many
+    // there are.
+    private int[] firstFood = new int[256];
+    private int[] foodCounts = new int[256];
+    // The mate to give the disease to, or null.
+    private Animal[] mates = new Animal[256];
+    // For a young, the parent that gave birth and its mate, which its
+    // birth is logged with once it takes a cell.
+    private Animal[] parents = new Animal[256];
+    private Animal[] parentMates = new Animal[256];
+    // Where the claim's candidate cells start in the cells array, how
+    // many there are and which one it tries first.
+    private int[] firstCell = new int[256];
+    private int[] cellCounts = new int[256];
+    private int[] rotations = new int[256];
+
+    // The candidate cells of all the claims.
+    private int[] cells = new int[1024];
+    // The number of candidate cells stored.
+    private int cellSize;
+    // The food cells of all the claims, the food the animal caught in
+    // the order it looked at it.
+    private int[] foods = new int[256];
+    // The number of food cells stored.
+    private int foodSize;
+
+    /**
+     * Create an empty buffer.
+     *
+     * @param seed The seed of the step.
+     * @param dying Which cells hold an animal dying of old age or hunger.
+     */
+    public IntentBuffer(long seed, boolean[] dying)
+    {
+        this.seed = seed;
+        this.dying = dying;
+    }
+
+    /**
+     * Add the claim of an animal planning its step.
+     *
+     * @param anAnimal The animal.
+     * @param origin The cell it is in.
+     * @return The number of the claim.
+     */
+    public int add(Animal anAnimal, int origin)
+    {
+        if(size == animals.length) {
+            grow();
+        }
+        animals[size] = anAnimal;
+        young[size] = false;
+        flags[size] = 0;
+        origins[size] = origin;
+        foodCells[size] = -1;
+        firstFood[size] = foodSize;
+        foodCounts[size] = 0;
+        mates[size] = null;
+        parents[size] = null;
+        parentMates[size] = null;
+        firstCell[size] = cellSize;
+        cellCounts[size] = 0;
+        rotations[size] = 0;
+        return size++;
+    }
+
+    /**
+     * Add the claim of a young, which tries the free cells of its parent
+     * starting from a different one than its parent and its siblings.
+     *
+     * @param parent The claim of the parent.
+     * @param baby The young.
+     * @param mate The parent's mate.
+     * @param rotation The candidate cell it tries first.
+     */
+    public void addYoung(int parent, Animal baby, Animal mate, int rotation)
+    {
+        int claim = add(baby, origins[parent]);
+        young[claim] = true;
+        parents[claim] = animals[parent];
+        parentMates[claim] = mate;
+        firstCell[claim] = firstCell[parent];
+        cellCounts[claim] = cellCounts[parent];
+        rotations[claim] = rotation;
+    }
+
+    /**
+     * Store the free cells around an animal as the candidates of its claim.
+     *
+     * @param claim The claim.
+     * @param free The free locations, in the order they are tried.
+     * @param field The field they are in.
+     */
+    public void setCandidates(int claim, List<Location> free, Field field)
+    {
+        if(cellSize + free.size() > cells.length) {
+            cells = Arrays.copyOf(cells, Math.max(cells.length * 2, cellSize + free.size()));
+        }
+        firstCell[claim] = cellSize;
+        cellCounts[claim] = free.size();
+        for(Location location : free) {
+            cells[cellSize++] = field.indexOf(location);
+        }
+    }
+
+    /**
+     * Mark something that happens to the animal of a claim.
+     *
+     * @param claim The claim.
+     * @param flag DIES, INFECTED or STAYS.
+     */
+    public void mark(int claim, int flag)
+    {
+        flags[claim] |= flag;
+    }
+
+    /**
+     * Add a cell with food the animal of the claim caught, after the
+     * ones added before. The food cells of a claim are added together.
+     *
+     * @param claim The claim.
+     * @param cell The cell of the food.
+     */
+    public void addFood(int claim, int cell)
+    {
+        if(foodSize == foods.length) {
+            foods = Arrays.copyOf(foods, foods.length * 2);
+        }
+        foods[foodSize++] = cell;
+        foodCounts[claim]++;
+    }
+
+    /**
+     * Record the food the animal of a claim eats, once its meal is
+     * served.
+     *
+     * @param claim The claim.
+     * @param cell The cell of the food, or -1 if it eats nothing.
+     */
+    public void eat(int claim, int cell)
+    {
+        foodCells[claim] = cell;
+    }
+
+    /**
+     * Record that the animal of a claim gives the disease to its mate.
+     *
+     * @param claim The claim.
+     * @param mate The mate.
+     */
+    public void infectMate(int claim, Animal mate)
+    {
+        mates[claim] = mate;
+    }
+
+    /**
+     * Tell whether the claim of an animal in one cell is settled before
+     * the claim of an animal in another cell.
+     *
+     * @param cell A cell.
+     * @param other Another cell.
+     * @return true If the first cell has the better priority.
+     */
+    public boolean ranksBefore(int cell, int other)
+    {
+        return IntentStep.priority(seed, cell) < IntentStep.priority(seed, other);
+    }
+
+    /**
+     * Tell whether the animal in a cell dies of old age or hunger in this
+     * step. In act such an animal is gone from the next field by the time
+     * a neighbour acting after it looks there.
+     *
+     * @param cell A cell of the current field.
+     * @return true If its animal dies of old age or hunger.
+     */
+    public boolean isDying(int cell)
+    {
+        return dying[cell];
+    }
+
+    /**
+     * Double the room for claims.
+     */
+    private void grow()
+    {
+        int capacity = animals.length * 2;
+        animals = Arrays.copyOf(animals, capacity);
+        young = Arrays.copyOf(young, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        origins = Arrays.copyOf(origins, capacity);
+        foodCells = Arrays.copyOf(foodCells, capacity);
+        firstFood = Arrays.copyOf(firstFood, capacity);
+        foodCounts = Arrays.copyOf(foodCounts, capacity);
+        mates = Arrays.copyOf(mates, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+        parentMates = Arrays.copyOf(parentMates, capacity);
+        firstCell = Arrays.copyOf(firstCell, capacity);
+        cellCounts = Arrays.copyOf(cellCounts, capacity);
+        rotations = Arrays.copyOf(rotations, capacity);
+    }
+
+    /**
+     * @return The number of claims.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * @param claim A claim.
+     * @return Its animal.
+     */
+    public Animal getAnimal(int claim)
+    {
+        return animals[claim];
+    }
+
+    /**
+     * @param claim A claim.
+     * @return true If the claim is for a young.
+     */
+    public boolean isYoung(int claim)
+    {
+        return young[claim];
+    }
+
+    /**
+     * @param claim A claim.
+     * @param flag DIES, INFECTED or STAYS.
+     * @return true If the flag is marked.
+     */
+    public boolean has(int claim, int flag)
+    {
+        return (flags[claim] & flag) != 0;
+    }
+
+    /**
+     * @param claim A claim.
+     * @return The cell of the animal, or of the parent for a young.
+     */
+    public int getOrigin(int claim)
+    {
+        return origins[claim];
+    }
+
+    /**
+     * @param claim A claim.
+     * @return The cell with the food the animal eats, or -1.
+     */
+    public int getFoodCell(int claim)
+    {
+        return foodCells[claim];
+    }
+
+    /**
+     * @param claim A claim.
+     * @return The number of cells with food the animal caught.
+     */
+    public int getFoodCount(int claim)
+    {
+        return foodCounts[claim];
+    }
+
+    /**
+     * @param claim A claim.
+     * @param k The position of the food, from 0.
+     * @return The cell of the k-th food the animal caught.
+     */
+    public int getFood(int claim, int k)
+    {
+        return foods[firstFood[claim] + k];
+    }
+
+    /**
+     * @param claim A claim.
+     * @return The mate the animal gives the disease to, or null.
+     */
+    public Animal getMate(int claim)
+    {
+        return mates[claim];
+    }
+
+    /**
+     * @param claim The claim of a young.
+     * @return The parent that gave birth to it.
+     */
+    public Animal getParent(int claim)
+    {
+        return parents[claim];
+    }
+
+    /**
+     * @param claim The claim of a young.
+     * @return The mate of its parent.
+     */
+    public Animal getParentMate(int claim)
+    {
+        return parentMates[claim];
+    }
+
+    /**
+     * @param claim A claim.
+     * @return The number of candidate cells.
+     */
+    public int getCandidateCount(int claim)
+    {
+        return cellCounts[claim];
+    }
+
+    /**
+     * @param claim A claim.
+     * @param k Which try, from 0.
+     * @return The candidate cell for that try.
+     */
+    public int getCandidate(int claim, int k)
+    {
+        return cells[firstCell[claim] + (rotations[claim] + k) % cellCounts[claim]];
+    }
+}
@@ -0,0 +1,481 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * One step of the INTENTS mode, in two phases. First the animals plan
+ * their step in parallel: every chunk of the animal list is planned by
+ * one thread with its own random stream and its own IntentBuffer, and
+ * nothing but the animals' own age and food is changed. Then the claims
+ * are settled: the deaths and infections are applied, the meals are
+ * given out in order of priority, so a prey or algae is only eaten once,
+ * and every cell of the next field goes to the claim with the best
+ * priority, the others trying their next choice.
+ *
+ * The meals and the cells are settled in parallel too, in bands of rows
+ * of the field. The claims of an animal only reach the cells around it,
+ * so two bands with a band between them never want the same cell: the
+ * even bands are settled together, then the odd ones, each in the order
+ * of priority of its own claims. Near the edge of a band the claims of
+ * the band settled first come first. What they decide is only recorded
+ * while the bands run; the deaths of the prey and the placing of the
+ * animals change the fields and are applied after them, in the order of
+ * the claims.
+ *
+ * The priority of a claim is a hash of the step's seed and the cell of
+ * the animal, so it does not depend on the order of the list. The chunks
+ * and the bands have a fixed size and the chunks' random streams are
+ * derived from the step's seed, so a step only depends on the seed, not
+ * on how many threads ran it.
+ *
+ * Unlike Animal.act, where an animal staying put or moving onto its food
+ * takes the cell from whoever moved there before it, no claim ever takes
+ * a cell another one holds: a claim that loses a cell tries its next one
+ * and only an animal with no cell left dies of overcrowding. So this is
+ * a different model from the LIST mode, which ModeComparison compares
+ * it with.
+ *
+ * @author Nicolás Alcalá Olea and Bailey Crossan
+ */
+public class IntentStep
+{
+    // The number of animals planned by one thread at a time.
+    private static final int CHUNK_SIZE = 1024;
+    // The smallest number of rows of a band settled by one thread.
+    private static final int BAND_ROWS = 16;
+
+    // The current field and the next one being built.
+    private final Field field, nextFieldState;
+    // Which species are asleep and were carried over already.
+    private final boolean[] dormant;
+    // The seed of this step.
+    private final long seed;
+
+    // All the claims of the step, as the buffer and the claim within it.
+    private IntentBuffer[] buffers;
+    private int[] bufferOf, claimOf;
+    // The claims in the order of their rank, best priority first.
+    private int[] byRank;
+    // The cell every claim ends up in, or -1.
+    private int[] target;
+    // The claims of every band of rows, by the cell of the animal, in
+    // the order of their rank.
+    private int[][] bands;
+    // Whether the food in every cell of the current field was eaten, and
+    // whether every cell of the next field was taken.
+    private boolean[] eaten, taken;
+
+    /**
+     * Prepare a step.
+     *
+     * @param field The current field.
+     * @param nextFieldState The next field, with the sleepers already in it.
+     * @param dormant Which species are asleep, indexed by the species id.
+     * @param seed The seed of this step.
+     */
+    public IntentStep(Field field, Field nextFieldState, boolean[] dormant, long seed)
+    {
+        this.field = field;
+        this.nextFieldState = nextFieldState;
+        this.dormant = dormant;
+        this.seed = seed;
+    }
+
+    /**
+     * Run both phases.
+     */
+    public void run()
+    {
+        buffers = planAll(field, dormant, seed);
+        collect();
+        rankClaims();
+        applyOutcomes();
+        makeBands();
+        eaten = new boolean[field.getDepth() * field.getWidth()];
+        inBands(this::serveMeals);
+        holdCells();
+        inBands(this::settleCells);
+        eatMeals();
+        place();
+    }
+
+    /**
+     * Let the animals of a field plan their step in parallel, a chunk of
+     * the animal list per thread.
+     *
+     * @param field The current field.
+     * @param dormant Which species are asleep, indexed by the species id.
+     * @param seed The seed of this step.
+     * @return The claims of every chunk, in the order of the chunks.
+     */
+    static IntentBuffer[] planAll(Field field, boolean[] dormant, long seed)
+    {
+        List<Animal> animals = field.getAnimals();
+        int chunks = (animals.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        // Who dies of old age or hunger is known before anyone plans, so
+        // a neighbour can tell it while the dying animal is planned.
+        boolean[] dying = new boolean[field.getDepth() * field.getWidth()];
+        Environment environment = field.getEnvironment();
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            int end = Math.min(animals.size(), (chunk + 1) * CHUNK_SIZE);
+            for(int i = chunk * CHUNK_SIZE; i < end; i++) {
+                Animal anAnimal = animals.get(i);
+                if(anAnimal.isAlive() && !dormant[anAnimal.getSpecies().id()]) {
+                    dying[field.indexOf(anAnimal.getLocation())] = anAnimal.isDying(environment);
+                }
+            }
+        });
+        return IntStream.range(0, chunks)
+            .parallel()
+            .mapToObj(chunk -> plan(field, animals, dormant, seed, dying, chunk))
+            .toArray(IntentBuffer[]::new);
+    }
+
+    /**
+     * Plan the animals of one chunk.
+     *
+     * @param field The current field.
+     * @param animals The animals of the current field.
+     * @param dormant Which species are asleep, indexed by the species id.
+     * @param seed The seed of this step.
+     * @param dying Which cells hold an animal dying of old age or hunger.
+     * @param chunk The number of the chunk.
+     * @return The claims of the chunk.
+     */
+    private static IntentBuffer plan(Field field, List<Animal> animals, boolean[] dormant, long seed,
+                                     boolean[] dying, int chunk)
+    {
+        Random rand = Randomizer.newStream(seed, chunk);
+        IntentBuffer buffer = new IntentBuffer(seed, dying);
+        int end = Math.min(animals.size(), (chunk + 1) * CHUNK_SIZE);
+        for(int i = chunk * CHUNK_SIZE; i < end; i++) {
+            Animal anAnimal = animals.get(i);
+            if(anAnimal.isAlive() && !dormant[anAnimal.getSpecies().id()]) {
+                anAnimal.plan(field, rand, buffer);
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * Number all the claims, in the order of the chunks.
+     */
+    private void collect()
+    {
+        int total = 0;
+        for(IntentBuffer buffer : buffers) {
+            total += buffer.size();
+        }
+        bufferOf = new int[total];
+        claimOf = new int[total];
+        int g = 0;
+        for(int b = 0; b < buffers.length; b++) {
+            for(int claim = 0; claim < buffers[b].size(); claim++) {
+                bufferOf[g] = b;
+                claimOf[g] = claim;
+                g++;
+            }
+        }
+        target = new int[total];
+        Arrays.fill(target, -1);
+    }
+
+    /**
+     * Rank the claims by the hash of the step's seed and their cell. The
+     * young of one parent share its cell and are ranked in turn.
+     */
+    private void rankClaims()
+    {
+        int total = bufferOf.length;
+        long[] keys = new long[total];
+        for(int g = 0; g < total; g++) {
+            long priority = priority(seed, buffers[bufferOf[g]].getOrigin(claimOf[g]));
+            keys[g] = (priority >>> 31) << 31 | g;
+        }
+        Arrays.parallelSort(keys);
+        byRank = new int[total];
+        for(int r = 0; r < total; r++) {
+            byRank[r] = (int) (keys[r] & Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Return the priority of the claims of an animal in a cell, lower
+     * first.
+     *
+     * @param seed The seed of the step.
+     * @param cell The cell.
+     * @return The priority, not negative.
+     */
+    static long priority(long seed, int cell)
+    {
+        return Zobrist.mix(seed ^ cell) >>> 1;
+    }
+
+    /**
+     * Apply what happens to the animals themselves: deaths of old age,
+     * hunger and the disease, and catching the disease.
+     */
+    private void applyOutcomes()
+    {
+        for(int g = 0; g < bufferOf.length; g++) {
+            IntentBuffer buffer = buffers[bufferOf[g]];
+            int claim = claimOf[g];
+            if(buffer.isYoung(claim)) {
+                continue;
+            }
+            Animal anAnimal = buffer.getAnimal(claim);
+            if(buffer.has(claim, IntentBuffer.DIES)) {
+                anAnimal.setDead(anAnimal.getPlannedDeathCause());
+            }
+            else if(buffer.has(claim, IntentBuffer.INFECTED)) {
+                anAnimal.setInfected();
+            }
+        }
+        for(int g = 0; g < bufferOf.length; g++) {
+            Animal mate = buffers[bufferOf[g]].getMate(claimOf[g]);
+            if(mate != null && mate.isAlive()) {
+                mate.setInfected();
+            }
+        }
+    }
+
+    /**
+     * Cut the field into bands of rows and give every band its claims, in
+     * the order of their rank. A band is at least twice as tall as the
+     * furthest any animal reaches, so the claims of two bands with a band
+     * between them never reach the same cell.
+     */
+    private void makeBands()
+    {
+        int reach = 0;
+        for(Species species : Species.values()) {
+            reach = Math.max(reach, species.getMovement().getReach());
+        }
+        int rows = Math.max(BAND_ROWS, 2 * reach);
+        int count = Math.max(1, field.getDepth() / rows);
+        int width = field.getWidth();
+        int[] bandOf = new int[byRank.length];
+        int[] sizes = new int[count];
+        for(int g = 0; g < byRank.length; g++) {
+            bandOf[g] = Math.min(count - 1, buffers[bufferOf[g]].getOrigin(claimOf[g]) / width / rows);
+            sizes[bandOf[g]]++;
+        }
+        bands = new int[count][];
+        for(int band = 0; band < count; band++) {
+            bands[band] = new int[sizes[band]];
+            sizes[band] = 0;
+        }
+        for(int g : byRank) {
+            int band = bandOf[g];
+            bands[band][sizes[band]++] = g;
+        }
+    }
+
+    /**
+     * Settle every band, the even ones in parallel and then the odd ones.
+     * With an odd number of bands the last one, which can touch the first
+     * one in a field that wraps around, is settled on its own after them.
+     *
+     * @param settle What settles one band.
+     */
+    private void inBands(IntConsumer settle)
+    {
+        int count = bands.length;
+        int paired = count > 1 && count % 2 == 1 ? count - 1 : count;
+        for(int parity = 0; parity < 2; parity++) {
+            int first = parity;
+            IntStream.range(0, (paired - first + 1) / 2).parallel().forEach(i -> settle.accept(first + 2 * i));
+        }
+        if(paired < count) {
+            settle.accept(count - 1);
+        }
+    }
+
+    /**
+     * Check whether the animal of a claim, or the parent of a young, is
+     * still alive: it did not die of its own and was not eaten.
+     *
+     * @param g The claim.
+     * @return true If it is alive.
+     */
+    private boolean isAlive(int g)
+    {
+        IntentBuffer buffer = buffers[bufferOf[g]];
+        int claim = claimOf[g];
+        Animal owner = buffer.isYoung(claim) ? buffer.getParent(claim) : buffer.getAnimal(claim);
+        return owner.isAlive() && !eaten[buffer.getOrigin(claim)];
+    }
+
+    /**
+     * Give out the meals of a band in order of priority. An eater whose
+     * food was already eaten eats the next food it caught that is still
+     * there, and its meal is lost if there is none or it was eaten. The
+     * food is only marked as eaten here (see eatMeals).
+     *
+     * @param band The band.
+     */
+    private void serveMeals(int band)
+    {
+        for(int g : bands[band]) {
+            IntentBuffer buffer = buffers[bufferOf[g]];
+            int claim = claimOf[g];
+            if(buffer.isYoung(claim) || !isAlive(g)) {
+                continue;
+            }
+            Animal eater = buffer.getAnimal(claim);
+            for(int k = 0; k < buffer.getFoodCount(claim); k++) {
+                int cell = buffer.getFood(claim, k);
+                if(!eaten[cell] && (field.getSpeciesBitAt(field.locationOf(cell)) & eater.getSpecies().getDiet()) != 0) {
+                    eaten[cell] = true;
+                    eater.feed();
+                    buffer.eat(claim, cell);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Give the cells no one else can want to their claims: an animal
+     * staying where it is keeps its cell and an animal that ate moves
+     * onto its food. The sleepers carried over already hold their cells,
+     * unless they were eaten.
+     */
+    private void holdCells()
+    {
+        taken = new boolean[eaten.length];
+        IntStream.range(0, taken.length).parallel().forEach(cell ->
+            taken[cell] = nextFieldState.hasLiveAnimal(cell) && !eaten[cell]);
+        IntStream.range(0, bufferOf.length).parallel().forEach(g -> {
+            IntentBuffer buffer = buffers[bufferOf[g]];
+            int claim = claimOf[g];
+            if(!isAlive(g)) {
+                return;
+            }
+            if(buffer.has(claim, IntentBuffer.STAYS)) {
+                target[g] = buffer.getOrigin(claim);
+                taken[target[g]] = true;
+            }
+            else if(buffer.getFoodCell(claim) >= 0) {
+                target[g] = buffer.getFoodCell(claim);
+                taken[target[g]] = true;
+            }
+        });
+    }
+
+    /**
+     * Give the cells of the next field to the other claims of a band.
+     * They try their cells in turn, and in every round a cell goes to the
+     * best ranked claim trying it, the others trying their next one. A
+     * claim left without a cell dies of overcrowding (see place), and a
+     * young without one is not born, nor is a young whose parent was
+     * eaten.
+     *
+     * @param band The band.
+     */
+    private void settleCells(int band)
+    {
+        int[] claims = bands[band];
+        int[] tries = new int[claims.length];
+        int[] waiting = new int[claims.length];
+        int waitingCount = 0;
+        for(int i = 0; i < claims.length; i++) {
+            int g = claims[i];
+            if(target[g] < 0 && isAlive(g) && !buffers[bufferOf[g]].has(claimOf[g], IntentBuffer.STAYS)) {
+                waiting[waitingCount++] = i;
+            }
+        }
+
+        long[] keys = new long[waitingCount];
+        while(waitingCount > 0) {
+            int tried = 0;
+            for(int w = 0; w < waitingCount; w++) {
+                int i = waiting[w];
+                int cell = candidate(claims[i], tries[i]);
+                if(cell >= 0) {
+                    keys[tried++] = (long) cell << 32 | i;
+                }
+            }
+            // The claims of the band are in the order of their rank.
+            Arrays.sort(keys, 0, tried);
+            int stillWaiting = 0;
+            for(int k = 0; k < tried; k++) {
+                int cell = (int) (keys[k] >>> 32);
+                int i = (int) keys[k];
+                boolean first = k == 0 || (int) (keys[k - 1] >>> 32) != cell;
+                if(first && !taken[cell]) {
+                    taken[cell] = true;
+                    target[claims[i]] = cell;
+                }
+                else {
+                    tries[i]++;
+                    waiting[stillWaiting++] = i;
+                }
+            }
+            waitingCount = stillWaiting;
+        }
+    }
+
+    /**
+     * Return the cell a claim tries on a given turn.
+     *
+     * @param g The claim.
+     * @param k The turn, from 0.
+     * @return The cell, or -1 if the claim has no more choices.
+     */
+    private int candidate(int g, int k)
+    {
+        IntentBuffer buffer = buffers[bufferOf[g]];
+        int claim = claimOf[g];
+        return k < buffer.getCandidateCount(claim) ? buffer.getCandidate(claim, k) : -1;
+    }
+
+    /**
+     * Let the eaters eat what they were given, in the order of the
+     * claims: the algae are removed and the prey die.
+     */
+    private void eatMeals()
+    {
+        for(int g = 0; g < bufferOf.length; g++) {
+            int cell = buffers[bufferOf[g]].getFoodCell(claimOf[g]);
+            if(cell < 0) {
+                continue;
+            }
+            Location location = field.locationOf(cell);
+            if((field.getSpeciesBitAt(location) & Species.PLANT_MASK) != 0) {
+                field.removeAlgaeAt(location);
+            }
+            else {
+                field.getAnimalAt(location).setDead(LineageLog.Cause.EATEN);
+            }
+        }
+    }
+
+    /**
+     * Put every claim that won a cell in the next field, in the order of
+     * the claims, and let the animals left without one die.
+     */
+    private void place()
+    {
+        for(int g = 0; g < bufferOf.length; g++) {
+            IntentBuffer buffer = buffers[bufferOf[g]];
+            int claim = claimOf[g];
+            Animal anAnimal = buffer.getAnimal(claim);
+            if(target[g] >= 0) {
+                Location location = nextFieldState.locationOf(target[g]);
+                anAnimal.setLocation(location);
+                if(buffer.isYoung(claim)) {
+                    anAnimal.bornTo(buffer.getParent(claim), buffer.getParentMate(claim));
+                }
+                nextFieldState.placeAnimal(anAnimal, location);
+            }
+            else if(!buffer.isYoung(claim) && anAnimal.isAlive()) {
+                // Overcrowding.
+                anAnimal.setDead(LineageLog.Cause.CROWDED);
+            }
+        }
+    }
+}
@@ -0,0 +1,209 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An append-only log of the births and deaths of the animals of a run,
+ * from which their family trees can be rebuilt afterwards (see
+ * LineageReport). Every animal gets a 64-bit id when it is born or
+ * seeded, and the log gets one record for its birth and one for its
+ * death.
+ *
+ * The file is a plain array of 32-byte little-endian records, mapped
+ * into memory in chunks of 64 MiB, so a record is written straight into
+ * the page cache and a tool can scan the file at disk speed:
+ *
+ *     0  long  the animal's id
+ *     8  long  for a birth, the id of the parent that gave birth, or 0
+ *    16  long  for a birth, the id of its mate, or 0
+ *    24  int   the step, counted on across resets (see newRun)
+ *    28  byte  the kind, BIRTH or DEATH
+ *    29  byte  the species id
+ *    30  byte  for a death, the cause
+ *    31  byte  unused
+ *
+ * The planning threads of the INTENTS and ATOMIC modes append at the
+ * same time: every record takes the next slot from an atomic counter,
+ * so appending neither locks nor allocates. Only mapping a new chunk,
+ * once every two million records, takes a lock.
+ *
+ * @author Nicolás Alcalá Olea and Bailey Crossan
+ */
+public class LineageLog implements AutoCloseable
+{
+    /**
+     * Why an animal left the log.
+     */
+    public enum Cause
+    {
+        AGE, HUNGER, DISEASE, EATEN, CROWDED, SCHOOLED, LEFT, OTHER
+    }
+
+    // The kinds of record.
+    public static final byte BIRTH = 1;
+    public static final byte DEATH = 2;
+    // The size of a record, in bytes.
+    public static final int RECORD_SIZE = 32;
+
+    // The size of a mapped chunk, a whole number of records.
+    private static final int CHUNK_SHIFT = 26;
+    private static final long CHUNK_SIZE = 1L << CHUNK_SHIFT;
+
+    // The file.
+    private final FileChannel channel;
+    // The chunks mapped so far, replaced by a longer copy when one is
+    // added, so the appending threads can read it without a lock.
+    private volatile MappedByteBuffer[] chunks = new MappedByteBuffer[0];
+    // The next free record.
+    private final AtomicLong nextRecord = new AtomicLong();
+    // The last id given out.
+    private final AtomicLong lastId = new AtomicLong();
+    // The step the records are written in.
+    private volatile int step;
+    // What is added to the simulator's step, so the steps of a run that
+    // was reset carry on after those of the run before.
+    private int firstStep;
+
+    /**
+     * Create a log, replacing any file at the path.
+     *
+     * @param path The path of the file.
+     * @throws IOException If the file cannot be created.
+     */
+    public LineageLog(Path path) throws IOException
+    {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                   StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Set the step the next records are written in.
+     *
+     * @param step The step.
+     */
+    public void setStep(int step)
+    {
+        this.step = firstStep + step;
+    }
+
+    /**
+     * Start a new run after the simulator was reset: its step 0 is
+     * written as the step after the last one of the run before, so the
+     * steps of the log never go back.
+     */
+    public void newRun()
+    {
+        if(nextRecord.get() > 0) {
+            firstStep = step + 1;
+        }
+    }
+
+    /**
+     * Give out an id and log the birth of an animal.
+     *
+     * @param species The species of the animal.
+     * @param parent The id of the parent that gave birth, or 0 for an
+     *               animal of the first generation.
+     * @param mate The id of the parent's mate, or 0.
+     * @return The animal's id.
+     */
+    public long birth(Species species, long parent, long mate)
+    {
+        long id = lastId.incrementAndGet();
+        append(id, parent, mate, BIRTH, species, 0);
+        return id;
+    }
+
+    /**
+     * Log the death of an animal.
+     *
+     * @param id The animal's id.
+     * @param species Its species.
+     * @param cause Why it died.
+     */
+    public void death(long id, Species species, Cause cause)
+    {
+        append(id, 0, 0, DEATH, species, cause.ordinal());
+    }
+
+    /**
+     * Write a record into the next free slot. The kind is written last,
+     * so a slot still being written reads as empty.
+     */
+    private void append(long id, long parent, long mate, byte kind, Species species, int cause)
+    {
+        long position = nextRecord.getAndIncrement() * RECORD_SIZE;
+        MappedByteBuffer chunk = chunk((int) (position >>> CHUNK_SHIFT));
+        int offset = (int) (position & (CHUNK_SIZE - 1));
+        chunk.putLong(offset, id);
+        chunk.putLong(offset + 8, parent);
+        chunk.putLong(offset + 16, mate);
+        chunk.putInt(offset + 24, step);
+        chunk.put(offset + 29, (byte) species.id());
+        chunk.put(offset + 30, (byte) cause);
+        chunk.put(offset + 28, kind);
+    }
+
+    /**
+     * Return a mapped chunk, mapping it and the ones before it first if
+     * they are not yet.
+     *
+     * @param index The number of the chunk.
+     * @return The chunk.
+     */
+    private MappedByteBuffer chunk(int index)
+    {
+        MappedByteBuffer[] mapped = chunks;
+        if(index < mapped.length) {
+            return mapped[index];
+        }
+        synchronized(this) {
+            mapped = chunks;
+            if(index >= mapped.length) {
+                mapped = Arrays.copyOf(mapped, index + 1);
+                try {
+                    for(int i = chunks.length; i <= index; i++) {
+                        mapped[i] = channel.map(FileChannel.MapMode.READ_WRITE, i * CHUNK_SIZE, CHUNK_SIZE);
+                        mapped[i].order(ByteOrder.LITTLE_ENDIAN);
+                    }
+                }
+                catch(IOException e) {
+                    throw new UncheckedIOException("Cannot grow the lineage log", e);
+                }
+                chunks = mapped;
+            }
+            return mapped[index];
+        }
+    }
+
+    /**
+     * @return The number of records written.
+     */
+    public long getRecordCount()
+    {
+        return nextRecord.get();
+    }
+
+    /**
+     * Write the records to the file and cut off the unused end of the
+     * last chunk. No records can be appended afterwards.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        for(MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+        chunks = new MappedByteBuffer[0];
+        channel.truncate(nextRecord.get() * RECORD_SIZE);
+        channel.close();
+    }
+}
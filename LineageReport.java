@@ -0,0 +1,167 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Rebuilds the family trees of a lineage log (see LineageLog) and
+ * reports on them: how many animals of every species were born and what
+ * they died of, how many generations the longest line lasted and the
+ * largest dynasties, every animal counted in the dynasty of the first
+ * generation animal it descends from through the parents that gave
+ * birth. It can be run with
+ *
+ *     java LineageReport file [size] [steps]
+ *
+ * With a size and a number of steps it first runs a world of that size
+ * logging into the file, otherwise it reads a log written before.
+ *
+ * @author Nicolás Alcalá Olea and Bailey Crossan
+ */
+public class LineageReport
+{
+    // The number of dynasties listed.
+    private static final int TOP_DYNASTIES = 5;
+    // The seed of the world run.
+    private static final long SEED = 2024;
+
+    /**
+     * Run the report.
+     *
+     * @param args The log file, and the size of the field and the number
+     *             of steps to run a world first.
+     * @throws IOException If the log cannot be written or read.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        Path path = Paths.get(args.length > 0 ? args[0] : "lineage.log");
+        if(args.length > 2) {
+            int size = Integer.parseInt(args[1]);
+            int steps = Integer.parseInt(args[2]);
+            long start = System.nanoTime();
+            try(LineageLog log = new LineageLog(path)) {
+                Simulator simulator = new Simulator(size, size, false, Randomizer.newRandom(SEED));
+                simulator.setLineageLog(log);
+                for(int n = 0; n < steps && simulator.isViable(); n++) {
+                    simulator.simulateOneStep();
+                }
+                System.out.printf("Ran %d steps, %d records in %.1f s%n", simulator.getStep(),
+                    log.getRecordCount(), (System.nanoTime() - start) / 1e9);
+            }
+        }
+        report(path);
+    }
+
+    /**
+     * Scan a log and print the report.
+     *
+     * @param path The log file.
+     * @throws IOException If the log cannot be read.
+     */
+    private static void report(Path path) throws IOException
+    {
+        long start = System.nanoTime();
+        int speciesCount = Species.values().length;
+        int causeCount = LineageLog.Cause.values().length;
+        long[] births = new long[speciesCount];
+        long[] deaths = new long[speciesCount * causeCount];
+        int[] parents;
+        byte[] speciesOf;
+        boolean[] dead;
+        int lastId = 0;
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long records = channel.size() / LineageLog.RECORD_SIZE;
+            // Every animal has a birth record, so there are no more ids
+            // than records.
+            parents = new int[(int) Math.min(Integer.MAX_VALUE - 8, records + 1)];
+            speciesOf = new byte[parents.length];
+            dead = new boolean[parents.length];
+            long chunkRecords = (1 << 26) / LineageLog.RECORD_SIZE;
+            for(long first = 0; first < records; first += chunkRecords) {
+                int count = (int) Math.min(chunkRecords, records - first);
+                MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY,
+                    first * LineageLog.RECORD_SIZE, (long) count * LineageLog.RECORD_SIZE);
+                chunk.order(ByteOrder.LITTLE_ENDIAN);
+                for(int offset = 0; offset < count * LineageLog.RECORD_SIZE; offset += LineageLog.RECORD_SIZE) {
+                    int id = (int) chunk.getLong(offset);
+                    int species = chunk.get(offset + 29);
+                    byte kind = chunk.get(offset + 28);
+                    if(kind == LineageLog.BIRTH) {
+                        parents[id] = (int) chunk.getLong(offset + 8);
+                        speciesOf[id] = (byte) species;
+                        births[species]++;
+                        lastId = Math.max(lastId, id);
+                    }
+                    else if(kind == LineageLog.DEATH) {
+                        deaths[species * causeCount + chunk.get(offset + 30)]++;
+                        dead[id] = true;
+                    }
+                }
+            }
+        }
+
+        // A parent is always born before its young, so it has a lower id
+        // and its founder and generation are known by the time its young
+        // are reached.
+        int[] founders = new int[lastId + 1];
+        int[] generations = new int[lastId + 1];
+        int[] dynastySizes = new int[lastId + 1];
+        int[] dynastyAlive = new int[lastId + 1];
+        int deepest = 0;
+        long founderCount = 0;
+        for(int id = 1; id <= lastId; id++) {
+            int parent = parents[id];
+            if(parent == 0) {
+                founders[id] = id;
+                founderCount++;
+            }
+            else {
+                founders[id] = founders[parent];
+                generations[id] = generations[parent] + 1;
+                deepest = Math.max(deepest, generations[id]);
+            }
+            dynastySizes[founders[id]]++;
+            if(!dead[id]) {
+                dynastyAlive[founders[id]]++;
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%d animals, %d of the first generation, read in %.2f s%n", lastId, founderCount, seconds);
+        System.out.printf("%-14s %10s", "Species", "Births");
+        for(LineageLog.Cause cause : LineageLog.Cause.values()) {
+            System.out.printf(" %9s", cause.name().toLowerCase());
+        }
+        System.out.println();
+        for(Species species : Species.values()) {
+            if(species.isPlant()) {
+                continue;
+            }
+            System.out.printf("%-14s %10d", species.getDisplayName(), births[species.id()]);
+            for(int cause = 0; cause < causeCount; cause++) {
+                System.out.printf(" %9d", deaths[species.id() * causeCount + cause]);
+            }
+            System.out.println();
+        }
+        System.out.println("Longest line: " + deepest + " generations");
+        System.out.println("Largest dynasties:");
+        boolean[] listed = new boolean[lastId + 1];
+        for(int n = 0; n < TOP_DYNASTIES; n++) {
+            int best = 0;
+            for(int id = 1; id <= lastId; id++) {
+                if(founders[id] == id && !listed[id] && dynastySizes[id] > dynastySizes[best]) {
+                    best = id;
+                }
+            }
+            if(best == 0) {
+                break;
+            }
+            listed[best] = true;
+            System.out.printf("  %-14s founder %d: %d animals, %d alive at the end%n",
+                Species.values()[speciesOf[best]].getDisplayName(), best, dynastySizes[best], dynastyAlive[best]);
+        }
+    }
+}
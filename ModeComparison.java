@@ -0,0 +1,181 @@
+/**
+ * Compares the populations of the world run in the BATCHED, INTENTS and
+ * ATOMIC modes against the LIST mode, from the same seeds (see
+ * ExecutionMode). The BATCHED mode runs the animals in another order and
+ * the planning modes settle who moves where by priority instead of in
+ * the order of the list, so the runs do not match step for step; what
+ * they must keep are the dynamics. No animal of the planning modes
+ * takes a cell another one holds, so they are a different model and
+ * have more predators than the LIST mode. For every species it prints the mean
+ * population of a run in every mode with the 95% confidence interval of
+ * that mean, and for every other mode the ratio to the LIST mode with
+ * its own interval and whether the two means differ beyond them. A run
+ * that loses a species stops there, and the runs that did are counted.
+ * It can be run with
+ *
+ *     java ModeComparison [size] [steps] [runs]
+ *
+ * @author Nicolás Alcalá Olea and Bailey Crossan
+ */
+public class ModeComparison
+{
+    // The default size of the field.
+    private static final int DEFAULT_SIZE = 100;
+    // The default number of steps of every run. Over a few hundred steps
+    // almost every run of a small field loses a species, and the runs
+    // drift apart too far to compare.
+    private static final int DEFAULT_STEPS = 60;
+    // The default number of runs of each mode.
+    private static final int DEFAULT_RUNS = 24;
+    // The number of standard errors either side of a mean its 95%
+    // confidence interval spans.
+    private static final double Z_95 = 1.96;
+    // The seed of the first run.
+    private static final long SEED = 2024;
+    // The modes compared, the reference first.
+    private static final ExecutionMode[] MODES = {ExecutionMode.LIST, ExecutionMode.BATCHED,
+                                                    ExecutionMode.INTENTS, ExecutionMode.ATOMIC};
+
+    /**
+     * Run the comparison.
+     *
+     * @param args The size of the field, the number of steps and the
+     *             number of runs, all optional.
+     */
+    public static void main(String[] args)
+    {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SIZE;
+        int steps = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_STEPS;
+        int runs = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_RUNS;
+
+        Result[] results = new Result[MODES.length];
+        for(int m = 0; m < MODES.length; m++) {
+            results[m] = new Result();
+            for(int run = 0; run < runs; run++) {
+                results[m].add(run(size, steps, SEED + run, MODES[m]));
+            }
+        }
+
+        System.out.printf("%-14s", "Species");
+        for(ExecutionMode mode : MODES) {
+            System.out.printf(" %20s", mode);
+        }
+        for(int m = 1; m < MODES.length; m++) {
+            System.out.printf(" %23s", MODES[m] + " / " + MODES[0]);
+        }
+        System.out.println();
+        Result reference = results[0];
+        for(Species species : Species.values()) {
+            System.out.printf("%-14s", species.getDisplayName());
+            for(Result result : results) {
+                System.out.printf(" %10.1f +- %7.1f", result.getMean(species), Z_95 * result.getStandardError(species));
+            }
+            double expected = reference.getMean(species);
+            double expectedError = reference.getStandardError(species);
+            for(int m = 1; m < MODES.length; m++) {
+                double actual = results[m].getMean(species);
+                double actualError = results[m].getStandardError(species);
+                double ratio = expected == 0 ? Double.NaN : actual / expected;
+                // The standard error of the ratio, to first order.
+                double ratioError = ratio * Math.hypot(expectedError / expected, actual == 0 ? 0 : actualError / actual);
+                boolean agree = Math.abs(actual - expected) <= Z_95 * Math.hypot(expectedError, actualError);
+                System.out.printf(" %7.3f +- %5.3f %-6s", ratio, Z_95 * ratioError, agree ? "agree" : "differ");
+            }
+            System.out.println();
+        }
+        System.out.println("The intervals are 95% confidence intervals of the means over " + runs + " runs.");
+        System.out.print("Runs that lost a species:");
+        for(int m = 0; m < MODES.length; m++) {
+            System.out.printf(" %d %s", results[m].extinctions, MODES[m]);
+        }
+        System.out.println();
+    }
+
+    /**
+     * Run one mode from a seed.
+     *
+     * @param size The size of the field.
+     * @param steps The number of steps.
+     * @param seed The seed of the world.
+     * @param mode The execution mode.
+     * @return What was measured.
+     */
+    private static Result run(int size, int steps, long seed, ExecutionMode mode)
+    {
+        Simulator simulator = new Simulator(size, size, false, Randomizer.newRandom(seed));
+        simulator.setExecutionMode(mode);
+        Result result = new Result();
+        for(int n = 0; n < steps; n++) {
+            if(!simulator.isViable()) {
+                result.extinctions++;
+                break;
+            }
+            simulator.simulateOneStep();
+            int[] counts = simulator.getCounts();
+            for(int i = 0; i < counts.length; i++) {
+                result.population[i] += counts[i];
+            }
+            result.samples++;
+        }
+        return result;
+    }
+
+    /**
+     * What was measured over the steps of one or more runs.
+     */
+    private static class Result
+    {
+        // The populations of every species, added up over the steps.
+        private final double[] population = new double[Species.values().length];
+        // The number of steps measured.
+        private double samples;
+        // The number of runs that lost a species.
+        private int extinctions;
+        // The mean populations of the runs added, and their squares,
+        // added up.
+        private final double[] runMeans = new double[Species.values().length];
+        private final double[] runSquares = new double[Species.values().length];
+        // The number of runs added.
+        private int runs;
+
+        /**
+         * Add the measures of another run.
+         *
+         * @param other The other run.
+         */
+        private void add(Result other)
+        {
+            for(int i = 0; i < population.length; i++) {
+                double mean = other.population[i] / Math.max(1, other.samples);
+                runMeans[i] += mean;
+                runSquares[i] += mean * mean;
+            }
+            runs++;
+            extinctions += other.extinctions;
+        }
+
+        /**
+         * @param species A species.
+         * @return Its mean population over the runs.
+         */
+        private double getMean(Species species)
+        {
+            return runMeans[species.id()] / runs;
+        }
+
+        /**
+         * @param species A species.
+         * @return The standard error of its mean population over the
+         *         runs, from the spread of the runs' means.
+         */
+        private double getStandardError(Species species)
+        {
+            if(runs < 2) {
+                return Double.NaN;
+            }
+            double mean = getMean(species);
+            double variance = Math.max(0, (runSquares[species.id()] - runs * mean * mean) / (runs - 1));
+            return Math.sqrt(variance / runs);
+        }
+    }
+}
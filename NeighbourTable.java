@@ -0,0 +1,182 @@
+/**
+ * A neighbourhood compiled for the dimensions of a field. For a cell at
+ * least the reach of the neighbourhood away from every edge, the index of
+ * every neighbour is the index of the cell plus a fixed offset, so its
+ * neighbours are found by one loop of additions with no bounds checks.
+ * Only the cells along the edges check every neighbour, leaving out the
+ * ones off the field or, with wrap, bringing them back on the other side.
+ *
+ * The neighbours are always listed in row order, as the offsets of the
+ * neighbourhood are.
+ *
+ * @author Nicolás Alcalá Olea and Bailey Crossan
+ */
+public class NeighbourTable
+{
+    // The neighbourhood compiled.
+    private final Neighbourhood neighbourhood;
+    // The dimensions of the field.
+    private final int depth, width;
+    // How far the neighbours reach, and whether the field wraps around.
+    private final int reach;
+    private final boolean wrap;
+    // The offsets of the cell indices of the neighbours, for the even
+    // rows and the odd rows away from the edges.
+    private final int[][] cellOffsets = new int[2][];
+    // The side of the square of cells around a cell read from a bitset,
+    // and the place of every neighbour in that square, or null if the
+    // square is too large for a word.
+    private final int side;
+    private final int[][] windowPlaces;
+
+    /**
+     * Compile a neighbourhood for a field.
+     *
+     * @param neighbourhood The neighbourhood.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     */
+    public NeighbourTable(Neighbourhood neighbourhood, int depth, int width)
+    {
+        this.neighbourhood = neighbourhood;
+        this.depth = depth;
+        this.width = width;
+        reach = neighbourhood.getReach();
+        wrap = neighbourhood.isWrapped();
+        if(wrap && (depth <= 2 * reach || width <= 2 * reach)) {
+            throw new IllegalArgumentException("The field is too small to wrap " + neighbourhood);
+        }
+        if(wrap && neighbourhood.isHexagonal() && depth % 2 != 0) {
+            throw new IllegalArgumentException("A hexagonal field can only wrap with an even depth");
+        }
+        side = 2 * reach + 1;
+        windowPlaces = side * side <= 64 ? new int[2][] : null;
+        for(int parity = 0; parity < 2; parity++) {
+            int[] rows = neighbourhood.getRowOffsets(parity);
+            int[] cols = neighbourhood.getColOffsets(parity);
+            cellOffsets[parity] = new int[rows.length];
+            if(windowPlaces != null) {
+                windowPlaces[parity] = new int[rows.length];
+            }
+            for(int k = 0; k < rows.length; k++) {
+                cellOffsets[parity][k] = rows[k] * width + cols[k];
+                if(windowPlaces != null) {
+                    windowPlaces[parity][k] = (rows[k] + reach) * side + cols[k] + reach;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The neighbourhood compiled.
+     */
+    public Neighbourhood getNeighbourhood()
+    {
+        return neighbourhood;
+    }
+
+    /**
+     * @return The largest number of neighbours of a cell.
+     */
+    public int size()
+    {
+        return cellOffsets[0].length;
+    }
+
+    /**
+     * Find the neighbours of a cell.
+     *
+     * @param cell The cell index (row * width + col).
+     * @param out Where the cell indices of the neighbours are stored, at
+     *            least size() long.
+     * @return The number of neighbours.
+     */
+    public int neighbours(int cell, int[] out)
+    {
+        int row = cell / width;
+        int col = cell - row * width;
+        if(row >= reach && row < depth - reach && col >= reach && col < width - reach) {
+            int[] offsets = cellOffsets[row & 1];
+            for(int k = 0; k < offsets.length; k++) {
+                out[k] = cell + offsets[k];
+            }
+            return offsets.length;
+        }
+        return edgeNeighbours(row, col, out);
+    }
+
+    /**
+     * Find the neighbours of a cell whose bit is set in a bitset, such as
+     * the cells that are not rock (see Terrain). Away from the edges, the
+     * bits of the square around the cell are read a row at a time into one
+     * word, the bits of the neighbours are gathered from it into a mask,
+     * and only the neighbours left in the mask are listed.
+     *
+     * @param cell The cell index (row * width + col).
+     * @param bits The bitset, one bit per cell and one spare word.
+     * @param out Where the cell indices of the neighbours are stored, at
+     *            least size() long.
+     * @return The number of neighbours.
+     */
+    public int openNeighbours(int cell, long[] bits, int[] out)
+    {
+        int row = cell / width;
+        int col = cell - row * width;
+        if(windowPlaces == null || row < reach || row >= depth - reach || col < reach || col >= width - reach) {
+            int count = neighbours(cell, out);
+            int open = 0;
+            for(int k = 0; k < count; k++) {
+                int next = out[k];
+                if((bits[next >>> 6] >>> next & 1) != 0) {
+                    out[open++] = next;
+                }
+            }
+            return open;
+        }
+        long window = 0;
+        int first = cell - reach * width - reach;
+        for(int r = 0; r < side; r++) {
+            window |= Terrain.bitsAt(bits, first + r * width, side) << (r * side);
+        }
+        int[] places = windowPlaces[row & 1];
+        long mask = 0;
+        for(int k = 0; k < places.length; k++) {
+            mask |= (window >>> places[k] & 1) << k;
+        }
+        int[] offsets = cellOffsets[row & 1];
+        int open = 0;
+        while(mask != 0) {
+            out[open++] = cell + offsets[Long.numberOfTrailingZeros(mask)];
+            mask &= mask - 1;
+        }
+        return open;
+    }
+
+    /**
+     * Find the neighbours of a cell near an edge, one by one.
+     *
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @param out Where the cell indices of the neighbours are stored.
+     * @return The number of neighbours.
+     */
+    private int edgeNeighbours(int row, int col, int[] out)
+    {
+        int[] rows = neighbourhood.getRowOffsets(row & 1);
+        int[] cols = neighbourhood.getColOffsets(row & 1);
+        int count = 0;
+        for(int k = 0; k < rows.length; k++) {
+            int nextRow = row + rows[k];
+            int nextCol = col + cols[k];
+            if(wrap) {
+                nextRow = Math.floorMod(nextRow, depth);
+                nextCol = Math.floorMod(nextCol, width);
+            }
+            else if(nextRow < 0 || nextRow >= depth || nextCol < 0 || nextCol >= width) {
+                continue;
+            }
+            out[count++] = nextRow * width + nextCol;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,202 @@
+import java.util.Arrays;
+
+/**
+ * The cells around a cell that an organism can reach or sense: the Moore
+ * neighbourhood of a radius (the square around the cell), the von Neumann
+ * one (the diamond), or the six cells of a hexagonal grid laid over the
+ * rows, every odd row shifted half a cell to the right. At the edges of
+ * the field the cells beyond are left out, or with wrap the field is a
+ * torus and they come back on the other side.
+ *
+ * A neighbourhood is only the list of offsets, in row order. A field
+ * compiles it into a NeighbourTable for its own dimensions.
+ *
+ * @author Nicolás Alcalá Olea and Bailey Crossan
+ */
+public class Neighbourhood
+{
+    // The eight cells around a cell, the neighbourhood of every species
+    // unless it declares another one.
+    public static final Neighbourhood MOORE = moore(1);
+
+    // The offsets of the rows and columns, for the even rows and the odd
+    // rows. They are the same unless the grid is hexagonal.
+    private final int[][] rowOffsets, colOffsets;
+    // The largest offset in any direction.
+    private final int reach;
+    // Whether the field wraps around at its edges.
+    private final boolean wrap;
+    // The name shown in descriptions.
+    private final String name;
+
+    /**
+     * Create a neighbourhood from its offsets.
+     *
+     * @param rowOffsets The row offsets, for even and odd rows.
+     * @param colOffsets The column offsets, for even and odd rows.
+     * @param reach The largest offset in any direction.
+     * @param wrap Whether the field wraps around.
+     * @param name The name shown in descriptions.
+     */
+    private Neighbourhood(int[][] rowOffsets, int[][] colOffsets, int reach, boolean wrap, String name)
+    {
+        this.rowOffsets = rowOffsets;
+        this.colOffsets = colOffsets;
+        this.reach = reach;
+        this.wrap = wrap;
+        this.name = name;
+    }
+
+    /**
+     * Return the Moore neighbourhood of a radius: every cell at most
+     * radius rows and radius columns away.
+     *
+     * @param radius The radius, at least 1.
+     * @return The neighbourhood.
+     */
+    public static Neighbourhood moore(int radius)
+    {
+        return square(radius, radius * 2, "Moore " + radius);
+    }
+
+    /**
+     * Return the von Neumann neighbourhood of a radius: every cell at
+     * most radius moves away along the rows and columns.
+     *
+     * @param radius The radius, at least 1.
+     * @return The neighbourhood.
+     */
+    public static Neighbourhood vonNeumann(int radius)
+    {
+        return square(radius, radius, "von Neumann " + radius);
+    }
+
+    /**
+     * Return the six cells around a cell of a hexagonal grid. On an even
+     * row the cells above and below are the ones to the left and straight
+     * up or down, on an odd row the ones straight up or down and to the
+     * right.
+     *
+     * @return The neighbourhood.
+     */
+    public static Neighbourhood hexagonal()
+    {
+        int[][] rows = { { -1, -1, 0, 0, 1, 1 }, { -1, -1, 0, 0, 1, 1 } };
+        int[][] cols = { { -1, 0, -1, 1, -1, 0 }, { 0, 1, -1, 1, 0, 1 } };
+        return new Neighbourhood(rows, cols, 1, false, "hexagonal");
+    }
+
+    /**
+     * Collect the cells of a square of a radius whose row and column
+     * offsets add up to at most a distance, in row order.
+     *
+     * @param radius The radius of the square, at least 1.
+     * @param distance The largest sum of the offsets.
+     * @param name The name shown in descriptions.
+     * @return The neighbourhood.
+     */
+    private static Neighbourhood square(int radius, int distance, String name)
+    {
+        if(radius < 1) {
+            throw new IllegalArgumentException("The radius of a neighbourhood must be at least 1");
+        }
+        int side = 2 * radius + 1;
+        int[] rows = new int[side * side];
+        int[] cols = new int[side * side];
+        int count = 0;
+        for(int roffset = -radius; roffset <= radius; roffset++) {
+            for(int coffset = -radius; coffset <= radius; coffset++) {
+                if((roffset != 0 || coffset != 0) && Math.abs(roffset) + Math.abs(coffset) <= distance) {
+                    rows[count] = roffset;
+                    cols[count] = coffset;
+                    count++;
+                }
+            }
+        }
+        rows = Arrays.copyOf(rows, count);
+        cols = Arrays.copyOf(cols, count);
+        return new Neighbourhood(new int[][] { rows, rows }, new int[][] { cols, cols }, radius, false, name);
+    }
+
+    /**
+     * Return the same neighbourhood on a field that wraps around at its
+     * edges, so every cell has all its neighbours.
+     *
+     * @return The neighbourhood with wrap.
+     */
+    public Neighbourhood wrapped()
+    {
+        return wrap ? this : new Neighbourhood(rowOffsets, colOffsets, reach, true, name);
+    }
+
+    /**
+     * Compile the neighbourhood for a field.
+     *
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @return The offset tables.
+     */
+    public NeighbourTable compile(int depth, int width)
+    {
+        return new NeighbourTable(this, depth, width);
+    }
+
+    /**
+     * @param parity 0 for an even row, 1 for an odd one.
+     * @return The row offsets of the neighbours, in row order.
+     */
+    int[] getRowOffsets(int parity)
+    {
+        return rowOffsets[parity];
+    }
+
+    /**
+     * @param parity 0 for an even row, 1 for an odd one.
+     * @return The column offsets of the neighbours, in row order.
+     */
+    int[] getColOffsets(int parity)
+    {
+        return colOffsets[parity];
+    }
+
+    /**
+     * @return The number of neighbours of a cell away from the edges.
+     */
+    public int size()
+    {
+        return rowOffsets[0].length;
+    }
+
+    /**
+     * @return The largest offset in any direction.
+     */
+    public int getReach()
+    {
+        return reach;
+    }
+
+    /**
+     * @return true If the field wraps around at its edges.
+     */
+    public boolean isWrapped()
+    {
+        return wrap;
+    }
+
+    /**
+     * @return true If the neighbours depend on whether the row is odd.
+     */
+    public boolean isHexagonal()
+    {
+        return colOffsets[0] != colOffsets[1];
+    }
+
+    /**
+     * @return A description of the neighbourhood.
+     */
+    @Override
+    public String toString()
+    {
+        return wrap ? name + ", wrapped" : name;
+    }
+}
@@ -0,0 +1,290 @@
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * The water of the reef, cell by cell: the nutrients the algae feed on,
+ * the temperature and the currents. Each one is a float grid with one
+ * value per cell, in the same order as the cells of the field.
+ *
+ * The nutrients and the temperature spread to the cells around them and
+ * are carried along by the currents. Every step they are updated with a
+ * five point stencil, band by band of rows on several threads: every
+ * band reads the old grids and writes its own rows of the new ones, so
+ * the bands need no locking. The nutrients are used up by the algae and
+ * slowly come back, the temperature follows the weather and the time of
+ * day, warmer at the top of the reef than at the bottom. The currents
+ * turn in one big gyre and do not change.
+ *
+ * @author Nicolás Alcalá Olea and Bailey Crossan
+ */
+public class OceanLayers
+{
+    // The number of rows updated together by one thread.
+    private static final int BAND_ROWS = 32;
+    // How much of the difference with the cells around spreads in a step.
+    // Four times this plus the fastest current must stay below 1, or the
+    // stencil is not stable.
+    private static final float NUTRIENT_DIFFUSION = 0.1f;
+    private static final float TEMPERATURE_DIFFUSION = 0.15f;
+    // The nutrients used up by an algae in a step.
+    private static final float NUTRIENT_CONSUMPTION = 0.02f;
+    // How fast the nutrients come back to their full level of 1.
+    private static final float NUTRIENT_RECOVERY = 0.05f;
+    // The nutrient level at which algae grow at half their speed.
+    private static final float HALF_SATURATION = 0.3f;
+    // The temperatures of the top and the bottom rows, in degrees.
+    private static final float TOP_TEMPERATURE = 26;
+    private static final float BOTTOM_TEMPERATURE = 14;
+    // How much colder it gets in cold weather and at night.
+    private static final float COLD_SNAP = 6;
+    private static final float NIGHT_COOLING = 1;
+    // How fast the temperature follows the weather.
+    private static final float TEMPERATURE_RELAXATION = 0.1f;
+    // Below this temperature a cell counts as cold.
+    private static final float COLD_TEMPERATURE = 17;
+    // The fastest current, in cells per step.
+    private static final float MAX_CURRENT = 0.2f;
+
+    // The dimensions of the layers.
+    private final int depth, width;
+    // The nutrients and the temperature, and the grids the next values
+    // are written to.
+    private float[] nutrients, nextNutrients;
+    private float[] temperature, nextTemperature;
+    // The currents along the rows (down) and the columns (right).
+    private final float[] currentRow, currentCol;
+    // The temperature every row is heading for in this step.
+    private final float[] targetTemperature;
+
+    /**
+     * Create the layers with full nutrients, the temperature of clear
+     * weather in the day and the currents of the gyre.
+     *
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     */
+    public OceanLayers(int depth, int width)
+    {
+        this.depth = depth;
+        this.width = width;
+        int cells = depth * width;
+        nutrients = new float[cells];
+        nextNutrients = new float[cells];
+        temperature = new float[cells];
+        nextTemperature = new float[cells];
+        currentRow = new float[cells];
+        currentCol = new float[cells];
+        targetTemperature = new float[depth];
+        for(int row = 0; row < depth; row++) {
+            double y = Math.PI * (row + 0.5) / depth;
+            for(int col = 0; col < width; col++) {
+                double x = Math.PI * (col + 0.5) / width;
+                // The flow around sin(y) * sin(x), which goes round without
+                // piling up water anywhere.
+                currentRow[row * width + col] = (float) (-MAX_CURRENT * Math.sin(y) * Math.cos(x));
+                currentCol[row * width + col] = (float) (MAX_CURRENT * Math.cos(y) * Math.sin(x));
+            }
+        }
+        reset();
+    }
+
+    /**
+     * Create a copy of other layers.
+     *
+     * @param other The layers to copy.
+     */
+    public OceanLayers(OceanLayers other)
+    {
+        depth = other.depth;
+        width = other.width;
+        nutrients = other.nutrients.clone();
+        nextNutrients = new float[nutrients.length];
+        temperature = other.temperature.clone();
+        nextTemperature = new float[temperature.length];
+        currentRow = other.currentRow;
+        currentCol = other.currentCol;
+        targetTemperature = new float[depth];
+    }
+
+    /**
+     * Go back to full nutrients and the temperature of clear weather.
+     */
+    public final void reset()
+    {
+        Arrays.fill(nutrients, 1);
+        setTargets(false, true);
+        for(int row = 0; row < depth; row++) {
+            Arrays.fill(temperature, row * width, (row + 1) * width, targetTemperature[row]);
+        }
+    }
+
+    /**
+     * Update the nutrients and the temperature for one step. In a water
+     * column the nutrients of a cell are shared by its layers, so the
+     * algae of every layer use them up.
+     *
+     * @param algae The algae of every layer using up the nutrients.
+     * @param cold Whether the weather is cold.
+     * @param day Whether it is day time.
+     */
+    public void step(AlgaeLayer[] algae, boolean cold, boolean day)
+    {
+        setTargets(cold, day);
+        int bands = (depth + BAND_ROWS - 1) / BAND_ROWS;
+        IntStream.range(0, bands).parallel().forEach(band -> stepBand(algae, band));
+        float[] swap = nutrients;
+        nutrients = nextNutrients;
+        nextNutrients = swap;
+        swap = temperature;
+        temperature = nextTemperature;
+        nextTemperature = swap;
+    }
+
+    /**
+     * Work out the temperature every row is heading for.
+     *
+     * @param cold Whether the weather is cold.
+     * @param day Whether it is day time.
+     */
+    private void setTargets(boolean cold, boolean day)
+    {
+        float offset = (cold ? -COLD_SNAP : 0) + (day ? 0 : -NIGHT_COOLING);
+        for(int row = 0; row < depth; row++) {
+            float depthShare = depth > 1 ? (float) row / (depth - 1) : 0;
+            targetTemperature[row] = TOP_TEMPERATURE + (BOTTOM_TEMPERATURE - TOP_TEMPERATURE) * depthShare + offset;
+        }
+    }
+
+    /**
+     * Update the rows of one band. Off the field, a cell counts as the
+     * same as the edge cell, so nothing flows out.
+     *
+     * @param algae The algae of every layer using up the nutrients.
+     * @param band The band.
+     */
+    private void stepBand(AlgaeLayer[] algae, int band)
+    {
+        int lastRow = Math.min(depth, (band + 1) * BAND_ROWS);
+        for(int row = band * BAND_ROWS; row < lastRow; row++) {
+            int upShift = row > 0 ? -width : 0;
+            int downShift = row < depth - 1 ? width : 0;
+            float target = targetTemperature[row];
+            for(int col = 0; col < width; col++) {
+                int i = row * width + col;
+                int up = i + upShift;
+                int down = i + downShift;
+                int left = col > 0 ? i - 1 : i;
+                int right = col < width - 1 ? i + 1 : i;
+                float flowRow = currentRow[i];
+                float flowCol = currentCol[i];
+
+                float n = nutrients[i];
+                float spread = nutrients[up] + nutrients[down] + nutrients[left] + nutrients[right] - 4 * n;
+                float carried = upwind(nutrients, i, up, down, left, right, flowRow, flowCol);
+                float used = 0;
+                for(AlgaeLayer layer : algae) {
+                    if(layer.has(i)) {
+                        used += NUTRIENT_CONSUMPTION;
+                    }
+                }
+                nextNutrients[i] = Math.max(0, n + NUTRIENT_DIFFUSION * spread - carried
+                                               + NUTRIENT_RECOVERY * (1 - n) - used);
+
+                float t = temperature[i];
+                spread = temperature[up] + temperature[down] + temperature[left] + temperature[right] - 4 * t;
+                carried = upwind(temperature, i, up, down, left, right, flowRow, flowCol);
+                nextTemperature[i] = t + TEMPERATURE_DIFFUSION * spread - carried
+                                     + TEMPERATURE_RELAXATION * (target - t);
+            }
+        }
+    }
+
+    /**
+     * Return how much of a value the currents take away from a cell in a
+     * step, looking at the cell the water comes from.
+     *
+     * @param grid The values.
+     * @param i The cell.
+     * @param up The cell above, down the one below, left and right the
+     *           ones beside it.
+     * @param flowRow The current down the rows.
+     * @param flowCol The current along the columns.
+     * @return The change carried away.
+     */
+    private static float upwind(float[] grid, int i, int up, int down, int left, int right,
+                                float flowRow, float flowCol)
+    {
+        float alongRow = flowRow > 0 ? grid[i] - grid[up] : grid[down] - grid[i];
+        float alongCol = flowCol > 0 ? grid[i] - grid[left] : grid[right] - grid[i];
+        return flowRow * alongRow + flowCol * alongCol;
+    }
+
+    /**
+     * Return the cell index of a location.
+     *
+     * @param location A location within the field.
+     * @return The cell index.
+     */
+    public int index(Location location)
+    {
+        return location.row() * width + location.col();
+    }
+
+    /**
+     * @param cell A cell.
+     * @return true If the water of the cell is cold.
+     */
+    public boolean isCold(int cell)
+    {
+        return temperature[cell] < COLD_TEMPERATURE;
+    }
+
+    /**
+     * @param cell A cell.
+     * @return The temperature of the cell, in degrees.
+     */
+    public float getTemperature(int cell)
+    {
+        return temperature[cell];
+    }
+
+    /**
+     * @param cell A cell.
+     * @return The nutrients of the cell, 1 being the full level.
+     */
+    public float getNutrients(int cell)
+    {
+        return nutrients[cell];
+    }
+
+    /**
+     * Return how well algae grow on the nutrients of a cell, from 0 with
+     * no nutrients to almost 1 with plenty.
+     *
+     * @param cell A cell.
+     * @return The nutrients' effect on growth.
+     */
+    public double getGrowthFactor(int cell)
+    {
+        float n = nutrients[cell];
+        return n / (n + HALF_SATURATION);
+    }
+
+    /**
+     * Return where the current takes a fragment of algae dropped in a
+     * cell: one cell further along the current if it is strong enough.
+     *
+     * @param cell The cell the fragment was dropped in.
+     * @return The cell the fragment drifts to, or -1 if it drifts off
+     *         the field.
+     */
+    public int drift(int cell)
+    {
+        int row = cell / width + Math.round(currentRow[cell] / MAX_CURRENT);
+        int col = cell % width + Math.round(currentCol[cell] / MAX_CURRENT);
+        if(row < 0 || row >= depth || col < 0 || col >= width) {
+            return -1;
+        }
+        return row * width + col;
+    }
+}
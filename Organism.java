@@ -5,4 +5,18 @@
  */
 public interface Organism
 {
+    /**
+     * @return The species of the organism.
+     */
+    Species getSpecies();
+
+    /**
+     * @return true If the organism is still alive.
+     */
+    boolean isAlive();
+
+    /**
+     * Indicate that the organism is no longer alive.
+     */
+    void setDead();
 }
@@ -0,0 +1,192 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A compact binary batch of organisms sent between the processes that
+ * run the stripes of a distributed world. Every entry takes 24 bytes:
+ * its kind, the species, gender and infection flags, the age, the food
+ * level, the cell in world coordinates and the genome (see Genome). An entry is either an animal,
+ * an algae or a kill, which tells the owner of a cell that the animal it
+ * had there has been eaten by a neighbour.
+ *
+ * @author Nicolás Alcalá Olea and Bailey Crossan
+ */
+public class OrganismBatch
+{
+    // The kinds of entry.
+    public static final byte ANIMAL = 0;
+    public static final byte ALGAE = 1;
+    public static final byte KILL = 2;
+
+    // The size of one entry, in bytes.
+    private static final int ENTRY_SIZE = 24;
+    // The bits of the flags byte.
+    private static final int MALE = 1;
+    private static final int INFECTED = 2;
+
+    // The encoded entries.
+    private byte[] bytes;
+    // The number of bytes used.
+    private int size;
+
+    /**
+     * Create an empty batch.
+     */
+    public OrganismBatch()
+    {
+        bytes = new byte[64 * ENTRY_SIZE];
+    }
+
+    /**
+     * Wrap a batch received from another process.
+     *
+     * @param buffer The buffer holding the entries, read up to its limit.
+     */
+    public OrganismBatch(ByteBuffer buffer)
+    {
+        size = buffer.remaining();
+        bytes = new byte[size];
+        buffer.get(bytes);
+    }
+
+    /**
+     * Add an animal.
+     *
+     * @param anAnimal The animal.
+     * @param row Its row in the world.
+     * @param col Its column.
+     */
+    public void addAnimal(Animal anAnimal, int row, int col)
+    {
+        int flags = (anAnimal.getIsMale() ? MALE : 0) | (anAnimal.isInfected() ? INFECTED : 0);
+        add(ANIMAL, anAnimal.getSpecies().id(), flags, anAnimal.getAge(), anAnimal.getFoodLevel(), row, col,
+            anAnimal.getGenome());
+    }
+
+    /**
+     * Add a new algae.
+     *
+     * @param row Its row in the world.
+     * @param col Its column.
+     */
+    public void addAlgae(int row, int col)
+    {
+        add(ALGAE, Species.ALGAE.id(), 0, 0, 0, row, col, 0);
+    }
+
+    /**
+     * Add a kill of the animal in a cell.
+     *
+     * @param row The row of the cell in the world.
+     * @param col Its column.
+     */
+    public void addKill(int row, int col)
+    {
+        add(KILL, 0, 0, 0, 0, row, col, 0);
+    }
+
+    /**
+     * Append one entry.
+     */
+    private void add(byte kind, int species, int flags, int age, int food, int row, int col, long genome)
+    {
+        if(size + ENTRY_SIZE > bytes.length) {
+            bytes = Arrays.copyOf(bytes, bytes.length * 2);
+        }
+        ByteBuffer entry = ByteBuffer.wrap(bytes, size, ENTRY_SIZE);
+        entry.put(kind).put((byte) species).put((byte) flags).put((byte) 0);
+        entry.putShort((short) age).putShort((short) food);
+        entry.putInt(row).putInt(col).putLong(genome);
+        size += ENTRY_SIZE;
+    }
+
+    /**
+     * @return The number of entries.
+     */
+    public int getCount()
+    {
+        return size / ENTRY_SIZE;
+    }
+
+    /**
+     * @param i The number of an entry.
+     * @return Its kind: ANIMAL, ALGAE or KILL.
+     */
+    public byte getKind(int i)
+    {
+        return bytes[i * ENTRY_SIZE];
+    }
+
+    /**
+     * @param i The number of an entry.
+     * @return The row of its cell in the world.
+     */
+    public int getRow(int i)
+    {
+        return ByteBuffer.wrap(bytes).getInt(i * ENTRY_SIZE + 8);
+    }
+
+    /**
+     * @param i The number of an entry.
+     * @return The column of its cell.
+     */
+    public int getCol(int i)
+    {
+        return ByteBuffer.wrap(bytes).getInt(i * ENTRY_SIZE + 12);
+    }
+
+    /**
+     * Create the animal of an entry.
+     *
+     * @param i The number of an animal entry.
+     * @param location Where the animal is in the receiver's field.
+     * @return A new live animal in the encoded state.
+     */
+    public Animal toAnimal(int i, Location location)
+    {
+        ByteBuffer entry = ByteBuffer.wrap(bytes, i * ENTRY_SIZE, ENTRY_SIZE);
+        entry.get();
+        Species species = Species.values()[entry.get()];
+        int flags = entry.get();
+        entry.get();
+        int age = entry.getShort();
+        int food = entry.getShort();
+        entry.getInt();
+        entry.getInt();
+        Animal anAnimal = new Animal(species, location, (flags & MALE) != 0, (flags & INFECTED) != 0, age, food);
+        anAnimal.setGenome(entry.getLong());
+        return anAnimal;
+    }
+
+    /**
+     * Write the batch, preceded by its length in bytes.
+     *
+     * @param buffer The buffer to write into.
+     */
+    public void writeTo(ByteBuffer buffer)
+    {
+        buffer.putInt(size).put(bytes, 0, size);
+    }
+
+    /**
+     * Read a batch written by writeTo.
+     *
+     * @param buffer The buffer to read from.
+     * @return The batch.
+     */
+    public static OrganismBatch readFrom(ByteBuffer buffer)
+    {
+        int length = buffer.getInt();
+        ByteBuffer slice = buffer.slice(buffer.position(), length);
+        buffer.position(buffer.position() + length);
+        return new OrganismBatch(slice);
+    }
+
+    /**
+     * @return The number of bytes writeTo needs.
+     */
+    public int encodedSize()
+    {
+        return 4 + size;
+    }
+}
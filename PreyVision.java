@@ -0,0 +1,164 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * What the predators see beyond their neighbours. Once per step, for the
+ * diet of every predator species, it works out how many moves away the
+ * nearest prey is from every cell of the field, counting a diagonal move
+ * as one. A predator then only has to compare the distances of the cells
+ * around it to know which way the prey is.
+ *
+ * The distances are worked out with two passes over the field, one from
+ * the top left and one from the bottom right (a chamfer transform), so
+ * the work does not depend on how far the predators see. Cells further
+ * than the radius hold radius + 1: the predator cannot see the prey.
+ * The diets are worked out in parallel.
+ *
+ * @author Nicolás Alcalá Olea and Bailey Crossan
+ */
+public class PreyVision
+{
+    // How many cells away a predator sees.
+    private final int radius;
+    // The diet of every predator species, indexed by the species id, and
+    // the different diets.
+    private final int[] dietIndex = new int[Species.values().length];
+    private final int[] diets;
+    // The distance to the nearest prey of every diet, for every cell.
+    private short[][] distances;
+    // The dimensions of the field the distances were worked out for.
+    private int depth, width;
+
+    /**
+     * Create the vision of the predators.
+     *
+     * @param radius How many cells away a predator sees, at most 1000.
+     */
+    public PreyVision(int radius)
+    {
+        if(radius < 1 || radius > 1000) {
+            throw new IllegalArgumentException("The vision radius must be between 1 and 1000");
+        }
+        this.radius = radius;
+        int[] found = new int[Species.values().length];
+        int count = 0;
+        for(Species species : Species.values()) {
+            dietIndex[species.id()] = -1;
+            if(!species.isPredator()) {
+                continue;
+            }
+            int prey = species.getDiet() & ~Species.PLANT_MASK;
+            int index = 0;
+            while(index < count && found[index] != prey) {
+                index++;
+            }
+            if(index == count) {
+                found[count++] = prey;
+            }
+            dietIndex[species.id()] = index;
+        }
+        diets = Arrays.copyOf(found, count);
+    }
+
+    /**
+     * @return How many cells away a predator sees.
+     */
+    public int getRadius()
+    {
+        return radius;
+    }
+
+    /**
+     * Work out the distances for the current state of a field.
+     *
+     * @param field The field.
+     */
+    public void update(Field field)
+    {
+        depth = field.getDepth();
+        width = field.getWidth();
+        int cells = depth * width;
+        if(distances == null || distances[0].length != cells) {
+            distances = new short[diets.length][cells];
+        }
+        for(short[] distance : distances) {
+            Arrays.fill(distance, (short) (radius + 1));
+        }
+        List<Animal> animals = field.getAnimals();
+        for(Animal anAnimal : animals) {
+            if(!anAnimal.isAlive()) {
+                continue;
+            }
+            int bit = anAnimal.getSpecies().bit();
+            int cell = field.indexOf(anAnimal.getLocation());
+            for(int d = 0; d < diets.length; d++) {
+                if((diets[d] & bit) != 0) {
+                    distances[d][cell] = 0;
+                }
+            }
+        }
+        IntStream.range(0, diets.length).parallel().forEach(d -> transform(distances[d]));
+    }
+
+    /**
+     * Turn a field of 0 for the prey and radius + 1 elsewhere into the
+     * distances to the nearest prey.
+     *
+     * @param distance The field, changed in place.
+     */
+    private void transform(short[] distance)
+    {
+        int far = radius + 1;
+        // From the top left: the cells above and the one to the left. A
+        // cell off the field counts as radius + 1 away.
+        for(int row = 0; row < depth; row++) {
+            int base = row * width;
+            int above = base - width;
+            int left = far;
+            for(int col = 0; col < width; col++) {
+                int best = Math.min(distance[base + col], left + 1);
+                if(row > 0) {
+                    int upLeft = col > 0 ? distance[above + col - 1] : far;
+                    int upRight = col < width - 1 ? distance[above + col + 1] : far;
+                    best = Math.min(best, Math.min(distance[above + col], Math.min(upLeft, upRight)) + 1);
+                }
+                left = Math.min(best, far);
+                distance[base + col] = (short) left;
+            }
+        }
+        // From the bottom right: the cells below and the one to the right.
+        for(int row = depth - 1; row >= 0; row--) {
+            int base = row * width;
+            int below = base + width;
+            int right = far;
+            for(int col = width - 1; col >= 0; col--) {
+                int best = Math.min(distance[base + col], right + 1);
+                if(row < depth - 1) {
+                    int downLeft = col > 0 ? distance[below + col - 1] : far;
+                    int downRight = col < width - 1 ? distance[below + col + 1] : far;
+                    best = Math.min(best, Math.min(distance[below + col], Math.min(downLeft, downRight)) + 1);
+                }
+                right = Math.min(best, far);
+                distance[base + col] = (short) right;
+            }
+        }
+    }
+
+    /**
+     * Return how far a predator at a location sees its nearest prey.
+     *
+     * @param species The species of the predator.
+     * @param location The location.
+     * @return The distance, or radius + 1 if no prey is in sight or the
+     *         species is not a predator.
+     */
+    public int distance(Species species, Location location)
+    {
+        int d = dietIndex[species.id()];
+        if(d < 0) {
+            return radius + 1;
+        }
+        return distances[d][location.row() * width + location.col()];
+    }
+}
@@ -1,10 +1,15 @@
 import java.util.Random;
 
 /**
- * Provide control over the randomization of the simulation. By using the shared, fixed-seed 
- * randomizer, repeated runs will perform exactly the same (which helps with testing). Set 
+ * Provide control over the randomization of the simulation. By using the shared, fixed-seed
+ * randomizer, repeated runs will perform exactly the same (which helps with testing). Set
  * 'useShared' to false to get different random behaviour every time.
- * 
+ *
+ * The kind of generator is chosen when the program starts with the system property
+ * 'randomizer.generator': "xoshiro" (the default) for the fast unsynchronised
+ * XoshiroRandom, or "jdk" for java.util.Random. Setting 'randomizer.buffered' to true
+ * hands out numbers pre-drawn in bulk through a BufferedRandom.
+ *
  * @author David J. Barnes and Michael Kölling
  * @version 7.0
  */
@@ -12,8 +17,12 @@ public class Randomizer
 {
     // The default seed for control of randomization.
     private static final int SEED = 1111;
+    // The kind of generator used.
+    private static final String GENERATOR = System.getProperty("randomizer.generator", "xoshiro");
+    // Whether the numbers are pre-drawn in bulk.
+    private static final boolean BUFFERED = Boolean.getBoolean("randomizer.buffered");
     // A shared Random object, if required.
-    private static final Random rand = new Random(SEED);
+    private static final Random rand = newRandom(SEED);
     // Determine whether a shared random generator is to be provided.
     private static final boolean useShared = true;
 
@@ -26,7 +35,7 @@ public class Randomizer
 
     /**
      * Provide a random generator.
-     * 
+     *
      * @return A random object.
      */
     public static Random getRandom()
@@ -35,13 +44,148 @@ public class Randomizer
             return rand;
         }
         else {
-            return new Random();
+            return newRandom(System.nanoTime());
         }
     }
 
+    /**
+     * Create a new generator of the chosen kind with the given seed.
+     *
+     * @param seed The seed.
+     * @return A new random object.
+     */
+    public static Random newRandom(long seed)
+    {
+        Random generator;
+        if(GENERATOR.equals("jdk")) {
+            generator = new Random(seed);
+        }
+        else if(GENERATOR.equals("xoshiro")) {
+            generator = new XoshiroRandom(seed);
+        }
+        else {
+            throw new IllegalArgumentException("Unknown randomizer.generator: " + GENERATOR);
+        }
+        if(BUFFERED) {
+            generator = new BufferedRandom(generator);
+        }
+        return generator;
+    }
+
+    /**
+     * Create one of several independent generators derived from one seed,
+     * mixing the bits so neighbouring stream numbers get unrelated
+     * sequences.
+     *
+     * @param seed The seed shared by all the streams.
+     * @param stream The number of the stream.
+     * @return A new random object.
+     */
+    public static Random newStream(long seed, long stream)
+    {
+        return newRandom(Zobrist.mix(seed + stream * 0x9E3779B97F4A7C15L));
+    }
+
+    /**
+     * @return A description of the generator in use.
+     */
+    public static String describe()
+    {
+        return GENERATOR + (BUFFERED ? ", buffered" : "");
+    }
+
+    /**
+     * Return how many numbers the shared generator has handed out since
+     * it was last seeded, if it keeps count.
+     *
+     * @return The number of draws, or -1 if the generator does not count them.
+     */
+    public static long getDraws()
+    {
+        if(rand instanceof BufferedRandom) {
+            return ((BufferedRandom) rand).getDraws();
+        }
+        else if(rand instanceof XoshiroRandom) {
+            return ((XoshiroRandom) rand).getDraws();
+        }
+        else {
+            return -1;
+        }
+    }
+
+    /**
+     * Return a hash of a generator's state, so two runs can check that
+     * they are still drawing the same numbers. java.util.Random does not
+     * show its state, so it always hashes to 0.
+     *
+     * @param generator The generator.
+     * @return A hash of its state, or 0 if it cannot be read.
+     */
+    public static long stateHash(Random generator)
+    {
+        if(generator instanceof BufferedRandom) {
+            return ((BufferedRandom) generator).stateHash();
+        }
+        else if(generator instanceof XoshiroRandom) {
+            return ((XoshiroRandom) generator).stateHash();
+        }
+        else {
+            return 0;
+        }
+    }
+
+    /**
+     * Draw how many trials are skipped before the next success of an
+     * event with the given probability, so rare events can be picked
+     * directly instead of rolling a die for every trial.
+     *
+     * @param rand The random generator to use.
+     * @param probability The probability of the event in one trial.
+     * @return The number of failed trials before the next success.
+     */
+    public static int geometricSkip(Random rand, double probability)
+    {
+        if(probability >= 1) {
+            return 0;
+        }
+        if(probability <= 0) {
+            return Integer.MAX_VALUE;
+        }
+        double skip = Math.floor(Math.log(1 - rand.nextDouble()) / Math.log(1 - probability));
+        // A probability too small to change 1 - probability divides by
+        // zero, and the event never happens.
+        return skip >= Integer.MAX_VALUE || skip < 0 ? Integer.MAX_VALUE : (int) skip;
+    }
+
+    /**
+     * Draw how many of a number of trials succeed, each independently
+     * with the given probability. It skips from one success to the next
+     * (see geometricSkip), or from one failure to the next for a likely
+     * event, so it costs about as many random numbers as the rarer
+     * outcome happens.
+     *
+     * @param rand The random generator to use.
+     * @param trials The number of trials.
+     * @param probability The probability of success in one trial.
+     * @return The number of successes.
+     */
+    public static int binomial(Random rand, int trials, double probability)
+    {
+        if(probability > 0.5) {
+            return trials - binomial(rand, trials, 1 - probability);
+        }
+        int successes = 0;
+        long next = geometricSkip(rand, probability);
+        while(next < trials) {
+            successes++;
+            next += 1L + geometricSkip(rand, probability);
+        }
+        return successes;
+    }
+
     /**
      * Reset the randomization.
-     * This will have no effect if randomization is not 
+     * This will have no effect if randomization is not
      * through a shared Random generator.
      */
     public static void reset()
@@ -0,0 +1,304 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Weather that differs across the world: fog banks and cold fronts that
+ * form, drift with the wind and die out, instead of one weather for the
+ * whole world. Every step the systems are drawn onto a coarse grid of
+ * regions of 16 by 16 cells, and the modifier of every weather effect in
+ * every region is looked up once into a table. An organism then finds
+ * its modifier with one read of the table, so a large world gets varied
+ * weather at no extra cost per animal.
+ *
+ * @author Nicolás Alcalá Olea and Bailey Crossan
+ */
+public class RegionalWeather
+{
+    // A region is 2^REGION_SHIFT cells high and wide.
+    private static final int REGION_SHIFT = 4;
+    // The number of regions there is one weather system for, on average.
+    private static final int REGIONS_PER_SYSTEM = 48;
+    // The likelihood of a new system forming in a step, if there are few.
+    private static final double FORMING_PROBABILITY = 0.25;
+    // The smallest and largest radius of a system, in regions.
+    private static final double MIN_RADIUS = 1.5;
+    private static final double MAX_RADIUS = 5;
+    // The fastest a system drifts, in regions per step.
+    private static final double MAX_SPEED = 0.15;
+    // The shortest and longest life of a system, in steps.
+    private static final int MIN_LIFE = 20;
+    private static final int MAX_LIFE = 60;
+    // The weathers, indexed by their ordinal; values() copies the array
+    // on every call.
+    private static final Weather[] WEATHERS = Weather.values();
+
+    // The width of the field, and the dimensions of the grid of regions.
+    private final int width;
+    private final int regionRows, regionCols, regions;
+    // The random generator of the systems, and the seed it is reseeded
+    // with on every reset.
+    private final Random random;
+    private final long seed;
+    // The systems now over the world.
+    private final List<WeatherSystem> systems = new ArrayList<>();
+    // The weather of every region, as the ordinal of a Weather.
+    private final byte[] grid;
+    // The modifier of every effect in every region, the regions of one
+    // effect after the other.
+    private final double[] modifiers;
+
+    /**
+     * Create clear weather over a field.
+     *
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @param seed The seed of the random generator of the systems.
+     */
+    public RegionalWeather(int depth, int width, long seed)
+    {
+        this.width = width;
+        this.seed = seed;
+        random = Randomizer.newRandom(seed);
+        regionRows = ((depth - 1) >> REGION_SHIFT) + 1;
+        regionCols = ((width - 1) >> REGION_SHIFT) + 1;
+        regions = regionRows * regionCols;
+        grid = new byte[regions];
+        modifiers = new double[WeatherEffect.values().length * regions];
+        rasterise();
+    }
+
+    /**
+     * Create a copy of the weather of another world.
+     *
+     * @param other The weather to copy.
+     * @param seed The seed of the random generator of the new one.
+     */
+    public RegionalWeather(RegionalWeather other, long seed)
+    {
+        width = other.width;
+        this.seed = seed;
+        random = Randomizer.newRandom(seed);
+        regionRows = other.regionRows;
+        regionCols = other.regionCols;
+        regions = other.regions;
+        for(WeatherSystem system : other.systems) {
+            systems.add(new WeatherSystem(system));
+        }
+        grid = other.grid.clone();
+        modifiers = other.modifiers.clone();
+    }
+
+    /**
+     * Clear the sky everywhere and reseed the generator, so the same
+     * systems form again.
+     */
+    public void reset()
+    {
+        random.setSeed(seed);
+        systems.clear();
+        rasterise();
+    }
+
+    /**
+     * Let the systems drift for one step, die out or form, and draw them
+     * onto the grid.
+     */
+    public void step()
+    {
+        systems.removeIf(system -> !system.drift(regionRows, regionCols));
+        int wanted = Math.max(1, regions / REGIONS_PER_SYSTEM);
+        if(systems.size() < wanted && random.nextDouble() < FORMING_PROBABILITY) {
+            systems.add(new WeatherSystem(random, regionRows, regionCols));
+        }
+        rasterise();
+    }
+
+    /**
+     * Draw the systems onto the grid and fill the table of modifiers.
+     * Where a cold front and a fog bank meet, the cold wins.
+     */
+    private void rasterise()
+    {
+        Arrays.fill(grid, (byte) Weather.CLEAR.ordinal());
+        for(WeatherSystem system : systems) {
+            byte kind = (byte) system.kind.ordinal();
+            int top = Math.max(0, (int) Math.floor(system.row - system.radius));
+            int bottom = Math.min(regionRows - 1, (int) Math.ceil(system.row + system.radius));
+            int left = Math.max(0, (int) Math.floor(system.col - system.radius));
+            int right = Math.min(regionCols - 1, (int) Math.ceil(system.col + system.radius));
+            double radiusSquared = system.radius * system.radius;
+            for(int row = top; row <= bottom; row++) {
+                double dRow = row + 0.5 - system.row;
+                for(int col = left; col <= right; col++) {
+                    double dCol = col + 0.5 - system.col;
+                    int region = row * regionCols + col;
+                    if(dRow * dRow + dCol * dCol <= radiusSquared
+                       && (system.kind == Weather.COLD || grid[region] == Weather.CLEAR.ordinal())) {
+                        grid[region] = kind;
+                    }
+                }
+            }
+        }
+        for(WeatherEffect effect : WeatherEffect.values()) {
+            double[] byWeather = new double[WEATHERS.length];
+            for(Weather weather : WEATHERS) {
+                byWeather[weather.ordinal()] = effect.of(weather);
+            }
+            int base = effect.ordinal() * regions;
+            for(int region = 0; region < regions; region++) {
+                modifiers[base + region] = byWeather[grid[region]];
+            }
+        }
+    }
+
+    /**
+     * @param cell The cell index (row * width + col).
+     * @return The weather in the cell.
+     */
+    public Weather getWeatherAt(int cell)
+    {
+        return WEATHERS[grid[regionOf(cell / width, cell % width)]];
+    }
+
+    /**
+     * @param location A location within the field.
+     * @return The weather at the location.
+     */
+    public Weather getWeatherAt(Location location)
+    {
+        return WEATHERS[grid[regionOf(location.row(), location.col())]];
+    }
+
+    /**
+     * @param effect The effect of the weather.
+     * @param cell The cell index (row * width + col).
+     * @return The modifier of the effect in the cell.
+     */
+    public double getModifier(WeatherEffect effect, int cell)
+    {
+        return modifiers[effect.ordinal() * regions + regionOf(cell / width, cell % width)];
+    }
+
+    /**
+     * @param effect The effect of the weather.
+     * @param location A location within the field.
+     * @return The modifier of the effect at the location.
+     */
+    public double getModifier(WeatherEffect effect, Location location)
+    {
+        return modifiers[effect.ordinal() * regions + regionOf(location.row(), location.col())];
+    }
+
+    /**
+     * @return The number of weather systems over the world.
+     */
+    public int getSystemCount()
+    {
+        return systems.size();
+    }
+
+    /**
+     * Return a hash of the systems and of the random generator.
+     *
+     * @return The hash of the weather.
+     */
+    public long stateHash()
+    {
+        long hash = Randomizer.stateHash(random);
+        for(WeatherSystem system : systems) {
+            hash = Zobrist.mix(hash ^ system.stateHash());
+        }
+        return hash;
+    }
+
+    /**
+     * @param row A row of the field.
+     * @param col A column of the field.
+     * @return The region the cell is in.
+     */
+    private int regionOf(int row, int col)
+    {
+        return (row >> REGION_SHIFT) * regionCols + (col >> REGION_SHIFT);
+    }
+
+    /**
+     * A fog bank or a cold front, a disc of regions drifting with the
+     * wind for a number of steps.
+     */
+    private static class WeatherSystem
+    {
+        // FOG or COLD.
+        private final Weather kind;
+        // The centre, in regions, and how far it drifts in a step.
+        private double row, col;
+        private final double rowSpeed, colSpeed;
+        // The radius, in regions.
+        private final double radius;
+        // The steps left before it dies out.
+        private int life;
+
+        /**
+         * Form a new system somewhere over the world.
+         *
+         * @param random The random generator of the systems.
+         * @param regionRows The number of rows of regions.
+         * @param regionCols The number of columns of regions.
+         */
+        WeatherSystem(Random random, int regionRows, int regionCols)
+        {
+            kind = random.nextBoolean() ? Weather.FOG : Weather.COLD;
+            row = random.nextDouble() * regionRows;
+            col = random.nextDouble() * regionCols;
+            double angle = random.nextDouble() * 2 * Math.PI;
+            double speed = random.nextDouble() * MAX_SPEED;
+            rowSpeed = speed * Math.sin(angle);
+            colSpeed = speed * Math.cos(angle);
+            radius = MIN_RADIUS + random.nextDouble() * (MAX_RADIUS - MIN_RADIUS);
+            life = MIN_LIFE + random.nextInt(MAX_LIFE - MIN_LIFE + 1);
+        }
+
+        /**
+         * Create a copy of another system.
+         *
+         * @param other The system to copy.
+         */
+        WeatherSystem(WeatherSystem other)
+        {
+            kind = other.kind;
+            row = other.row;
+            col = other.col;
+            rowSpeed = other.rowSpeed;
+            colSpeed = other.colSpeed;
+            radius = other.radius;
+            life = other.life;
+        }
+
+        /**
+         * Drift for one step.
+         *
+         * @param regionRows The number of rows of regions.
+         * @param regionCols The number of columns of regions.
+         * @return false If the system died out or drifted off the world.
+         */
+        boolean drift(int regionRows, int regionCols)
+        {
+            row += rowSpeed;
+            col += colSpeed;
+            life--;
+            return life > 0 && row + radius > 0 && row - radius < regionRows
+                   && col + radius > 0 && col - radius < regionCols;
+        }
+
+        /**
+         * @return A hash of the system.
+         */
+        long stateHash()
+        {
+            long hash = Zobrist.mix(kind.ordinal() * 31L + life);
+            hash = Zobrist.mix(hash ^ Double.doubleToLongBits(row));
+            return Zobrist.mix(hash ^ Double.doubleToLongBits(col));
+        }
+    }
+}
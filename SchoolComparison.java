@@ -0,0 +1,180 @@
+/**
+ * Compares the populations of the world run with schools (see
+ * SchoolLayer) against the world run with every fish on its own, from
+ * the same seeds. For every species it prints the mean population of a
+ * run in both models with the 95% confidence interval of that mean,
+ * their ratio with its own interval, and whether the two models agree,
+ * and for both models the mean number of animal objects and the time a
+ * step takes.
+ * It can be run with
+ *
+ *     java SchoolComparison [size] [steps] [runs]
+ *
+ * The schools are a mean-field approximation of the fish of a tile, so
+ * the runs do not match step for step, and the populations swing a lot
+ * from run to run. The models agree on a species when the difference
+ * of their means is within Z_95 standard errors of the difference; with
+ * few runs the intervals are wide, so a species is only shown to be
+ * kept by the schools when its ratio is also near 1. It also counts the
+ * runs that lost a species: the schools lose one more often than the
+ * individuals do, a known limit of the approximation.
+ *
+ * @author Nicolás Alcalá Olea and Bailey Crossan
+ */
+public class SchoolComparison
+{
+    // The default size of the field.
+    private static final int DEFAULT_SIZE = 200;
+    // The default number of steps of every run.
+    private static final int DEFAULT_STEPS = 300;
+    // The default number of runs of each model.
+    private static final int DEFAULT_RUNS = 24;
+    // The number of standard errors either side of a mean its 95%
+    // confidence interval spans.
+    private static final double Z_95 = 1.96;
+    // The seed of the first run.
+    private static final long SEED = 2024;
+
+    /**
+     * Run the comparison.
+     *
+     * @param args The size of the field, the number of steps and the
+     *             number of runs, all optional.
+     */
+    public static void main(String[] args)
+    {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SIZE;
+        int steps = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_STEPS;
+        int runs = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_RUNS;
+
+        Result individuals = new Result();
+        Result schools = new Result();
+        for(int run = 0; run < runs; run++) {
+            individuals.add(run(size, steps, SEED + run, false));
+            schools.add(run(size, steps, SEED + run, true));
+        }
+
+        System.out.printf("%-14s %20s %20s %16s%n", "Species", "Individuals", "Schools", "Ratio");
+        for(Species species : Species.values()) {
+            double expected = individuals.getMean(species);
+            double actual = schools.getMean(species);
+            double expectedError = individuals.getStandardError(species);
+            double actualError = schools.getStandardError(species);
+            double ratio = expected == 0 ? Double.NaN : actual / expected;
+            // The standard error of the ratio, to first order.
+            double ratioError = ratio * Math.hypot(expectedError / expected, actual == 0 ? 0 : actualError / actual);
+            boolean agree = Math.abs(actual - expected) <= Z_95 * Math.hypot(expectedError, actualError);
+            System.out.printf("%-14s %10.1f +- %7.1f %10.1f +- %7.1f %7.3f +- %5.3f %s%n", species.getDisplayName(),
+                expected, Z_95 * expectedError, actual, Z_95 * actualError,
+                ratio, Z_95 * ratioError, agree ? "agree" : "differ");
+        }
+        System.out.println("The intervals are 95% confidence intervals of the means over " + runs + " runs.");
+        System.out.printf("Animal objects: %.0f individually, %.0f with schools%n",
+            individuals.animals / individuals.samples, schools.animals / schools.samples);
+        System.out.printf("Time per step: %.2f ms individually, %.2f ms with schools%n",
+            individuals.nanos / 1e6 / individuals.samples, schools.nanos / 1e6 / schools.samples);
+        System.out.printf("Runs that lost a species: %d individually, %d with schools%n",
+            individuals.extinctions, schools.extinctions);
+    }
+
+    /**
+     * Run one model from a seed.
+     *
+     * @param size The size of the field.
+     * @param steps The number of steps.
+     * @param seed The seed of the world.
+     * @param withSchools Whether the schooling species are run as schools.
+     * @return What was measured.
+     */
+    private static Result run(int size, int steps, long seed, boolean withSchools)
+    {
+        Simulator simulator = new Simulator(size, size, false, Randomizer.newRandom(seed));
+        simulator.setSchools(withSchools);
+        Result result = new Result();
+        for(int n = 0; n < steps; n++) {
+            if(!simulator.isViable()) {
+                result.extinctions++;
+                break;
+            }
+            long start = System.nanoTime();
+            simulator.simulateOneStep();
+            result.nanos += System.nanoTime() - start;
+            int[] counts = simulator.getCounts();
+            for(int i = 0; i < counts.length; i++) {
+                result.population[i] += counts[i];
+            }
+            for(Field layer = simulator.getField(); layer != null; layer = layer.getBelow()) {
+                result.animals += layer.getAnimals().size();
+            }
+            result.samples++;
+        }
+        return result;
+    }
+
+    /**
+     * What was measured over the steps of one or more runs.
+     */
+    private static class Result
+    {
+        // The populations of every species, added up over the steps.
+        private final double[] population = new double[Species.values().length];
+        // The animal objects, added up over the steps.
+        private double animals;
+        // The time spent stepping.
+        private double nanos;
+        // The number of steps measured.
+        private double samples;
+        // The number of runs that lost a species.
+        private int extinctions;
+        // The mean populations of the runs added, and their squares,
+        // added up.
+        private final double[] runMeans = new double[Species.values().length];
+        private final double[] runSquares = new double[Species.values().length];
+        // The number of runs added.
+        private int runs;
+
+        /**
+         * Add the measures of another run.
+         *
+         * @param other The other run.
+         */
+        private void add(Result other)
+        {
+            for(int i = 0; i < population.length; i++) {
+                population[i] += other.population[i];
+                double mean = other.population[i] / Math.max(1, other.samples);
+                runMeans[i] += mean;
+                runSquares[i] += mean * mean;
+            }
+            runs++;
+            animals += other.animals;
+            nanos += other.nanos;
+            samples += other.samples;
+            extinctions += other.extinctions;
+        }
+
+        /**
+         * @param species A species.
+         * @return Its mean population over the runs.
+         */
+        private double getMean(Species species)
+        {
+            return runMeans[species.id()] / runs;
+        }
+
+        /**
+         * @param species A species.
+         * @return The standard error of its mean population over the
+         *         runs, from the spread of the runs' means.
+         */
+        private double getStandardError(Species species)
+        {
+            if(runs < 2) {
+                return Double.NaN;
+            }
+            double mean = getMean(species);
+            double variance = Math.max(0, (runSquares[species.id()] - runs * mean * mean) / (runs - 1));
+            return Math.sqrt(variance / runs);
+        }
+    }
+}
@@ -0,0 +1,816 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The schools of a field: dense groups of a schooling species (see
+ * Species) run as counts instead of one object per fish. The field is
+ * cut into tiles of 8 x 8 cells, and a tile keeps one count for every
+ * schooling species, sex, infection and age stage, a stage being eight
+ * steps of age. A tile holds at most as many fish of schools as it has
+ * cells that no animal takes.
+ *
+ * Every step a school lives as its fish would, with binomial draws on
+ * the counts instead of a die for every fish: some are kept still by
+ * the weather, catch the disease or die of it, find a mate and give
+ * birth, find algae to eat, starve, get older and swim into the tiles
+ * around. The likelihoods are the ones an animal has in its own cells,
+ * worked out from how dense the algae and the mates are in the tile.
+ * The fish still take cells of their tile (see getSchoolAt), where the
+ * algae cannot grow, the predators catch them and, while the fish sleep,
+ * the other animals cannot move.
+ *
+ * Where the individuals of a species become dense in a tile they join
+ * its school, and where a school thins out it breaks up into
+ * individuals again, placed in free cells of the tile, so only the
+ * crowded parts of the world are run as counts. SchoolComparison
+ * compares the populations with the ones of the individual model. The
+ * means agree within their intervals, but with schools the reef loses a
+ * species in more runs and the killer whales come out fewer, a known
+ * limit of the approximation.
+ *
+ * @author Nicolás Alcalá Olea and Bailey Crossan
+ */
+public class SchoolLayer
+{
+    // A tile is 2^TILE_SHIFT cells on a side.
+    private static final int TILE_SHIFT = 3;
+    // The steps of age in one age stage.
+    private static final int STAGE_STEPS = 8;
+    // The share of the cells of a tile its fish of one species must fill
+    // for the individuals to join the school.
+    private static final double JOIN_DENSITY = 0.3;
+    // The share below which a school breaks up into individuals again.
+    private static final double BREAK_UP_DENSITY = 0.1;
+    // The likelihood of a moving fish leaving its tile: it moves one row
+    // and one column with a likelihood of 2/3 each, and crosses a side
+    // of the tile from one in 2^TILE_SHIFT of its rows or columns.
+    private static final double LEAVE_PROBABILITY = 4.0 / (3 << TILE_SHIFT);
+    // The odd multiplier of the order the fish of a tile take its cells in.
+    private static final int SCATTER = 37;
+    // The state of a count in the world's hash is its record plus this,
+    // so it never matches the state of an animal.
+    private static final int HASH_STATE_BASE = 0x40000000;
+
+    // The schooling species, and the position of every species among
+    // them, -1 for the others.
+    private static final Species[] SCHOOLING = schoolingSpecies();
+    private static final int[] SCHOOL_INDEX = schoolIndices();
+    // A mask with the bit of every schooling species set.
+    public static final int SCHOOLING_MASK = schoolingMask();
+    // The number of age stages of the longest lived schooling species.
+    private static final int STAGES = stages();
+    // The counts of one species in a tile: a record is the stage, then
+    // the sex and then the infection, (stage << 2) | male << 1 | infected.
+    private static final int RECORDS = STAGES << 2;
+
+    // The dimensions of the field and of the grid of tiles.
+    private final int depth, width;
+    private final int tileRows, tileCols, tiles;
+    // The number of fish of every record, species after species and
+    // tile after tile: counts[(tile * SCHOOLING.length + s) * RECORDS + record].
+    private final int[] counts;
+    // The number of fish of every schooling species in every tile.
+    private final int[] totals;
+    // The number of cells of every tile that are not rock, and the
+    // terrain they were counted for.
+    private int[] openCells;
+    private Terrain countedTerrain;
+
+    /**
+     * Create a field without schools.
+     *
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     */
+    public SchoolLayer(int depth, int width)
+    {
+        this.depth = depth;
+        this.width = width;
+        tileRows = ((depth - 1) >> TILE_SHIFT) + 1;
+        tileCols = ((width - 1) >> TILE_SHIFT) + 1;
+        tiles = tileRows * tileCols;
+        counts = new int[tiles * SCHOOLING.length * RECORDS];
+        totals = new int[tiles * SCHOOLING.length];
+    }
+
+    /**
+     * Create a copy of the schools of another field.
+     *
+     * @param other The schools to copy.
+     */
+    public SchoolLayer(SchoolLayer other)
+    {
+        depth = other.depth;
+        width = other.width;
+        tileRows = other.tileRows;
+        tileCols = other.tileCols;
+        tiles = other.tiles;
+        counts = other.counts.clone();
+        totals = other.totals.clone();
+        openCells = other.openCells;
+        countedTerrain = other.countedTerrain;
+    }
+
+    /**
+     * Remove every school.
+     */
+    public void clear()
+    {
+        Arrays.fill(counts, 0);
+        Arrays.fill(totals, 0);
+    }
+
+    /**
+     * Run the schools for one step into the next field, whose animals
+     * have all acted, before the algae spread: the schools live, the
+     * tiles too crowded lose fish, and individuals join schools or
+     * schools break up where the density crossed the limits.
+     *
+     * @param current The current field, holding these schools.
+     * @param next The next field, which gets schools of its own.
+     */
+    public void act(Field current, Field next)
+    {
+        Environment environment = current.getEnvironment();
+        Random rand = environment.getRandom();
+        SchoolLayer nextSchools = new SchoolLayer(depth, width);
+        nextSchools.openCells = getOpenCells(environment.getTerrain());
+        nextSchools.countedTerrain = countedTerrain;
+        next.setSchools(nextSchools);
+
+        int[] algaeCells = new int[1 << (2 * TILE_SHIFT)];
+        for(int tile = 0; tile < tiles; tile++) {
+            int fish = 0;
+            for(int s = 0; s < SCHOOLING.length; s++) {
+                fish += totals[tile * SCHOOLING.length + s];
+            }
+            if(fish == 0) {
+                continue;
+            }
+            // The share of the tile's cells taken once every fish moved.
+            double occupied = Math.min(1.0, (double) (fish + countAnimals(next, tile)) / Math.max(1, openCells[tile]));
+            int algae = findAlgae(current, tile, algaeCells);
+            for(int s = 0; s < SCHOOLING.length; s++) {
+                if(totals[tile * SCHOOLING.length + s] > 0) {
+                    algae = live(tile, s, current, nextSchools, rand, algaeCells, algae, occupied);
+                }
+            }
+        }
+        nextSchools.crowd(next, rand);
+        nextSchools.regroup(next, rand);
+    }
+
+    /**
+     * Run the fish of one species in one tile for a step.
+     *
+     * @param tile The tile.
+     * @param s The position of the species among the schooling ones.
+     * @param current The current field, whose algae are eaten.
+     * @param nextSchools The schools of the next field.
+     * @param rand The random generator of the world.
+     * @param algaeCells The cells of the tile with algae not eaten yet.
+     * @param algae The number of them.
+     * @param occupied The share of the tile's cells taken.
+     * @return The number of algae left.
+     */
+    private int live(int tile, int s, Field current, SchoolLayer nextSchools, Random rand,
+                     int[] algaeCells, int algae, double occupied)
+    {
+        Species species = SCHOOLING[s];
+        Environment environment = current.getEnvironment();
+        int base = (tile * SCHOOLING.length + s) * RECORDS;
+        int cells = Math.max(1, openCells[tile]);
+        int centre = centreOf(tile);
+        boolean asleep = species.isDiurnal() && !environment.isDay();
+        int neighbours = species.getMovement().size();
+        int stages = stagesOf(species);
+
+        // How likely an active fish is to find a mate of each sex among
+        // the ones that acted before it (about half of them) and algae to
+        // eat, and how likely a fish is to starve in the step.
+        int[] sexes = new int[2];
+        int[] infectedSexes = new int[2];
+        for(int record = 0; record < RECORDS; record++) {
+            sexes[(record >> 1) & 1] += counts[base + record];
+            infectedSexes[(record >> 1) & 1] += (record & 1) * counts[base + record];
+        }
+        double moving = environment.getModifier(WeatherEffect.moving(species), centre);
+        double feeding = environment.getModifier(WeatherEffect.feeding(species), centre);
+        double eating = 1 - Math.pow(1 - Math.min(1.0, (double) algae / cells) * feeding, neighbours);
+        double starving = starvingProbability(eating * moving, species.getFoodValue());
+        // A fish that does not eat dies if every cell around it is taken.
+        // It finds taken a share of the cells that grows with how many
+        // fish moved before it, from none to all, so the likelihood of
+        // finding them all taken is the mean of its power over that.
+        double overcrowded = (1 - eating) * Math.pow(occupied, neighbours) / (neighbours + 1);
+
+        int young = 0, infectedYoung = 0;
+        for(int record = 0; record < RECORDS; record++) {
+            int n = counts[base + record];
+            if(n == 0) {
+                continue;
+            }
+            int stage = record >> 2;
+            int male = (record >> 1) & 1;
+            boolean infected = (record & 1) != 0;
+            if(asleep) {
+                int survivors = n - (infected ? Randomizer.binomial(rand, n, species.getNightDiseaseDeathProbability()) : 0);
+                age(nextSchools, tile, s, stage, stages, male, infected ? 1 : 0, survivors, rand);
+                continue;
+            }
+
+            // The fish kept still by the weather only get hungrier.
+            int active = Randomizer.binomial(rand, n, moving);
+            int still = n - active;
+            int sick = infected ? active : Randomizer.binomial(rand, active, species.getInfectionProbability());
+            int healthy = active - sick;
+            sick -= Randomizer.binomial(rand, sick, species.getDiseaseDeathProbability());
+
+            // Births, by the ones old enough with a mate of the other sex,
+            // of as many young as find a free cell. A mother finds free a
+            // share of the cells around it that shrinks with how many fish
+            // moved before it, as in overcrowded, and when it moves on it
+            // lands on one of its young as often as an individual does,
+            // whose free cells were counted before it gave birth.
+            int mates = sexes[1 - male];
+            double mateProbability = 1 - Math.pow(1 - 0.5 * mates / cells, species.getSensing().size());
+            double breeding = breedingShare(species, stage) * mateProbability * species.getBreedingProbability();
+            int mothers = Randomizer.binomial(rand, healthy + sick, breeding);
+            int infectedMothers = Randomizer.binomial(rand, mothers, (double) sick / Math.max(1, healthy + sick));
+            for(int m = 0; m < mothers; m++) {
+                int free = Randomizer.binomial(rand, neighbours, 1 - occupied * rand.nextDouble());
+                int litter = Math.min(free, rand.nextInt(species.getMaxLitterSize()) + 1);
+                if(litter > 0 && rand.nextInt(free) < litter) {
+                    litter--;
+                }
+                young += litter;
+                if(m < infectedMothers || infectedSexes[1 - male] > 0) {
+                    infectedYoung += Randomizer.binomial(rand, litter, Animal.INHERIT_PROBABILITY);
+                }
+            }
+            // A healthy mother with an infected mate might catch it.
+            double mateInfected = (double) infectedSexes[1 - male] / Math.max(1, mates);
+            int caught = Randomizer.binomial(rand, mothers - infectedMothers,
+                                             mateInfected * species.getTransmissionProbability());
+            healthy -= caught;
+            sick += caught;
+
+            // Eating, and starving or dying of overcrowding.
+            int eaters = Math.min(algae, Randomizer.binomial(rand, healthy + sick, eating));
+            for(int e = 0; e < eaters; e++) {
+                int pick = rand.nextInt(algae);
+                current.getAlgae().remove(algaeCells[pick]);
+                algaeCells[pick] = algaeCells[--algae];
+            }
+            healthy -= Randomizer.binomial(rand, healthy, starving);
+            sick -= Randomizer.binomial(rand, sick, starving);
+            healthy -= Randomizer.binomial(rand, healthy, overcrowded);
+            sick -= Randomizer.binomial(rand, sick, overcrowded);
+            int stillHealthy = infected ? 0 : still;
+            int stillSick = infected ? still : 0;
+            stillHealthy -= Randomizer.binomial(rand, stillHealthy, starving);
+            stillSick -= Randomizer.binomial(rand, stillSick, starving);
+
+            // The active ones might swim into another tile.
+            int movingHealthy = Randomizer.binomial(rand, healthy, LEAVE_PROBABILITY);
+            int movingSick = Randomizer.binomial(rand, sick, LEAVE_PROBABILITY);
+            swim(nextSchools, tile, s, stage, stages, male, 0, movingHealthy, rand);
+            swim(nextSchools, tile, s, stage, stages, male, 1, movingSick, rand);
+            age(nextSchools, tile, s, stage, stages, male, 0, healthy - movingHealthy + stillHealthy, rand);
+            age(nextSchools, tile, s, stage, stages, male, 1, sick - movingSick + stillSick, rand);
+        }
+        int males = Randomizer.binomial(rand, young, 0.5);
+        int infectedMales = Randomizer.binomial(rand, infectedYoung, 0.5);
+        nextSchools.add(tile, s, 0, young - males - (infectedYoung - infectedMales));
+        nextSchools.add(tile, s, 1, infectedYoung - infectedMales);
+        nextSchools.add(tile, s, 2, males - infectedMales);
+        nextSchools.add(tile, s, 2 | 1, infectedMales);
+        return algae;
+    }
+
+    /**
+     * Make fish one step older in the next schools: some of them reach
+     * the next stage, and the ones in the last stage die of old age.
+     * The stage of a fish ends with a likelihood of one over its length,
+     * so the fish live as long on average as an individual does.
+     *
+     * @param nextSchools The schools of the next field.
+     * @param tile The tile they end up in.
+     * @param s The position of the species among the schooling ones.
+     * @param stage Their stage.
+     * @param stages The number of stages of the species.
+     * @param male 1 for males, 0 for females.
+     * @param infected 1 if they have the disease, 0 if not.
+     * @param n The number of fish.
+     * @param rand The random generator of the world.
+     */
+    private void age(SchoolLayer nextSchools, int tile, int s, int stage, int stages,
+                     int male, int infected, int n, Random rand)
+    {
+        if(n <= 0) {
+            return;
+        }
+        int older = Randomizer.binomial(rand, n, 1.0 / stageLength(SCHOOLING[s], stage));
+        int sex = male << 1 | infected;
+        nextSchools.add(tile, s, stage << 2 | sex, n - older);
+        if(stage + 1 < stages) {
+            nextSchools.add(tile, s, (stage + 1) << 2 | sex, older);
+        }
+    }
+
+    /**
+     * Spread fish leaving a tile over the tiles around it, and make them
+     * older.
+     *
+     * @param nextSchools The schools of the next field.
+     * @param tile The tile they leave.
+     * @param s The position of the species among the schooling ones.
+     * @param stage Their stage.
+     * @param stages The number of stages of the species.
+     * @param male 1 for males, 0 for females.
+     * @param infected 1 if they have the disease, 0 if not.
+     * @param n The number of fish.
+     * @param rand The random generator of the world.
+     */
+    private void swim(SchoolLayer nextSchools, int tile, int s, int stage, int stages,
+                      int male, int infected, int n, Random rand)
+    {
+        if(n == 0) {
+            return;
+        }
+        int row = tile / tileCols;
+        int col = tile % tileCols;
+        int[] around = new int[8];
+        int count = 0;
+        for(int dr = -1; dr <= 1; dr++) {
+            for(int dc = -1; dc <= 1; dc++) {
+                int r = row + dr;
+                int c = col + dc;
+                if((dr != 0 || dc != 0) && r >= 0 && r < tileRows && c >= 0 && c < tileCols) {
+                    around[count++] = r * tileCols + c;
+                }
+            }
+        }
+        // Every tile left gets its share of the ones not placed yet.
+        for(int k = 0; k < count && n > 0; k++) {
+            int here = k == count - 1 ? n : Randomizer.binomial(rand, n, 1.0 / (count - k));
+            age(nextSchools, around[k], s, stage, stages, male, infected, here, rand);
+            n -= here;
+        }
+    }
+
+    /**
+     * Kill the fish a tile has no room for: a tile holds at most as many
+     * fish of schools as it has open cells without an animal.
+     *
+     * @param next The next field, with its animals placed.
+     * @param rand The random generator of the world.
+     */
+    private void crowd(Field next, Random rand)
+    {
+        for(int tile = 0; tile < tiles; tile++) {
+            int fish = 0;
+            for(int s = 0; s < SCHOOLING.length; s++) {
+                fish += totals[tile * SCHOOLING.length + s];
+            }
+            if(fish == 0) {
+                continue;
+            }
+            int room = openCells[tile] - countAnimals(next, tile);
+            for(int excess = fish - Math.max(0, room); excess > 0; excess--) {
+                removeOne(tile, SCHOOLING_MASK, rand);
+            }
+        }
+    }
+
+    /**
+     * Let the individuals of a species join the school of their tile
+     * where together they fill enough of it, and break up the schools
+     * that thinned out into individuals in free cells of their tile.
+     *
+     * @param next The next field, with its animals placed.
+     * @param rand The random generator of the world.
+     */
+    private void regroup(Field next, Random rand)
+    {
+        int[] individuals = new int[tiles * SCHOOLING.length];
+        for(int s = 0; s < SCHOOLING.length; s++) {
+            for(Animal anAnimal : next.getAnimals(SCHOOLING[s])) {
+                if(anAnimal.isAlive() && next.getAnimalAt(anAnimal.getLocation()) == anAnimal) {
+                    individuals[tileOf(anAnimal.getLocation()) * SCHOOLING.length + s]++;
+                }
+            }
+        }
+        for(int s = 0; s < SCHOOLING.length; s++) {
+            Species species = SCHOOLING[s];
+            List<Animal> group = next.getAnimals(species);
+            for(int i = 0; i < group.size(); i++) {
+                Animal anAnimal = group.get(i);
+                if(!anAnimal.isAlive() || next.getAnimalAt(anAnimal.getLocation()) != anAnimal) {
+                    continue;
+                }
+                int tile = tileOf(anAnimal.getLocation());
+                int key = tile * SCHOOLING.length + s;
+                if(individuals[key] + totals[key] >= JOIN_DENSITY * openCells[tile]) {
+                    int stage = Math.min(stagesOf(species) - 1, anAnimal.getAge() / STAGE_STEPS);
+                    add(tile, s, stage << 2 | (anAnimal.getIsMale() ? 2 : 0) | (anAnimal.isInfected() ? 1 : 0), 1);
+                    // It lives on in the school, and the field drops it
+                    // when it is tidied.
+                    anAnimal.setDead(LineageLog.Cause.SCHOOLED);
+                }
+            }
+        }
+        for(int tile = 0; tile < tiles; tile++) {
+            for(int s = 0; s < SCHOOLING.length; s++) {
+                int key = tile * SCHOOLING.length + s;
+                if(totals[key] > 0 && totals[key] + individuals[key] < BREAK_UP_DENSITY * openCells[tile]) {
+                    breakUp(next, tile, s, rand);
+                }
+            }
+        }
+    }
+
+    /**
+     * Turn the fish of a school into individuals in free cells of its
+     * tile, with an age within their stage and a random food level. The
+     * schools keep no genomes, so when the world evolves every fish gets
+     * traits drawn from the individuals of its species in the field, and
+     * in a lineage log they start new families. The ones that find no
+     * free cell stay in the school.
+     *
+     * @param next The next field, with its animals placed.
+     * @param tile The tile.
+     * @param s The position of the species among the schooling ones.
+     * @param rand The random generator of the world.
+     */
+    private void breakUp(Field next, int tile, int s, Random rand)
+    {
+        Species species = SCHOOLING[s];
+        Terrain terrain = next.getEnvironment().getTerrain();
+        boolean evolution = next.getEnvironment().hasEvolution();
+        LineageLog lineage = next.getEnvironment().getLineage();
+        int[] free = new int[1 << (2 * TILE_SHIFT)];
+        int found = 0;
+        int top = (tile / tileCols) << TILE_SHIFT;
+        int left = (tile % tileCols) << TILE_SHIFT;
+        // The cells of the school itself are free for its fish, so it is
+        // left out while the free cells are found.
+        int key = tile * SCHOOLING.length + s;
+        int total = totals[key];
+        totals[key] = 0;
+        for(int row = top; row < Math.min(depth, top + (1 << TILE_SHIFT)); row++) {
+            for(int col = left; col < Math.min(width, left + (1 << TILE_SHIFT)); col++) {
+                int cell = row * width + col;
+                if(next.isFree(cell) && (terrain == null || terrain.isOpen(cell))) {
+                    free[found++] = cell;
+                }
+            }
+        }
+        totals[key] = total;
+        int base = (tile * SCHOOLING.length + s) * RECORDS;
+        for(int record = 0; record < RECORDS && found > 0; record++) {
+            while(counts[base + record] > 0 && found > 0) {
+                int pick = rand.nextInt(found);
+                int cell = free[pick];
+                free[pick] = free[--found];
+                int stage = record >> 2;
+                int age = stage * STAGE_STEPS + rand.nextInt(stageLength(species, stage));
+                Location location = next.locationOf(cell);
+                Animal anAnimal = new Animal(species, location, (record & 2) != 0, (record & 1) != 0,
+                                             age, 1 + rand.nextInt(species.getFoodValue()));
+                if(evolution) {
+                    anAnimal.setGenome(next.getTraitHistograms().sample(species, rand));
+                }
+                if(lineage != null) {
+                    anAnimal.startLineage(lineage, 0, 0);
+                }
+                next.placeAnimal(anAnimal, location);
+                add(tile, s, record, -1);
+            }
+        }
+    }
+
+    /**
+     * Remove the fish in a cell, caught by a predator. The count of its
+     * tile drops, so one fewer cell of the tile holds a fish of the
+     * species.
+     *
+     * @param location The cell, holding a fish of a school.
+     * @param rand The random generator to use.
+     */
+    public void catchAt(Location location, Random rand)
+    {
+        removeOne(tileOf(location), getSchoolAt(location.row() * width + location.col()).bit(), rand);
+    }
+
+    /**
+     * Remove one fish, picked at random, of some species from a tile.
+     *
+     * @param tile The tile.
+     * @param mask The bits of the species it can be.
+     * @param rand The random generator to use.
+     */
+    private void removeOne(int tile, int mask, Random rand)
+    {
+        int fish = 0;
+        for(int s = 0; s < SCHOOLING.length; s++) {
+            if((mask & SCHOOLING[s].bit()) != 0) {
+                fish += totals[tile * SCHOOLING.length + s];
+            }
+        }
+        int pick = rand.nextInt(fish);
+        for(int s = 0; s < SCHOOLING.length; s++) {
+            if((mask & SCHOOLING[s].bit()) == 0) {
+                continue;
+            }
+            int base = (tile * SCHOOLING.length + s) * RECORDS;
+            for(int record = 0; record < RECORDS; record++) {
+                if(pick < counts[base + record]) {
+                    add(tile, s, record, -1);
+                    return;
+                }
+                pick -= counts[base + record];
+            }
+        }
+    }
+
+    /**
+     * Change the count of a record.
+     *
+     * @param tile The tile.
+     * @param s The position of the species among the schooling ones.
+     * @param record The record.
+     * @param n The number of fish added, or removed if negative.
+     */
+    private void add(int tile, int s, int record, int n)
+    {
+        counts[(tile * SCHOOLING.length + s) * RECORDS + record] += n;
+        totals[tile * SCHOOLING.length + s] += n;
+    }
+
+    /**
+     * Collect the cells of a tile holding algae.
+     *
+     * @param field The field.
+     * @param tile The tile.
+     * @param cells Where the cells are stored.
+     * @return The number of cells found.
+     */
+    private int findAlgae(Field field, int tile, int[] cells)
+    {
+        AlgaeLayer algae = field.getAlgae();
+        int found = 0;
+        int top = (tile / tileCols) << TILE_SHIFT;
+        int left = (tile % tileCols) << TILE_SHIFT;
+        for(int row = top; row < Math.min(depth, top + (1 << TILE_SHIFT)); row++) {
+            for(int col = left; col < Math.min(width, left + (1 << TILE_SHIFT)); col++) {
+                if(algae.has(row * width + col)) {
+                    cells[found++] = row * width + col;
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Count the live animals in a tile.
+     *
+     * @param field The field.
+     * @param tile The tile.
+     * @return The number of animals.
+     */
+    private int countAnimals(Field field, int tile)
+    {
+        int animals = 0;
+        int top = (tile / tileCols) << TILE_SHIFT;
+        int left = (tile % tileCols) << TILE_SHIFT;
+        for(int row = top; row < Math.min(depth, top + (1 << TILE_SHIFT)); row++) {
+            for(int col = left; col < Math.min(width, left + (1 << TILE_SHIFT)); col++) {
+                if(field.hasLiveAnimal(row * width + col)) {
+                    animals++;
+                }
+            }
+        }
+        return animals;
+    }
+
+    /**
+     * Return the number of open cells of every tile, counting them again
+     * if the terrain changed.
+     *
+     * @param terrain The terrain of the world, or null.
+     * @return The open cells of every tile.
+     */
+    private int[] getOpenCells(Terrain terrain)
+    {
+        if(openCells != null && countedTerrain == terrain) {
+            return openCells;
+        }
+        openCells = new int[tiles];
+        for(int row = 0; row < depth; row++) {
+            for(int col = 0; col < width; col++) {
+                if(terrain == null || terrain.isOpen(row * width + col)) {
+                    openCells[(row >> TILE_SHIFT) * tileCols + (col >> TILE_SHIFT)]++;
+                }
+            }
+        }
+        countedTerrain = terrain;
+        return openCells;
+    }
+
+    /**
+     * @param location A location within the field.
+     * @return The tile it is in.
+     */
+    private int tileOf(Location location)
+    {
+        return (location.row() >> TILE_SHIFT) * tileCols + (location.col() >> TILE_SHIFT);
+    }
+
+    /**
+     * @param tile A tile.
+     * @return The cell in the middle of it, or the last one of an edge tile.
+     */
+    private int centreOf(int tile)
+    {
+        int row = Math.min(depth - 1, ((tile / tileCols) << TILE_SHIFT) + (1 << (TILE_SHIFT - 1)));
+        int col = Math.min(width - 1, ((tile % tileCols) << TILE_SHIFT) + (1 << (TILE_SHIFT - 1)));
+        return row * width + col;
+    }
+
+    /**
+     * Return whether the fish of the schools sleep through a step, so
+     * they stay in their cells.
+     *
+     * @param environment The environment of the world.
+     * @return true If any schooling species is asleep.
+     */
+    public static boolean isAsleep(Environment environment)
+    {
+        for(Species species : SCHOOLING) {
+            if(species.isDiurnal() && !environment.isDay()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Return the schooling species of the fish in a cell. The fish of a
+     * tile take its cells in a fixed order that scatters them over the
+     * tile, one species after the other, so a tile with n fish has them
+     * in the first n cells of the order. Animals, algae and predators
+     * find them there.
+     *
+     * @param cell The cell index (row * width + col).
+     * @return The species, or null if no fish of a school is there.
+     */
+    public Species getSchoolAt(int cell)
+    {
+        int row = cell / width;
+        int col = cell % width;
+        int tile = (row >> TILE_SHIFT) * tileCols + (col >> TILE_SHIFT);
+        int place = (row & ((1 << TILE_SHIFT) - 1)) << TILE_SHIFT | (col & ((1 << TILE_SHIFT) - 1));
+        // An odd multiplier shuffles the places of a tile.
+        place = place * SCATTER & ((1 << (2 * TILE_SHIFT)) - 1);
+        for(int s = 0; s < SCHOOLING.length; s++) {
+            place -= totals[tile * SCHOOLING.length + s];
+            if(place < 0) {
+                return SCHOOLING[s];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param species A species.
+     * @return The number of its fish in schools.
+     */
+    public int getCount(Species species)
+    {
+        int s = SCHOOL_INDEX[species.id()];
+        if(s < 0) {
+            return 0;
+        }
+        int count = 0;
+        for(int tile = 0; tile < tiles; tile++) {
+            count += totals[tile * SCHOOLING.length + s];
+        }
+        return count;
+    }
+
+    /**
+     * Return a hash of the counts, worked out from scratch.
+     *
+     * @return The hash of the schools.
+     */
+    public long getHash()
+    {
+        long hash = 0;
+        int perTile = SCHOOLING.length * RECORDS;
+        for(int i = 0; i < counts.length; i++) {
+            if(counts[i] != 0) {
+                hash ^= Zobrist.mix(Zobrist.key(i / perTile, HASH_STATE_BASE + i % perTile) + counts[i]);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * @param species A schooling species.
+     * @return The number of its age stages.
+     */
+    private static int stagesOf(Species species)
+    {
+        return species.getMaxAge() / STAGE_STEPS + 1;
+    }
+
+    /**
+     * Return how likely a fish is to starve in a step. A fish's food
+     * level drops by one every step and is back to full when it eats, so
+     * over time the levels of the fish of a school settle on a share
+     * falling by 1 - fed for every level further from full, and the ones
+     * starving are the ones on the last level that do not eat.
+     *
+     * @param fed The likelihood of a fish eating in a step.
+     * @param foodValue The food level of a fish that has just eaten.
+     * @return The likelihood of starving.
+     */
+    private static double starvingProbability(double fed, int foodValue)
+    {
+        if(fed <= 0) {
+            return 1.0 / foodValue;
+        }
+        double hungry = Math.pow(1 - fed, foodValue);
+        return fed * hungry / (1 - hungry);
+    }
+
+    /**
+     * @param species A schooling species.
+     * @param stage One of its stages.
+     * @return The number of ages in the stage.
+     */
+    private static int stageLength(Species species, int stage)
+    {
+        return Math.min(STAGE_STEPS, species.getMaxAge() + 1 - stage * STAGE_STEPS);
+    }
+
+    /**
+     * @param species A schooling species.
+     * @param stage One of its stages.
+     * @return The share of the ages of the stage old enough to breed.
+     */
+    private static double breedingShare(Species species, int stage)
+    {
+        int first = stage * STAGE_STEPS;
+        int length = stageLength(species, stage);
+        int old = Math.max(0, Math.min(length, first + length - species.getBreedingAge()));
+        return (double) old / length;
+    }
+
+    /**
+     * @return The species run as schools.
+     */
+    private static Species[] schoolingSpecies()
+    {
+        return Arrays.stream(Species.values()).filter(Species::isSchooling).toArray(Species[]::new);
+    }
+
+    /**
+     * @return The position of every species among the schooling ones.
+     */
+    private static int[] schoolIndices()
+    {
+        int[] index = new int[Species.values().length];
+        Arrays.fill(index, -1);
+        for(int s = 0; s < SCHOOLING.length; s++) {
+            index[SCHOOLING[s].id()] = s;
+        }
+        return index;
+    }
+
+    /**
+     * @return A mask with the bit of every schooling species set.
+     */
+    private static int schoolingMask()
+    {
+        int mask = 0;
+        for(Species species : SCHOOLING) {
+            mask |= species.bit();
+        }
+        return mask;
+    }
+
+    /**
+     * @return The number of age stages of the longest lived schooling species.
+     */
+    private static int stages()
+    {
+        int stages = 1;
+        for(Species species : SCHOOLING) {
+            stages = Math.max(stages, stagesOf(species));
+        }
+        return stages;
+    }
+}
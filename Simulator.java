@@ -14,40 +14,51 @@ public class Simulator
     private static final int DEFAULT_WIDTH = 120;
     // The default depth of the grid.
     private static final int DEFAULT_DEPTH = 80;
+    // The number of animals of one species acting together in the batched mode.
+    // Kept small so that no species acts as a block for long.
+    private static final int BATCH_SIZE = 16;
+    // The animals sorted by where they are are grouped in tiles of
+    // 16 x 16 cells.
+    private static final int SPATIAL_TILE_SHIFT = 4;
 
-    // The probability that a swordfish will be created in any given grid position.
-    private static final double SWORDFISH_CREATION_PROBABILITY = 0.01;
-
-    // The probability that a trutle will be created in any given position.
-    private static final double TURTLE_CREATION_PROBABILITY = 0.14;
-
-    // The probability that a parrotfish will be created in any given position.
-    private static final double PARROTFISH_CREATION_PROBABILITY = 0.145;
-
-    // The probability that a clownfish will be created in any given position.
-    private static final double CLOWNFISH_CREATION_PROBABILITY = 0.145;
-
-    // The probability that a white shark will be created in any given position.
-    private static final double WHITESHARK_CREATION_PROBABILITY = 0.03;
-
-    // The probability that a killer whale will be created in any given position.
-    private static final double KILLERWHALE_CREATION_PROBABILITY = 0.008;
-
-    // The probability that a algae will be created in any given position.
-    private static final double ALGAE_CREATION_PROBABILITY = 0.5;
-
-    // The current state of the field.
+    // The dimensions of the field.
+    private final int depth, width;
+    // The number of layers of the water column, 1 for a flat world.
+    private int layerCount = 1;
+    // Whether the dense groups of the schooling species are run as
+    // schools (see SchoolLayer).
+    private boolean schools;
+    // The current state of the field, of the top layer in a water
+    // column, with the fields of the layers below linked to it.
     private Field field;
+    // Whether the current field is shared with other branches of a fork,
+    // so it has to be copied before this simulation changes it.
+    private boolean fieldShared;
     // The current step of the simulation.
     private int step;
-    // A graphical view of the simulation.
+    // A graphical view of the simulation, null when running without one.
     private final SimulatorView view;
+    // How the animals are run in every step.
+    private ExecutionMode mode = ExecutionMode.LIST;
+    // Whether sleeping animals skip the act loop.
+    private boolean skipDormant = true;
+    // Whether the rare events are drawn for each species at once.
+    private boolean sampleEvents = true;
+    // The number of steps between sorting the animals by where they are,
+    // 0 to never sort them.
+    private int spatialOrderInterval;
+    // What the predators see beyond their neighbours in every layer, or
+    // null.
+    private PreyVision[] visions;
+    // Which species are asleep in the current step, indexed by the species id.
+    private final boolean[] dormant = new boolean[Species.values().length];
+    // How often the threads of the ATOMIC mode got in each other's way.
+    private final ClaimStats claimStats = new ClaimStats();
+    // The age and hunger pass of the BATCHED mode.
+    private final Bookkeeping bookkeeping = new Bookkeeping();
 
-    // An instance of time to keep track of it in the simulator.
-    private static Time time = new Time();
-
-    // An instance of WeatherManager for the simulation to have a view of it.
-    public static final WeatherManager weatherManager = new WeatherManager();
+    // The time, weather and random generator of the simulated world.
+    private final Environment environment;
 
     /**
      * Construct a simulation field with default size.
@@ -64,6 +75,35 @@ public class Simulator
      * @param width Width of the field. Must be greater than zero.
      */
     public Simulator(int depth, int width)
+    {
+        this(depth, width, true);
+    }
+
+    /**
+     * Create a simulation field with the given size, with or without a
+     * graphical view. Without a view the statistics are not printed
+     * either, which is how the benchmarks run it.
+     * 
+     * @param depth Depth of the field. Must be greater than zero.
+     * @param width Width of the field. Must be greater than zero.
+     * @param showView Whether to show the graphical view.
+     */
+    public Simulator(int depth, int width, boolean showView)
+    {
+        this(depth, width, showView, Randomizer.getRandom());
+    }
+
+    /**
+     * Create a simulation field with the given size, drawing all its
+     * random numbers from the given generator, so several simulations
+     * can run side by side without sharing one.
+     * 
+     * @param depth Depth of the field. Must be greater than zero.
+     * @param width Width of the field. Must be greater than zero.
+     * @param showView Whether to show the graphical view.
+     * @param random The random generator of the simulation.
+     */
+    public Simulator(int depth, int width, boolean showView, Random random)
     {
         if(width <= 0 || depth <= 0) {
             System.out.println("The dimensions must be >= zero.");
@@ -71,11 +111,287 @@ public class Simulator
             depth = DEFAULT_DEPTH;
             width = DEFAULT_WIDTH;
         }
+        this.depth = depth;
+        this.width = width;
+        environment = new Environment(random);
 
-        view = new SimulatorView(depth, width);
+        view = showView ? new SimulatorView(depth, width) : null;
         reset();
     }
 
+    /**
+     * Create a simulation of an already populated field, without a view,
+     * like the stripe of a larger world run by a worker process. The
+     * clock and weather of the field's environment are reset as by
+     * reset(), but the field is kept.
+     * 
+     * @param field The populated field.
+     */
+    Simulator(Field field)
+    {
+        depth = field.getDepth();
+        width = field.getWidth();
+        environment = field.getEnvironment();
+        environment.reset();
+        this.field = field;
+        view = null;
+    }
+
+    /**
+     * Create a branch of a simulation, which starts from the same field,
+     * time and weather and settings but draws its own random numbers.
+     * The field is shared with the parent until one of them changes it.
+     * 
+     * @param parent The simulation to branch from.
+     * @param random The random generator of the branch.
+     */
+    private Simulator(Simulator parent, Random random)
+    {
+        depth = parent.depth;
+        width = parent.width;
+        environment = new Environment(parent.environment, random);
+        field = parent.field;
+        fieldShared = true;
+        step = parent.step;
+        mode = parent.mode;
+        skipDormant = parent.skipDormant;
+        sampleEvents = parent.sampleEvents;
+        spatialOrderInterval = parent.spatialOrderInterval;
+        layerCount = parent.layerCount;
+        schools = parent.schools;
+        if(parent.visions != null) {
+            setVisionRadius(parent.visions[0].getRadius());
+        }
+        view = null;
+    }
+
+    /**
+     * Fork the simulation into branches that carry on from its current
+     * state, to compare what happens after different changes to the
+     * world. Forking does not copy the field: the parent and its branches
+     * share it and each one copies it the first time it steps or hands
+     * it out, so the branches can be stepped in parallel, each with its
+     * own stream of random numbers.
+     * 
+     * @param branches The number of branches.
+     * @param seed The seed the branches' random streams are derived from.
+     * @return The branches.
+     */
+    public List<Simulator> fork(int branches, long seed)
+    {
+        fieldShared = true;
+        List<Simulator> forks = new ArrayList<>(branches);
+        for(int b = 0; b < branches; b++) {
+            forks.add(new Simulator(this, Randomizer.newStream(seed, b)));
+        }
+        return forks;
+    }
+
+    /**
+     * Make sure the current field belongs to this simulation only,
+     * copying it if it is shared with a fork.
+     */
+    private void ownField()
+    {
+        if(fieldShared) {
+            field = field.copyColumn(environment);
+            fieldShared = false;
+        }
+    }
+
+    /**
+     * Choose how the animals are run in every step.
+     * 
+     * @param mode The execution mode.
+     */
+    public void setExecutionMode(ExecutionMode mode)
+    {
+        this.mode = mode;
+    }
+
+    /**
+     * Choose whether the animals sleeping through a night step are carried
+     * into the next field together instead of each running its act.
+     * 
+     * @param skipDormant true To skip the act of sleeping animals.
+     */
+    public void setSkipDormant(boolean skipDormant)
+    {
+        this.skipDormant = skipDormant;
+    }
+
+    /**
+     * Choose whether the rare events of a step (catching the disease,
+     * dying of it and being kept still by the weather) are drawn for
+     * each species at once instead of every animal rolling for them.
+     * 
+     * @param sampleEvents true To draw the events for each species.
+     */
+    public void setSampleEvents(boolean sampleEvents)
+    {
+        this.sampleEvents = sampleEvents;
+    }
+
+    /**
+     * Choose how often the animals are sorted by where they are before a
+     * step (see Field.sortBySpace), so the ones acting one after another
+     * are close together.
+     * 
+     * @param interval The number of steps between sorts, 0 to never sort.
+     */
+    public void setSpatialOrder(int interval)
+    {
+        this.spatialOrderInterval = interval;
+    }
+
+    /**
+     * Let the predators see their prey further than their neighbours.
+     * When they find no food next to them they move towards the nearest
+     * prey they see (see PreyVision).
+     * 
+     * @param radius How many cells away they see, 0 for only their neighbours.
+     */
+    public void setVisionRadius(int radius)
+    {
+        visions = null;
+        if(radius > 0) {
+            visions = new PreyVision[layerCount];
+            for(int layer = 0; layer < layerCount; layer++) {
+                visions[layer] = new PreyVision(radius);
+            }
+        }
+    }
+
+    /**
+     * Make the world a water column of several layers, from the surface
+     * down to the seabed (see WaterLayer), each a field of its own, and
+     * start again from a new world. Every species lives in some of the
+     * layers, and an animal that finds no food sometimes swims to the
+     * layer above or below. Only the LIST and BATCHED modes move animals
+     * between layers, the others run every layer on its own.
+     * 
+     * @param layers The number of layers, 1 for a flat world.
+     */
+    public void setWaterColumn(int layers)
+    {
+        if(layers < 1) {
+            throw new IllegalArgumentException("A water column has at least one layer");
+        }
+        layerCount = layers;
+        if(visions != null) {
+            setVisionRadius(visions[0].getRadius());
+        }
+        reset();
+    }
+
+    /**
+     * Run the dense groups of the schooling species as counts of fish in
+     * tiles of the field instead of one animal per fish (see
+     * SchoolLayer), or every fish on its own, and start again from a new
+     * world. Predators only hunt the schools in the LIST and BATCHED
+     * modes.
+     * 
+     * @param on true For schools, false for individuals only.
+     */
+    public void setSchools(boolean on)
+    {
+        schools = on;
+        reset();
+    }
+
+    /**
+     * Let the young inherit the traits of their parents, with the odd
+     * mutation, and give the first animals varied traits (see Genome), or
+     * give every animal the neutral genome, and start again from a new
+     * world.
+     * 
+     * @param on true For evolution, false for the same traits everywhere.
+     */
+    public void setEvolution(boolean on)
+    {
+        environment.setEvolution(on);
+        reset();
+    }
+
+    /**
+     * Log the birth and death of every animal, with the ids of its
+     * parents, into a lineage log (see LineageLog), or stop logging, and
+     * start again from a new world whose animals are the first
+     * generation. The log is not closed here.
+     * 
+     * @param log The log, or null.
+     */
+    public void setLineageLog(LineageLog log)
+    {
+        environment.setLineage(log);
+        reset();
+    }
+
+    /**
+     * Give every cell its own nutrients, temperature and currents (see
+     * OceanLayers), which the algae and animals feel instead of the
+     * weather of the whole world.
+     * 
+     * @param on true To use the layers, false for the same weather everywhere.
+     */
+    public void setOceanLayers(boolean on)
+    {
+        environment.setLayers(on ? new OceanLayers(depth, width) : null);
+    }
+
+    /**
+     * Give the world rock, where nothing can be, and reef, the only ground
+     * algae grow on (see Terrain), or take them away, and start again
+     * from a new world.
+     * 
+     * @param terrain The terrain, the size of the field, or null for open
+     *                water everywhere.
+     */
+    public void setTerrain(Terrain terrain)
+    {
+        if(terrain != null && (terrain.getDepth() != depth || terrain.getWidth() != width)) {
+            throw new IllegalArgumentException("The terrain must be the size of the field");
+        }
+        environment.setTerrain(terrain);
+        reset();
+    }
+
+    /**
+     * Let fog banks and cold fronts drift over the world instead of one
+     * weather for the whole world (see RegionalWeather). Their generator
+     * is seeded from the world's one.
+     * 
+     * @param on true For regional weather, false for the same weather everywhere.
+     */
+    public void setRegionalWeather(boolean on)
+    {
+        RegionalWeather regional = null;
+        if(on) {
+            regional = new RegionalWeather(depth, width, environment.getRandom().nextLong());
+        }
+        environment.setRegionalWeather(regional);
+    }
+
+    /**
+     * Return the current state of the field. If it is shared with a fork
+     * it is copied first, so it can be changed.
+     * 
+     * @return The current state of the field.
+     */
+    public Field getField()
+    {
+        ownField();
+        return field;
+    }
+
+    /**
+     * @return The current step of the simulation.
+     */
+    public int getStep()
+    {
+        return step;
+    }
+
     /**
      * Run the simulation from its current state for a reasonably long 
      * period (4000 steps).
@@ -94,7 +410,7 @@ public class Simulator
     public void simulate(int numSteps)
     {
         reportStats();
-        for(int n = 1; n <= numSteps && field.isViable(); n++) {
+        for(int n = 1; n <= numSteps && isViable(); n++) {
             simulateOneStep();
             delay(50);         // Adjust this to change execution speed
         }
@@ -107,87 +423,334 @@ public class Simulator
      */
     public void simulateOneStep()
     {
-        time.increment();
-        weatherManager.update(1.0);
+        commitStep(advanceStep());
+    }
+
+    /**
+     * Run the first part of a step: every organism acts and the next
+     * state of the field is built, but it does not replace the current
+     * one yet, so a worker can exchange what crossed its borders first.
+     * 
+     * @return The next state of the field, not tidied yet.
+     */
+    Field advanceStep()
+    {
+        ownField();
+        int layer = 0;
+        for(Field current = field; current != null; current = current.getBelow()) {
+            if(spatialOrderInterval > 0 && step % spatialOrderInterval == 0) {
+                current.sortBySpace(SPATIAL_TILE_SHIFT, environment.getRandom());
+            }
+            PreyVision vision = visions == null ? null : visions[layer++];
+            if(vision != null) {
+                vision.update(current);
+            }
+            current.setPreyVision(vision);
+        }
+        environment.step();
         step++;
+        LineageLog lineage = environment.getLineage();
+        if(lineage != null) {
+            lineage.setStep(step);
+        }
+        OceanLayers layers = environment.getLayers();
+        if(layers != null) {
+            // The algae of every layer feed on the nutrients of the column.
+            AlgaeLayer[] algae = new AlgaeLayer[layerCount];
+            layer = 0;
+            for(Field current = field; current != null; current = current.getBelow()) {
+                algae[layer++] = current.getAlgae();
+            }
+            layers.step(algae, environment.getCurrentWeather() == Weather.COLD, environment.isDay());
+        }
         // Use a separate Field to store the starting state of
-        // the next step.
-        Field nextFieldState = new Field(field.getDepth(), field.getWidth());
+        // the next step, one for every layer.
+        Field nextFieldState = Field.column(field.getDepth(), field.getWidth(), environment, layerCount);
+
+        for(Species species : Species.values()) {
+            dormant[species.id()] = skipDormant && species.isDiurnal() && !environment.isDay();
+        }
+        // The sleepers of every layer take their cells before anyone
+        // can swim into them from another layer.
+        for(Field current = field, next = nextFieldState; current != null;
+            current = current.getBelow(), next = next.getBelow()) {
+            carryDormant(current, next);
+        }
+        for(Field current = field; current != null; current = current.getBelow()) {
+            if(sampleEvents) {
+                drawEvents(current);
+            }
+            current.setEventsDrawn(sampleEvents);
+        }
 
-        List<Animal> animals = field.getAnimals();
-        for (Animal anAnimal : animals) {
-            anAnimal.act(field, nextFieldState);
+        if(schools && SchoolLayer.isAsleep(environment)) {
+            // Sleeping fish of the schools take their cells before anyone
+            // moves, like the sleepers carried over. Awake, they act after
+            // the animals, so like the animals yet to act they leave their
+            // cells free until then, and the schools then lose the fish
+            // their tiles have no room left for.
+            for(Field current = field, next = nextFieldState; current != null;
+                current = current.getBelow(), next = next.getBelow()) {
+                next.setSchools(current.getSchools());
+            }
+        }
+        for(Field current = field, next = nextFieldState; current != null;
+            current = current.getBelow(), next = next.getBelow()) {
+            actLayer(current, next);
+        }
+        if(schools) {
+            for(Field current = field, next = nextFieldState; current != null;
+                current = current.getBelow(), next = next.getBelow()) {
+                current.getSchools().act(current, next);
+            }
         }
 
-        List<Plant> plants = field.getPlants();
-        for (Plant plant : plants) {
-            plant.act(field, nextFieldState);
+        for(Field current = field, next = nextFieldState; current != null;
+            current = current.getBelow(), next = next.getBelow()) {
+            current.getAlgae().act(next);
+        }
+        return nextFieldState;
+    }
+
+    /**
+     * Run the animals of one layer in the execution mode.
+     * 
+     * @param current The current state of the layer.
+     * @param nextFieldState The new state of the layer being built.
+     */
+    private void actLayer(Field current, Field nextFieldState)
+    {
+        if(mode == ExecutionMode.BATCHED) {
+            actInBatches(current, nextFieldState);
+        }
+        else if(mode == ExecutionMode.INTENTS) {
+            new IntentStep(current, nextFieldState, dormant, environment.getRandom().nextLong()).run();
         }
+        else if(mode == ExecutionMode.ATOMIC) {
+            new AtomicStep(current, nextFieldState, dormant, environment.getRandom().nextLong(), claimStats).run();
+        }
+        else {
+            List<Animal> animals = current.getAnimals();
+            for (Animal anAnimal : animals) {
+                if(!dormant[anAnimal.getSpecies().id()]) {
+                    anAnimal.act(current, nextFieldState);
+                }
+            }
+        }
+    }
 
+    /**
+     * Finish a step: the next state of the field replaces the current one.
+     * 
+     * @param nextFieldState The next state built by advanceStep.
+     */
+    void commitStep(Field nextFieldState)
+    {
         // Replace the old state with the new one.
+        for(Field next = nextFieldState; next != null; next = next.getBelow()) {
+            next.tidy();
+        }
         field = nextFieldState;
 
-        reportStats();
-        view.showStatus(step, field);
+        if(view != null) {
+            reportStats();
+            view.showStatus(step, field);
+        }
     }
 
     /**
-     * Reset the simulation to a starting position and time.
+     * Carry the animals of every sleeping species into the next field
+     * where they are, before anyone else acts so their cells are taken.
+     * They only get older, and instead of rolling the disease for every
+     * infected sleeper the ones that die are picked by skipping ahead a
+     * random number of sleepers each time.
+     * 
+     * @param current The current state of the layer.
+     * @param nextFieldState The new state of the layer being built.
      */
-    public void reset()
+    private void carryDormant(Field current, Field nextFieldState)
     {
-        time = new Time();
-        field = new Field(DEFAULT_DEPTH, DEFAULT_WIDTH);
-        step = 0;
-        populate();
-        view.showStatus(step, field);
+        Random rand = environment.getRandom();
+        for(Species species : Species.values()) {
+            if(!dormant[species.id()]) {
+                continue;
+            }
+            List<Animal> group = current.getAnimals(species);
+            List<Animal> sleepers = new ArrayList<>(group.size());
+            List<Animal> infected = new ArrayList<>();
+            for(Animal anAnimal : group) {
+                if(anAnimal.isAlive() && anAnimal.sleep()) {
+                    sleepers.add(anAnimal);
+                    if(anAnimal.isInfected()) {
+                        infected.add(anAnimal);
+                    }
+                }
+            }
+            nextFieldState.carryOver(species, sleepers);
+
+            double deathProbability = species.getNightDiseaseDeathProbability();
+            long next = Randomizer.geometricSkip(rand, deathProbability);
+            while(next < infected.size()) {
+                infected.get((int) next).setDead(LineageLog.Cause.DISEASE);
+                next += 1L + Randomizer.geometricSkip(rand, deathProbability);
+            }
+        }
     }
 
     /**
-     * Randomly populate the field with organisms.
+     * Draw the rare events of this step for every awake species. Instead
+     * of every animal rolling a die for an event, the animals it happens
+     * to are picked by skipping a geometrically distributed number of
+     * animals each time, so the random numbers used are proportional to
+     * the events rather than to the population.
+     * 
+     * @param current The current state of the layer.
      */
-    private void populate()
+    private void drawEvents(Field current)
     {
-        Random rand = Randomizer.getRandom();
-        field.clear();
-        for(int row = 0; row < field.getDepth(); row++) {
-            for(int col = 0; col < field.getWidth(); col++) {
-                if(rand.nextDouble() <= SWORDFISH_CREATION_PROBABILITY) {
-                    Location location = new Location(row, col);
-                    Swordfish swordfish = new Swordfish(true, location);
-                    field.placeAnimal(swordfish, location);
-                }
-                else if(rand.nextDouble() <= TURTLE_CREATION_PROBABILITY) {
-                    Location location = new Location(row, col);
-                    Turtle turtle = new Turtle(true, location);
-                    field.placeAnimal(turtle, location);
-                }
-                else if(rand.nextDouble() <= PARROTFISH_CREATION_PROBABILITY) {
-                    Location location = new Location(row, col);
-                    Parrotfish parrotfish = new Parrotfish(true, location);
-                    field.placeAnimal(parrotfish, location);
+        for(Species species : Species.values()) {
+            if(dormant[species.id()]) {
+                continue;
+            }
+            List<Animal> group = current.getAnimals(species);
+            markEvents(group, Animal.INFECTION, Animal.getInfectionProbability(species, environment));
+            markEvents(group, Animal.DISEASE_DEATH, species.getDiseaseDeathProbability());
+            markEvents(group, Animal.STAY_STILL, Animal.getStayStillProbability(species, environment));
+        }
+    }
+
+    /**
+     * Mark an event on the animals of a group it happens to, each one
+     * independently with the given probability.
+     * 
+     * @param group The animals.
+     * @param event The event.
+     * @param probability The likelihood of the event for one animal.
+     */
+    private void markEvents(List<Animal> group, int event, double probability)
+    {
+        Random rand = environment.getRandom();
+        long next = Randomizer.geometricSkip(rand, probability);
+        while(next < group.size()) {
+            group.get((int) next).markEvent(event);
+            next += 1L + Randomizer.geometricSkip(rand, probability);
+        }
+    }
+
+    /**
+     * Run the animals grouped by species. The animals of every species
+     * are cut into batches, the batches of every species are spread
+     * evenly over this step's schedule from a random offset, so the
+     * species are interleaved in proportion to their numbers all through
+     * the step, and then every batch acts in its own loop.
+     * Before that the ages and food levels of every species are updated
+     * in one pass, unless the scalar bookkeeping was chosen.
+     * 
+     * @param current The current state of the layer.
+     * @param nextFieldState The new state of the layer being built.
+     */
+    private void actInBatches(Field current, Field nextFieldState)
+    {
+        Species[] allSpecies = Species.values();
+        int numBatches = 0;
+        for(Species species : allSpecies) {
+            if(dormant[species.id()]) {
+                continue;
+            }
+            numBatches += (current.getAnimals(species).size() + BATCH_SIZE - 1) / BATCH_SIZE;
+        }
+
+        // Every entry holds the place of the batch in the step in its
+        // high bits, then the batch number and the species id.
+        Random rand = environment.getRandom();
+        long[] schedule = new long[numBatches];
+        int next = 0;
+        for(Species species : allSpecies) {
+            if(dormant[species.id()]) {
+                continue;
+            }
+            int batches = (current.getAnimals(species).size() + BATCH_SIZE - 1) / BATCH_SIZE;
+            double offset = rand.nextDouble();
+            for(int batch = 0; batch < batches; batch++) {
+                long place = (long) ((batch + offset) / batches * (1 << 30));
+                schedule[next++] = place << 32 | (batch * allSpecies.length + species.id());
+            }
+        }
+        Arrays.sort(schedule);
+        if(Bookkeeping.COLUMNS) {
+            for(Species species : allSpecies) {
+                if(!dormant[species.id()]) {
+                    bookkeeping.run(current.getAnimals(species), species,
+                                    species.isDiurnal() && !environment.isDay());
                 }
-                else if(rand.nextDouble() <= WHITESHARK_CREATION_PROBABILITY) {
-                    Location location = new Location(row, col);
-                    WhiteShark whiteShark = new WhiteShark(true, location);
-                    field.placeAnimal(whiteShark, location);
+            }
+        }
+
+        for(long place : schedule) {
+            int entry = (int) place;
+            List<Animal> animals = current.getAnimals(allSpecies[entry % allSpecies.length]);
+            int start = (entry / allSpecies.length) * BATCH_SIZE;
+            int end = Math.min(start + BATCH_SIZE, animals.size());
+            for(int i = start; i < end; i++) {
+                Animal anAnimal = animals.get(i);
+                if(!Bookkeeping.COLUMNS) {
+                    anAnimal.act(current, nextFieldState);
                 }
-                else if(rand.nextDouble() <= KILLERWHALE_CREATION_PROBABILITY) {
-                    Location location = new Location(row, col);
-                    KillerWhale killerwhale = new KillerWhale(true, location);
-                    field.placeAnimal(killerwhale, location);
+                else if(anAnimal.isAlive()) {
+                    anAnimal.actBooked(current, nextFieldState);
                 }
-                else if(rand.nextDouble() <= CLOWNFISH_CREATION_PROBABILITY) {
-                    Location location = new Location(row, col);
-                    Clownfish clownfish = new Clownfish(true, location);
-                    field.placeAnimal(clownfish, location);
+            }
+        }
+    }
+
+    /**
+     * Reset the simulation to a starting position and time. The live
+     * animals of a logged world leave the lineage log as OTHER, and the
+     * log's steps carry on after the old world's.
+     */
+    public void reset()
+    {
+        if(field != null) {
+            for(Field layer = field; layer != null; layer = layer.getBelow()) {
+                for(Animal anAnimal : layer.getAnimals()) {
+                    anAnimal.endLineage(LineageLog.Cause.OTHER);
                 }
-                else if(rand.nextDouble() <= ALGAE_CREATION_PROBABILITY) {
-                    Location location = new Location(row, col);
-                    Algae algae = new Algae(true, location);
-                    field.placePlant(algae, location);
+            }
+        }
+        LineageLog lineage = environment.getLineage();
+        if(lineage != null) {
+            lineage.newRun();
+        }
+        environment.reset();
+        field = Field.column(depth, width, environment, layerCount);
+        fieldShared = false;
+        step = 0;
+        populate();
+        if(view != null) {
+            view.showStatus(step, field);
+        }
+    }
+
+    /**
+     * Randomly populate the field with organisms, see WorldSeeder, every
+     * layer from its own seed. The seeds are drawn from the shared
+     * generator, so a reset run starts from the same world.
+     */
+    private void populate()
+    {
+        WorldSeeder seeder = new WorldSeeder();
+        for(Field layer = field; layer != null; layer = layer.getBelow()) {
+            layer.clear();
+            seeder.populate(layer, environment.getRandom().nextLong());
+            layer.setSchools(schools ? new SchoolLayer(depth, width) : null);
+        }
+        LineageLog lineage = environment.getLineage();
+        if(lineage != null) {
+            lineage.setStep(step);
+            for(Field layer = field; layer != null; layer = layer.getBelow()) {
+                for(Animal anAnimal : layer.getAnimals()) {
+                    anAnimal.startLineage(lineage, 0, 0);
                 }
-                // Else leave the location empty.
             }
         }
     }
@@ -197,8 +760,99 @@ public class Simulator
      */
     public void reportStats()
     {
-        //System.out.print("Step: " + step + " ");
-        field.fieldStats();
+        System.out.printf("Step: %d Hash: %016x ", step, getStepHash());
+        System.out.println(Field.formatStats(getCounts()));
+    }
+
+    /**
+     * Count the live organisms of every species in every layer.
+     * 
+     * @return The counts, indexed by the species id.
+     */
+    public int[] getCounts()
+    {
+        int[] counts = new int[Species.values().length];
+        for(Field layer = field; layer != null; layer = layer.getBelow()) {
+            int[] layerCounts = layer.getCounts();
+            for(int i = 0; i < counts.length; i++) {
+                counts[i] += layerCounts[i];
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Add up the trait histograms of every layer.
+     * 
+     * @return How many live animals of every species have every level
+     *         of every trait.
+     */
+    public TraitHistograms getTraitHistograms()
+    {
+        TraitHistograms histograms = new TraitHistograms();
+        for(Field layer = field; layer != null; layer = layer.getBelow()) {
+            histograms.addAll(layer.getTraitHistograms());
+        }
+        return histograms;
+    }
+
+    /**
+     * Return whether there is at least one living organism of every
+     * species in some layer.
+     * 
+     * @return true If every species is still present in the world.
+     */
+    public boolean isViable()
+    {
+        if(field.getBelow() == null) {
+            return field.isViable();
+        }
+        for(int count : getCounts()) {
+            if(count == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return a hash of the whole state of the simulation: the field, the
+     * time, the weather and the random generator. Two runs with the same
+     * hash at a step are in the same state.
+     * 
+     * @return The hash of the simulation.
+     */
+    public long getStepHash()
+    {
+        long hash = field.getHash();
+        for(Field layer = field.getBelow(); layer != null; layer = layer.getBelow()) {
+            // The keys of a cell are the same in every layer, so the
+            // layers are mixed in rather than added.
+            hash = Zobrist.mix(hash) ^ layer.getHash();
+        }
+        hash = Zobrist.mix(hash ^ environment.getTime().stateHash());
+        hash = Zobrist.mix(hash ^ environment.getWeather().stateHash());
+        if(environment.getRegionalWeather() != null) {
+            hash = Zobrist.mix(hash ^ environment.getRegionalWeather().stateHash());
+        }
+        return Zobrist.mix(hash ^ Randomizer.stateHash(environment.getRandom()));
+    }
+
+    /**
+     * @return The time, weather and random generator of the simulation.
+     */
+    public Environment getEnvironment()
+    {
+        return environment;
+    }
+
+    /**
+     * @return How often the threads of the ATOMIC mode got in each
+     *         other's way.
+     */
+    public ClaimStats getClaimStats()
+    {
+        return claimStats;
     }
 
     /**
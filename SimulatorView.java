@@ -1,6 +1,8 @@
 import java.awt.*;
 import javax.swing.*;
-import java.util.LinkedHashMap;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
 import java.lang.Math;
 
@@ -10,9 +12,11 @@ import java.lang.Math;
  * representing its contents. It uses a blue background 
  * color, representing the ocean, it becomes darker at
  * night time.
- * Colors for each type of species can be defined using the
- * setColor method. If it becomes infected it will change to
- * a white color.
+ * Colors for each species are taken from the species table and
+ * can be changed using the setColor method. If it becomes 
+ * infected it will change to a white color.
+ * With a water column a menu chooses the layer shown, or all of them
+ * seen from above, where every cell shows the top organism.
  * 
  * @author Nicolás Alcalá Olea and Bailey Crossan
  */
@@ -20,6 +24,9 @@ public class SimulatorView extends JFrame
 {
     // Colors used for empty locations.
     private static final Color EMPTY_COLOR = new Color(51, 204, 255);
+    // Colors used for empty reef and for rock.
+    private static final Color REEF_COLOR = new Color(120, 200, 210);
+    private static final Color ROCK_COLOR = new Color(90, 90, 100);
 
     // Color used for objects that have no defined color.
     private static final Color UNKNOWN_COLOR = Color.gray;
@@ -31,11 +38,21 @@ public class SimulatorView extends JFrame
     private final JLabel weatherLabel;
     private final JLabel population;
     private final FieldView fieldView;
+    // The layer shown: the first entry is all of them seen from above.
+    private final JComboBox<String> layerChoice;
+    // The step and the field shown last, to draw again when another
+    // layer is chosen.
+    private int shownStep;
+    private transient Field shownField;
+    // Whether the menu is being filled, which must not draw again.
+    private boolean listingLayers;
 
     // A map for storing colors for participants in the simulation
-    private final Map<String, Color> colors;
+    private final Map<Species, Color> colors;
     // A statistics object computing and storing simulation information
     private final FieldStats stats;
+    // Whether the step shown is a night step, which is drawn darker.
+    private boolean night;
 
     /**
      * Create a view of the given width and height.
@@ -46,14 +63,10 @@ public class SimulatorView extends JFrame
     public SimulatorView(int height, int width)
     {
         stats = new FieldStats();
-        colors = new LinkedHashMap<>();
-        setColor("clownFish", Color.orange);
-        setColor("swordFish", Color.blue);
-        setColor("parrotFish", Color.yellow);
-        setColor("whiteShark", Color.gray);
-        setColor("killerWhale", Color.black);
-        setColor("turtle", Color.green);
-        setColor("algae", new Color(0, 153, 0));
+        colors = new EnumMap<>(Species.class);
+        for(Species species : Species.values()) {
+            setColor(species, species.getColor());
+        }
 
         setTitle("Underwater Simulation");
         population = new JLabel(POPULATION_PREFIX, JLabel.CENTER);
@@ -66,7 +79,16 @@ public class SimulatorView extends JFrame
         stepLabel.setHorizontalAlignment(SwingConstants.LEFT);
         weatherLabel.setHorizontalAlignment(SwingConstants.RIGHT);
 
+        layerChoice = new JComboBox<>();
+        layerChoice.setVisible(false);
+        layerChoice.addActionListener(e -> {
+            if(shownField != null && !listingLayers) {
+                showStatus(shownStep, shownField);
+            }
+        });
+
         northPanel.add(stepLabel, BorderLayout.WEST);
+        northPanel.add(layerChoice, BorderLayout.CENTER);
         northPanel.add(weatherLabel, BorderLayout.EAST);
 
         setLocation(100, 50);
@@ -82,22 +104,22 @@ public class SimulatorView extends JFrame
     }
 
     /**
-     * Define a color to be used for a given class of animal.
+     * Define a color to be used for a given species.
      * 
-     * @param animalClass The animal's Class object.
-     * @param color The color to be used for the given class.
+     * @param species The species.
+     * @param color The color to be used for the given species.
      */
-    public void setColor(String name, Color color)
+    public void setColor(Species species, Color color)
     {
-        colors.put(name, color);
+        colors.put(species, color);
     }
 
     /**
-     * @return The color to be used for a given class of animal.
+     * @return The color to be used for a given species.
      */
-    private Color getColor(String animalName)
+    private Color getColor(Species species)
     {
-        Color col = colors.get(animalName);
+        Color col = colors.get(species);
         if(col == null) {
             // no color defined for this class
             return UNKNOWN_COLOR;
@@ -111,35 +133,73 @@ public class SimulatorView extends JFrame
      * Show the current status of the field.
      * 
      * @param step Which iteration step it is.
-     * @param field The field whose status is to be displayed.
+     * @param field The field whose status is to be displayed, the top
+     *              layer of a water column.
      */
     public void showStatus(int step, Field field)
     {
+        shownStep = step;
+        shownField = field;
         if (!isVisible()) {
             setVisible(true);
         } 
 
         stepLabel.setText(STEP_PREFIX + step);
-        weatherLabel.setText(WEATHER_PREFIX + Simulator.weatherManager.getCurrentWeather());
+        weatherLabel.setText(WEATHER_PREFIX + field.getEnvironment().getCurrentWeather());
+        night = !field.getEnvironment().isDay();
         stats.reset();
         fieldView.preparePaint();
+        Terrain terrain = field.getEnvironment().getTerrain();
+        List<Field> layers = showLayers(field);
+        // The layer shown, or -1 for all of them.
+        int shown = layers.size() > 1 ? layerChoice.getSelectedIndex() - 1 : -1;
+        // The fish of the schools are counted whether or not an animal
+        // hides them.
+        for (int layer = 0; layer < layers.size(); layer++) {
+            SchoolLayer schools = layers.get(layer).getSchools();
+            if (schools != null && (shown < 0 || shown == layer)) {
+                for (Species species : Species.values()) {
+                    for (int n = schools.getCount(species); n > 0; n--) {
+                        stats.incrementCount(species);
+                    }
+                }
+            }
+        }
 
         for (int row = 0; row < field.getDepth(); row++) {
             for (int col = 0; col < field.getWidth(); col++) { 
-                Animal animal = field.getAnimalAt(new Location(row, col)); 
-                Plant plant = field.getPlantAt(new Location(row, col)); 
-
-                if (animal != null) { 
-                    stats.incrementCount(animal.getClass());
+                Location location = new Location(row, col);
+                Color mark = null;
 
-                    if (animal.isInfected()) { 
-                        fieldView.drawMark(col, row, Color.white);
-                    } else { 
-                        fieldView.drawMark(col, row, getColor(animal.getName())); 
+                for (int layer = 0; layer < layers.size(); layer++) {
+                    if (shown >= 0 && shown != layer) {
+                        continue;
+                    }
+                    Field layerField = layers.get(layer);
+                    Animal animal = layerField.getAnimalAt(location); 
+                    SchoolLayer schools = layerField.getSchools();
+                    Species fish = schools == null ? null : schools.getSchoolAt(row * field.getWidth() + col);
+                    Color color = null;
+                    if (animal != null) { 
+                        stats.incrementCount(animal.getSpecies());
+                        color = animal.isInfected() ? Color.white : getColor(animal.getSpecies());
+                    } else if (fish != null) {
+                        color = getColor(fish);
+                    } else if (layerField.hasAlgaeAt(location)) { 
+                        stats.incrementCount(Species.ALGAE);
+                        color = getColor(Species.ALGAE);
                     }
-                } else if (plant != null) { 
-                    stats.incrementCount(plant.getClass());
-                    fieldView.drawMark(col, row, getColor(plant.getName()));
+                    if (mark == null) {
+                        mark = color;
+                    }
+                }
+
+                if (mark != null) {
+                    fieldView.drawMark(col, row, mark);
+                } else if (terrain != null) {
+                    Terrain.Ground ground = terrain.get(row * field.getWidth() + col);
+                    fieldView.drawMark(col, row, ground == Terrain.Ground.ROCK ? ROCK_COLOR
+                                                 : ground == Terrain.Ground.REEF ? REEF_COLOR : EMPTY_COLOR);
                 } else { 
                     fieldView.drawMark(col, row, EMPTY_COLOR);
                 } 
@@ -151,6 +211,32 @@ public class SimulatorView extends JFrame
         fieldView.repaint();
     }
 
+    /**
+     * List the layers of the field and offer them in the menu, which is
+     * only shown for a water column.
+     * 
+     * @param field The field, the top layer of a water column.
+     * @return The fields of the layers, from the top down.
+     */
+    private List<Field> showLayers(Field field)
+    {
+        List<Field> layers = new ArrayList<>();
+        for (Field layer = field; layer != null; layer = layer.getBelow()) {
+            layers.add(layer);
+        }
+        if (layers.size() > 1 && layerChoice.getItemCount() != layers.size() + 1) {
+            listingLayers = true;
+            layerChoice.removeAllItems();
+            layerChoice.addItem("All layers");
+            for (int layer = 0; layer < layers.size(); layer++) {
+                layerChoice.addItem((layer + 1) + ". " + layers.get(layer).getWaterLayer().getDisplayName());
+            }
+            listingLayers = false;
+        }
+        layerChoice.setVisible(layers.size() > 1);
+        return layers;
+    }
+
     /**
      * Determine whether the simulation should continue to run.
      * 
@@ -245,7 +331,7 @@ public class SimulatorView extends JFrame
 
                     g.drawImage(fieldImage, 0, 0, null);
                     //new Color(255, 255, 255, 0.5f)
-                    if(!Time.isDay()){
+                    if(night){
                         g.setColor(new Color(0,0,0,100)); // Becomes darker
                     }
                     else{
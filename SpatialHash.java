@@ -0,0 +1,163 @@
+import java.util.Arrays;
+
+/**
+ * A uniform grid over a continuous ocean that finds the agents near a
+ * point. The ocean is cut into square buckets as wide as the largest
+ * radius searched, so every agent within that radius of a point is in
+ * the point's bucket or one of the eight around it.
+ *
+ * The buckets are rebuilt every step with a counting sort: the agents
+ * of every bucket are counted, the counts are added up into the start
+ * of every bucket, and the agents are then written into one array in
+ * the order of their buckets, with their positions. There are no lists
+ * to allocate and the agents of a bucket lie next to each other.
+ *
+ * @author Nicolás Alcalá Olea and Bailey Crossan
+ */
+public class SpatialHash
+{
+    // The side of a bucket.
+    private final float bucketSize;
+    // The number of rows and columns of buckets.
+    private final int rows, cols;
+    // Where the agents of every bucket start in order, and where the
+    // next bucket starts, so bucket b holds order[start[b]] up to
+    // order[start[b + 1]].
+    private final int[] start;
+    // The agents, bucket by bucket.
+    private int[] order = new int[0];
+    // The bucket of every agent.
+    private int[] bucketOf = new int[0];
+    // The positions of the agents in the same order, so the agents of a
+    // bucket are read from one stretch of memory.
+    private float[] rowsInOrder = new float[0], colsInOrder = new float[0];
+
+    /**
+     * Create the grid over an ocean.
+     *
+     * @param depth The depth of the ocean.
+     * @param width The width of the ocean.
+     * @param bucketSize The side of a bucket, at least the largest
+     *                   radius searched.
+     */
+    public SpatialHash(int depth, int width, float bucketSize)
+    {
+        this.bucketSize = bucketSize;
+        rows = Math.max(1, (int) Math.ceil(depth / bucketSize));
+        cols = Math.max(1, (int) Math.ceil(width / bucketSize));
+        start = new int[rows * cols + 1];
+    }
+
+    /**
+     * Put the agents into their buckets.
+     *
+     * @param rowPositions The row of every agent.
+     * @param colPositions The column of every agent.
+     * @param n The number of agents.
+     */
+    public void rebuild(float[] rowPositions, float[] colPositions, int n)
+    {
+        if(order.length < n) {
+            order = new int[Math.max(n, 2 * order.length)];
+            bucketOf = new int[order.length];
+            rowsInOrder = new float[order.length];
+            colsInOrder = new float[order.length];
+        }
+        Arrays.fill(start, 0);
+        for(int i = 0; i < n; i++) {
+            int bucket = bucketAt(rowPositions[i], colPositions[i]);
+            bucketOf[i] = bucket;
+            start[bucket + 1]++;
+        }
+        int buckets = rows * cols;
+        for(int b = 0; b < buckets; b++) {
+            start[b + 1] += start[b];
+        }
+        // Every agent goes to the next free place of its bucket, which
+        // moves start[b] on to the end of bucket b. The agents of a
+        // bucket keep their order.
+        for(int i = 0; i < n; i++) {
+            int k = start[bucketOf[i]]++;
+            order[k] = i;
+            rowsInOrder[k] = rowPositions[i];
+            colsInOrder[k] = colPositions[i];
+        }
+        System.arraycopy(start, 0, start, 1, buckets);
+        start[0] = 0;
+    }
+
+    /**
+     * Return the bucket a point is in.
+     *
+     * @param row The row of the point.
+     * @param col The column of the point.
+     * @return The bucket.
+     */
+    public int bucketAt(float row, float col)
+    {
+        int r = Math.min(rows - 1, Math.max(0, (int) (row / bucketSize)));
+        int c = Math.min(cols - 1, Math.max(0, (int) (col / bucketSize)));
+        return r * cols + c;
+    }
+
+    /**
+     * @return The number of rows of buckets.
+     */
+    public int getRows()
+    {
+        return rows;
+    }
+
+    /**
+     * @return The number of columns of buckets.
+     */
+    public int getCols()
+    {
+        return cols;
+    }
+
+    /**
+     * @param bucket A bucket.
+     * @return Where its agents start in the order.
+     */
+    public int bucketStart(int bucket)
+    {
+        return start[bucket];
+    }
+
+    /**
+     * @param bucket A bucket.
+     * @return Where its agents end in the order.
+     */
+    public int bucketEnd(int bucket)
+    {
+        return start[bucket + 1];
+    }
+
+    /**
+     * @param k A position in the order.
+     * @return The row of the agent at that position.
+     */
+    public float rowAt(int k)
+    {
+        return rowsInOrder[k];
+    }
+
+    /**
+     * @param k A position in the order.
+     * @return The column of the agent at that position.
+     */
+    public float colAt(int k)
+    {
+        return colsInOrder[k];
+    }
+
+    /**
+     * @param k A position in the order.
+     * @return The agent at that position.
+     */
+    public int agentAt(int k)
+    {
+        return order[k];
+    }
+}
@@ -0,0 +1,344 @@
+import java.awt.Color;
+
+/**
+ * This enumeration holds every species in the simulation as data. Each
+ * entry describes how the species looks, how it is spawned, how it lives
+ * and breeds and what it eats, so adding a new species only needs a new
+ * entry here.
+ *
+ * The position of a species in this table is its id. The ids are also
+ * used as bit positions in the diet masks, so testing whether one species
+ * eats another is a single AND. The order of the entries is the order in
+ * which the simulator tries to spawn them in every cell.
+ *
+ * @author Nicolás Alcalá Olea and Bailey Crossan
+ */
+public enum Species
+{
+    //         name,           color,                creation, breeding age, max age, breeding prob,
+    //         infection prob, transmission prob, max litter, food value, disease death, night disease death,
+    //         plant, diurnal, schooling, layers of a water column it lives in,
+    //         movement and sensing neighbourhoods, what it eats
+    SWORDFISH("Swordfish", Color.blue, 0.01, 3, 500, 0.17,
+        0.005, 0.01, 2, 300, 0.05, 0.05,
+        false, false, false, WaterLayer.MID_WATER.bit() | WaterLayer.SEABED.bit(),
+        Neighbourhood.MOORE, Neighbourhood.MOORE, "PARROTFISH", "CLOWNFISH"),
+    TURTLE("Turtle", Color.green, 0.14, 5, 50, 0.3,
+        0.01, 0.02, 3, 30, 0.2, 0.1,
+        false, true, false, WaterLayer.ALL_MASK,
+        Neighbourhood.MOORE, Neighbourhood.MOORE, "ALGAE"),
+    PARROTFISH("Parrotfish", Color.yellow, 0.145, 5, 40, 0.47,
+        0.01, 0.02, 3, 30, 0.2, 0.1,
+        false, true, true, WaterLayer.MID_WATER.bit() | WaterLayer.SEABED.bit(),
+        Neighbourhood.MOORE, Neighbourhood.MOORE, "ALGAE"),
+    WHITE_SHARK("White shark", Color.gray, 0.03, 3, 500, 0.1,
+        0.005, 0.01, 2, 120, 0.05, 0.05,
+        false, false, false, WaterLayer.SURFACE.bit() | WaterLayer.MID_WATER.bit(),
+        Neighbourhood.MOORE, Neighbourhood.MOORE, "PARROTFISH", "TURTLE", "CLOWNFISH"),
+    KILLER_WHALE("Killer whale", Color.black, 0.008, 3, 500, 0.1,
+        0.005, 0.01, 3, 180, 0.05, 0.05,
+        false, false, false, WaterLayer.ALL_MASK,
+        Neighbourhood.MOORE, Neighbourhood.MOORE, "PARROTFISH", "TURTLE", "CLOWNFISH"),
+    CLOWNFISH("Clownfish", Color.orange, 0.145, 5, 40, 0.47,
+        0.01, 0.02, 3, 30, 0.2, 0.1,
+        false, true, true, WaterLayer.SEABED.bit(),
+        Neighbourhood.MOORE, Neighbourhood.MOORE, "ALGAE"),
+    ALGAE("Algae", new Color(0, 153, 0), 0.5, 1, 10, 0.9,
+        0, 0, 7, 0, 0, 0,
+        true, false, false, WaterLayer.SURFACE.bit() | WaterLayer.SEABED.bit(),
+        Neighbourhood.MOORE, Neighbourhood.MOORE);
+
+    // A mask with the bit of every species set.
+    public static final int ALL_MASK = (1 << values().length) - 1;
+    // A mask with the bit of every plant species set.
+    public static final int PLANT_MASK = plantMask();
+
+    // The name shown in the statistics.
+    private final String displayName;
+    // The color used to draw the species.
+    private final Color color;
+    // The probability that it will be created in any given grid position.
+    private final double creationProbability;
+    // The age at which it can start to breed (or grow, for plants).
+    private final int breedingAge;
+    // The age to which it can live.
+    private final int maxAge;
+    // The likelihood of it breeding (or growing, for plants).
+    private final double breedingProbability;
+    // The likelihood of it catching the disease.
+    private final double infectionProbability;
+    // The likelihood of it transmitting the disease to a mate.
+    private final double transmissionProbability;
+    // The maximum number of births (or fragments, for plants).
+    private final int maxLitterSize;
+    // The number of steps it can go after eating before it has to eat again.
+    private final int foodValue;
+    // The likelihood of an infected individual dying in an active step.
+    private final double diseaseDeathProbability;
+    // The likelihood of an infected individual dying while it sleeps.
+    private final double nightDiseaseDeathProbability;
+    // Whether it is a plant.
+    private final boolean plant;
+    // Whether it is only active during the day.
+    private final boolean diurnal;
+    // Whether dense groups of it can be run as schools (see SchoolLayer).
+    private final boolean schooling;
+    // The bits of the layers of a water column it lives in.
+    private final int habitat;
+    // The cells it can move, eat or give birth into (or drop fragments
+    // into, for plants), and the cells where it finds a mate.
+    private final Neighbourhood movement, sensing;
+    // The names of the species it eats, resolved into the diet mask.
+    private final String[] preyNames;
+    // The bits of the species it eats.
+    private int diet;
+    // Whether it eats other animals.
+    private boolean predator;
+
+    static {
+        for(Species species : values()) {
+            for(String preyName : species.preyNames) {
+                species.diet |= valueOf(preyName).bit();
+            }
+            species.predator = (species.diet & ~PLANT_MASK) != 0;
+        }
+    }
+
+    /**
+     * Define a species.
+     */
+    Species(String displayName, Color color, double creationProbability,
+            int breedingAge, int maxAge, double breedingProbability,
+            double infectionProbability, double transmissionProbability,
+            int maxLitterSize, int foodValue, double diseaseDeathProbability,
+            double nightDiseaseDeathProbability, boolean plant, boolean diurnal,
+            boolean schooling, int habitat, Neighbourhood movement, Neighbourhood sensing, String... preyNames)
+    {
+        this.displayName = displayName;
+        this.color = color;
+        this.creationProbability = creationProbability;
+        this.breedingAge = breedingAge;
+        this.maxAge = maxAge;
+        this.breedingProbability = breedingProbability;
+        this.infectionProbability = infectionProbability;
+        this.transmissionProbability = transmissionProbability;
+        this.maxLitterSize = maxLitterSize;
+        this.foodValue = foodValue;
+        this.diseaseDeathProbability = diseaseDeathProbability;
+        this.nightDiseaseDeathProbability = nightDiseaseDeathProbability;
+        this.plant = plant;
+        this.diurnal = diurnal;
+        this.schooling = schooling;
+        this.habitat = habitat;
+        this.movement = movement;
+        this.sensing = sensing;
+        this.preyNames = preyNames;
+    }
+
+    /**
+     * @return The id of the species.
+     */
+    public int id()
+    {
+        return ordinal();
+    }
+
+    /**
+     * @return The bit of the species in a diet mask.
+     */
+    public int bit()
+    {
+        return 1 << ordinal();
+    }
+
+    /**
+     * Check whether this species eats the given one.
+     *
+     * @param other The species that might be eaten.
+     * @return true If the other species is part of the diet.
+     */
+    public boolean eats(Species other)
+    {
+        return (diet & other.bit()) != 0;
+    }
+
+    /**
+     * @return The bits of every species this one eats.
+     */
+    public int getDiet()
+    {
+        return diet;
+    }
+
+    /**
+     * A predator is a species which eats other animals.
+     *
+     * @return true If the species hunts animals.
+     */
+    public boolean isPredator()
+    {
+        return predator;
+    }
+
+    /**
+     * @return A mask with the bit of every plant species set.
+     */
+    private static int plantMask()
+    {
+        int mask = 0;
+        for(Species species : values()) {
+            if(species.plant) {
+                mask |= species.bit();
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Check whether the species lives in a layer of a water column.
+     *
+     * @param layer The layer, or null in a world without layers, where
+     *              every species lives.
+     * @return true If it lives there.
+     */
+    public boolean livesIn(WaterLayer layer)
+    {
+        return layer == null || (habitat & layer.bit()) != 0;
+    }
+
+    /**
+     * @return The cells it can move, eat or give birth into.
+     */
+    public Neighbourhood getMovement()
+    {
+        return movement;
+    }
+
+    /**
+     * @return The cells where it finds a mate.
+     */
+    public Neighbourhood getSensing()
+    {
+        return sensing;
+    }
+
+    /**
+     * @return The name shown in the statistics.
+     */
+    public String getDisplayName()
+    {
+        return displayName;
+    }
+
+    /**
+     * @return The color used to draw the species.
+     */
+    public Color getColor()
+    {
+        return color;
+    }
+
+    /**
+     * @return The probability of creating it in any given grid position.
+     */
+    public double getCreationProbability()
+    {
+        return creationProbability;
+    }
+
+    /**
+     * @return The age at which it can start to breed.
+     */
+    public int getBreedingAge()
+    {
+        return breedingAge;
+    }
+
+    /**
+     * @return The age to which it can live.
+     */
+    public int getMaxAge()
+    {
+        return maxAge;
+    }
+
+    /**
+     * @return The likelihood of it breeding.
+     */
+    public double getBreedingProbability()
+    {
+        return breedingProbability;
+    }
+
+    /**
+     * @return The likelihood of it catching the disease.
+     */
+    public double getInfectionProbability()
+    {
+        return infectionProbability;
+    }
+
+    /**
+     * @return The likelihood of it transmitting the disease to a mate.
+     */
+    public double getTransmissionProbability()
+    {
+        return transmissionProbability;
+    }
+
+    /**
+     * @return The maximum number of births.
+     */
+    public int getMaxLitterSize()
+    {
+        return maxLitterSize;
+    }
+
+    /**
+     * @return The number of steps it can go before it has to eat again.
+     */
+    public int getFoodValue()
+    {
+        return foodValue;
+    }
+
+    /**
+     * @return The likelihood of an infected individual dying in an active step.
+     */
+    public double getDiseaseDeathProbability()
+    {
+        return diseaseDeathProbability;
+    }
+
+    /**
+     * @return The likelihood of an infected individual dying while it sleeps.
+     */
+    public double getNightDiseaseDeathProbability()
+    {
+        return nightDiseaseDeathProbability;
+    }
+
+    /**
+     * @return true If the species is a plant.
+     */
+    public boolean isPlant()
+    {
+        return plant;
+    }
+
+    /**
+     * @return true If the species sleeps during the night.
+     */
+    public boolean isDiurnal()
+    {
+        return diurnal;
+    }
+
+    /**
+     * @return true If dense groups of it can be run as schools.
+     */
+    public boolean isSchooling()
+    {
+        return schooling;
+    }
+}
@@ -0,0 +1,188 @@
+/**
+ * Compares the populations of the world split between several stripe
+ * workers (see DistributedSimulator) against the world run in a single
+ * process, from the same seeds. With more than one worker the animals
+ * next to a border act at the same time as their neighbours and every
+ * worker has its own random stream, so the runs do not match step for
+ * step; what they must keep are the dynamics. For every species it
+ * prints the mean population of a run in both with the 95% confidence
+ * interval of that mean, their ratio with its own interval and whether
+ * the two means differ beyond them. A run that loses a species stops
+ * there, and the runs that did are counted.
+ * It can be run with
+ *
+ *     java StripeComparison [size] [steps] [runs] [workers]
+ *
+ * Every run starts its own worker processes, so it takes a while.
+ *
+ * @author Nicolás Alcalá Olea and Bailey Crossan
+ */
+public class StripeComparison
+{
+    // The default size of the field.
+    private static final int DEFAULT_SIZE = 100;
+    // The default number of steps of every run.
+    private static final int DEFAULT_STEPS = 60;
+    // The default number of runs of each.
+    private static final int DEFAULT_RUNS = 16;
+    // The default number of workers.
+    private static final int DEFAULT_WORKERS = 2;
+    // The number of standard errors either side of a mean its 95%
+    // confidence interval spans.
+    private static final double Z_95 = 1.96;
+    // The seed of the first run.
+    private static final long SEED = 2024;
+
+    /**
+     * Run the comparison.
+     *
+     * @param args The size of the field, the number of steps, the number
+     *             of runs and the number of workers, all optional.
+     * @throws Exception If a worker fails.
+     */
+    public static void main(String[] args) throws Exception
+    {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SIZE;
+        int steps = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_STEPS;
+        int runs = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_RUNS;
+        int workers = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_WORKERS;
+
+        Result single = new Result();
+        Result split = new Result();
+        for(int run = 0; run < runs; run++) {
+            single.add(runSingle(size, steps, SEED + run));
+            split.add(runSplit(size, steps, SEED + run, workers));
+        }
+
+        System.out.printf("%-14s %20s %20s %16s%n", "Species", "Single process", workers + " workers", "Ratio");
+        for(Species species : Species.values()) {
+            double expected = single.getMean(species);
+            double actual = split.getMean(species);
+            double expectedError = single.getStandardError(species);
+            double actualError = split.getStandardError(species);
+            double ratio = expected == 0 ? Double.NaN : actual / expected;
+            // The standard error of the ratio, to first order.
+            double ratioError = ratio * Math.hypot(expectedError / expected, actual == 0 ? 0 : actualError / actual);
+            boolean agree = Math.abs(actual - expected) <= Z_95 * Math.hypot(expectedError, actualError);
+            System.out.printf("%-14s %10.1f +- %7.1f %10.1f +- %7.1f %7.3f +- %5.3f %s%n", species.getDisplayName(),
+                expected, Z_95 * expectedError, actual, Z_95 * actualError,
+                ratio, Z_95 * ratioError, agree ? "agree" : "differ");
+        }
+        System.out.println("The intervals are 95% confidence intervals of the means over " + runs + " runs.");
+        System.out.printf("Runs that lost a species: %d in a single process, %d with %d workers%n",
+            single.extinctions, split.extinctions, workers);
+    }
+
+    /**
+     * Run the world in a single process from a seed.
+     *
+     * @param size The size of the field.
+     * @param steps The number of steps.
+     * @param seed The seed of the world.
+     * @return What was measured.
+     */
+    private static Result runSingle(int size, int steps, long seed)
+    {
+        Simulator simulator = new Simulator(size, size, false, Randomizer.newRandom(seed));
+        Result result = new Result();
+        for(int n = 0; n < steps; n++) {
+            if(!simulator.isViable()) {
+                result.extinctions++;
+                break;
+            }
+            simulator.simulateOneStep();
+            int[] counts = simulator.getCounts();
+            for(int i = 0; i < counts.length; i++) {
+                result.population[i] += counts[i];
+            }
+            result.samples++;
+        }
+        return result;
+    }
+
+    /**
+     * Run the world split between workers from a seed.
+     *
+     * @param size The size of the field.
+     * @param steps The number of steps.
+     * @param seed The seed of the world.
+     * @param workers The number of workers.
+     * @return What was measured.
+     * @throws Exception If a worker fails.
+     */
+    private static Result runSplit(int size, int steps, long seed, int workers) throws Exception
+    {
+        DistributedSimulator coordinator = new DistributedSimulator(size, size, workers, seed);
+        coordinator.setPrintSteps(false);
+        coordinator.run(steps, null);
+        coordinator.close();
+        Result result = new Result();
+        for(Species species : Species.values()) {
+            result.population[species.id()] = coordinator.getMeanPopulation(species);
+        }
+        result.samples = 1;
+        if(coordinator.hasLostSpecies()) {
+            result.extinctions++;
+        }
+        return result;
+    }
+
+    /**
+     * What was measured over the steps of one or more runs.
+     */
+    private static class Result
+    {
+        // The populations of every species, added up over the steps.
+        private final double[] population = new double[Species.values().length];
+        // The number of steps measured.
+        private double samples;
+        // The number of runs that lost a species.
+        private int extinctions;
+        // The mean populations of the runs added, and their squares,
+        // added up.
+        private final double[] runMeans = new double[Species.values().length];
+        private final double[] runSquares = new double[Species.values().length];
+        // The number of runs added.
+        private int runs;
+
+        /**
+         * Add the measures of another run.
+         *
+         * @param other The other run.
+         */
+        private void add(Result other)
+        {
+            for(int i = 0; i < population.length; i++) {
+                double mean = other.population[i] / Math.max(1, other.samples);
+                runMeans[i] += mean;
+                runSquares[i] += mean * mean;
+            }
+            runs++;
+            extinctions += other.extinctions;
+        }
+
+        /**
+         * @param species A species.
+         * @return Its mean population over the runs.
+         */
+        private double getMean(Species species)
+        {
+            return runMeans[species.id()] / runs;
+        }
+
+        /**
+         * @param species A species.
+         * @return The standard error of its mean population over the
+         *         runs, from the spread of the runs' means.
+         */
+        private double getStandardError(Species species)
+        {
+            if(runs < 2) {
+                return Double.NaN;
+            }
+            double mean = getMean(species);
+            double variance = Math.max(0, (runSquares[species.id()] - runs * mean * mean) / (runs - 1));
+            return Math.sqrt(variance / runs);
+        }
+    }
+}
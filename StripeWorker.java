@@ -0,0 +1,345 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A stripe worker runs one horizontal stripe of a world split between
+ * several processes (see DistributedSimulator). Its field holds the rows
+ * of its stripe and one halo row on every side that has a neighbour.
+ *
+ * Every step, the halo rows of the current field get copies of the
+ * animals and algae in the neighbours' border rows, so the animals next
+ * to the border can see and eat them. The copies of the algae die before
+ * the algae grow, so they only grow on their owner's side. After its animals and algae have acted,
+ * the worker sends what landed in the halo rows of the next field to the
+ * neighbour that owns those rows, together with the neighbour's animals
+ * its own animals ate, and receives the same from its neighbours.
+ *
+ * @author Nicolás Alcalá Olea and Bailey Crossan
+ */
+public class StripeWorker
+{
+    // The first row of the world owned by the worker.
+    private final int firstRow;
+    // The row of the world after the last one owned by the worker.
+    private final int lastRow;
+    // The row of the world held by the first row of the field.
+    private final int rowOffset;
+    // Whether there are neighbours above and below.
+    private final boolean hasAbove, hasBelow;
+    // The simulation of the field.
+    private final Simulator simulator;
+    // The neighbours' animals placed in the halo rows in this step, and
+    // the cells they were placed in.
+    private final List<Animal> ghosts = new ArrayList<>();
+    private final List<Location> ghostCells = new ArrayList<>();
+
+    /**
+     * Create and populate the stripe of a worker.
+     *
+     * @param worker The number of the worker, from the top.
+     * @param workers The number of workers.
+     * @param depth The depth of the world.
+     * @param width The width of the world.
+     * @param seed The seed of the world.
+     */
+    public StripeWorker(int worker, int workers, int depth, int width, long seed)
+    {
+        firstRow = stripeStart(worker, workers, depth);
+        lastRow = stripeStart(worker + 1, workers, depth);
+        hasAbove = worker > 0;
+        hasBelow = worker < workers - 1;
+        rowOffset = firstRow - (hasAbove ? 1 : 0);
+        int localDepth = lastRow - firstRow + (hasAbove ? 1 : 0) + (hasBelow ? 1 : 0);
+
+        // The world's generator draws the weather's seed and the world's
+        // seed, as in a single process. The first worker carries on with
+        // it, so a single worker runs exactly like a single process.
+        Random master = Randomizer.newRandom(seed);
+        long weatherSeed = master.nextLong();
+        long worldSeed = master.nextLong();
+        Random random = worker == 0 ? master : Randomizer.newStream(seed, worker);
+        Field field = new Field(localDepth, width, new Environment(random, weatherSeed));
+        simulator = new Simulator(field);
+        new WorldSeeder().populate(field, worldSeed, depth, firstRow, lastRow, rowOffset);
+    }
+
+    /**
+     * Return the first row of a worker's stripe.
+     *
+     * @param worker The number of the worker.
+     * @param workers The number of workers.
+     * @param depth The depth of the world.
+     * @return The first row of the stripe.
+     */
+    public static int stripeStart(int worker, int workers, int depth)
+    {
+        return (int) ((long) worker * depth / workers);
+    }
+
+    /**
+     * Run a worker connected to the coordinator.
+     *
+     * @param args The coordinator's port, the number of the worker, the
+     *             number of workers, the depth and width of the world and
+     *             its seed.
+     * @throws IOException If the connection fails.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        int port = Integer.parseInt(args[0]);
+        int worker = Integer.parseInt(args[1]);
+        int workers = Integer.parseInt(args[2]);
+        int depth = Integer.parseInt(args[3]);
+        int width = Integer.parseInt(args[4]);
+        long seed = Long.parseLong(args[5]);
+
+        StripeWorker stripe = new StripeWorker(worker, workers, depth, width, seed);
+        try(FrameChannel coordinator = FrameChannel.connect(port)) {
+            coordinator.send(ByteBuffer.allocate(4).putInt(worker).flip());
+            while(true) {
+                coordinator.send(stripe.report());
+                ByteBuffer go = coordinator.receive();
+                if(go.get() == 0) {
+                    break;
+                }
+                stripe.placeGhosts(OrganismBatch.readFrom(go), OrganismBatch.readFrom(go));
+
+                Field nextFieldState = stripe.simulator.advanceStep();
+                OrganismBatch up = new OrganismBatch();
+                OrganismBatch down = new OrganismBatch();
+                stripe.collectLeavers(nextFieldState, up, down);
+                coordinator.send(frame(up, down));
+
+                ByteBuffer arrivals = coordinator.receive();
+                stripe.receive(nextFieldState, OrganismBatch.readFrom(arrivals));
+                stripe.receive(nextFieldState, OrganismBatch.readFrom(arrivals));
+                stripe.simulator.commitStep(nextFieldState);
+            }
+        }
+    }
+
+    /**
+     * Build the report sent before every step: the number of every
+     * species in the stripe, then the animals and algae in its top and
+     * bottom rows.
+     *
+     * @return The report frame.
+     */
+    private ByteBuffer report()
+    {
+        int[] counts = simulator.getField().getCounts();
+        OrganismBatch top = borderRow(firstRow);
+        OrganismBatch bottom = borderRow(lastRow - 1);
+        ByteBuffer frame = ByteBuffer.allocate(4 * counts.length + top.encodedSize() + bottom.encodedSize());
+        for(int count : counts) {
+            frame.putInt(count);
+        }
+        top.writeTo(frame);
+        bottom.writeTo(frame);
+        return frame.flip();
+    }
+
+    /**
+     * Collect the live animals and the algae of one of the worker's rows.
+     *
+     * @param row The row of the world.
+     * @return The organisms, with their cells in world coordinates.
+     */
+    private OrganismBatch borderRow(int row)
+    {
+        OrganismBatch batch = new OrganismBatch();
+        Field field = simulator.getField();
+        for(int col = 0; col < field.getWidth(); col++) {
+            Location location = new Location(row - rowOffset, col);
+            Animal anAnimal = field.getAnimalAt(location);
+            if(anAnimal != null && anAnimal.isAlive()) {
+                batch.addAnimal(anAnimal, row, col);
+            }
+            if(field.hasAlgaeAt(location)) {
+                batch.addAlgae(row, col);
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Put copies of the neighbours' border animals and algae in the halo
+     * rows.
+     *
+     * @param fromAbove The bottom row of the neighbour above.
+     * @param fromBelow The top row of the neighbour below.
+     */
+    private void placeGhosts(OrganismBatch fromAbove, OrganismBatch fromBelow)
+    {
+        ghosts.clear();
+        ghostCells.clear();
+        Field field = simulator.getField();
+        for(OrganismBatch batch : List.of(fromAbove, fromBelow)) {
+            for(int i = 0; i < batch.getCount(); i++) {
+                Location location = new Location(batch.getRow(i) - rowOffset, batch.getCol(i));
+                if(batch.getKind(i) == OrganismBatch.ALGAE) {
+                    field.placeGhostAlgae(location);
+                    continue;
+                }
+                Animal ghost = batch.toAnimal(i, location);
+                field.placeGhost(ghost);
+                ghosts.add(ghost);
+                ghostCells.add(location);
+            }
+        }
+    }
+
+    /**
+     * Take out of the next field everything that landed in its halo rows,
+     * and note the neighbours' animals that were eaten.
+     *
+     * @param nextFieldState The next field, not tidied yet.
+     * @param up What goes to the neighbour above.
+     * @param down What goes to the neighbour below.
+     */
+    private void collectLeavers(Field nextFieldState, OrganismBatch up, OrganismBatch down)
+    {
+        if(hasAbove) {
+            collectRow(nextFieldState, 0, up);
+        }
+        if(hasBelow) {
+            collectRow(nextFieldState, nextFieldState.getDepth() - 1, down);
+        }
+        for(int i = 0; i < ghosts.size(); i++) {
+            if(!ghosts.get(i).isAlive()) {
+                Location cell = ghostCells.get(i);
+                (cell.row() == 0 && hasAbove ? up : down).addKill(cell.row() + rowOffset, cell.col());
+            }
+        }
+    }
+
+    /**
+     * Move the organisms of one halo row of the next field into a batch.
+     *
+     * @param nextFieldState The next field.
+     * @param localRow The halo row of the field.
+     * @param batch The batch for the neighbour owning the row.
+     */
+    private void collectRow(Field nextFieldState, int localRow, OrganismBatch batch)
+    {
+        for(int col = 0; col < nextFieldState.getWidth(); col++) {
+            Location location = new Location(localRow, col);
+            Animal anAnimal = nextFieldState.getAnimalAt(location);
+            if(anAnimal != null && anAnimal.isAlive()) {
+                batch.addAnimal(anAnimal, localRow + rowOffset, col);
+                anAnimal.setDead(LineageLog.Cause.LEFT);
+            }
+            if(nextFieldState.hasAlgaeAt(location)) {
+                batch.addAlgae(localRow + rowOffset, col);
+                nextFieldState.removeAlgaeAt(location);
+            }
+        }
+    }
+
+    /**
+     * Apply what a neighbour sent. First the worker's animals it ate die,
+     * so their cells are free again. Then its animals arriving in the
+     * worker's rows take their cell unless an animal or a fish of a school
+     * holds it (see roomFor), and its algae take their cell if it is
+     * free. An animal whose cell was taken on this side takes a cell
+     * around it instead, as it would have tried its other cells in one
+     * process, and only with none left is it lost.
+     *
+     * @param nextFieldState The next field, not tidied yet.
+     * @param batch The neighbour's batch.
+     */
+    private void receive(Field nextFieldState, OrganismBatch batch)
+    {
+        Field field = simulator.getField();
+        for(int i = 0; i < batch.getCount(); i++) {
+            if(batch.getKind(i) == OrganismBatch.KILL) {
+                Animal eaten = field.getAnimalAt(new Location(batch.getRow(i) - rowOffset, batch.getCol(i)));
+                if(eaten != null && eaten.isAlive()) {
+                    eaten.setDead(LineageLog.Cause.EATEN);
+                }
+            }
+        }
+        LineageLog lineage = nextFieldState.getEnvironment().getLineage();
+        for(int i = 0; i < batch.getCount(); i++) {
+            Location location = new Location(batch.getRow(i) - rowOffset, batch.getCol(i));
+            if(batch.getKind(i) == OrganismBatch.ANIMAL) {
+                Animal arrival = batch.toAnimal(i, location);
+                if(lineage != null) {
+                    // It comes from another process, so it starts a new
+                    // family in this one.
+                    arrival.startLineage(lineage, 0, 0);
+                }
+                Location cell = roomFor(nextFieldState, location) ? location
+                                : cellAround(nextFieldState, location, arrival.getSpecies());
+                if(cell != null) {
+                    nextFieldState.removeAlgaeAt(cell);
+                    arrival.setLocation(cell);
+                    nextFieldState.placeAnimal(arrival, cell);
+                }
+                else {
+                    // No room on this side: the animal is lost, as an
+                    // animal with no cell is in one process.
+                    arrival.setDead(LineageLog.Cause.CROWDED);
+                }
+            }
+            else if(batch.getKind(i) == OrganismBatch.ALGAE && nextFieldState.isFree(nextFieldState.indexOf(location))) {
+                nextFieldState.plantAlgaeAt(location, false);
+            }
+        }
+    }
+
+    /**
+     * Find a cell of the worker's own rows, around the one an arriving
+     * animal was heading for, that it can take.
+     *
+     * @param nextFieldState The next field.
+     * @param location The cell it was heading for.
+     * @param species The species of the animal.
+     * @return The cell, or null if there is none.
+     */
+    private Location cellAround(Field nextFieldState, Location location, Species species)
+    {
+        Random rand = nextFieldState.getEnvironment().getRandom();
+        for(Location cell : nextFieldState.getAdjacentLocations(location, rand, species.getMovement())) {
+            int row = cell.row() + rowOffset;
+            if(row >= firstRow && row < lastRow && roomFor(nextFieldState, cell)) {
+                return cell;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Check whether an arriving animal can take a cell of the next field:
+     * it holds no live animal or fish of a school. An algae there only
+     * grew after the animals moved, which in one process comes after the
+     * animal took the cell, so the animal takes it from the algae.
+     *
+     * @param nextFieldState The next field.
+     * @param location The cell.
+     * @return true If the animal can take the cell.
+     */
+    private static boolean roomFor(Field nextFieldState, Location location)
+    {
+        int index = nextFieldState.indexOf(location);
+        return !nextFieldState.hasLiveAnimal(index) && !nextFieldState.hasSchoolAt(index);
+    }
+
+    /**
+     * Put two batches in one frame.
+     *
+     * @param first The first batch.
+     * @param second The second batch.
+     * @return The frame.
+     */
+    private static ByteBuffer frame(OrganismBatch first, OrganismBatch second)
+    {
+        ByteBuffer frame = ByteBuffer.allocate(first.encodedSize() + second.encodedSize());
+        first.writeTo(frame);
+        second.writeTo(frame);
+        return frame.flip();
+    }
+}
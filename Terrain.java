@@ -0,0 +1,269 @@
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import javax.imageio.ImageIO;
+
+/**
+ * The ground under the water of every cell: open water, reef or rock.
+ * No organism can be on rock, and algae only grow on reef. The terrain
+ * does not change while the simulation runs.
+ *
+ * It is kept as two bitsets with one bit per cell, in the order of the
+ * cells: the cells that are not rock, and the reef cells. A NeighbourTable
+ * reads the bits of all the cells around a cell as a few words, so
+ * leaving out the blocked cells costs a few mask operations rather than
+ * a test for every neighbour. Every bitset has one more word than it
+ * needs, so a stretch of bits can always be read from two words.
+ *
+ * @author Nicolás Alcalá Olea and Bailey Crossan
+ */
+public class Terrain
+{
+    /**
+     * The kinds of ground.
+     */
+    public enum Ground
+    {
+        WATER, REEF, ROCK
+    }
+
+    // How many times over the rock outcrops and the reef patches of a
+    // generated terrain would cover the field. They overlap, so the reef
+    // covers about three quarters of it.
+    private static final double ROCK_SHARE = 0.1;
+    private static final double REEF_SHARE = 1.5;
+    // The smallest and largest radius of an outcrop or a patch.
+    private static final int MIN_RADIUS = 2;
+    private static final int MAX_RADIUS = 8;
+    // The brightness below which a pixel of a raster is rock.
+    private static final int ROCK_BRIGHTNESS = 80;
+
+    // The dimensions of the terrain.
+    private final int depth, width;
+    // The cells that are not rock, and the reef cells.
+    private final long[] open, reef;
+
+    /**
+     * Create a terrain of open water.
+     *
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     */
+    public Terrain(int depth, int width)
+    {
+        this.depth = depth;
+        this.width = width;
+        int words = (depth * width + 63) / 64 + 1;
+        open = new long[words];
+        reef = new long[words];
+        int cells = depth * width;
+        Arrays.fill(open, 0, cells >>> 6, -1L);
+        if((cells & 63) != 0) {
+            open[cells >>> 6] = (1L << cells) - 1;
+        }
+    }
+
+    /**
+     * Load a terrain from a raster image, stretched over the field. A dark
+     * pixel is rock, a pixel greener than it is red and blue is reef and
+     * any other pixel is open water.
+     *
+     * @param file The image.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @return The terrain.
+     * @throws IOException If the image cannot be read.
+     */
+    public static Terrain load(File file, int depth, int width) throws IOException
+    {
+        BufferedImage image = ImageIO.read(file);
+        if(image == null) {
+            throw new IOException("Not an image: " + file);
+        }
+        Terrain terrain = new Terrain(depth, width);
+        for(int row = 0; row < depth; row++) {
+            int y = row * image.getHeight() / depth;
+            for(int col = 0; col < width; col++) {
+                int rgb = image.getRGB(col * image.getWidth() / width, y);
+                int red = (rgb >> 16) & 0xff;
+                int green = (rgb >> 8) & 0xff;
+                int blue = rgb & 0xff;
+                if((red + green + blue) / 3 < ROCK_BRIGHTNESS) {
+                    terrain.set(row, col, Ground.ROCK);
+                }
+                else if(green > red && green > blue) {
+                    terrain.set(row, col, Ground.REEF);
+                }
+            }
+        }
+        return terrain;
+    }
+
+    /**
+     * Generate a terrain of round reef patches and rock outcrops.
+     *
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @param seed The seed of the terrain.
+     * @return The terrain.
+     */
+    public static Terrain generate(int depth, int width, long seed)
+    {
+        Random rand = Randomizer.newRandom(seed);
+        Terrain terrain = new Terrain(depth, width);
+        double meanArea = Math.PI * (MIN_RADIUS + MAX_RADIUS) * (MIN_RADIUS + MAX_RADIUS) / 4;
+        int patches = (int) (REEF_SHARE * depth * width / meanArea);
+        for(int p = 0; p < patches; p++) {
+            terrain.paint(rand, Ground.REEF);
+        }
+        int outcrops = (int) (ROCK_SHARE * depth * width / meanArea);
+        for(int p = 0; p < outcrops; p++) {
+            terrain.paint(rand, Ground.ROCK);
+        }
+        return terrain;
+    }
+
+    /**
+     * Paint a disc of ground of a random size somewhere.
+     *
+     * @param rand The random generator of the terrain.
+     * @param ground The ground.
+     */
+    private void paint(Random rand, Ground ground)
+    {
+        int centreRow = rand.nextInt(depth);
+        int centreCol = rand.nextInt(width);
+        int radius = MIN_RADIUS + rand.nextInt(MAX_RADIUS - MIN_RADIUS + 1);
+        for(int row = Math.max(0, centreRow - radius); row <= Math.min(depth - 1, centreRow + radius); row++) {
+            for(int col = Math.max(0, centreCol - radius); col <= Math.min(width - 1, centreCol + radius); col++) {
+                int dr = row - centreRow;
+                int dc = col - centreCol;
+                if(dr * dr + dc * dc <= radius * radius) {
+                    set(row, col, ground);
+                }
+            }
+        }
+    }
+
+    /**
+     * Set the ground of a cell.
+     *
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @param ground The ground.
+     */
+    public void set(int row, int col, Ground ground)
+    {
+        int cell = row * width + col;
+        long bit = 1L << cell;
+        if(ground == Ground.ROCK) {
+            open[cell >>> 6] &= ~bit;
+        }
+        else {
+            open[cell >>> 6] |= bit;
+        }
+        if(ground == Ground.REEF) {
+            reef[cell >>> 6] |= bit;
+        }
+        else {
+            reef[cell >>> 6] &= ~bit;
+        }
+    }
+
+    /**
+     * @param cell The cell index (row * width + col).
+     * @return The ground of the cell.
+     */
+    public Ground get(int cell)
+    {
+        if(!isOpen(cell)) {
+            return Ground.ROCK;
+        }
+        return isReef(cell) ? Ground.REEF : Ground.WATER;
+    }
+
+    /**
+     * @param cell The cell index (row * width + col).
+     * @return true If the cell is not rock.
+     */
+    public boolean isOpen(int cell)
+    {
+        return (open[cell >>> 6] >>> cell & 1) != 0;
+    }
+
+    /**
+     * @param cell The cell index (row * width + col).
+     * @return true If the cell is reef.
+     */
+    public boolean isReef(int cell)
+    {
+        return (reef[cell >>> 6] >>> cell & 1) != 0;
+    }
+
+    /**
+     * @return The bits of the cells that are not rock.
+     */
+    long[] getOpenBits()
+    {
+        return open;
+    }
+
+    /**
+     * @return The bits of the reef cells.
+     */
+    long[] getReefBits()
+    {
+        return reef;
+    }
+
+    /**
+     * @return The depth of the terrain.
+     */
+    public int getDepth()
+    {
+        return depth;
+    }
+
+    /**
+     * @return The width of the terrain.
+     */
+    public int getWidth()
+    {
+        return width;
+    }
+
+    /**
+     * Count the cells of every kind of ground.
+     *
+     * @return The counts, indexed by the ordinal of the ground.
+     */
+    public int[] getCounts()
+    {
+        int[] counts = new int[Ground.values().length];
+        for(int cell = 0; cell < depth * width; cell++) {
+            counts[get(cell).ordinal()]++;
+        }
+        return counts;
+    }
+
+    /**
+     * Read a stretch of bits, without checking where it ends: the bits
+     * past the end of the word are taken from the next word. The second
+     * shift is split in two so a stretch starting at bit 0 of a word
+     * shifts the next word out instead of by 64, which Java ignores.
+     *
+     * @param bits The bitset, with one spare word at the end.
+     * @param start The first bit.
+     * @param length The number of bits, at most 63.
+     * @return The bits, the first one lowest.
+     */
+    static long bitsAt(long[] bits, int start, int length)
+    {
+        int word = start >>> 6;
+        int shift = start & 63;
+        long value = (bits[word] >>> shift) | ((bits[word + 1] << 1) << (63 - shift));
+        return value & ((1L << length) - 1);
+    }
+}
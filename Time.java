@@ -11,12 +11,31 @@ public class Time
     // The time in which night time ends. (5AM)
     private static final int NIGHT_TIME = 5;
 
-    private static int hour;
-    private static int minute;
+    private int hour;
+    private int minute;
     /**
      * We set the starting time of the simlation at 12PM.
      */
     public Time()
+    {
+        reset();
+    }
+
+    /**
+     * Create a time equal to another one.
+     * 
+     * @param other The time to copy.
+     */
+    public Time(Time other)
+    {
+        hour = other.hour;
+        minute = other.minute;
+    }
+
+    /**
+     * Go back to the starting time of the simulation.
+     */
+    public final void reset()
     {
         hour = 6;
         minute = 0;
@@ -50,12 +69,20 @@ public class Time
         }
     }
 
+    /**
+     * @return A hash of the time of day.
+     */
+    public long stateHash()
+    {
+        return Zobrist.mix(hour * 60L + minute);
+    }
+
     /**
      * Checking wether its day or night time.
      * 
      * @return true If its day time, false otherwise.
      */
-    public static boolean isDay()
+    public boolean isDay()
     {
         return hour < DAY_TIME && hour > NIGHT_TIME;
     }
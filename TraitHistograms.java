@@ -0,0 +1,136 @@
+import java.util.Random;
+
+/**
+ * How many live animals of every species have every level of every
+ * trait of their genome (see Genome), in one field. The field updates it
+ * as animals are placed, die or are replaced in their cell, like its
+ * hash, so reading the distribution of a trait never walks the animals.
+ *
+ * @author Nicolás Alcalá Olea and Bailey Crossan
+ */
+public class TraitHistograms
+{
+    // The traits, cached since values() copies the array on every call,
+    // and their number.
+    private static final Genome.Trait[] TRAIT_LIST = Genome.Trait.values();
+    private static final int TRAITS = TRAIT_LIST.length;
+
+    // The counts, species after species and trait after trait:
+    // counts[(species * TRAITS + trait) * Genome.LEVELS + level].
+    private final int[] counts = new int[Species.values().length * TRAITS * Genome.LEVELS];
+
+    /**
+     * Count an animal that entered the field.
+     *
+     * @param species Its species.
+     * @param genome Its genome.
+     */
+    public void add(Species species, long genome)
+    {
+        change(species, genome, 1);
+    }
+
+    /**
+     * Stop counting an animal that left the field.
+     *
+     * @param species Its species.
+     * @param genome Its genome.
+     */
+    public void remove(Species species, long genome)
+    {
+        change(species, genome, -1);
+    }
+
+    /**
+     * Change the counts of the levels of every trait of a genome.
+     *
+     * @param species The species.
+     * @param genome The genome.
+     * @param n The change.
+     */
+    private void change(Species species, long genome, int n)
+    {
+        int base = species.id() * TRAITS * Genome.LEVELS;
+        for(int trait = 0; trait < TRAITS; trait++) {
+            counts[base + trait * Genome.LEVELS + (int) (genome >>> (trait * Genome.BITS) & (Genome.LEVELS - 1))] += n;
+        }
+    }
+
+    /**
+     * Return how many animals of a species have each level of a trait.
+     *
+     * @param species The species.
+     * @param trait The trait.
+     * @return The counts, indexed by the level.
+     */
+    public int[] get(Species species, Genome.Trait trait)
+    {
+        int[] histogram = new int[Genome.LEVELS];
+        System.arraycopy(counts, (species.id() * TRAITS + trait.ordinal()) * Genome.LEVELS, histogram, 0, Genome.LEVELS);
+        return histogram;
+    }
+
+    /**
+     * Return the mean factor a trait scales its constant by over the
+     * animals of a species.
+     *
+     * @param species The species.
+     * @param trait The trait.
+     * @return The mean factor, or 1 if there are none.
+     */
+    public double getMeanFactor(Species species, Genome.Trait trait)
+    {
+        int base = (species.id() * TRAITS + trait.ordinal()) * Genome.LEVELS;
+        long animals = 0;
+        double sum = 0;
+        for(int level = 0; level < Genome.LEVELS; level++) {
+            animals += counts[base + level];
+            sum += counts[base + level] * Genome.getFactor(Genome.setLevel(0, trait, level), trait);
+        }
+        return animals == 0 ? 1 : sum / animals;
+    }
+
+    /**
+     * Draw a genome for an animal of a species, every trait from the
+     * distribution of that trait over the species, or the neutral level
+     * if there are none.
+     *
+     * @param species The species.
+     * @param rand The random generator to use.
+     * @return The genome.
+     */
+    public long sample(Species species, Random rand)
+    {
+        long genome = Genome.NEUTRAL;
+        for(Genome.Trait trait : TRAIT_LIST) {
+            int base = (species.id() * TRAITS + trait.ordinal()) * Genome.LEVELS;
+            int animals = 0;
+            for(int level = 0; level < Genome.LEVELS; level++) {
+                animals += counts[base + level];
+            }
+            if(animals == 0) {
+                continue;
+            }
+            int pick = rand.nextInt(animals);
+            int level = 0;
+            while(pick >= counts[base + level]) {
+                pick -= counts[base + level++];
+            }
+            genome = Genome.setLevel(genome, trait, level);
+        }
+        return genome;
+    }
+
+    /**
+     * Add the counts of another field, to sum the layers of a water
+     * column.
+     *
+     * @param other The other histograms.
+     */
+    public void addAll(TraitHistograms other)
+    {
+        for(int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+    }
+}
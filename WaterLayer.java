@@ -0,0 +1,61 @@
+/**
+ * The layers of a water column, from the surface down to the seabed. A
+ * world with several layers keeps one field for each (see
+ * Simulator.setWaterColumn): the top one is the surface, the bottom one
+ * the seabed and every layer in between is mid-water. Every species
+ * lives in some of them, and an animal moves up or down between layers
+ * it lives in.
+ *
+ * @author Nicolás Alcalá Olea and Bailey Crossan
+ */
+public enum WaterLayer
+{
+    SURFACE("Surface"), MID_WATER("Mid-water"), SEABED("Seabed");
+
+    // A mask with the bit of every layer set.
+    public static final int ALL_MASK = (1 << values().length) - 1;
+
+    // The name shown in the view.
+    private final String displayName;
+
+    /**
+     * Define a layer.
+     *
+     * @param displayName The name shown in the view.
+     */
+    WaterLayer(String displayName)
+    {
+        this.displayName = displayName;
+    }
+
+    /**
+     * Return the layer a field of a water column holds.
+     *
+     * @param layer The number of the field, 0 at the top.
+     * @param layers The number of fields in the column, at least 2.
+     * @return The layer.
+     */
+    public static WaterLayer of(int layer, int layers)
+    {
+        if(layer == 0) {
+            return SURFACE;
+        }
+        return layer == layers - 1 ? SEABED : MID_WATER;
+    }
+
+    /**
+     * @return The bit of the layer in a habitat mask.
+     */
+    public int bit()
+    {
+        return 1 << ordinal();
+    }
+
+    /**
+     * @return The name shown in the view.
+     */
+    public String getDisplayName()
+    {
+        return displayName;
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * This enumeration holds the ways the weather changes what the organisms
+ * do, one for every class of organism and activity. Each one turns a
+ * weather into a modifier, 1 meaning no change.
+ *
+ * @author Nicolás Alcalá Olea and Bailey Crossan
+ */
+public enum WeatherEffect
+{
+    PREDATOR_HUNTING, PREDATOR_MOVING, PREY_FEEDING, PREY_MOVING, PLANT_GROWTH;
+
+    /**
+     * Return the modifier of this effect in a weather.
+     *
+     * @param weather The weather.
+     * @return The modifier.
+     */
+    public double of(Weather weather)
+    {
+        switch (this) {
+            case PREDATOR_HUNTING:
+                return Animal.getPredatorHuntingModifier(weather);
+            case PREDATOR_MOVING:
+                return Animal.getPredatorMovingModifier(weather);
+            case PREY_FEEDING:
+                return Animal.getPreyFeedingModifier(weather);
+            case PREY_MOVING:
+                return Animal.getPreyMovingModifier(weather);
+            default:
+                return AlgaeLayer.getPlantGrowthModifier(weather);
+        }
+    }
+
+    /**
+     * @param species A species of animal.
+     * @return The effect on how well the species feeds.
+     */
+    public static WeatherEffect feeding(Species species)
+    {
+        return species.isPredator() ? PREDATOR_HUNTING : PREY_FEEDING;
+    }
+
+    /**
+     * @param species A species of animal.
+     * @return The effect on how likely the species is to move.
+     */
+    public static WeatherEffect moving(Species species)
+    {
+        return species.isPredator() ? PREDATOR_MOVING : PREY_MOVING;
+    }
+}
@@ -10,15 +10,40 @@ import java.util.Random;
 public class WeatherManager {
     private Weather currentWeather;
     private double timeRemaining; // The simulation steps remaining in the current weather.
-    private Random random;
+    private final Random random;
 
     /**
      * Weather manager constructor, where we make the simulation start
      * with a clear weather and give it a random time duration.
+     * 
+     * @param random The random generator of the world.
+     */
+    public WeatherManager(Random random) 
+    {
+        this.random = random;
+        reset();
+    }
+
+    /**
+     * Create a weather manager with the same weather as another one,
+     * lasting for the same time.
+     * 
+     * @param other The weather manager to copy.
+     * @param random The random generator of the new one.
+     */
+    public WeatherManager(WeatherManager other, Random random)
+    {
+        this.random = random;
+        currentWeather = other.currentWeather;
+        timeRemaining = other.timeRemaining;
+    }
+
+    /**
+     * Go back to a clear weather with a new random duration, as when
+     * the simulation starts.
      */
-    public WeatherManager() 
+    public final void reset()
     {
-        random = new Random();
         currentWeather = Weather.CLEAR;
         timeRemaining = randomDuration();
     }
@@ -65,4 +90,14 @@ public class WeatherManager {
     {
         return currentWeather;
     }
+
+    /**
+     * Return a hash of the weather and of how long it will last.
+     * 
+     * @return The hash of the weather.
+     */
+    public long stateHash()
+    {
+        return Zobrist.mix(currentWeather.ordinal() * 31L + Double.doubleToLongBits(timeRemaining));
+    }
 }
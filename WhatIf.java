@@ -0,0 +1,69 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compare what happens to the reef after removing one species. The
+ * simulation runs up to a given step and is then forked into one
+ * branch that carries on unchanged and one branch for every animal
+ * species in which that species is removed. The branches run in
+ * parallel and the number of every species at the end of each branch
+ * is printed. It can be run with
+ *
+ *     java WhatIf [depth] [width] [forkStep] [steps]
+ *
+ * @author Nicolás Alcalá Olea and Bailey Crossan
+ */
+public class WhatIf
+{
+    // The default size of the field.
+    private static final int DEFAULT_SIZE = 200;
+    // The default step at which the simulation is forked.
+    private static final int DEFAULT_FORK_STEP = 50;
+    // The default number of steps run by every branch.
+    private static final int DEFAULT_STEPS = 100;
+    // The seed the branches' random streams are derived from.
+    private static final long BRANCH_SEED = 2024;
+
+    /**
+     * Run the comparison.
+     *
+     * @param args The depth, width, step of the fork and number of steps
+     *             run by every branch, all optional.
+     */
+    public static void main(String[] args)
+    {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SIZE;
+        int width = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SIZE;
+        int forkStep = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_FORK_STEP;
+        int steps = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_STEPS;
+
+        Simulator simulator = new Simulator(depth, width, false);
+        for(int n = 0; n < forkStep; n++) {
+            simulator.simulateOneStep();
+        }
+        System.out.println("Step " + forkStep + ": " + simulator.getField().getStats());
+
+        Species[] removed = Arrays.stream(Species.values())
+            .filter(species -> !species.isPlant())
+            .toArray(Species[]::new);
+        List<Simulator> branches = simulator.fork(removed.length + 1, BRANCH_SEED);
+        for(int b = 1; b < branches.size(); b++) {
+            branches.get(b).getField().removeAll(removed[b - 1]);
+        }
+
+        long start = System.nanoTime();
+        branches.parallelStream().forEach(branch -> {
+            for(int n = 0; n < steps; n++) {
+                branch.simulateOneStep();
+            }
+        });
+        long elapsed = System.nanoTime() - start;
+
+        for(int b = 0; b < branches.size(); b++) {
+            Simulator branch = branches.get(b);
+            String label = b == 0 ? "unchanged" : "without " + removed[b - 1].getDisplayName();
+            System.out.printf("%-24s step %d: %s%n", label, branch.getStep(), branch.getField().getStats());
+        }
+        System.out.printf("%d branches ran in %.1f ms%n", branches.size(), elapsed / 1e6);
+    }
+}
@@ -0,0 +1,230 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * The world seeder fills a new field with organisms. Trying every
+ * species in every cell, as the simulator used to do, costs up to one
+ * random number per species and cell. Instead, the seeder jumps straight
+ * to the next occupied cell with a geometric skip and then picks which
+ * species lives there, which gives the same proportions as trying the
+ * species one after the other with their creation probabilities.
+ *
+ * The field is cut into square tiles that are seeded in parallel, each
+ * with its own random generator derived from the seed and the tile
+ * number, so the result only depends on the seed. When the world
+ * evolves, every animal also draws a genome (see Genome).
+ *
+ * @author Nicolás Alcalá Olea and Bailey Crossan
+ */
+public class WorldSeeder
+{
+    // The side of a square tile, in cells.
+    private static final int TILE_SIZE = 128;
+
+    // The probability that a cell holds any organism.
+    private final double occupiedProbability;
+    // For every species, the probability that an occupied cell holds it
+    // or one of the species before it in the table.
+    private final double[] cumulative;
+
+    /**
+     * Work out the probabilities of every species from the species table.
+     */
+    public WorldSeeder()
+    {
+        Species[] allSpecies = Species.values();
+        double[] chance = new double[allSpecies.length];
+        double emptySoFar = 1;
+        for(Species species : allSpecies) {
+            // A species is only tried when all the ones before it failed.
+            chance[species.id()] = emptySoFar * species.getCreationProbability();
+            emptySoFar *= 1 - species.getCreationProbability();
+        }
+        occupiedProbability = 1 - emptySoFar;
+
+        cumulative = new double[allSpecies.length];
+        double sum = 0;
+        for(int i = 0; i < allSpecies.length; i++) {
+            sum += chance[i] / occupiedProbability;
+            cumulative[i] = sum;
+        }
+    }
+
+    /**
+     * Randomly populate an empty field with organisms.
+     *
+     * @param field The field to fill.
+     * @param seed The seed all the tiles' generators are derived from.
+     */
+    public void populate(Field field, long seed)
+    {
+        populate(field, seed, field.getDepth(), 0, field.getDepth(), 0);
+    }
+
+    /**
+     * Randomly populate some rows of a larger world, which are held by a
+     * field that might have a few more rows above them. The rows get the
+     * same organisms as when the whole world is populated with the same
+     * seed, so a world split between several processes starts the same.
+     *
+     * @param field The field to fill.
+     * @param seed The seed all the tiles' generators are derived from.
+     * @param worldDepth The depth of the whole world.
+     * @param firstRow The first row of the world to fill.
+     * @param lastRow The row of the world after the last one to fill.
+     * @param rowOffset The row of the world held by the field's first row.
+     */
+    public void populate(Field field, long seed, int worldDepth, int firstRow, int lastRow, int rowOffset)
+    {
+        int tileCols = (field.getWidth() + TILE_SIZE - 1) / TILE_SIZE;
+        int firstTileRow = firstRow / TILE_SIZE;
+        int lastTileRow = (lastRow + TILE_SIZE - 1) / TILE_SIZE;
+        boolean evolution = field.getEnvironment().hasEvolution();
+        Tile[] tiles = IntStream.range(firstTileRow * tileCols, lastTileRow * tileCols)
+            .parallel()
+            .mapToObj(tile -> seedTile(field.getWidth(), worldDepth, tile / tileCols, tile % tileCols,
+                                       seed, firstRow, lastRow, rowOffset, evolution))
+            .toArray(Tile[]::new);
+
+        // Put the organisms in the field in tile order, so the order of
+        // the animal lists does not depend on the threads.
+        // Nothing is put on rock, algae only on reef, and in a water
+        // column every species only in the layers it lives in.
+        AlgaeLayer algae = field.getAlgae();
+        Terrain terrain = field.getEnvironment().getTerrain();
+        WaterLayer layer = field.getWaterLayer();
+        boolean algaeLive = Species.ALGAE.livesIn(layer);
+        for(Tile tile : tiles) {
+            for(Animal anAnimal : tile.animals) {
+                if(anAnimal.getSpecies().livesIn(layer)
+                   && (terrain == null || terrain.isOpen(field.indexOf(anAnimal.getLocation())))) {
+                    field.placeAnimal(anAnimal, anAnimal.getLocation());
+                }
+            }
+            for(int i = 0; i < tile.algaeCount; i++) {
+                if(algaeLive && (terrain == null || terrain.isReef(tile.algaeCells[i]))) {
+                    algae.plant(tile.algaeCells[i], tile.algaeAges[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Create the organisms of one tile, keeping the ones in the rows
+     * being filled.
+     *
+     * @param width The width of the world.
+     * @param worldDepth The depth of the world.
+     * @param tileRow The row of the tile.
+     * @param tileCol The column of the tile.
+     * @param seed The seed of the whole world.
+     * @param keepFrom The first row of the world to keep.
+     * @param keepTo The row of the world after the last one to keep.
+     * @param rowOffset The row of the world held by the field's first row.
+     * @param evolution Whether the animals get a random genome.
+     * @return The organisms of the tile, in the field's rows.
+     */
+    private Tile seedTile(int width, int worldDepth, int tileRow, int tileCol, long seed,
+                          int keepFrom, int keepTo, int rowOffset, boolean evolution)
+    {
+        int firstRow = tileRow * TILE_SIZE;
+        int firstCol = tileCol * TILE_SIZE;
+        int rows = Math.min(TILE_SIZE, worldDepth - firstRow);
+        int cols = Math.min(TILE_SIZE, width - firstCol);
+        // Every tile has its own stream, so neighbouring tiles get unrelated
+        // numbers.
+        Random rand = Randomizer.newStream(seed, tileRow * 65536L + tileCol);
+
+        Tile tile = new Tile((int) (rows * cols * occupiedProbability * 1.1) + 16);
+        long next = Randomizer.geometricSkip(rand, occupiedProbability);
+        while(next < rows * cols) {
+            int row = firstRow + (int) (next / cols);
+            int col = firstCol + (int) (next % cols);
+            // Every organism draws the same numbers whether it is kept
+            // or not, so the rest of the tile does not change.
+            Species species = pickSpecies(rand);
+            boolean keep = row >= keepFrom && row < keepTo;
+            int localRow = row - rowOffset;
+            if(species.isPlant()) {
+                int age = AlgaeLayer.randomAge(rand);
+                if(keep) {
+                    tile.addAlgae(localRow * width + col, age);
+                }
+            }
+            else {
+                Animal anAnimal = new Animal(species, true, new Location(localRow, col), rand);
+                if(evolution) {
+                    anAnimal.setGenome(Genome.random(rand));
+                }
+                if(keep) {
+                    tile.animals.add(anAnimal);
+                }
+            }
+            next += 1L + Randomizer.geometricSkip(rand, occupiedProbability);
+        }
+        return tile;
+    }
+
+    /**
+     * Pick the species living in an occupied cell.
+     *
+     * @param rand The random generator to use.
+     * @return The species.
+     */
+    private Species pickSpecies(Random rand)
+    {
+        double pick = rand.nextDouble();
+        Species[] allSpecies = Species.values();
+        for(int i = 0; i < allSpecies.length - 1; i++) {
+            if(pick < cumulative[i]) {
+                return allSpecies[i];
+            }
+        }
+        return allSpecies[allSpecies.length - 1];
+    }
+
+    /**
+     * The organisms created in one tile, before they are put in the field.
+     */
+    private static class Tile
+    {
+        // The animals, which already know their location.
+        private final List<Animal> animals;
+        // The cells and ages of the algae.
+        private int[] algaeCells;
+        private int[] algaeAges;
+        private int algaeCount;
+
+        /**
+         * Create an empty tile.
+         *
+         * @param expected The expected number of organisms.
+         */
+        Tile(int expected)
+        {
+            animals = new ArrayList<>(expected);
+            algaeCells = new int[expected];
+            algaeAges = new int[expected];
+        }
+
+        /**
+         * Add an algae.
+         *
+         * @param index The cell index (row * width + col).
+         * @param age The age of the algae.
+         */
+        void addAlgae(int index, int age)
+        {
+            if(algaeCount == algaeCells.length) {
+                algaeCells = Arrays.copyOf(algaeCells, algaeCount * 2);
+                algaeAges = Arrays.copyOf(algaeAges, algaeCount * 2);
+            }
+            algaeCells[algaeCount] = index;
+            algaeAges[algaeCount] = age;
+            algaeCount++;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+import java.util.Random;
+
+/**
+ * A fast random generator using the xoshiro256** algorithm by David
+ * Blackman and Sebastiano Vigna. Unlike java.util.Random it keeps its
+ * state in plain fields without any locking or atomic updates, so it
+ * must only be used by one thread at a time. It extends Random so it
+ * can be used everywhere a Random is expected.
+ *
+ * @author Nicolás Alcalá Olea and Bailey Crossan
+ */
+public class XoshiroRandom extends Random
+{
+    // The version of the serialized form inherited from Random.
+    private static final long serialVersionUID = 1L;
+    // The four words of the generator's state.
+    private long s0, s1, s2, s3;
+    // The number of 64 bit values drawn since the last seeding.
+    private long draws;
+
+    /**
+     * Create a generator with the given seed.
+     *
+     * @param seed The seed.
+     */
+    public XoshiroRandom(long seed)
+    {
+        super(seed);
+    }
+
+    /**
+     * Seed the generator. The four state words are filled from the seed
+     * with SplitMix64, as recommended by the authors of xoshiro.
+     *
+     * @param seed The seed.
+     */
+    @Override
+    public void setSeed(long seed)
+    {
+        long x = seed;
+        x += 0x9E3779B97F4A7C15L;
+        s0 = mix(x);
+        x += 0x9E3779B97F4A7C15L;
+        s1 = mix(x);
+        x += 0x9E3779B97F4A7C15L;
+        s2 = mix(x);
+        x += 0x9E3779B97F4A7C15L;
+        s3 = mix(x);
+        draws = 0;
+    }
+
+    /**
+     * The SplitMix64 output function.
+     */
+    private static long mix(long z)
+    {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    @Override
+    public long nextLong()
+    {
+        draws++;
+        long result = Long.rotateLeft(s1 * 5, 7) * 9;
+        long t = s1 << 17;
+        s2 ^= s0;
+        s3 ^= s1;
+        s1 ^= s2;
+        s0 ^= s3;
+        s2 ^= t;
+        s3 = Long.rotateLeft(s3, 45);
+        return result;
+    }
+
+    @Override
+    protected int next(int bits)
+    {
+        return (int) (nextLong() >>> (64 - bits));
+    }
+
+    @Override
+    public int nextInt()
+    {
+        return (int) (nextLong() >>> 32);
+    }
+
+    @Override
+    public int nextInt(int bound)
+    {
+        if(bound <= 0) {
+            throw new IllegalArgumentException("bound must be positive");
+        }
+        // Lemire's method: multiply instead of dividing, and reject the
+        // few values that would make the result biased.
+        long m = (nextLong() >>> 32) * bound;
+        long low = m & 0xFFFFFFFFL;
+        if(low < bound) {
+            long threshold = (0x100000000L - bound) % bound;
+            while(low < threshold) {
+                m = (nextLong() >>> 32) * bound;
+                low = m & 0xFFFFFFFFL;
+            }
+        }
+        return (int) (m >>> 32);
+    }
+
+    @Override
+    public double nextDouble()
+    {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    @Override
+    public boolean nextBoolean()
+    {
+        return nextLong() < 0;
+    }
+
+    /**
+     * @return The number of 64 bit values drawn since the last seeding.
+     */
+    public long getDraws()
+    {
+        return draws;
+    }
+
+    /**
+     * @return A hash of the generator's state, equal for two generators
+     *         that will hand out the same numbers.
+     */
+    public long stateHash()
+    {
+        return Zobrist.mix(s0 ^ Zobrist.mix(s1 ^ Zobrist.mix(s2 ^ Zobrist.mix(s3))));
+    }
+}
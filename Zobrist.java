@@ -0,0 +1,44 @@
+/**
+ * Zobrist hashing of a world. Every (cell, state) pair has a random
+ * 64 bit key and the hash of a world is the XOR of the keys of all the
+ * occupied cells, so placing, removing or changing one organism updates
+ * the hash with one or two XORs. Large worlds would need a huge table of
+ * keys, so the keys are computed by mixing the cell and the state with
+ * the SplitMix64 finalizer instead of being looked up.
+ *
+ * The state of an animal is packed into an int with its species id,
+ * gender, infection and age bucket, see Animal.
+ *
+ * @author Nicolás Alcalá Olea and Bailey Crossan
+ */
+public class Zobrist
+{
+    // A fixed salt, so the keys do not start from zero.
+    private static final long SALT = 0x5DEECE66DL;
+
+    /**
+     * Return the key of an organism in a given state in a given cell.
+     *
+     * @param index The cell index (row * width + col).
+     * @param state The packed state of the organism.
+     * @return The 64 bit key.
+     */
+    public static long key(int index, int state)
+    {
+        return mix(((long) index << 32 | (state & 0xFFFFFFFFL)) + SALT);
+    }
+
+    /**
+     * Mix the bits of a value, so that close values give unrelated results.
+     *
+     * @param z The value.
+     * @return The mixed value.
+     */
+    public static long mix(long z)
+    {
+        z += 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}